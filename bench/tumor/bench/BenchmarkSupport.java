@@ -0,0 +1,48 @@
+
+package tumor.bench;
+
+import tumor.driver.TumorDriver;
+
+/**
+ * Configures the global simulation properties before a benchmark is
+ * run.
+ *
+ * <p>JMH runs each benchmark and parameter combination in a separate
+ * forked JVM, so the global models (which read the system properties
+ * only once) are created fresh for every configuration.
+ */
+final class BenchmarkSupport {
+    private BenchmarkSupport() {}
+
+    /**
+     * The fixed random seed used by all benchmarks.
+     */
+    static final String RANDOM_SEED = "20071202";
+
+    /**
+     * Assigns the properties for a perfectly replicating tumor with
+     * intrinsic growth, pinned components, and no senescence on a
+     * cubic lattice.  No mutation rate types are assigned, so the
+     * global mutation generator is empty.
+     *
+     * @param siteCapacity the capacity of each lattice site (for
+     * deme and lineage tumors).
+     */
+    static void configure(long siteCapacity) {
+        System.setProperty("tumor.capacity.modelType", "UNIFORM");
+        System.setProperty("tumor.capacity.siteCapacity", Long.toString(siteCapacity));
+
+        System.setProperty("tumor.growth.birthRate", "0.55");
+        System.setProperty("tumor.growth.deathRate", "0.45");
+        System.setProperty("tumor.growth.localModelType", "INTRINSIC");
+
+        System.setProperty("tumor.lattice.periodLength", "10000");
+
+        System.setProperty("tumor.migrate.modelType", "PINNED");
+        System.setProperty("tumor.senesce.modelType", "NONE");
+
+        System.setProperty("jam.math.randomSeed", RANDOM_SEED);
+
+        TumorDriver.junit();
+    }
+}
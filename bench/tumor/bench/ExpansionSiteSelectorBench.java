@@ -0,0 +1,45 @@
+
+package tumor.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import jam.lattice.Coord;
+
+import tumor.lattice.ExpansionSiteSelector;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+
+/**
+ * Benchmarks the selection of expansion sites for multi-cellular
+ * components.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpansionSiteSelectorBench {
+    private Coord parentCoord;
+    private RandomStream randomSource;
+    private int[] packed;
+
+    @Setup(Level.Trial) public void setup() {
+        BenchmarkSupport.configure(1);
+
+        parentCoord  = Coord.at(10, -20, 30);
+        randomSource = RandomStreams.current();
+        packed       = new int[256];
+    }
+
+    @Benchmark public Coord select() {
+        return ExpansionSiteSelector.INSTANCE.select(parentCoord, randomSource);
+    }
+
+    @Benchmark @OperationsPerInvocation(256) public int[] selectPacked() {
+        ExpansionSiteSelector.INSTANCE.selectPacked(randomSource, packed, 0, packed.length);
+        return packed;
+    }
+}
@@ -0,0 +1,45 @@
+
+package tumor.bench;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tumor.mutation.FixedGenotype;
+import tumor.mutation.Genotype;
+import tumor.mutation.Mutation;
+
+/**
+ * Benchmarks the traversal of accumulated mutations in genotypes with
+ * deep ancestries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenotypeBench {
+    @Param({ "10", "100", "1000" })
+    public int generationCount;
+
+    private Genotype genotype;
+
+    @Setup(Level.Trial) public void setup() {
+        BenchmarkSupport.configure(1);
+        genotype = FixedGenotype.TRANSFORMER;
+
+        for (int generation = 0; generation < generationCount; ++generation)
+            genotype = genotype.forDaughter(List.of(Mutation.neutral()));
+    }
+
+    @Benchmark public void scanAccumulatedMutations(Blackhole blackhole) {
+        Iterator<Mutation> iterator = genotype.scanAccumulatedMutations();
+
+        while (iterator.hasNext())
+            blackhole.consume(iterator.next());
+    }
+}
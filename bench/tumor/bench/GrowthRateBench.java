@@ -0,0 +1,35 @@
+
+package tumor.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tumor.growth.GrowthCount;
+import tumor.growth.GrowthRate;
+
+/**
+ * Benchmarks the resolution of birth and death counts for populations
+ * below and above the explicit sampling limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrowthRateBench {
+    @Param({ "1", "10", "1000", "1000000" })
+    public long population;
+
+    private GrowthRate growthRate;
+
+    @Setup(Level.Trial) public void setup() {
+        BenchmarkSupport.configure(1);
+        growthRate = new GrowthRate(0.55, 0.45);
+    }
+
+    @Benchmark public GrowthCount resolveCount() {
+        return growthRate.resolveCount(population, Long.MAX_VALUE);
+    }
+}
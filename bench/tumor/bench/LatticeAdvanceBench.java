@@ -0,0 +1,82 @@
+
+package tumor.bench;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tumor.carrier.Deme;
+import tumor.carrier.Lineage;
+import tumor.carrier.Tumor;
+import tumor.carrier.TumorCell;
+import tumor.growth.GrowthRate;
+import tumor.lattice.CellularLatticeTumor;
+import tumor.lattice.DemeLatticeTumor;
+import tumor.lattice.LatticeTumor;
+import tumor.lattice.LineageLatticeTumor;
+
+/**
+ * Benchmarks a single complete time step for lattice tumors of each
+ * component type.
+ *
+ * <p>Each trial first grows a tumor to the target size (which is not
+ * timed), and each invocation then advances the tumor by one time
+ * step.  The tumor continues to grow during the measurement, by about
+ * ten percent per step with the configured growth rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LatticeAdvanceBench {
+    @Param({ "CELL", "DEME", "LINEAGE" })
+    public String componentType;
+
+    @Param({ "10000", "1000000", "10000000" })
+    public long cellCount;
+
+    private LatticeTumor<?> tumor;
+
+    // Site capacity for the deme and lineage tumors and the number
+    // of founding cells (enough to make early extinction negligible)...
+    private static final long SITE_CAPACITY = 100;
+    private static final int  FOUNDER_COUNT = 100;
+
+    @Setup(Level.Trial) public void setup() {
+        BenchmarkSupport.configure(SITE_CAPACITY);
+
+        tumor = createTumor();
+
+        while (tumor.countCells() < cellCount) {
+            tumor.advance();
+
+            if (tumor.countCells() == 0)
+                throw new IllegalStateException("Benchmark tumor became extinct.");
+        }
+    }
+
+    private LatticeTumor<?> createTumor() {
+        GrowthRate growthRate = GrowthRate.global();
+
+        switch (componentType) {
+        case "CELL":
+            return CellularLatticeTumor.primary(TumorCell.founders(FOUNDER_COUNT, growthRate));
+
+        case "DEME":
+            return DemeLatticeTumor.primary(Deme.founder(growthRate, FOUNDER_COUNT));
+
+        case "LINEAGE":
+            return LineageLatticeTumor.primary(Lineage.founder(growthRate, FOUNDER_COUNT));
+
+        default:
+            throw new IllegalArgumentException("Unknown component type: " + componentType);
+        }
+    }
+
+    @Benchmark public Collection<? extends Tumor<?>> advance() {
+        return tumor.advance();
+    }
+}
@@ -0,0 +1,36 @@
+
+package tumor.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import tumor.mutation.MutationRate;
+
+/**
+ * Benchmarks the resolution of per-daughter mutation counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationRateBench {
+    @Param({ "0.01", "1.0" })
+    public double meanRate;
+
+    @Param({ "1", "100", "10000" })
+    public long daughterCount;
+
+    private MutationRate mutationRate;
+
+    @Setup(Level.Trial) public void setup() {
+        BenchmarkSupport.configure(1);
+        mutationRate = MutationRate.poisson(meanRate);
+    }
+
+    @Benchmark public int[] resolveMutationCounts() {
+        return mutationRate.resolveMutationCounts(daughterCount);
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * JMH benchmarks for the simulation hot paths.
+ *
+ * <p>The benchmarks are compiled and run by the {@code jmh} target in
+ * {@code build.xml}, which requires the environment variable
+ * {@code JMH_HOME} to name a directory containing the JMH core and
+ * annotation-processor jar files.  Results are written in JSON format
+ * so that they may be compared between commits.
+ */
+package tumor.bench;
@@ -44,6 +44,9 @@ public abstract class CapacityModel {
         case UNIFORM:
             return UniformCapacity.createGlobal();
 
+        case FIELD:
+            return FieldCapacity.createGlobal();
+
         default:
             throw JamException.runtime("Unknown capacity model [%s].", modelType);
         }
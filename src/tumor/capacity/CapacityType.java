@@ -13,5 +13,10 @@ public enum CapacityType {
     /**
      * All lattice sites have the same uniform capacity.
      */
-    UNIFORM;
+    UNIFORM,
+
+    /**
+     * Site capacities vary in space but are constant through time.
+     */
+    FIELD;
 }
@@ -0,0 +1,207 @@
+
+package tumor.capacity;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToLongFunction;
+
+import jam.app.JamProperties;
+import jam.lattice.Coord;
+import jam.lattice.Neighborhood;
+import jam.math.LongRange;
+
+import tumor.lattice.BlockGrid;
+
+/**
+ * Implements a capacity model in which the site capacity is constant
+ * through time but varies in space: a capacity field (a vascularized
+ * region or a necrotic core, for example) is embedded in a uniform
+ * background.
+ *
+ * <p>The site capacities are stored in a {@link BlockGrid}, so the
+ * regions of uniform capacity (including the entire background)
+ * require almost no memory.  The total capacity of each neighborhood
+ * is computed once, when it is first requested, and stored in another
+ * block grid, so neighborhood capacities are found in constant time.
+ *
+ * <p>The global model is a spherical core centered at the origin with
+ * capacity <b>{@code tumor.capacity.coreCapacity}</b> and radius
+ * <b>{@code tumor.capacity.coreRadius}</b> embedded in a background
+ * with capacity <b>{@code tumor.capacity.siteCapacity}</b>.
+ */
+public final class FieldCapacity extends CapacityModel {
+    private final long backgroundCapacity;
+    private final int  fieldRadius;
+    private final BlockGrid siteCapacities;
+
+    // Total neighborhood capacities, indexed by neighborhood ordinal
+    // and created when first requested...
+    private final AtomicReferenceArray<BlockGrid> neighborhoodCapacities =
+        new AtomicReferenceArray<BlockGrid>(Neighborhood.values().length);
+
+    /**
+     * Name of the system property that defines the radius of the
+     * core region in the global model.
+     */
+    public static final String CORE_RADIUS_PROPERTY = "tumor.capacity.coreRadius";
+
+    /**
+     * Name of the system property that defines the site capacity
+     * within the core region in the global model.
+     */
+    public static final String CORE_CAPACITY_PROPERTY = "tumor.capacity.coreCapacity";
+
+    /**
+     * Creates a new capacity field.
+     *
+     * @param backgroundCapacity the capacity of every site outside of
+     * the field region.
+     *
+     * @param fieldRadius the half-width of the field region: the cube
+     * centered at the origin containing every site with a capacity
+     * different from the background capacity.
+     *
+     * @param field the capacity of each site within the field region.
+     *
+     * @throws IllegalArgumentException unless the field radius is
+     * non-negative and every site capacity is positive.
+     */
+    public FieldCapacity(long backgroundCapacity, int fieldRadius, ToLongFunction<Coord> field) {
+        validateSiteCapacity(backgroundCapacity);
+
+        if (fieldRadius < 0)
+            throw new IllegalArgumentException("Field radius must be non-negative.");
+
+        this.fieldRadius = fieldRadius;
+        this.backgroundCapacity = backgroundCapacity;
+        this.siteCapacities = new BlockGrid(backgroundCapacity);
+
+        for (int x = -fieldRadius; x <= fieldRadius; ++x) {
+            for (int y = -fieldRadius; y <= fieldRadius; ++y) {
+                for (int z = -fieldRadius; z <= fieldRadius; ++z) {
+                    long siteCapacity = field.applyAsLong(Coord.at(x, y, z));
+
+                    validateSiteCapacity(siteCapacity);
+                    siteCapacities.set(x, y, z, siteCapacity);
+                }
+            }
+        }
+
+        siteCapacities.compress();
+    }
+
+    /**
+     * Creates a spherical core of uniform capacity centered at the
+     * origin and embedded in a uniform background.
+     *
+     * @param backgroundCapacity the capacity of every site outside of
+     * the core.
+     *
+     * @param coreRadius the radius of the core.
+     *
+     * @param coreCapacity the capacity of every site inside the core.
+     *
+     * @return the core capacity model.
+     *
+     * @throws IllegalArgumentException unless the capacities are
+     * positive and the radius is non-negative.
+     */
+    public static FieldCapacity core(long backgroundCapacity, int coreRadius, long coreCapacity) {
+        long radiusSquared = (long) coreRadius * coreRadius;
+
+        return new FieldCapacity(backgroundCapacity, coreRadius, coord ->
+                                 isInside(coord, radiusSquared) ? coreCapacity : backgroundCapacity);
+    }
+
+    private static boolean isInside(Coord coord, long radiusSquared) {
+        long x = coord.x;
+        long y = coord.y;
+        long z = coord.z;
+
+        return x * x + y * y + z * z <= radiusSquared;
+    }
+
+    /**
+     * Creates a core model with the capacities and radius defined by
+     * system properties.
+     *
+     * @return a core model with the capacities and radius defined by
+     * system properties.
+     *
+     * @throws RuntimeException unless the system properties are
+     * properly defined.
+     */
+    public static CapacityModel createGlobal() {
+        return core(resolveBackgroundCapacity(), resolveCoreRadius(), resolveCoreCapacity());
+    }
+
+    private static long resolveBackgroundCapacity() {
+        return JamProperties.getRequiredLong(UniformCapacity.SITE_CAPACITY_PROPERTY, LongRange.POSITIVE);
+    }
+
+    private static int resolveCoreRadius() {
+        return (int) JamProperties.getRequiredLong(CORE_RADIUS_PROPERTY, LongRange.POSITIVE);
+    }
+
+    private static long resolveCoreCapacity() {
+        return JamProperties.getRequiredLong(CORE_CAPACITY_PROPERTY, LongRange.POSITIVE);
+    }
+
+    /**
+     * Returns the capacity of the background (which occupies almost
+     * all of the lattice and dominates the spatial average).
+     *
+     * @return the background site capacity.
+     */
+    @Override public long getMeanCapacity() {
+        return backgroundCapacity;
+    }
+
+    @Override public long getSiteCapacity(Coord coord) {
+        return siteCapacities.get(coord);
+    }
+
+    @Override public long getNeighborhoodCapacity(Coord center, Neighborhood neighborhood) {
+        return getNeighborhoodCapacities(neighborhood).get(center);
+    }
+
+    private BlockGrid getNeighborhoodCapacities(Neighborhood neighborhood) {
+        BlockGrid capacities = neighborhoodCapacities.get(neighborhood.ordinal());
+
+        if (capacities == null) {
+            //
+            // Concurrent callers may compute identical grids; only
+            // the first one is kept...
+            //
+            neighborhoodCapacities.compareAndSet(neighborhood.ordinal(), null, computeNeighborhoodCapacities(neighborhood));
+            capacities = neighborhoodCapacities.get(neighborhood.ordinal());
+        }
+
+        return capacities;
+    }
+
+    private BlockGrid computeNeighborhoodCapacities(Neighborhood neighborhood) {
+        //
+        // Only sites whose neighborhoods reach into the field region
+        // differ from the background total...
+        //
+        int reach = 0;
+
+        for (Coord offset : neighborhood)
+            reach = Math.max(reach, Math.max(Math.abs(offset.x), Math.max(Math.abs(offset.y), Math.abs(offset.z))));
+
+        int radius = fieldRadius + reach;
+        BlockGrid capacities = new BlockGrid(backgroundCapacity * neighborhood.size());
+
+        for (int x = -radius; x <= radius; ++x)
+            for (int y = -radius; y <= radius; ++y)
+                for (int z = -radius; z <= radius; ++z)
+                    capacities.set(x, y, z, super.getNeighborhoodCapacity(Coord.at(x, y, z), neighborhood));
+
+        capacities.compress();
+        return capacities;
+    }
+
+    @Override public CapacityType getType() {
+        return CapacityType.FIELD;
+    }
+}
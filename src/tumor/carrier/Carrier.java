@@ -8,10 +8,10 @@ import java.util.List;
 
 import jam.bio.Propagator;
 import jam.math.DoubleUtil;
-import jam.math.JamRandom;
 import jam.util.CollectionUtil;
 
 import tumor.mutation.Mutation;
+import tumor.random.RandomStreams;
 
 /**
  * Represents a biological entity that carries and accumulates
@@ -116,7 +116,7 @@ public abstract class Carrier extends Propagator {
             return CollectionUtil.peek(carriers);
 
         int carrierIndex =
-            JamRandom.global().selectPDF(computeCellFraction(carriers));
+            RandomStreams.current().selectPDF(computeCellFraction(carriers));
 
         return carriers.get(carrierIndex);
     }
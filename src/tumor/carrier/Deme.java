@@ -27,6 +27,11 @@ public final class Deme extends MultiCellularComponent {
         this.growthRate = growthRate;
     }
 
+    private Deme(long index, Deme parent, Genotype genotype, GrowthRate growthRate, long cellCount) {
+        super(index, parent, genotype, cellCount);
+        this.growthRate = growthRate;
+    }
+
     /**
      * Creates a founding deme containing the global mutations
      * responsible for transformation.
@@ -61,6 +66,31 @@ public final class Deme extends MultiCellularComponent {
         return new Deme(null, MutableGenotype.founder(mutations), growthRate, cellCount);
     }
 
+    /**
+     * Recreates a deme recorded in a checkpoint.
+     *
+     * @param index the ordinal index of the deme.
+     *
+     * @param parent the restored parent deme; {@code null} for
+     * founders.
+     *
+     * @param genotype the restored genotype.
+     *
+     * @param growthRate the intrinsic growth rate.
+     *
+     * @param cellCount the number of cells in the deme.
+     *
+     * @param state the replication state.
+     *
+     * @return the restored deme.
+     */
+    public static Deme restore(long index, Deme parent, Genotype genotype,
+                               GrowthRate growthRate, long cellCount, State state) {
+        Deme deme = new Deme(index, parent, genotype, growthRate, cellCount);
+        deme.state = state;
+        return deme;
+    }
+
     @Override public Deme divide(long cloneCellCount) {
         return (Deme) super.divide(cloneCellCount);
     }
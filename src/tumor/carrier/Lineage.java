@@ -10,6 +10,7 @@ import tumor.growth.GrowthRate;
 import tumor.mutation.FixedGenotype;
 import tumor.mutation.Genotype;
 import tumor.mutation.Mutation;
+import tumor.mutation.MutationBatch;
 
 /**
  * Represents a well-mixed population of genetically identical cells
@@ -24,11 +25,21 @@ public final class Lineage extends MultiCellularComponent {
         this.growthRate = growthRate;
     }
 
+    private Lineage(long index, Lineage parent, Genotype genotype, GrowthRate growthRate, long cellCount) {
+        super(index, parent, genotype, cellCount);
+        this.growthRate = growthRate;
+    }
+
     /**
      * Number of cells in a newly created mutant daughter lineage.
      */
     public static final long DAUGHTER_CELL_COUNT = 1L;
 
+    // Lineages may be advanced concurrently, so each thread fills its
+    // own reusable batch of daughter mutations...
+    private static final ThreadLocal<MutationBatch> MUTATION_BATCH =
+        ThreadLocal.withInitial(MutationBatch::new);
+
     /**
      * Creates a founding lineage containing the global mutations
      * responsible for transformation.
@@ -63,6 +74,31 @@ public final class Lineage extends MultiCellularComponent {
         return new Lineage(null, FixedGenotype.founder(mutations), growthRate, cellCount);
     }
 
+    /**
+     * Recreates a lineage recorded in a checkpoint.
+     *
+     * @param index the ordinal index of the lineage.
+     *
+     * @param parent the restored parent lineage; {@code null} for
+     * founders.
+     *
+     * @param genotype the restored genotype.
+     *
+     * @param growthRate the intrinsic growth rate.
+     *
+     * @param cellCount the number of cells in the lineage.
+     *
+     * @param state the replication state.
+     *
+     * @return the restored lineage.
+     */
+    public static Lineage restore(long index, Lineage parent, Genotype genotype,
+                                  GrowthRate growthRate, long cellCount, State state) {
+        Lineage lineage = new Lineage(index, parent, genotype, growthRate, cellCount);
+        lineage.state = state;
+        return lineage;
+    }
+
     @Override public Lineage divide(long cloneCellCount) {
         return (Lineage) super.divide(cloneCellCount);
     }
@@ -115,17 +151,14 @@ public final class Lineage extends MultiCellularComponent {
         GrowthCount growthCount   = resolveGrowthCount(tumorEnv);
         long        daughterCount = growthCount.getDaughterCount();
 
-        // Obtain the new mutations for each mutated daughter cell...
-        List<List<Mutation>> daughterMutLists =
-            tumorEnv.getMutationGenerator().generateLineageMutations(daughterCount);
+        // Obtain the new mutations for each mutated daughter cell in
+        // the batch reserved for this thread...
+        MutationBatch batch = MUTATION_BATCH.get();
+        tumorEnv.getMutationGenerator().generateLineageMutations(daughterCount, batch);
 
         // Store each mutated daughter cell as a new single-cell
         // lineage...
-        List<Lineage> daughters = new ArrayList<Lineage>(daughterMutLists.size());
-
-        for (List<Mutation> daughterMut : daughterMutLists)
-            if (!daughterMut.isEmpty())
-                daughters.add(newDaughter(daughterMut));
+        List<Lineage> daughters = newDaughters(batch);
 
         // Compute the net change in lineage population after the
         // creation of the daughter lineages...
@@ -137,9 +170,21 @@ public final class Lineage extends MultiCellularComponent {
         return daughters;
     }
 
-    private Lineage newDaughter(List<Mutation> daughterMut) {
-        Genotype   daughterType = genotype.forDaughter(daughterMut);
-        GrowthRate daughterRate = Mutation.apply(growthRate, daughterMut);
+    private List<Lineage> newDaughters(MutationBatch batch) {
+        if (batch.countDaughters() == 0)
+            return Collections.emptyList();
+
+        List<Lineage> daughters = new ArrayList<Lineage>(batch.countDaughters());
+
+        for (int daughterIndex = 0; daughterIndex < batch.countDaughters(); ++daughterIndex)
+            daughters.add(newDaughter(batch, daughterIndex));
+
+        return daughters;
+    }
+
+    private Lineage newDaughter(MutationBatch batch, int daughterIndex) {
+        Genotype   daughterType = genotype.forDaughter(batch.viewMutations(daughterIndex));
+        GrowthRate daughterRate = batch.apply(growthRate, daughterIndex);
 
         return new Lineage(this, daughterType, daughterRate, DAUGHTER_CELL_COUNT);
     }
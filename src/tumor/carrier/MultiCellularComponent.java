@@ -4,7 +4,10 @@ package tumor.carrier;
 import jam.dist.BinomialDistribution;
 import jam.math.Probability;
 
+import tumor.growth.GrowthRate;
 import tumor.mutation.Genotype;
+import tumor.random.DiscreteSampler;
+import tumor.random.RandomStreams;
 
 /**
  * Represents a well-mixed population of genetically identical cells.
@@ -33,6 +36,30 @@ public abstract class MultiCellularComponent extends TumorComponent {
         this.prevCount = cellCount;
     }
 
+    /**
+     * Creates a multi-cellular component with an assigned index (when
+     * restoring a simulation from a checkpoint).
+     *
+     * @param index the ordinal index of the component.
+     *
+     * @param parent the restored parent component; {@code null} for
+     * founding components.
+     *
+     * @param genotype the genotype of the component.
+     *
+     * @param cellCount the number of cells in the component (which
+     * may be zero for dead components).
+     */
+    protected MultiCellularComponent(long index, MultiCellularComponent parent, Genotype genotype, long cellCount) {
+        super(index, parent, genotype);
+
+        if (cellCount < 0)
+            throw new IllegalArgumentException("Cell count must be non-negative.");
+
+        this.cellCount = cellCount;
+        this.prevCount = cellCount;
+    }
+
     /**
      * Creates a clone of this group (with an identical genome).
      *
@@ -208,8 +235,15 @@ public abstract class MultiCellularComponent extends TumorComponent {
 
     private long computeCloneCellCount(Probability transferProb, long minCloneCellCount, long maxCloneCellCount) {
         long cloneCellCount;
-        
-        if (cellCount < 10000) {
+
+        if (GrowthRate.isExactSampling()) {
+            //
+            // Sample from the exact binomial distribution, whose cost
+            // is independent of the number of cells...
+            //
+            cloneCellCount = DiscreteSampler.binomial(RandomStreams.current(), cellCount, transferProb.doubleValue());
+        }
+        else if (cellCount < 10000) {
             //
             // Sample from the binomial distribution...
             //
@@ -1,29 +1,36 @@
 
 package tumor.carrier;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 
 import jam.app.JamLogger;
-import jam.lang.OrdinalIndex;
+import jam.lang.JamException;
 import jam.lattice.Coord;
 import jam.math.VectorMoment;
 
+import tumor.driver.TumorDriver;
 import tumor.growth.GrowthRate;
 import tumor.mutation.Genotype;
 import tumor.mutation.Mutation;
 import tumor.mutation.MutationFrequency;
 import tumor.mutation.MutationFrequencyMap;
+import tumor.mutation.MutationFrequencySketch;
 import tumor.mutation.MutationGenerator;
 
 /**
@@ -33,16 +40,19 @@ import tumor.mutation.MutationGenerator;
  */
 public abstract class Tumor<E extends TumorComponent> extends Carrier {
     /**
-     * The actively dividing tumor components.
+     * The actively dividing tumor components (in the order of their
+     * insertion, which is recorded in trial checkpoints, when the
+     * simulation records or resumes from checkpoints).
      */
-    protected final Set<E> active = new HashSet<E>();
+    protected final Set<E> active = createActiveSet();
 
     /**
      * The senescent tumor components.
      */
     protected final Set<E> senescent = new HashSet<E>();
 
-    private static OrdinalIndex ordinalIndex = OrdinalIndex.create();
+    // The index of the next new tumor...
+    private static final AtomicLong nextIndex = new AtomicLong(0L);
 
     // --------------------------
     // Tumor characteristic cache
@@ -57,6 +67,18 @@ public abstract class Tumor<E extends TumorComponent> extends Carrier {
         vectorMoment = null;
     }
 
+    private static <E> Set<E> createActiveSet() {
+        //
+        // A linked set changes the visiting order (and therefore the
+        // trajectory) of the default hash set, so it is used only when
+        // the order must be recorded in checkpoints...
+        //
+        if (TumorDriver.global().isCheckpointEnabled())
+            return new LinkedHashSet<E>();
+        else
+            return new HashSet<E>();
+    }
+
     /**
      * Creates a new primary tumor.
      */
@@ -70,7 +92,27 @@ public abstract class Tumor<E extends TumorComponent> extends Carrier {
      * @param parent the parent of the new tumor.
      */
     protected Tumor(Tumor<E> parent) {
-        super(ordinalIndex.next(), parent);
+        super(nextIndex.getAndIncrement(), parent);
+    }
+
+    /**
+     * Returns the total number of tumors created in this JVM session.
+     *
+     * @return the total number of tumors created in this JVM session.
+     */
+    public static long count() {
+        return nextIndex.get();
+    }
+
+    /**
+     * Assigns the index of the next new tumor (when restoring a
+     * simulation from a checkpoint or starting a new trial).
+     *
+     * @param count the total number of tumors created before the
+     * checkpoint was recorded or the trial started.
+     */
+    public static void restoreCount(long count) {
+        nextIndex.set(count);
     }
 
     /**
@@ -110,15 +152,168 @@ public abstract class Tumor<E extends TumorComponent> extends Carrier {
      */
     public abstract Coord locateComponent(E component);
 
+    /**
+     * Adds a component restored from a checkpoint to this tumor.
+     *
+     * <p>Active and senescent components are added to the
+     * corresponding component collections; the components must be
+     * restored in the order of their ordinal indexes.
+     *
+     * @param component the restored component.
+     *
+     * @param location the location of the component at the time the
+     * checkpoint was recorded.
+     *
+     * @throws IllegalStateException if the component is dead or the
+     * location cannot accommodate it.
+     */
+    public abstract void restoreComponent(E component, Coord location);
+
+    /**
+     * Returns the active components in a new list, for an advance
+     * that visits them in a randomized order.
+     *
+     * <p>When the simulation records trial checkpoints, the
+     * components are listed in their insertion order, which depends
+     * on the history of the tumor; the checkpoints record that order
+     * (see {@code writeOrder()}), so the randomized order (and
+     * therefore the entire trajectory) of a resumed trial is the same
+     * as that of the original.
+     *
+     * @return the active components in a new list.
+     */
+    protected List<E> listActive() {
+        return new ArrayList<E>(active);
+    }
+
+    /**
+     * Writes the internal order in which this tumor visits its
+     * components (and any other history-dependent state that affects
+     * the trajectory) to a trial checkpoint.
+     *
+     * @param output the checkpoint stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeOrder(DataOutputStream output) throws IOException {
+        writeIndexes(output, captureOrder());
+    }
+
+    /**
+     * Restores the order written by {@code writeOrder()}, after every
+     * living component recorded in a trial checkpoint has been
+     * restored.
+     *
+     * @param input the checkpoint stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     *
+     * @throws RuntimeException unless the order describes exactly
+     * the components restored in this tumor.
+     */
+    public void readOrder(DataInputStream input) throws IOException {
+        restoreOrder(readIndexes(input));
+    }
+
+    /**
+     * Records the order in which this tumor visits its components.
+     *
+     * <p>The base implementation returns the ordinal indexes of the
+     * active components in their insertion order.  Subclasses that
+     * visit their components in another order must override this
+     * method and {@code restoreOrder()} together.
+     *
+     * @return the visiting order of the components.
+     */
+    protected long[] captureOrder() {
+        long[] order = new long[active.size()];
+        int    count = 0;
+
+        for (E component : active)
+            order[count++] = component.getIndex();
+
+        return order;
+    }
+
+    /**
+     * Restores the order in which this tumor visits its components.
+     *
+     * @param order the visiting order returned by
+     * {@code captureOrder()} when the checkpoint was recorded.
+     *
+     * @throws RuntimeException unless the order contains exactly the
+     * active components in this tumor.
+     */
+    protected void restoreOrder(long[] order) {
+        Map<Long, E> byIndex = new HashMap<Long, E>(active.size());
+
+        for (E component : active)
+            byIndex.put(component.getIndex(), component);
+
+        if (order.length != byIndex.size())
+            throw JamException.runtime("Checkpoint order lists [%d] active components; the tumor contains [%d].",
+                                       order.length, byIndex.size());
+
+        active.clear();
+
+        for (long index : order) {
+            E component = byIndex.get(index);
+
+            if (component == null)
+                throw JamException.runtime("Checkpoint order lists unknown component [%d].", index);
+
+            active.add(component);
+        }
+    }
+
+    /**
+     * Writes an array of indexes or keys to a checkpoint stream.
+     *
+     * @param output the checkpoint stream.
+     *
+     * @param values the values to write.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    protected static void writeIndexes(DataOutputStream output, long[] values) throws IOException {
+        output.writeInt(values.length);
+
+        for (long value : values)
+            output.writeLong(value);
+    }
+
+    /**
+     * Reads an array written by {@code writeIndexes()}.
+     *
+     * @param input the checkpoint stream.
+     *
+     * @return the array of indexes or keys.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    protected static long[] readIndexes(DataInputStream input) throws IOException {
+        long[] values = new long[input.readInt()];
+
+        for (int k = 0; k < values.length; ++k)
+            values[k] = input.readLong();
+
+        return values;
+    }
+
     /**
      * Computes the mutation frequency distribution for this tumor.
      *
      * @return a list containing the mutation frequency (fraction of
      * tumor cells carrying that mutation) for every mutation present
      * in this tumor, in <em>decreasing</em> order by frequency (the
-     * most frequent mutation first).
+     * most frequent mutation first).  If the approximate mode is
+     * enabled (see {@link MutationFrequencySketch}), only the most
+     * frequent mutations are listed.
      */
     public List<MutationFrequency> computeMutationFrequency() {
+        if (MutationFrequencySketch.isEnabled())
+            return computeMutationFrequencySketch().listTop();
+
         MutationFrequencyMap freqMap =
             MutationFrequencyMap.compute(viewComponents());
 
@@ -128,6 +323,18 @@ public abstract class Tumor<E extends TumorComponent> extends Carrier {
         return freqList;
     }
 
+    /**
+     * Summarizes the mutation frequency distribution for this tumor
+     * in bounded memory (with the resolution specified by system
+     * properties).
+     *
+     * @return a sketch of the mutation frequency distribution for
+     * this tumor.
+     */
+    public MutationFrequencySketch computeMutationFrequencySketch() {
+        return MutationFrequencySketch.compute(viewComponents());
+    }
+
     /**
      * Returns the number of active components in this tumor.
      *
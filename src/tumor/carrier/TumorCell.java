@@ -23,6 +23,11 @@ public final class TumorCell extends TumorComponent {
         this.growthRate = growthRate;
     }
 
+    private TumorCell(long index, TumorCell parent, Genotype genotype, GrowthRate growthRate) {
+        super(index, parent, genotype);
+        this.growthRate = growthRate;
+    }
+
     /**
      * Creates a founding tumor cell containing the mutations
      * responsible for transformation to malignancy.
@@ -55,6 +60,29 @@ public final class TumorCell extends TumorComponent {
         return result;
     }
 
+    /**
+     * Recreates a tumor cell recorded in a checkpoint.
+     *
+     * @param index the ordinal index of the cell.
+     *
+     * @param parent the restored parent cell; {@code null} for
+     * founders.
+     *
+     * @param genotype the restored genotype.
+     *
+     * @param growthRate the intrinsic growth rate.
+     *
+     * @param state the replication state.
+     *
+     * @return the restored cell.
+     */
+    public static TumorCell restore(long index, TumorCell parent, Genotype genotype,
+                                    GrowthRate growthRate, State state) {
+        TumorCell cell = new TumorCell(index, parent, genotype, growthRate);
+        cell.state = state;
+        return cell;
+    }
+
     /**
      * Extracts a single-cell sample from another tumor component.
      *
@@ -89,8 +117,32 @@ public final class TumorCell extends TumorComponent {
             return Collections.emptyList();
 
         // Stochastically sample the event to occur on this step...
-        GrowthCount growthCount = resolveGrowthCount(tumorEnv);
+        return resolveEvent(tumorEnv, resolveGrowthCount(tumorEnv));
+    }
+
+    /**
+     * Advances this tumor cell through one discrete time step with an
+     * event that has already been sampled (by
+     * {@code sampleGrowthCount}, possibly on another thread).
+     *
+     * @param tumorEnv the local tumor environment where this cell
+     * resides.
+     *
+     * @param growthCount the sampled event for this time step.
+     *
+     * @return a list containing any new tumor cells created by cell
+     * division; the list will be empty if this parent cell does not
+     * divide in the time step.
+     */
+    public List<TumorCell> advance(TumorEnv tumorEnv, GrowthCount growthCount) {
+        if (!isActive())
+            return Collections.emptyList();
+
+        recordGrowthCount(growthCount);
+        return resolveEvent(tumorEnv, growthCount);
+    }
 
+    private List<TumorCell> resolveEvent(TumorEnv tumorEnv, GrowthCount growthCount) {
         assert growthCount.getEventCount() <= 1;
 
         if (growthCount.getBirthCount() == 1)
@@ -6,8 +6,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
-import jam.lang.OrdinalIndex;
 import jam.util.SetUtil;
 
 import tumor.growth.GrowthCount;
@@ -39,7 +39,8 @@ public abstract class TumorComponent extends Carrier {
      */
     protected State state = State.ACTIVE;
 
-    private static OrdinalIndex ordinalIndex = OrdinalIndex.create();
+    // The index of the next new component...
+    private static final AtomicLong nextIndex = new AtomicLong(0L);
 
     /**
      * Creates all tumor components.
@@ -50,10 +51,47 @@ public abstract class TumorComponent extends Carrier {
      * @param genotype the genotype of the new component.
      */
     protected TumorComponent(TumorComponent parent, Genotype genotype) {
-        super(ordinalIndex.next(), parent);
+        this(nextIndex.getAndIncrement(), parent, genotype);
+    }
+
+    /**
+     * Creates a tumor component with an assigned index (when restoring
+     * a simulation from a checkpoint).
+     *
+     * @param index the ordinal index of the component.
+     *
+     * @param parent the parent component; {@code null} for founding
+     * components.
+     *
+     * @param genotype the genotype of the component.
+     */
+    protected TumorComponent(long index, TumorComponent parent, Genotype genotype) {
+        super(index, parent);
         this.genotype = genotype;
     }
 
+    /**
+     * Returns the total number of tumor components created in this
+     * JVM session.
+     *
+     * @return the total number of tumor components created in this
+     * JVM session.
+     */
+    public static long count() {
+        return nextIndex.get();
+    }
+
+    /**
+     * Assigns the index of the next new component (when restoring a
+     * simulation from a checkpoint or starting a new trial).
+     *
+     * @param count the total number of components created before the
+     * checkpoint was recorded or the trial started.
+     */
+    public static void restoreCount(long count) {
+        nextIndex.set(count);
+    }
+
     /**
      * Advances a population of tumor components through one discrete
      * time step.
@@ -222,6 +260,19 @@ public abstract class TumorComponent extends Carrier {
         totalDeathCount = 0L;
     }
 
+    /**
+     * Assigns the total number of birth and death events (when
+     * restoring a simulation from a checkpoint).
+     *
+     * @param birthCount the total number of birth events.
+     *
+     * @param deathCount the total number of death events.
+     */
+    public static void restoreTotalGrowthCount(long birthCount, long deathCount) {
+        totalBirthCount = birthCount;
+        totalDeathCount = deathCount;
+    }
+
     /**
      * Determines the number of birth and death events for this tumor
      * component in a local tumor environment.
@@ -232,14 +283,42 @@ public abstract class TumorComponent extends Carrier {
      * @return the number of birth and death events.
      */
     public GrowthCount resolveGrowthCount(TumorEnv tumorEnv) {
-        long        netCapacity = tumorEnv.getGrowthCapacity();
-        GrowthRate  growthRate  = tumorEnv.getGrowthRate();
-        GrowthCount growthCount = growthRate.resolveCount(countCells(), netCapacity);
+        GrowthCount growthCount = sampleGrowthCount(tumorEnv);
+        recordGrowthCount(growthCount);
+
+        return growthCount;
+    }
+
+    /**
+     * Samples the number of birth and death events for this tumor
+     * component in a local tumor environment, without adding them to
+     * the running totals.
+     *
+     * <p>This method reads no shared mutable state, so the events may
+     * be sampled on a worker thread and recorded later on the
+     * simulation thread (by {@code recordGrowthCount}).
+     *
+     * @param tumorEnv the local tumor environment where this cell
+     * group resides.
+     *
+     * @return the number of birth and death events.
+     */
+    public GrowthCount sampleGrowthCount(TumorEnv tumorEnv) {
+        long       netCapacity = tumorEnv.getGrowthCapacity();
+        GrowthRate growthRate  = tumorEnv.getGrowthRate();
+
+        return growthRate.resolveCount(countCells(), netCapacity);
+    }
 
+    /**
+     * Adds sampled birth and death events to the running totals.
+     *
+     * @param growthCount the events sampled by
+     * {@code sampleGrowthCount}.
+     */
+    protected static void recordGrowthCount(GrowthCount growthCount) {
         totalBirthCount += growthCount.getBirthCount();
         totalDeathCount += growthCount.getDeathCount();
-
-        return growthCount;
     }
 
     /**
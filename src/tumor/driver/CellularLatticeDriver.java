@@ -12,6 +12,10 @@ class CellularLatticeDriver extends TumorDriver<TumorCell> {
         return CellularLatticeTumor.primary(createFounders());
     }
 
+    @Override protected CellularLatticeTumor createEmptyTumor() {
+        return CellularLatticeTumor.empty();
+    }
+
     private List<TumorCell> createFounders() {
         return TumorCell.founders(getInitialSize(), GrowthRate.global());
     }
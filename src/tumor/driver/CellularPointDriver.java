@@ -12,6 +12,10 @@ class CellularPointDriver extends TumorDriver<TumorCell> {
         return PointTumor.primary(createFounders());
     }
 
+    @Override protected PointTumor<TumorCell> createEmptyTumor() {
+        return PointTumor.empty();
+    }
+
     private List<TumorCell> createFounders() {
         return TumorCell.founders(getInitialSize(), GrowthRate.global());
     }
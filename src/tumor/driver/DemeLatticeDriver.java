@@ -10,6 +10,10 @@ class DemeLatticeDriver extends TumorDriver<Deme> {
         return DemeLatticeTumor.primary(createFounder());
     }
 
+    @Override protected DemeLatticeTumor createEmptyTumor() {
+        return DemeLatticeTumor.empty();
+    }
+
     private Deme createFounder() {
         return Deme.founder(GrowthRate.global(), getInitialSize());
     }
@@ -10,6 +10,10 @@ class DemePointDriver extends TumorDriver<Deme> {
         return PointTumor.primary(createFounder());
     }
 
+    @Override protected PointTumor<Deme> createEmptyTumor() {
+        return PointTumor.empty();
+    }
+
     private Deme createFounder() {
         return Deme.founder(GrowthRate.global(), getInitialSize());
     }
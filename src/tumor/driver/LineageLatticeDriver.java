@@ -10,6 +10,10 @@ class LineageLatticeDriver extends TumorDriver<Lineage> {
         return LineageLatticeTumor.primary(createFounder());
     }
 
+    @Override protected LineageLatticeTumor createEmptyTumor() {
+        return LineageLatticeTumor.empty();
+    }
+
     private Lineage createFounder() {
         return Lineage.founder(GrowthRate.global(), getInitialSize());
     }
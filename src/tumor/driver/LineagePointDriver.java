@@ -10,6 +10,10 @@ class LineagePointDriver extends TumorDriver<Lineage> {
         return PointTumor.primary(createFounder());
     }
 
+    @Override protected PointTumor<Lineage> createEmptyTumor() {
+        return PointTumor.empty();
+    }
+
     private Lineage createFounder() {
         return Lineage.founder(GrowthRate.global(), getInitialSize());
     }
@@ -0,0 +1,272 @@
+
+package tumor.driver;
+
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jam.app.JamProperties;
+
+/**
+ * Records the wall-clock time, memory allocation, and garbage
+ * collection activity for the named phases of each simulation time
+ * step.
+ *
+ * <p>Phases are delimited by matching calls to {@code begin()} and
+ * {@code end()} and may be nested (the time spent in a nested phase
+ * is also included in the enclosing phase).  A phase that occurs more
+ * than once in a time step accumulates its measurements.
+ *
+ * <p>This class is not thread-safe: every phase must begin and end on
+ * the simulation thread (the thread that created the instance).  The
+ * allocation counts are taken from that thread alone, so they exclude
+ * work handed to other threads, such as the report output written by
+ * the {@code ReportPipeline} on background threads; the elapsed time
+ * of a phase still covers any time the simulation thread spends
+ * waiting for that work.  Calls from any other thread are rejected.
+ *
+ * <p>Metrics are recorded only when the system property
+ * {@code tumor.driver.writeStepMetrics} is {@code true}; otherwise
+ * every method returns immediately.
+ */
+public final class StepMetrics {
+    private final boolean enabled;
+
+    // The simulation thread, the only thread permitted to record
+    // phases...
+    private final Thread owner = Thread.currentThread();
+
+    // Phase measurements for the current time step, in the order
+    // that the phases were first encountered...
+    private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+
+    // The single global instance...
+    private static StepMetrics global = null;
+
+    private StepMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Name of the system property that specifies whether or not to
+     * record and write the step metrics.
+     */
+    public static final String WRITE_STEP_METRICS_PROPERTY = "tumor.driver.writeStepMetrics";
+
+    /**
+     * Name of the output file containing the step metrics.
+     */
+    public static final String STEP_METRICS_FILE_NAME = "step-metrics.csv";
+
+    /**
+     * Name of the phase covering the complete tumor advance.
+     */
+    public static final String ADVANCE_PHASE = "advance";
+
+    /**
+     * Name of the phase covering the advance of the active components.
+     */
+    public static final String COMPONENT_PHASE = "advance.components";
+
+    /**
+     * Name of the phase covering component senescence.
+     */
+    public static final String SENESCE_PHASE = "advance.senesce";
+
+    /**
+     * Name of the phase covering component migration.
+     */
+    public static final String MIGRATE_PHASE = "advance.migrate";
+
+    /**
+     * Name of the phase covering the step logging and trajectory
+     * recording.
+     */
+    public static final String RECORD_PHASE = "record";
+
+    /**
+     * Name of the phase covering the snapshot reports.
+     */
+    public static final String SNAPSHOT_PHASE = "snapshot";
+
+    /**
+     * Name of the phase covering the capture of trial checkpoints.
+     */
+    public static final String CHECKPOINT_PHASE = "checkpoint";
+
+    /**
+     * Prefix for the names of the phases covering each registered
+     * tumor report.
+     */
+    public static final String REPORT_PHASE_PREFIX = "report.";
+
+    /**
+     * Returns the single global instance.
+     *
+     * @return the single global instance.
+     */
+    public static synchronized StepMetrics global() {
+        if (global == null)
+            global = new StepMetrics(resolveEnabled());
+
+        return global;
+    }
+
+    private static boolean resolveEnabled() {
+        return JamProperties.getOptionalBoolean(WRITE_STEP_METRICS_PROPERTY, false);
+    }
+
+    /**
+     * Identifies enabled metrics.
+     *
+     * @return {@code true} iff the metrics are being recorded.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the beginning of a phase.
+     *
+     * @param phaseName the name of the phase.
+     *
+     * @throws IllegalStateException unless called on the simulation
+     * thread.
+     */
+    public void begin(String phaseName) {
+        if (!enabled)
+            return;
+
+        checkOwner();
+        Phase phase = phases.get(phaseName);
+
+        if (phase == null) {
+            phase = new Phase();
+            phases.put(phaseName, phase);
+        }
+
+        phase.startGCCount = countGC();
+        phase.startGCTime  = timeGC();
+        phase.startBytes   = allocatedBytes();
+        phase.startNanos   = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a phase.
+     *
+     * @param phaseName the name of the phase (which must have been
+     * passed to {@code begin()} earlier in the same time step).
+     *
+     * @throws IllegalStateException if the phase was not started or
+     * the caller is not the simulation thread.
+     */
+    public void end(String phaseName) {
+        if (!enabled)
+            return;
+
+        checkOwner();
+        long endNanos = System.nanoTime();
+        Phase phase = phases.get(phaseName);
+
+        if (phase == null)
+            throw new IllegalStateException("Phase [" + phaseName + "] was not started.");
+
+        phase.nanos   += endNanos - phase.startNanos;
+        phase.bytes   += allocatedBytes() - phase.startBytes;
+        phase.gcCount += countGC() - phase.startGCCount;
+        phase.gcTime  += timeGC() - phase.startGCTime;
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner)
+            throw new IllegalStateException("Step metrics must be recorded on the simulation thread.");
+    }
+
+    private long allocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        else
+            return 0;
+    }
+
+    private long countGC() {
+        long total = 0;
+
+        for (GarbageCollectorMXBean gcBean : gcBeans)
+            total += Math.max(0, gcBean.getCollectionCount());
+
+        return total;
+    }
+
+    private long timeGC() {
+        long total = 0;
+
+        for (GarbageCollectorMXBean gcBean : gcBeans)
+            total += Math.max(0, gcBean.getCollectionTime());
+
+        return total;
+    }
+
+    /**
+     * Returns the header line for the step metrics file.
+     *
+     * @return the header line for the step metrics file.
+     */
+    public static String header() {
+        return "trialIndex,timeStep,phase,elapsedNanos,allocatedBytes,gcCount,gcMillis";
+    }
+
+    /**
+     * Writes the metrics for the current time step (one line for each
+     * phase) and then clears them for the next time step.
+     *
+     * @param writer the destination for the metrics.
+     *
+     * @param trialIndex the index of the current trial.
+     *
+     * @param timeStep the current time step.
+     *
+     * @throws IllegalStateException unless called on the simulation
+     * thread.
+     */
+    public void writeStep(PrintWriter writer, int trialIndex, int timeStep) {
+        if (!enabled)
+            return;
+
+        checkOwner();
+
+        for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+            Phase phase = entry.getValue();
+
+            writer.println(String.format("%d,%d,%s,%d,%d,%d,%d",
+                                         trialIndex,
+                                         timeStep,
+                                         entry.getKey(),
+                                         phase.nanos,
+                                         phase.bytes,
+                                         phase.gcCount,
+                                         phase.gcTime));
+        }
+
+        phases.clear();
+    }
+
+    private static final class Phase {
+        private long startNanos;
+        private long startBytes;
+        private long startGCCount;
+        private long startGCTime;
+
+        private long nanos   = 0;
+        private long bytes   = 0;
+        private long gcCount = 0;
+        private long gcTime  = 0;
+    }
+}
@@ -0,0 +1,709 @@
+
+package tumor.driver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import jam.app.JamLogger;
+import jam.lang.JamException;
+import jam.lang.Ordinal;
+import jam.lattice.Coord;
+
+import tumor.carrier.ComponentType;
+import tumor.carrier.Deme;
+import tumor.carrier.Lineage;
+import tumor.carrier.State;
+import tumor.carrier.Tumor;
+import tumor.carrier.TumorCell;
+import tumor.carrier.TumorComponent;
+import tumor.growth.GrowthRate;
+import tumor.mutation.FixedGenotype;
+import tumor.mutation.Genotype;
+import tumor.mutation.MutableGenotype;
+import tumor.mutation.Mutation;
+import tumor.mutation.MutationType;
+import tumor.random.RandomStreams;
+import tumor.report.dimension.TumorDimensionCache;
+
+/**
+ * Records and restores the complete state of a simulation trial at a
+ * time step boundary.
+ *
+ * <p>A checkpoint contains the trial index and time step, the state
+ * of the trial random stream at the checkpoint step, the ordinal
+ * counters for mutations, genotypes, components, and
+ * tumors, and the tumor itself: every mutation and genotype carried
+ * by the tumor components (and their ancestors), the growth rates
+ * (preserving the sharing of growth rate instances among
+ * components), every component and its ancestors (preserving the
+ * component ancestry), the location of each living component, the
+ * order in which the tumor visits its components (which depends on
+ * the history of the tumor and not only on its contents), and the
+ * tumor dimension records cached for later reports.
+ *
+ * <p>The state is captured synchronously into memory, so that it
+ * describes a single time step, and then compressed and written to
+ * disk by a background thread while the simulation continues.
+ */
+final class TrialCheckpoint {
+    private final int trialIndex;
+    private final int timeStep;
+    private final long[] streamState;
+
+    // The file containing a checkpoint that was read from disk, or
+    // the serialized state of a newly captured checkpoint...
+    private final File file;
+    private final ChunkBuffer buffer;
+
+    private static final int MAGIC   = 0x54434B50;
+    private static final int VERSION = 3;
+
+    // Index recorded for missing parents...
+    private static final long NO_PARENT = -1L;
+
+    // Single background thread that writes the checkpoint files and
+    // the pending write (at most one checkpoint is held in memory
+    // while it is being written)...
+    private static ExecutorService writeService = null;
+    private static Future<?> pendingWrite = null;
+
+    private TrialCheckpoint(int trialIndex, int timeStep, long[] streamState, File file, ChunkBuffer buffer) {
+        this.trialIndex  = trialIndex;
+        this.timeStep    = timeStep;
+        this.streamState = streamState;
+        this.file        = file;
+        this.buffer      = buffer;
+    }
+
+    /**
+     * Captures the state of the current trial.
+     *
+     * @param <E> the tumor component type.
+     *
+     * @param driver the active simulation driver.
+     *
+     * @return a checkpoint containing the state of the current trial.
+     */
+    static <E extends TumorComponent> TrialCheckpoint capture(TumorDriver<E> driver) {
+        int    trialIndex  = driver.getTrialIndex();
+        int    timeStep    = driver.getTimeStep();
+        long[] streamState = RandomStreams.captureState();
+
+        ChunkBuffer buffer = new ChunkBuffer();
+
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            writeHeader(output, trialIndex, timeStep, streamState, driver.getComponentType());
+            new Writer<E>(output, driver.getTumor()).write();
+            TumorDimensionCache.write(output, trialIndex);
+        }
+        catch (IOException ex) {
+            throw JamException.runtime(ex);
+        }
+
+        return new TrialCheckpoint(trialIndex, timeStep, streamState, null, buffer);
+    }
+
+    private static void writeHeader(DataOutputStream output,
+                                    int trialIndex,
+                                    int timeStep,
+                                    long[] streamState,
+                                    ComponentType componentType) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(trialIndex);
+        output.writeInt(timeStep);
+        output.writeInt(streamState.length);
+
+        for (long word : streamState)
+            output.writeLong(word);
+
+        output.writeUTF(componentType.name());
+    }
+
+    private static long[] readStreamState(DataInputStream input) throws IOException {
+        long[] streamState = new long[input.readInt()];
+
+        for (int k = 0; k < streamState.length; ++k)
+            streamState[k] = input.readLong();
+
+        return streamState;
+    }
+
+    /**
+     * Reads the header of a checkpoint file; the state is restored
+     * later by {@code restore()}.
+     *
+     * @param file the checkpoint file to read.
+     *
+     * @return the checkpoint stored in the specified file.
+     *
+     * @throws RuntimeException unless the file contains a valid
+     * checkpoint.
+     */
+    static TrialCheckpoint read(File file) {
+        try (DataInputStream input = openInput(file)) {
+            if (input.readInt() != MAGIC)
+                throw JamException.runtime("File [%s] is not a checkpoint file.", file);
+
+            int version = input.readInt();
+
+            if (version != VERSION)
+                throw JamException.runtime("File [%s] has unsupported checkpoint version [%d].", file, version);
+
+            int    trialIndex  = input.readInt();
+            int    timeStep    = input.readInt();
+            long[] streamState = readStreamState(input);
+
+            return new TrialCheckpoint(trialIndex, timeStep, streamState, file, null);
+        }
+        catch (IOException ex) {
+            throw JamException.runtime(ex);
+        }
+    }
+
+    private static DataInputStream openInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 1 << 16)));
+    }
+
+    /**
+     * Restores the tumor, the global mutation, genotype, component,
+     * and tumor counters, and the cached tumor dimension records
+     * recorded in this checkpoint.
+     *
+     * <p>This method must be called before any new components,
+     * genotypes, or mutations have been created for the trial, and
+     * after the trial random stream has been restored from the
+     * stream state.
+     *
+     * @param <E> the tumor component type.
+     *
+     * @param driver the active simulation driver.
+     *
+     * @return the restored tumor.
+     *
+     * @throws RuntimeException unless this checkpoint was read from a
+     * file and matches the component type of the driver.
+     */
+    <E extends TumorComponent> Tumor<E> restore(TumorDriver<E> driver) {
+        if (file == null)
+            throw new IllegalStateException("Checkpoint was not read from a file.");
+
+        try (DataInputStream input = openInput(file)) {
+            input.readInt();
+            input.readInt();
+            input.readInt();
+            input.readInt();
+            readStreamState(input);
+
+            ComponentType componentType = ComponentType.valueOf(input.readUTF());
+
+            if (componentType != driver.getComponentType())
+                throw JamException.runtime("Checkpoint contains [%s] components; the driver requires [%s].",
+                                           componentType, driver.getComponentType());
+
+            Tumor<E> tumor = new Reader<E>(input, driver).read();
+            TumorDimensionCache.read(input);
+
+            return tumor;
+        }
+        catch (IOException ex) {
+            throw JamException.runtime(ex);
+        }
+    }
+
+    /**
+     * Writes this checkpoint to a file in a background thread; the
+     * file is replaced atomically when the write is complete.
+     *
+     * <p>This method waits for the completion of the previous write,
+     * so at most one captured checkpoint is held in memory.
+     *
+     * @param dest the destination file.
+     */
+    void submit(File dest) {
+        if (buffer == null)
+            throw new IllegalStateException("Checkpoint was not captured.");
+
+        awaitPending();
+        pendingWrite = getWriteService().submit(() -> writeFile(dest));
+    }
+
+    private static synchronized ExecutorService getWriteService() {
+        if (writeService == null)
+            writeService = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "checkpoint-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        return writeService;
+    }
+
+    private void writeFile(File dest) {
+        File temp = new File(dest.getPath() + ".tmp");
+        dest.getAbsoluteFile().getParentFile().mkdirs();
+
+        try {
+            try (OutputStream output = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), 1 << 16)) {
+                buffer.writeTo(output);
+            }
+
+            Files.move(temp.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            JamLogger.info("Wrote checkpoint for trial [%d], step [%d].", trialIndex, timeStep);
+        }
+        catch (IOException ex) {
+            throw JamException.runtime(ex);
+        }
+    }
+
+    /**
+     * Waits for the pending checkpoint write (if any) to complete.
+     *
+     * @throws RuntimeException if the write failed.
+     */
+    static void awaitPending() {
+        if (pendingWrite == null)
+            return;
+
+        try {
+            pendingWrite.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw JamException.runtime(ex);
+        }
+        catch (ExecutionException ex) {
+            throw JamException.runtime(ex);
+        }
+        finally {
+            pendingWrite = null;
+        }
+    }
+
+    /**
+     * Returns the index of the trial recorded in this checkpoint.
+     *
+     * @return the index of the trial recorded in this checkpoint.
+     */
+    int getTrialIndex() {
+        return trialIndex;
+    }
+
+    /**
+     * Returns the last time step completed before this checkpoint was
+     * recorded.
+     *
+     * @return the last time step completed before this checkpoint was
+     * recorded.
+     */
+    int getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Returns the state of the trial random stream when this
+     * checkpoint was recorded.
+     *
+     * @return the state of the trial random stream when this
+     * checkpoint was recorded.
+     */
+    long[] getStreamState() {
+        return streamState.clone();
+    }
+
+    private static final class Writer<E extends TumorComponent> {
+        private final DataOutputStream output;
+        private final Tumor<E> tumor;
+
+        private final Map<GrowthRate, Integer> rateIds = new IdentityHashMap<GrowthRate, Integer>();
+
+        Writer(DataOutputStream output, Tumor<E> tumor) {
+            this.output = output;
+            this.tumor  = tumor;
+        }
+
+        void write() throws IOException {
+            //
+            // Parents always have smaller ordinal indexes than their
+            // children, so sorting by index ensures that each parent
+            // is restored before its children...
+            //
+            List<TumorComponent> components = collectComponents();
+            List<Genotype>       genotypes  = collectGenotypes(components);
+            List<Mutation>       mutations  = collectMutations(genotypes);
+
+            writeCounters();
+            writeMutations(mutations);
+            writeGenotypes(genotypes);
+            writeGrowthRates(components);
+            writeComponents(components);
+
+            tumor.writeOrder(output);
+        }
+
+        private List<TumorComponent> collectComponents() {
+            Long2ObjectOpenHashMap<TumorComponent> components = new Long2ObjectOpenHashMap<TumorComponent>();
+
+            addComponents(components, tumor.viewActive());
+            addComponents(components, tumor.viewSenescent());
+
+            return sortByIndex(components.values());
+        }
+
+        private static void addComponents(Long2ObjectOpenHashMap<TumorComponent> components,
+                                          Collection<? extends TumorComponent> living) {
+            //
+            // Include the ancestors of the living components so that
+            // the component ancestry survives a restart; stop climbing
+            // at the first ancestor that has already been included...
+            //
+            for (TumorComponent component : living) {
+                TumorComponent ancestor = component;
+
+                while (ancestor != null && !components.containsKey(ancestor.getIndex())) {
+                    components.put(ancestor.getIndex(), ancestor);
+                    ancestor = (TumorComponent) ancestor.getParent();
+                }
+            }
+        }
+
+        private static List<Genotype> collectGenotypes(List<TumorComponent> components) {
+            Long2ObjectOpenHashMap<Genotype> genotypes = new Long2ObjectOpenHashMap<Genotype>();
+
+            for (TumorComponent component : components) {
+                Genotype ancestor = component.getGenotype();
+
+                while (ancestor != null && !genotypes.containsKey(ancestor.getIndex())) {
+                    genotypes.put(ancestor.getIndex(), ancestor);
+                    ancestor = ancestor.getParent();
+                }
+            }
+
+            return sortByIndex(genotypes.values());
+        }
+
+        private static List<Mutation> collectMutations(List<Genotype> genotypes) {
+            Long2ObjectOpenHashMap<Mutation> mutations = new Long2ObjectOpenHashMap<Mutation>();
+
+            for (Genotype genotype : genotypes)
+                for (Mutation mutation : genotype.viewOriginalMutations())
+                    mutations.put(mutation.getIndex(), mutation);
+
+            return sortByIndex(mutations.values());
+        }
+
+        private void writeCounters() throws IOException {
+            output.writeLong(Mutation.count());
+            output.writeLong(Genotype.count());
+            output.writeLong(TumorComponent.count());
+            output.writeLong(tumor.getIndex());
+            output.writeLong(TumorComponent.getTotalBirthCount());
+            output.writeLong(TumorComponent.getTotalDeathCount());
+        }
+
+        private void writeMutations(List<Mutation> mutations) throws IOException {
+            output.writeInt(mutations.size());
+
+            for (Mutation mutation : mutations) {
+                output.writeLong(mutation.getIndex());
+                output.writeByte(mutation.getType().ordinal());
+                output.writeInt(mutation.getOriginationTime());
+                output.writeDouble(mutation.getSelectionCoeff());
+            }
+        }
+
+        private void writeGenotypes(List<Genotype> genotypes) throws IOException {
+            output.writeInt(genotypes.size());
+
+            for (Genotype genotype : genotypes) {
+                List<Mutation> original = genotype.viewOriginalMutations();
+
+                output.writeLong(genotype.getIndex());
+                output.writeLong(genotype.isFounder() ? NO_PARENT : genotype.getParent().getIndex());
+                output.writeBoolean(genotype instanceof MutableGenotype);
+                output.writeInt(genotype.countParentOriginalMutations());
+                output.writeInt(original.size());
+
+                for (Mutation mutation : original)
+                    output.writeLong(mutation.getIndex());
+            }
+        }
+
+        private void writeGrowthRates(List<TumorComponent> components) throws IOException {
+            List<GrowthRate> rates = new ArrayList<GrowthRate>();
+
+            for (TumorComponent component : components) {
+                GrowthRate rate = component.getGrowthRate();
+
+                if (!rateIds.containsKey(rate)) {
+                    rateIds.put(rate, rates.size());
+                    rates.add(rate);
+                }
+            }
+
+            output.writeInt(rates.size());
+
+            for (GrowthRate rate : rates) {
+                output.writeDouble(rate.getBirthRate().doubleValue());
+                output.writeDouble(rate.getDeathRate().doubleValue());
+            }
+        }
+
+        private void writeComponents(List<TumorComponent> components) throws IOException {
+            output.writeInt(components.size());
+
+            for (TumorComponent component : components) {
+                TumorComponent parent = (TumorComponent) component.getParent();
+
+                output.writeLong(component.getIndex());
+                output.writeLong(parent == null ? NO_PARENT : parent.getIndex());
+                output.writeByte(component.getState().ordinal());
+                output.writeLong(component.getGenotype().getIndex());
+                output.writeInt(rateIds.get(component.getGrowthRate()));
+                output.writeLong(component.countCells());
+
+                boolean placed = !component.isDead();
+                output.writeBoolean(placed);
+
+                if (placed) {
+                    @SuppressWarnings("unchecked")
+                        Coord coord = tumor.locateComponent((E) component);
+
+                    output.writeInt(coord.x);
+                    output.writeInt(coord.y);
+                    output.writeInt(coord.z);
+                }
+            }
+        }
+    }
+
+    private static <T extends Ordinal> List<T> sortByIndex(Collection<T> ordinals) {
+        List<T> sorted = new ArrayList<T>(ordinals);
+        sorted.sort(Comparator.comparingLong(T::getIndex));
+        return sorted;
+    }
+
+    private static final class Reader<E extends TumorComponent> {
+        private final DataInputStream input;
+        private final TumorDriver<E>  driver;
+
+        private final Long2ObjectOpenHashMap<Mutation> mutations = new Long2ObjectOpenHashMap<Mutation>();
+        private final Long2ObjectOpenHashMap<Genotype> genotypes = new Long2ObjectOpenHashMap<Genotype>();
+        private final Long2ObjectOpenHashMap<TumorComponent> components = new Long2ObjectOpenHashMap<TumorComponent>();
+
+        private GrowthRate[] rates;
+
+        Reader(DataInputStream input, TumorDriver<E> driver) {
+            this.input  = input;
+            this.driver = driver;
+        }
+
+        Tumor<E> read() throws IOException {
+            long mutationCount  = input.readLong();
+            long genotypeCount  = input.readLong();
+            long componentCount = input.readLong();
+            long tumorIndex     = input.readLong();
+            long birthCount     = input.readLong();
+            long deathCount     = input.readLong();
+
+            readMutations();
+            readGenotypes();
+            readGrowthRates();
+
+            // Create the tumor with its original index...
+            Tumor.restoreCount(tumorIndex);
+            Tumor<E> tumor = driver.createEmptyTumor();
+
+            readComponents(tumor);
+            tumor.readOrder(input);
+
+            Mutation.restoreCount(mutationCount);
+            Genotype.restoreCount(genotypeCount);
+            TumorComponent.restoreCount(componentCount);
+            TumorComponent.restoreTotalGrowthCount(birthCount, deathCount);
+
+            return tumor;
+        }
+
+        private void readMutations() throws IOException {
+            MutationType[] types = MutationType.values();
+            int count = input.readInt();
+
+            for (int k = 0; k < count; ++k) {
+                long   index  = input.readLong();
+                int    type   = input.readByte();
+                int    time   = input.readInt();
+                double coeff  = input.readDouble();
+
+                mutations.put(index, Mutation.restore(types[type], index, time, coeff));
+            }
+        }
+
+        private void readGenotypes() throws IOException {
+            int count = input.readInt();
+
+            for (int k = 0; k < count; ++k) {
+                long    index          = input.readLong();
+                long    parentIndex    = input.readLong();
+                boolean mutable        = input.readBoolean();
+                int     parentOriginal = input.readInt();
+                int     originalCount  = input.readInt();
+
+                List<Mutation> original = new ArrayList<Mutation>(originalCount);
+
+                for (int j = 0; j < originalCount; ++j)
+                    original.add(require(mutations, input.readLong(), "mutation"));
+
+                Genotype parent = (parentIndex == NO_PARENT) ? null : require(genotypes, parentIndex, "genotype");
+                Genotype genotype;
+
+                if (mutable)
+                    genotype = MutableGenotype.restore(index, (MutableGenotype) parent, original, parentOriginal);
+                else
+                    genotype = FixedGenotype.restore(index, (FixedGenotype) parent, original);
+
+                genotypes.put(index, genotype);
+            }
+        }
+
+        private void readGrowthRates() throws IOException {
+            rates = new GrowthRate[input.readInt()];
+
+            for (int k = 0; k < rates.length; ++k) {
+                double birthRate = input.readDouble();
+                double deathRate = input.readDouble();
+
+                rates[k] = new GrowthRate(birthRate, deathRate);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readComponents(Tumor<E> tumor) throws IOException {
+            State[] states = State.values();
+            int count = input.readInt();
+
+            for (int k = 0; k < count; ++k) {
+                long  index       = input.readLong();
+                long  parentIndex = input.readLong();
+                State state       = states[input.readByte()];
+                long  genoIndex   = input.readLong();
+                int   rateId      = input.readInt();
+                long  cellCount   = input.readLong();
+
+                TumorComponent parent   = (parentIndex == NO_PARENT) ? null : require(components, parentIndex, "component");
+                Genotype       genotype = require(genotypes, genoIndex, "genotype");
+                TumorComponent component =
+                    restoreComponent(driver.getComponentType(), index, parent, genotype, rates[rateId], cellCount, state);
+
+                components.put(index, component);
+
+                if (input.readBoolean()) {
+                    int x = input.readInt();
+                    int y = input.readInt();
+                    int z = input.readInt();
+
+                    tumor.restoreComponent((E) component, Coord.at(x, y, z));
+                }
+            }
+        }
+
+        private static TumorComponent restoreComponent(ComponentType  componentType,
+                                                       long           index,
+                                                       TumorComponent parent,
+                                                       Genotype       genotype,
+                                                       GrowthRate     growthRate,
+                                                       long           cellCount,
+                                                       State          state) {
+            switch (componentType) {
+            case CELL:
+                return TumorCell.restore(index, (TumorCell) parent, genotype, growthRate, state);
+
+            case DEME:
+                return Deme.restore(index, (Deme) parent, genotype, growthRate, cellCount, state);
+
+            case LINEAGE:
+                return Lineage.restore(index, (Lineage) parent, genotype, growthRate, cellCount, state);
+
+            default:
+                throw new IllegalStateException("Unknown component type.");
+            }
+        }
+
+        private static <T> T require(Long2ObjectOpenHashMap<T> map, long index, String kind) {
+            T value = map.get(index);
+
+            if (value == null)
+                throw JamException.runtime("Checkpoint is missing %s [%d].", kind, index);
+
+            return value;
+        }
+    }
+
+    // An output stream that stores its contents in fixed-size chunks,
+    // so that the captured state is not limited to the maximum array
+    // size and is never copied as it grows...
+    private static final class ChunkBuffer extends OutputStream {
+        private static final int CHUNK_SIZE = 1 << 24;
+
+        private final List<byte[]> chunks = new ArrayList<byte[]>();
+        private byte[] current = null;
+        private int position = CHUNK_SIZE;
+
+        @Override public void write(int b) {
+            if (position == CHUNK_SIZE)
+                nextChunk();
+
+            current[position++] = (byte) b;
+        }
+
+        @Override public void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                if (position == CHUNK_SIZE)
+                    nextChunk();
+
+                int count = Math.min(length, CHUNK_SIZE - position);
+                System.arraycopy(bytes, offset, current, position, count);
+
+                position += count;
+                offset   += count;
+                length   -= count;
+            }
+        }
+
+        private void nextChunk() {
+            current  = new byte[CHUNK_SIZE];
+            position = 0;
+            chunks.add(current);
+        }
+
+        void writeTo(OutputStream output) throws IOException {
+            for (byte[] chunk : chunks) {
+                int length = (chunk == current) ? position : CHUNK_SIZE;
+                output.write(chunk, 0, length);
+            }
+        }
+    }
+}
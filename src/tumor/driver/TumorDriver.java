@@ -13,6 +13,7 @@ import jam.app.JamProperties;
 import jam.io.IOUtil;
 import jam.lang.JamException;
 import jam.math.IntRange;
+import jam.math.JamRandom;
 import jam.math.LongRange;
 import jam.sim.DiscreteTimeSimulation;
 
@@ -20,30 +21,42 @@ import tumor.carrier.ComponentType;
 import tumor.carrier.Tumor;
 import tumor.carrier.TumorComponent;
 import tumor.lattice.LatticeTumor;
+import tumor.mutation.FixedGenotype;
 import tumor.mutation.Genotype;
 import tumor.mutation.Mutation;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+import tumor.report.BinarySnapshot;
 import tumor.report.ComponentAncestryRecord;
 import tumor.report.ComponentCoordRecord;
 import tumor.report.ComponentCountRecord;
 import tumor.report.ComponentMutationRecord;
 import tumor.report.GenotypeDetailRecord;
 import tumor.report.ReportManager;
+import tumor.report.ReportPipeline;
 import tumor.report.ScalarMutationRecord;
+import tumor.report.SnapshotView;
+import tumor.report.bulk.BulkSampleCollector;
+import tumor.report.dimension.TumorDimensionCache;
 
 /**
  * Provides features common to all tumor simulation applications.
  */
 public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTimeSimulation {
+    private final int  trialCount;
     private final int  initialSize;
     private final int  maxStepCount;
     private final int  snapInterval;
+    private final int  checkpointInterval;
     private final long maxTumorSize;
+    private final File resumeFile;
 
     private final boolean writeCellCountTraj;
     private final boolean writeFinalCellCount;
     private final boolean writeComponentAncestry;
     private final boolean writeComponentCoord;
     private final boolean writeGenotypeDetail;
+    private final boolean writeBinarySnapshot;
     private final boolean writeOriginalMutations;
     private final boolean writeAccumulatedMutations;
     private final boolean writeScalarMutations;
@@ -54,8 +67,21 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
     // The active tumor for the current simulation trial...
     private Tumor<E> tumor;
 
-    // Writer open for the duration of the simulation...
+    // The last time step recorded in the checkpoint used to resume
+    // the current trial (zero for trials started from scratch)...
+    private int resumeStep = 0;
+
+    // The tumor, component, genotype, and mutation counts at the start
+    // of the first trial (restored at the start of every later trial
+    // in a multi-trial simulation)...
+    private long[] trialBaseCounts = null;
+
+    // Writers open for the duration of the simulation...
     private PrintWriter cellCountTrajWriter;
+    private PrintWriter stepMetricsWriter;
+
+    // Phase timing for each time step (inactive unless requested)...
+    private final StepMetrics stepMetrics = StepMetrics.global();
 
     // The single global instance...
     private static TumorDriver<? extends TumorComponent> global = null;
@@ -72,6 +98,21 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      */
     public static final String SPATIAL_TYPE_PROPERTY = "tumor.driver.spatialType";
 
+    /**
+     * Name of the system property that defines the number of
+     * independent trials to execute in a single simulation.
+     *
+     * <p>The trials run one after another in the same JVM, which
+     * saves the start-up and compilation time of a separate process
+     * for each trial.  They do not run concurrently: the index
+     * counters, global models, report caches, and trial stream are
+     * process-wide singletons, so a concurrent trial would disturb
+     * the trials running beside it.  To run trials in parallel, run
+     * separate simulations with distinct random seeds (or trial
+     * indexes) in separate processes.
+     */
+    public static final String TRIAL_COUNT_PROPERTY = "tumor.driver.trialCount";
+
     /**
      * Name of the system property that defines the initial number of
      * cells in each tumor.
@@ -97,6 +138,19 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      */
     public static final String SNAPSHOT_INTERVAL_PROPERTY = "tumor.driver.snapshotInterval";
 
+    /**
+     * Name of the system property that defines the number of time
+     * steps between trial checkpoints: any positive integer will
+     * initiate checkpoint recording.
+     */
+    public static final String CHECKPOINT_INTERVAL_PROPERTY = "tumor.driver.checkpointInterval";
+
+    /**
+     * Name of the system property that specifies a checkpoint file
+     * from which to resume the trial recorded in the checkpoint.
+     */
+    public static final String RESUME_FROM_PROPERTY = "tumor.driver.resumeFrom";
+
     /**
      * Name of the system property that specifies whether or not to
      * write the cell and component count trajectories.
@@ -127,6 +181,13 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      */
     public static final String WRITE_GENOTYPE_DETAIL_PROPERTY = "tumor.driver.writeGenotypeDetail";
 
+    /**
+     * Name of the system property that specifies whether or not to
+     * write the binary columnar snapshot (component coordinates and
+     * genotype detail) for each trial.
+     */
+    public static final String WRITE_BINARY_SNAPSHOT_PROPERTY = "tumor.driver.writeBinarySnapshot";
+
     /**
      * Name of the system property that specifies whether or not to
      * write the original mutations for each tumor component.
@@ -182,6 +243,12 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      */
     public static final String GENOTYPE_DETAIL_NAME = "genotype-detail.csv.gz";
 
+    /**
+     * Name of the output file containing the binary columnar snapshot
+     * for each trial.
+     */
+    public static final String BINARY_SNAPSHOT_NAME = "tumor-snapshot.bin";
+
     /**
      * Name of the output file containing the original mutations for
      * each trial.
@@ -200,6 +267,12 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      */
     public static final String SCALAR_MUTATIONS_NAME = "scalar-mutations.csv.gz";
 
+    /**
+     * Name of the output file containing the most recent checkpoint
+     * for each trial.
+     */
+    public static final String CHECKPOINT_FILE_NAME = "checkpoint.bin.gz";
+
     /**
      * Formats integer quantities with commas for easier reading of
      * logs.
@@ -211,21 +284,39 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      */
     public static final String SUBDIR_PREFIX = "T";
 
+    /**
+     * Prefix for subdirectories containing the snapshots for each
+     * trial in a multi-trial simulation.
+     */
+    public static final String TRIAL_SUBDIR_PREFIX = "R";
+
+    // The base random seed for multi-trial simulations...
+    private static final String RANDOM_SEED_PROPERTY = "jam.math.randomSeed";
+
+    // Odd multiplier that spreads consecutive trial indexes across
+    // the seed space...
+    private static final long TRIAL_SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
     /**
      * Creates a new driver <em>from system properties that have
      * already been defined.</em>
      */
     protected TumorDriver() {
+        this.trialCount   = resolveTrialCount();
         this.initialSize  = resolveInitialSize();
         this.maxStepCount = resolveMaxStepCount();
         this.snapInterval = resolveSnapInterval();
         this.maxTumorSize = resolveMaxTumorSize();
+        this.resumeFile   = resolveResumeFile();
+
+        this.checkpointInterval = resolveCheckpointInterval();
 
         this.writeCellCountTraj        = resolveWriteCellCountTraj();
         this.writeFinalCellCount       = resolveWriteFinalCellCount();
         this.writeComponentAncestry    = resolveWriteComponentAncestry();
         this.writeComponentCoord       = resolveWriteComponentCoord();
         this.writeGenotypeDetail       = resolveWriteGenotypeDetail();
+        this.writeBinarySnapshot       = resolveWriteBinarySnapshot();
         this.writeOriginalMutations    = resolveWriteOriginalMutations();
         this.writeAccumulatedMutations = resolveWriteAccumulatedMutations();
         this.writeScalarMutations      = resolveWriteScalarMutations();
@@ -234,6 +325,15 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
         this.spatialType   = resolveSpatialType();
     }
 
+    private static int resolveTrialCount() {
+        int trialCount = JamProperties.getOptionalInt(TRIAL_COUNT_PROPERTY, 1);
+
+        if (trialCount < 1)
+            throw JamException.runtime("Trial count must be positive.");
+
+        return trialCount;
+    }
+
     private static int resolveInitialSize() {
         return JamProperties.getRequiredInt(INITIAL_SIZE_PROPERTY, IntRange.POSITIVE);
     }
@@ -246,6 +346,17 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
         return JamProperties.getOptionalInt(SNAPSHOT_INTERVAL_PROPERTY, 0);
     }
 
+    private static int resolveCheckpointInterval() {
+        return JamProperties.getOptionalInt(CHECKPOINT_INTERVAL_PROPERTY, 0);
+    }
+
+    private static File resolveResumeFile() {
+        if (JamProperties.isSet(RESUME_FROM_PROPERTY))
+            return new File(JamProperties.getRequired(RESUME_FROM_PROPERTY));
+        else
+            return null;
+    }
+
     private static long resolveMaxTumorSize() {
         return JamProperties.getRequiredLong(MAX_TUMOR_SIZE_PROPERTY, LongRange.POSITIVE);
     }
@@ -270,6 +381,10 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
         return JamProperties.getOptionalBoolean(WRITE_GENOTYPE_DETAIL_PROPERTY, false);
     }
 
+    private static boolean resolveWriteBinarySnapshot() {
+        return JamProperties.getOptionalBoolean(WRITE_BINARY_SNAPSHOT_PROPERTY, false);
+    }
+
     private static boolean resolveWriteOriginalMutations() {
         return JamProperties.getOptionalBoolean(WRITE_ORIGINAL_MUTATIONS_PROPERTY, false);
     }
@@ -425,7 +540,43 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      * files will be written for the specified time step.
      */
     public File getSnapshotDir(int timeStep) {
-        return new File(getReportDir(), formatSnapshotSubDir(timeStep));
+        return new File(getTrialDir(), formatSnapshotSubDir(timeStep));
+    }
+
+    /**
+     * Returns the full path name of the directory where the snapshot
+     * and final-state files will be written for the current trial.
+     *
+     * <p>For single-trial simulations, this is the top-level report
+     * directory; for multi-trial simulations, each trial writes into
+     * its own subdirectory (so that the files from different trials
+     * do not overwrite each other), which is created if necessary.
+     *
+     * @return the full path name of the directory where the snapshot
+     * and final-state files will be written for the current trial.
+     */
+    public File getTrialDir() {
+        if (trialCount == 1)
+            return getReportDir();
+
+        File trialDir = new File(getReportDir(), formatTrialSubDir(getTrialIndex()));
+        trialDir.mkdirs();
+
+        return trialDir;
+    }
+
+    /**
+     * Returns the name of the trial subdirectory (relative to the
+     * top-level report directory) for a given trial in a multi-trial
+     * simulation.
+     *
+     * @param trialIndex the index of the trial.
+     *
+     * @return the name of the trial subdirectory for the specified
+     * trial.
+     */
+    public static String formatTrialSubDir(int trialIndex) {
+        return String.format("%s%04d", TRIAL_SUBDIR_PREFIX, trialIndex);
     }
 
     /**
@@ -464,6 +615,14 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      */
     protected abstract Tumor<E> createTumor();
 
+    /**
+     * Creates a new tumor with no components, to be populated from a
+     * trial checkpoint.
+     *
+     * @return the new empty tumor.
+     */
+    protected abstract Tumor<E> createEmptyTumor();
+
     /**
      * Records the new state of the simulation system after a time
      * step has been executed.
@@ -472,13 +631,19 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
      * to the cell-count trajectory file.
      */
     protected void recordStep() {
+        stepMetrics.begin(StepMetrics.RECORD_PHASE);
         consoleLogStep();
 
         if (writeCellCountTraj)
             writeCellCountTraj();
 
-        if (isSnapshotStep())
+        stepMetrics.end(StepMetrics.RECORD_PHASE);
+
+        if (isSnapshotStep()) {
+            stepMetrics.begin(StepMetrics.SNAPSHOT_PHASE);
             recordSnapshot(getSnapshotDir());
+            stepMetrics.end(StepMetrics.SNAPSHOT_PHASE);
+        }
     }
 
     /**
@@ -524,28 +689,52 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
     /**
      * Writes snapshot reports into a specified output directory.
      *
+     * <p>The tumor state is captured on the simulation thread and the
+     * reports are formatted and written by the report pipeline, which
+     * may run them on background threads while the simulation
+     * continues.
+     *
      * @param snapshotDir the destination for the snapshot reports.
      */
     protected void recordSnapshot(File snapshotDir) {
         JamLogger.info("Recording snapshot...");
 
+        if (!isSnapshotRequested())
+            return;
+
+        SnapshotView   view     = SnapshotView.capture(getTumor());
+        ReportPipeline pipeline = ReportPipeline.global();
+
         if (writeComponentAncestry)
-            ComponentAncestryRecord.write(snapshotDir, COMPONENT_ANCESTRY_NAME, getTumor());
+            pipeline.submit(() -> ComponentAncestryRecord.write(snapshotDir, COMPONENT_ANCESTRY_NAME, view));
 
         if (writeComponentCoord)
-            ComponentCoordRecord.write(snapshotDir, COMPONENT_COORD_NAME, getTumor());
+            pipeline.submit(() -> ComponentCoordRecord.write(snapshotDir, COMPONENT_COORD_NAME, view));
 
         if (writeGenotypeDetail)
-            GenotypeDetailRecord.write(snapshotDir, GENOTYPE_DETAIL_NAME, getTumor());
+            pipeline.submit(() -> GenotypeDetailRecord.write(snapshotDir, GENOTYPE_DETAIL_NAME, view));
+
+        if (writeBinarySnapshot)
+            pipeline.submit(() -> BinarySnapshot.write(snapshotDir, BINARY_SNAPSHOT_NAME, view));
 
         if (writeOriginalMutations)
-            ComponentMutationRecord.writeOriginal(snapshotDir, ORIGINAL_MUTATIONS_NAME, getTumor());
+            pipeline.submit(() -> ComponentMutationRecord.writeOriginal(snapshotDir, ORIGINAL_MUTATIONS_NAME, view));
 
         if (writeAccumulatedMutations)
-            ComponentMutationRecord.writeAccumulated(snapshotDir, ACCUMULATED_MUTATIONS_NAME, getTumor());
+            pipeline.submit(() -> ComponentMutationRecord.writeAccumulated(snapshotDir, ACCUMULATED_MUTATIONS_NAME, view));
 
         if (writeScalarMutations)
-            ScalarMutationRecord.write(snapshotDir, SCALAR_MUTATIONS_NAME, getTumor().getAccumulatedMutations());
+            pipeline.submit(() -> ScalarMutationRecord.write(snapshotDir, SCALAR_MUTATIONS_NAME, view));
+    }
+
+    private boolean isSnapshotRequested() {
+        return writeComponentAncestry
+            || writeComponentCoord
+            || writeGenotypeDetail
+            || writeBinarySnapshot
+            || writeOriginalMutations
+            || writeAccumulatedMutations
+            || writeScalarMutations;
     }
 
     /**
@@ -579,11 +768,63 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
         return maxTumorSize;
     }
 
+    /**
+     * Returns the number of independent trials executed in this
+     * simulation.
+     *
+     * @return the number of independent trials executed in this
+     * simulation.
+     */
+    public int getTrialCount() {
+        return trialCount;
+    }
+
+    /**
+     * Returns the tumor component type for this simulation.
+     *
+     * @return the tumor component type for this simulation.
+     */
+    public ComponentType getComponentType() {
+        return componentType;
+    }
+
+    /**
+     * Identifies simulations that record trial checkpoints or resume
+     * from a checkpoint.  Tumors then keep their components in the
+     * order of insertion (rather than the arbitrary iteration order
+     * of a hash set), so that the order may be recorded in the
+     * checkpoint and a resumed trial repeats the steps of the
+     * original.
+     *
+     * @return {@code true} iff this simulation records or resumes
+     * from trial checkpoints.
+     */
+    public boolean isCheckpointEnabled() {
+        return checkpointInterval > 0 || resumeFile != null;
+    }
+
+    /**
+     * Returns the current time step in the active trial.
+     *
+     * <p>A trial resumed from a checkpoint continues the time step
+     * sequence of the original trial: its first step follows the
+     * step recorded in the checkpoint.
+     *
+     * @return the current time step in the active trial.
+     */
+    @Override public int getTimeStep() {
+        return super.getTimeStep() + resumeStep;
+    }
+
     @Override public int getTrialTarget() {
         //
-        // Only run a single trial...
+        // The trials run sequentially in this JVM: the index counters,
+        // global models, and random stream are shared by all trials,
+        // so the trials cannot safely run concurrently.  Instead, each
+        // trial restarts that state in initializeTrial(), so that it
+        // is independent of the trials before it...
         //
-        return 1;
+        return trialCount;
     }
 
     @Override protected void initializeSimulation() {
@@ -594,6 +835,11 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
             cellCountTrajWriter.println(ComponentCountRecord.header());
         }
 
+        if (stepMetrics.isEnabled()) {
+            stepMetricsWriter = openWriter(StepMetrics.STEP_METRICS_FILE_NAME);
+            stepMetricsWriter.println(StepMetrics.header());
+        }
+
         ReportManager.global().initializeSimulation();
     }
 
@@ -608,17 +854,126 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
     }
 
     @Override protected void finalizeSimulation() {
+        TrialCheckpoint.awaitPending();
+        ReportPipeline.global().await();
         ReportManager.global().finalizeSimulation();
         autoClose();
     }
 
     @Override protected void initializeTrial() {
+        resumeStep = 0;
+
+        seedTrial();
+        resetTrialCounts();
+
         TumorComponent.resetTotalGrowthCount();
-        tumor = createTumor();
-        recordStep();
+        TrialCheckpoint checkpoint = findResumeCheckpoint();
+
+        if (checkpoint != null) {
+            resumeTrial(checkpoint);
+        }
+        else {
+            tumor = createTumor();
+            recordStep();
+        }
+
         ReportManager.global().initializeTrial();
     }
 
+    private TrialCheckpoint findResumeCheckpoint() {
+        if (resumeFile == null)
+            return null;
+
+        TrialCheckpoint checkpoint = TrialCheckpoint.read(resumeFile);
+
+        if (checkpoint.getTrialIndex() == getTrialIndex())
+            return checkpoint;
+        else
+            return null;
+    }
+
+    private void resumeTrial(TrialCheckpoint checkpoint) {
+        JamLogger.info("Resuming trial [%d] from step [%d]...", checkpoint.getTrialIndex(), checkpoint.getTimeStep());
+
+        //
+        // The trial stream is restored first, because the restored
+        // tumor may hold deviates already drawn from it...
+        //
+        RandomStreams.restoreState(checkpoint.getStreamState());
+        reseedJam(checkpoint.getStreamState());
+
+        resumeStep = checkpoint.getTimeStep();
+        tumor = checkpoint.restore(this);
+    }
+
+    private void seedTrial() {
+        //
+        // Give every trial its own random stream, determined only by
+        // the base seed and trial index (whether or not other trials
+        // run in the same simulation), so that any trial may be
+        // reproduced in isolation...
+        //
+        if (JamProperties.isSet(RANDOM_SEED_PROPERTY)) {
+            long baseSeed = JamProperties.getOptionalLong(RANDOM_SEED_PROPERTY, 0L);
+            reseed(baseSeed + TRIAL_SEED_STRIDE * getTrialIndex());
+        }
+        else {
+            RandomStreams.reseed(JamRandom.global().nextLong());
+        }
+    }
+
+    private void resetTrialCounts() {
+        //
+        // Each trial must assign the same indexes as it would in a
+        // simulation of that trial alone (the mutation count also
+        // determines when mutation generation stops), so the index
+        // counters start over from their values before the first
+        // trial.  The transforming mutation and genotype are global
+        // singletons created when their classes are loaded; loading
+        // them first keeps them out of the range that is reused...
+        //
+        if (trialBaseCounts == null) {
+            FixedGenotype.TRANSFORMER.getIndex();
+
+            trialBaseCounts = new long[] {
+                Tumor.count(),
+                TumorComponent.count(),
+                Genotype.count(),
+                Mutation.count()
+            };
+        }
+        else {
+            Tumor.restoreCount(trialBaseCounts[0]);
+            TumorComponent.restoreCount(trialBaseCounts[1]);
+            Genotype.restoreCount(trialBaseCounts[2]);
+            Mutation.restoreCount(trialBaseCounts[3]);
+        }
+    }
+
+    private static void reseed(long seed) {
+        //
+        // The simulation hot paths draw from the trial stream; the JAM
+        // generator is still used by a few library distributions...
+        //
+        RandomStreams.reseed(seed);
+        JamRandom.global().setSeed(seed);
+    }
+
+    private static void reseedJam(long[] streamState) {
+        //
+        // The state of the JAM generator cannot be captured, so it is
+        // reseeded at every checkpoint (and on resume) with a seed
+        // derived from the state of the trial stream, which is not
+        // disturbed...
+        //
+        long seed = 0L;
+
+        for (long word : streamState)
+            seed = RandomStream.mix64(seed ^ word);
+
+        JamRandom.global().setSeed(seed);
+    }
+
     @Override protected boolean continueTrial() {
         int  timeStep  = getTimeStep();
         long cellCount = tumor.countCells();
@@ -629,24 +984,73 @@ public abstract class TumorDriver<E extends TumorComponent> extends DiscreteTime
     }
 
     @Override protected void advanceTrial() {
+        stepMetrics.begin(StepMetrics.ADVANCE_PHASE);
         tumor.advance();
+        stepMetrics.end(StepMetrics.ADVANCE_PHASE);
+
         recordStep();
         ReportManager.global().processStep();
+
+        if (isCheckpointStep()) {
+            stepMetrics.begin(StepMetrics.CHECKPOINT_PHASE);
+            recordCheckpoint();
+            stepMetrics.end(StepMetrics.CHECKPOINT_PHASE);
+        }
+
+        if (stepMetrics.isEnabled())
+            stepMetrics.writeStep(stepMetricsWriter, getTrialIndex(), getTimeStep());
+    }
+
+    private boolean isCheckpointStep() {
+        return (checkpointInterval > 0) && (getTimeStep() % checkpointInterval == 0);
+    }
+
+    private void recordCheckpoint() {
+        //
+        // The checkpoint records the state of the trial stream without
+        // drawing from it, so recording a checkpoint does not change
+        // the trajectory of the trial stream; a trial resumed from the
+        // checkpoint restores the same state...
+        //
+        TrialCheckpoint checkpoint = TrialCheckpoint.capture(this);
+        checkpoint.submit(new File(getTrialDir(), CHECKPOINT_FILE_NAME));
+
+        reseedJam(checkpoint.getStreamState());
     }
 
     @Override protected void finalizeTrial() {
         if (writeCellCountTraj)
             cellCountTrajWriter.flush();
 
+        if (stepMetrics.isEnabled())
+            stepMetricsWriter.flush();
+
         if (writeFinalCellCount)
             writeFinalCellCount();
 
-        recordSnapshot(getReportDir());
+        recordSnapshot(getTrialDir());
         ReportManager.global().finalizeTrial();
+
+        releaseTrialCaches();
+    }
+
+    private void releaseTrialCaches() {
+        //
+        // The report caches hold the samples and records of the trial
+        // just completed, which the next trial will never request.
+        // Records submitted to the report pipeline and pending
+        // checkpoints may still read the caches, so they must finish
+        // before the caches are cleared...
+        //
+        TrialCheckpoint.awaitPending();
+        ReportPipeline.global().await();
+
+        BulkSampleCollector.clear();
+        TumorDimensionCache.clear();
     }
 
     private void writeFinalCellCount() {
-        ComponentCountRecord.write(getReportDir(), FINAL_CELL_COUNT_FILE_NAME, tumor);
+        ComponentCountRecord.write(getTrialDir(), FINAL_CELL_COUNT_FILE_NAME, tumor);
     }
 
     /**
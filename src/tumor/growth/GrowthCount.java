@@ -27,6 +27,50 @@ public final class GrowthCount {
         this.deathCount = deathCount;
     }
 
+    /**
+     * The growth count with no births or deaths.
+     */
+    public static final GrowthCount NONE = new GrowthCount(0L, 0L);
+
+    /**
+     * The growth count with a single birth.
+     */
+    public static final GrowthCount SINGLE_BIRTH = new GrowthCount(1L, 0L);
+
+    /**
+     * The growth count with a single death.
+     */
+    public static final GrowthCount SINGLE_DEATH = new GrowthCount(0L, 1L);
+
+    /**
+     * Returns a growth count with fixed birth and death counts.
+     *
+     * <p>The counts for a single cell (no event, one birth, or one
+     * death) are shared instances, so the advance of individual
+     * cells creates no new objects.
+     *
+     * @param birthCount the number of cell divisions that occurred.
+     *
+     * @param deathCount the number of cell deaths that occurred.
+     *
+     * @return a growth count with the specified birth and death
+     * counts.
+     *
+     * @throws IllegalArgumentException if either count is negative.
+     */
+    public static GrowthCount valueOf(long birthCount, long deathCount) {
+        if (birthCount == 0L && deathCount == 0L)
+            return NONE;
+
+        if (birthCount == 1L && deathCount == 0L)
+            return SINGLE_BIRTH;
+
+        if (birthCount == 0L && deathCount == 1L)
+            return SINGLE_DEATH;
+
+        return new GrowthCount(birthCount, deathCount);
+    }
+
     /**
      * Validates a pair of birth and death counts.
      *
@@ -61,7 +105,7 @@ public final class GrowthCount {
             deathTotal += count.getDeathCount();
         }
 
-        return new GrowthCount(birthTotal, deathTotal);
+        return valueOf(birthTotal, deathTotal);
     }
 
     /**
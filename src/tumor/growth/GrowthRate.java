@@ -1,13 +1,19 @@
 
 package tumor.growth;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import jam.app.JamProperties;
 import jam.math.DoubleComparator;
 import jam.math.DoubleRange;
 import jam.math.DoubleUtil;
-import jam.math.JamRandom;
 import jam.math.Probability;
 
+import tumor.random.AliasTable;
+import tumor.random.DiscreteSampler;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+
 /**
  * Defines the birth (division) rate, death rate, and net growth rate
  * of a cell or other biological entity.
@@ -39,6 +45,13 @@ import jam.math.Probability;
  * implicit calculation is much more efficient for large tumor
  * components.  The boundary between the two algorithms is defined 
  * by the system property {@code tumor.growth.explicitSamplingLimit}.
+ *
+ * <p><b>Cached instances.</b> Mutated daughter cells and lineages
+ * usually share one of a few distinct growth rates.  The static
+ * factory {@link GrowthRate#valueOf(double, double)} returns a cached
+ * instance when one exists with exactly the same birth and death
+ * rates, so that new carriers do not allocate a new rate (and its
+ * probabilities and event distribution) for every mutated daughter.
  */
 public final class GrowthRate {
     private final Probability birthRate;
@@ -51,11 +64,20 @@ public final class GrowthRate {
 
     private static GrowthRate global = null;
 
-    // Cumulative probability distribution for the set of possible
-    // events, computed on demand...
-    private double[] eventCDF = null;
+    // Direct-mapped cache of recently created rates, indexed by a hash
+    // of the exact birth and death rates.  Each slot holds the most
+    // recent rate that hashed to it; a collision simply replaces the
+    // previous occupant, so the cache never grows and needs no lock...
+    private static final int CACHE_SIZE = 4096;
+    private static final AtomicReferenceArray<GrowthRate> cache =
+        new AtomicReferenceArray<GrowthRate>(CACHE_SIZE);
 
-    // Event indexes corresponding to elements in the "eventCDF" array...
+    // Alias table for the set of possible events, computed on
+    // demand; the table is immutable, so threads that race to compute
+    // it simply publish equivalent tables...
+    private volatile AliasTable eventTable = null;
+
+    // Event indexes corresponding to elements in the "eventTable"...
     private static final int BIRTH_EVENT = 0;
     private static final int DEATH_EVENT = 1;
     private static final int NO_EVENT    = 2;
@@ -68,6 +90,14 @@ public final class GrowthRate {
         return JamProperties.getOptionalInt(EXPLICIT_SAMPLING_LIMIT_PROPERTY,
                                             EXPLICIT_SAMPLING_LIMIT_DEFAULT);
     }
+
+    // Whether large populations draw exact binomial event counts...
+    private static final boolean EXACT_SAMPLING = resolveExactSampling();
+
+    private static boolean resolveExactSampling() {
+        return JamProperties.getOptionalBoolean(EXACT_SAMPLING_PROPERTY, EXACT_SAMPLING_DEFAULT);
+    }
+
     /**
      * Name of the system property that defines the (globally uniform)
      * intrinsic tumor cell birth rate.
@@ -97,6 +127,31 @@ public final class GrowthRate {
      */
     public static final int EXPLICIT_SAMPLING_LIMIT_DEFAULT = 10;
 
+    /**
+     * Name of the system property that specifies whether the birth
+     * and death counts for populations larger than the sampling limit
+     * (and the clone sizes of dividing multicellular components) are
+     * drawn from their exact distributions rather than computed
+     * semi-stochastically.
+     */
+    public static final String EXACT_SAMPLING_PROPERTY = "tumor.growth.exactSampling";
+
+    /**
+     * Default value for the exact sampling property.
+     */
+    public static final boolean EXACT_SAMPLING_DEFAULT = false;
+
+    /**
+     * Identifies simulations that draw growth event counts from their
+     * exact distributions (as specified by the exact sampling
+     * property).
+     *
+     * @return {@code true} iff exact sampling is enabled.
+     */
+    public static boolean isExactSampling() {
+        return EXACT_SAMPLING;
+    }
+
     /**
      * Creates a new growth rate with fixed birth and death components.
      *
@@ -141,6 +196,45 @@ public final class GrowthRate {
         this.deathRateDouble = deathRate.doubleValue();
     }
 
+    /**
+     * Returns a growth rate with fixed birth and death components,
+     * reusing a cached instance with exactly the same components when
+     * one is available.
+     *
+     * @param birthRate the probability of cell division in the next
+     * time step.
+     *
+     * @param deathRate the probability of cell death in the next time
+     * step.
+     *
+     * @return a growth rate with the specified birth and death rates.
+     *
+     * @throws IllegalArgumentException if the sum of the birth and
+     * death rates exceeds one.
+     */
+    public static GrowthRate valueOf(double birthRate, double deathRate) {
+        long birthBits = Double.doubleToLongBits(birthRate);
+        long deathBits = Double.doubleToLongBits(deathRate);
+
+        int slot = cacheSlot(birthBits, deathBits);
+        GrowthRate cached = cache.get(slot);
+
+        if (cached != null
+            && Double.doubleToLongBits(cached.birthRateDouble) == birthBits
+            && Double.doubleToLongBits(cached.deathRateDouble) == deathBits)
+            return cached;
+
+        GrowthRate created = new GrowthRate(birthRate, deathRate);
+        cache.set(slot, created);
+
+        return created;
+    }
+
+    private static int cacheSlot(long birthBits, long deathBits) {
+        long hash = (31 * birthBits + deathBits) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (CACHE_SIZE - 1);
+    }
+
     /**
      * Returns the globally uniform intrinsic growth rate defined by
      * system properties as described in the class comments.
@@ -270,8 +364,10 @@ public final class GrowthRate {
         double eventRate = birthRateDouble + deathRateDouble;
         double deathFrac = deathRateDouble / eventRate;
 
-        long eventCount = JamRandom.global().discretize(population * eventRate);
-        long deathCount = JamRandom.global().discretize(eventCount * deathFrac);
+        RandomStream random = RandomStreams.current();
+
+        long eventCount = random.discretize(population * eventRate);
+        long deathCount = random.discretize(eventCount * deathFrac);
         long birthCount = eventCount - deathCount;
         long netGrowth  = birthCount - deathCount;
 
@@ -279,7 +375,84 @@ public final class GrowthRate {
             birthCount = deathCount + netCapacity;
 
         assert birthCount - deathCount <= netCapacity;
-        return new GrowthCount(birthCount, deathCount);
+        return GrowthCount.valueOf(birthCount, deathCount);
+    }
+
+    /**
+     * Draws the number of cell divisions and deaths in a population
+     * with finite capacity from the exact multinomial distribution.
+     *
+     * <p>The number of births is drawn from {@code B(N, b)} and the
+     * number of deaths from {@code B(N - births, d / (1 - b))}; the
+     * statistics are identical to those of {@code sampleCount()} in
+     * an unconstrained population, but the cost is independent of the
+     * population size.  If the births would exceed the capacity, they
+     * are truncated (as in {@code computeCount()}).
+     *
+     * @param random the source of random deviates.
+     *
+     * @param population the number of cells having this growth rate.
+     *
+     * @param netCapacity the maximum allowed increase in population.
+     *
+     * @return the realized number of cell divisions and deaths.
+     */
+    public GrowthCount drawCount(RandomStream random, long population, long netCapacity) {
+        long birthCount = DiscreteSampler.binomial(random, population, birthRateDouble);
+        long deathCount = DiscreteSampler.binomial(random, population - birthCount, conditionalDeathRate());
+
+        if (birthCount - deathCount > netCapacity)
+            birthCount = deathCount + netCapacity;
+
+        assert birthCount - deathCount <= netCapacity;
+        return GrowthCount.valueOf(birthCount, deathCount);
+    }
+
+    /**
+     * Draws the number of cell divisions and deaths for a batch of
+     * unconstrained populations from their exact multinomial
+     * distributions, in two passes over primitive arrays (the births
+     * for every population, then the deaths).
+     *
+     * @param random the source of random deviates.
+     *
+     * @param rates the growth rate for each population.
+     *
+     * @param populations the number of cells in each population.
+     *
+     * @param birthCounts the array to fill with the birth counts.
+     *
+     * @param deathCounts the array to fill with the death counts.
+     *
+     * @param fromIndex the first population to process (inclusive).
+     *
+     * @param toIndex the last population to process (exclusive).
+     */
+    public static void drawCounts(RandomStream random,
+                                  GrowthRate[] rates,
+                                  long[] populations,
+                                  long[] birthCounts,
+                                  long[] deathCounts,
+                                  int fromIndex,
+                                  int toIndex) {
+        for (int index = fromIndex; index < toIndex; ++index)
+            birthCounts[index] = DiscreteSampler.binomial(random, populations[index], rates[index].birthRateDouble);
+
+        for (int index = fromIndex; index < toIndex; ++index)
+            deathCounts[index] =
+                DiscreteSampler.binomial(random,
+                                         populations[index] - birthCounts[index],
+                                         rates[index].conditionalDeathRate());
+    }
+
+    private double conditionalDeathRate() {
+        //
+        // The probability of death for a cell that did not divide...
+        //
+        if (birthRateDouble < 1.0)
+            return Math.min(1.0, deathRateDouble / (1.0 - birthRateDouble));
+        else
+            return 0.0;
     }
 
     /**
@@ -287,8 +460,9 @@ public final class GrowthRate {
      * population with finite capacity.
      *
      * <p>This method will use the efficient semi-stochastic algorithm
-     * for populations larger than the sampling limit and the explicit
-     * sampling algorithm for smaller populations.
+     * (or the exact multinomial draw, if enabled by the exact sampling
+     * property) for populations larger than the sampling limit and
+     * the explicit sampling algorithm for smaller populations.
      *
      * @param population the number of cells having this growth rate.
      *
@@ -299,6 +473,8 @@ public final class GrowthRate {
     public GrowthCount resolveCount(long population, long netCapacity) {
         if (population <= EXPLICIT_SAMPLING_LIMIT)
             return sampleCount(population, netCapacity);
+        else if (EXACT_SAMPLING)
+            return drawCount(RandomStreams.current(), population, netCapacity);
         else
             return computeCount(population, netCapacity);
     }
@@ -320,10 +496,11 @@ public final class GrowthRate {
             //
             return 0;
         }
-        else if (population <= EXPLICIT_SAMPLING_LIMIT) {
+        else if (population <= EXPLICIT_SAMPLING_LIMIT || EXACT_SAMPLING) {
             //
-            // For a non-zero birth rate, every random sample could
-            // result in a birth event...
+            // For a non-zero birth rate, every random sample (or
+            // every cell in an exact draw) could result in a birth
+            // event...
             //
             return population;
         }
@@ -369,8 +546,11 @@ public final class GrowthRate {
         long birthCount = 0;
         long deathCount = 0;
 
+        RandomStream random     = RandomStreams.current();
+        AliasTable   eventTable = getEventTable();
+
         for (long trial = 0; trial < population; ++trial) {
-            long eventIndex = JamRandom.global().selectCDF(getEventCDF());
+            int eventIndex = eventTable.sample(random.nextLong());
 
             if (eventIndex == BIRTH_EVENT && netGrowth < netCapacity) {
                 ++netGrowth;
@@ -383,24 +563,28 @@ public final class GrowthRate {
         }
 
         assert netGrowth <= netCapacity;
-        return new GrowthCount(birthCount, deathCount);
+        return GrowthCount.valueOf(birthCount, deathCount);
     }
 
-    private double[] getEventCDF() {
-        if (eventCDF == null)
-            eventCDF = computeEventCDF();
+    private AliasTable getEventTable() {
+        AliasTable table = eventTable;
+
+        if (table == null) {
+            table = computeEventTable();
+            eventTable = table;
+        }
 
-        return eventCDF;
+        return table;
     }
 
-    private double[] computeEventCDF() {
-        double[] CDF = new double[3];
+    private AliasTable computeEventTable() {
+        double[] PDF = new double[3];
 
-        CDF[BIRTH_EVENT] = birthRateDouble;
-        CDF[DEATH_EVENT] = birthRateDouble + deathRateDouble;
-        CDF[NO_EVENT]    = 1.0;
+        PDF[BIRTH_EVENT] = birthRateDouble;
+        PDF[DEATH_EVENT] = deathRateDouble;
+        PDF[NO_EVENT]    = Math.max(0.0, 1.0 - birthRateDouble - deathRateDouble);
 
-        return CDF;
+        return AliasTable.create(PDF);
     }
 
     /**
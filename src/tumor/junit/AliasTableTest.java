@@ -0,0 +1,81 @@
+
+package tumor.junit;
+
+import tumor.driver.TumorDriver;
+import tumor.lattice.ExpansionSiteSelector;
+import tumor.random.AliasTable;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+
+import jam.lattice.Coord;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class AliasTableTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    @Test public void testPDF() {
+        double[] weights = new double[] { 1.0, 0.0, 3.0, 0.5, 5.5 };
+        double[] PDF = AliasTable.create(weights).computePDF();
+
+        assertEquals(0.1,  PDF[0], 1.0E-09);
+        assertEquals(0.0,  PDF[1], 1.0E-09);
+        assertEquals(0.3,  PDF[2], 1.0E-09);
+        assertEquals(0.05, PDF[3], 1.0E-09);
+        assertEquals(0.55, PDF[4], 1.0E-09);
+    }
+
+    @Test public void testSample() {
+        AliasTable   table  = AliasTable.create(0.2, 0.5, 0.3);
+        RandomStream stream = RandomStreams.create(20181018L);
+
+        int[] counts = new int[3];
+        int   trials = 100000;
+
+        for (int k = 0; k < trials; ++k)
+            ++counts[table.sample(stream)];
+
+        assertEquals(0.2, counts[0] / (double) trials, 0.005);
+        assertEquals(0.5, counts[1] / (double) trials, 0.005);
+        assertEquals(0.3, counts[2] / (double) trials, 0.005);
+    }
+
+    @Test public void testSingle() {
+        AliasTable   table  = AliasTable.create(2.0);
+        RandomStream stream = RandomStreams.create(1L);
+
+        for (int k = 0; k < 100; ++k)
+            assertEquals(0, table.sample(stream));
+    }
+
+    @Test public void testPacked() {
+        RandomStream s1 = RandomStreams.create(33L);
+        RandomStream s2 = RandomStreams.create(33L);
+
+        Coord parent = Coord.at(5, -7, 11);
+        int[] packed = new int[1000];
+
+        ExpansionSiteSelector.INSTANCE.selectPacked(s1, packed, 0, packed.length);
+
+        for (int k = 0; k < packed.length; ++k)
+            assertEquals(ExpansionSiteSelector.INSTANCE.select(parent, s2),
+                         ExpansionSiteSelector.unpack(parent, packed[k]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegative() {
+        AliasTable.create(1.0, -1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZero() {
+        AliasTable.create(0.0, 0.0);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.AliasTableTest");
+    }
+}
@@ -0,0 +1,82 @@
+
+package tumor.junit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import tumor.carrier.Tumor;
+import tumor.carrier.TumorCell;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.mutation.Genotype;
+import tumor.mutation.Mutation;
+import tumor.point.PointTumor;
+import tumor.report.BinarySnapshot;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class BinarySnapshotTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    @Test public void testRoundTrip() throws IOException {
+        Tumor<TumorCell> tumor = PointTumor.primary(TumorCell.founders(100, GrowthRate.net(0.1)));
+
+        for (int step = 0; step < 10; ++step)
+            tumor.advance();
+
+        File dir  = Files.createTempDirectory("snapshot").toFile();
+        File file = new File(dir, "snapshot.bin");
+
+        BinarySnapshot.write(dir, file.getName(), tumor);
+        BinarySnapshot snapshot = BinarySnapshot.open(file);
+
+        List<TumorCell> components = new ArrayList<TumorCell>(tumor.sortComponents());
+        List<Genotype>  genotypes  = new ArrayList<Genotype>(tumor.sortGenotypes());
+
+        assertEquals(components.size(), snapshot.countComponents());
+        assertEquals(genotypes.size(), snapshot.countGenotypes());
+
+        for (int row = 0; row < components.size(); ++row) {
+            TumorCell component = components.get(row);
+            int genoRow = snapshot.getGenotypeRow(row);
+
+            assertEquals(component.getIndex(), snapshot.getCompIndex(row));
+            assertEquals(component.countCells(), snapshot.getCellCount(row));
+            assertEquals(tumor.locateComponent(component), snapshot.getCompCoord(row));
+            assertEquals(component.getGenotype().getIndex(), snapshot.getGenotypeIndex(genoRow));
+        }
+
+        for (int row = 0; row < genotypes.size(); ++row) {
+            Genotype genotype = genotypes.get(row);
+
+            assertEquals(genotype.getIndex(), snapshot.getGenotypeIndex(row));
+            assertEquals(indexes(genotype.viewAccumulatedMutations()), snapshot.getAccumulatedIndexes(row));
+            assertEquals(indexes(genotype.viewInheritedMutations()), snapshot.getInheritedIndexes(row));
+            assertEquals(indexes(genotype.viewOriginalMutations()), snapshot.getOriginalIndexes(row));
+        }
+
+        file.delete();
+        dir.delete();
+    }
+
+    private static LongArrayList indexes(List<Mutation> mutations) {
+        LongArrayList indexes = new LongArrayList();
+
+        for (Mutation mutation : mutations)
+            indexes.add(mutation.getIndex());
+
+        return indexes;
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.BinarySnapshotTest");
+    }
+}
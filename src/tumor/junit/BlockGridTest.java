@@ -0,0 +1,82 @@
+
+package tumor.junit;
+
+import jam.lattice.Coord;
+
+import tumor.lattice.BlockGrid;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class BlockGridTest {
+    @Test public void testBackground() {
+        BlockGrid grid = new BlockGrid(5L);
+
+        assertEquals(5L, grid.get(0, 0, 0));
+        assertEquals(5L, grid.get(-1000, 2000, -3000));
+        assertEquals(0, grid.countBlocks());
+
+        // Assigning the background value allocates nothing...
+        grid.set(1, 2, 3, 5L);
+        assertEquals(0, grid.countBlocks());
+    }
+
+    @Test public void testSetAdd() {
+        BlockGrid grid = new BlockGrid(0L);
+
+        grid.set(-1, -1, -1, 7L);
+        grid.add(Coord.at(-1, -1, -1), 3L);
+        grid.add(Coord.at(8, 0, 0), -2L);
+
+        assertEquals(10L, grid.get(-1, -1, -1));
+        assertEquals(-2L, grid.get(Coord.at(8, 0, 0)));
+
+        // Sites in the same blocks are unchanged...
+        assertEquals(0L, grid.get(-8, -8, -8));
+        assertEquals(0L, grid.get(0, 0, 0));
+        assertEquals(0L, grid.get(15, 7, 7));
+
+        assertEquals(2, grid.countBlocks());
+        assertEquals(2, grid.countDenseBlocks());
+    }
+
+    @Test public void testCompress() {
+        BlockGrid grid = new BlockGrid(1L);
+
+        // Fill one block with a uniform value...
+        for (int x = 0; x < BlockGrid.BLOCK_WIDTH; ++x)
+            for (int y = 0; y < BlockGrid.BLOCK_WIDTH; ++y)
+                for (int z = 0; z < BlockGrid.BLOCK_WIDTH; ++z)
+                    grid.set(x, y, z, 4L);
+
+        // Change and then restore one site in another block...
+        grid.set(-3, 0, 0, 9L);
+        grid.set(-3, 0, 0, 1L);
+
+        // And leave one block with mixed values...
+        grid.set(20, 20, 20, 6L);
+
+        assertEquals(3, grid.countDenseBlocks());
+        grid.compress();
+
+        assertEquals(2, grid.countBlocks());
+        assertEquals(1, grid.countDenseBlocks());
+
+        assertEquals(4L, grid.get(0, 0, 0));
+        assertEquals(4L, grid.get(7, 7, 7));
+        assertEquals(1L, grid.get(8, 7, 7));
+        assertEquals(1L, grid.get(-3, 0, 0));
+        assertEquals(6L, grid.get(20, 20, 20));
+        assertEquals(1L, grid.get(21, 20, 20));
+
+        // Writing to a uniform block expands it again...
+        grid.add(1, 1, 1, 1L);
+        assertEquals(5L, grid.get(1, 1, 1));
+        assertEquals(4L, grid.get(1, 1, 2));
+        assertEquals(2, grid.countDenseBlocks());
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.BlockGridTest");
+    }
+}
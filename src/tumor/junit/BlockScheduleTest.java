@@ -0,0 +1,206 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jam.lattice.Coord;
+
+import tumor.capacity.CapacityModel;
+import tumor.carrier.TumorCell;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.growth.LocalGrowthModel;
+import tumor.lattice.BlockSchedule;
+import tumor.lattice.CellularLatticeTumor;
+import tumor.lattice.LatticeTumor;
+import tumor.lattice.MortonCode;
+import tumor.migrate.MigrationModel;
+import tumor.random.RandomStreams;
+import tumor.senesce.SenescenceModel;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class BlockScheduleTest {
+    static {
+        System.setProperty(LatticeTumor.PERIOD_LENGTH_PROPERTY, "10");
+        System.setProperty(CapacityModel.MODEL_TYPE_PROPERTY, "SINGLE");
+        System.setProperty(LocalGrowthModel.MODEL_TYPE_PROPERTY, "INTRINSIC");
+        System.setProperty(MigrationModel.MODEL_TYPE_PROPERTY, "PINNED");
+        System.setProperty(SenescenceModel.MODEL_TYPE_PROPERTY, "NONE");
+        System.setProperty(GrowthRate.BIRTH_RATE_PROPERTY, "0.55");
+        System.setProperty(GrowthRate.DEATH_RATE_PROPERTY, "0.45");
+
+        TumorDriver.junit();
+    }
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+
+    private static final long SEED = 20181016L;
+
+    private static List<String> advance(int parallelism, int stepCount) {
+        System.setProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY, "true");
+        System.setProperty(CellularLatticeTumor.PARALLELISM_PROPERTY, Integer.toString(parallelism));
+        System.setProperty(CellularLatticeTumor.BLOCK_EDGE_PROPERTY, "3");
+
+        try {
+            CellularLatticeTumor tumor = CellularLatticeTumor.empty();
+
+            for (int x = -2; x <= 2; ++x)
+                for (int y = -2; y <= 2; ++y)
+                    for (int z = -2; z <= 2; ++z)
+                        tumor.restoreComponent(TumorCell.founder(GROWTH_RATE), Coord.at(x, y, z));
+
+            RandomStreams.reseed(SEED);
+            List<String> trajectory = new ArrayList<String>();
+
+            for (int step = 0; step < stepCount && tumor.countCells() > 0; ++step) {
+                tumor.advance();
+                trajectory.add(describe(tumor));
+            }
+
+            return trajectory;
+        }
+        finally {
+            System.clearProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY);
+            System.clearProperty(CellularLatticeTumor.PARALLELISM_PROPERTY);
+            System.clearProperty(CellularLatticeTumor.BLOCK_EDGE_PROPERTY);
+        }
+    }
+
+    private static String describe(CellularLatticeTumor tumor) {
+        //
+        // The component indexes are global, so the cells are described
+        // by their locations and mutation counts...
+        //
+        List<String> cells = new ArrayList<String>();
+
+        for (TumorCell cell : tumor.viewComponents())
+            cells.add(tumor.locateComponent(cell) + ":" + cell.getOriginalMutations().size());
+
+        cells.sort(null);
+        return cells.toString();
+    }
+
+    private static int distance(int c1, int c2, int period) {
+        int delta = Math.floorMod(c1 - c2, period);
+        return Math.min(delta, period - delta);
+    }
+
+    private static void assertSeparated(int period, int blockEdge) {
+        //
+        // Distinct blocks of the same color must be at least three
+        // sites apart (on the periodic lattice), so that the sites
+        // within one site of each block are disjoint...
+        //
+        BlockSchedule schedule = new BlockSchedule(period, blockEdge);
+
+        int lower = -(period / 2);
+        int upper = period - period / 2;
+
+        List<Coord> sites = new ArrayList<Coord>();
+
+        for (int x = lower; x < upper; ++x)
+            for (int y = lower; y < upper; ++y)
+                for (int z = lower; z < upper; ++z)
+                    sites.add(Coord.at(x, y, z));
+
+        int[] blocks = new int[sites.size()];
+        int[] colors = new int[sites.size()];
+
+        for (int index = 0; index < sites.size(); ++index) {
+            Coord site = sites.get(index);
+
+            blocks[index] = schedule.blockOf(MortonCode.encode(site));
+            colors[index] = schedule.colorOf(blocks[index]);
+
+            assertTrue(blocks[index] < schedule.countBlocks());
+            assertTrue(colors[index] < schedule.countColors());
+        }
+
+        for (int i = 0; i < sites.size(); ++i) {
+            for (int j = 0; j < i; ++j) {
+                if (blocks[i] == blocks[j] || colors[i] != colors[j])
+                    continue;
+
+                Coord si = sites.get(i);
+                Coord sj = sites.get(j);
+
+                int separation =
+                    Math.max(distance(si.x, sj.x, period),
+                             Math.max(distance(si.y, sj.y, period), distance(si.z, sj.z, period)));
+
+                assertTrue(separation >= 3);
+            }
+        }
+    }
+
+    @Test public void testSeparation() {
+        assertSeparated(10, 2);
+        assertSeparated(10, 3);
+        assertSeparated(10, 4);
+        assertSeparated(11, 2);
+        assertSeparated(12, 4);
+        assertSeparated(9, 3);
+        assertSeparated(8, 8);
+        assertSeparated(7, 20);
+    }
+
+    @Test public void testColorCount() {
+        assertEquals(1,  new BlockSchedule(10, 10).countColors());
+        assertEquals(8,  new BlockSchedule(10, 5).countColors());
+        assertEquals(27, new BlockSchedule(10, 3).countColors());
+        assertEquals(8,  new BlockSchedule(10, 4).countBlocks());
+        assertEquals(27, new BlockSchedule(10, 3).countBlocks());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockEdge() {
+        new BlockSchedule(10, 1);
+    }
+
+    @Test public void testParallelAdvance() {
+        //
+        // The block-decomposed advance must give the same trajectory
+        // for any positive number of threads...
+        //
+        List<String> trajectory = advance(1, 20);
+
+        assertFalse(trajectory.isEmpty());
+        assertEquals(trajectory, advance(2, 20));
+        assertEquals(trajectory, advance(4, 20));
+    }
+
+    @Test public void testSerialAdvance() {
+        //
+        // The default serial advance remains reproducible for a given
+        // seed...
+        //
+        List<String> trajectory = advance(0, 20);
+
+        assertFalse(trajectory.isEmpty());
+        assertEquals(trajectory, advance(0, 20));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testNegativeParallelism() {
+        advance(-1, 1);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testParallelismWithoutGrid() {
+        System.setProperty(CellularLatticeTumor.PARALLELISM_PROPERTY, "2");
+
+        try {
+            CellularLatticeTumor.empty();
+        }
+        finally {
+            System.clearProperty(CellularLatticeTumor.PARALLELISM_PROPERTY);
+        }
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.BlockScheduleTest");
+    }
+}
@@ -0,0 +1,115 @@
+
+package tumor.junit;
+
+import java.util.Arrays;
+
+import tumor.driver.TumorDriver;
+import tumor.random.DiscreteSampler;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class DiscreteSamplerTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    private static final int SAMPLE_COUNT = 100000;
+
+    private static void assertMoments(long[] samples, double mean, double variance) {
+        double sum = 0.0;
+
+        for (long sample : samples)
+            sum += sample;
+
+        double sampleMean = sum / samples.length;
+        double sumSq = 0.0;
+
+        for (long sample : samples)
+            sumSq += (sample - sampleMean) * (sample - sampleMean);
+
+        double sampleVar = sumSq / (samples.length - 1);
+
+        // Five standard errors...
+        assertEquals(mean, sampleMean, 5.0 * Math.sqrt(variance / samples.length));
+        assertEquals(variance, sampleVar, 0.05 * variance);
+    }
+
+    private static void runBinomialTest(RandomStream random, long trials, double prob) {
+        long[] samples = new long[SAMPLE_COUNT];
+
+        for (int k = 0; k < SAMPLE_COUNT; ++k) {
+            samples[k] = DiscreteSampler.binomial(random, trials, prob);
+            assertTrue(0 <= samples[k] && samples[k] <= trials);
+        }
+
+        assertMoments(samples, trials * prob, trials * prob * (1.0 - prob));
+    }
+
+    private static void runPoissonTest(RandomStream random, double mean) {
+        long[] samples = new long[SAMPLE_COUNT];
+        double[] means = new double[SAMPLE_COUNT];
+
+        Arrays.fill(means, mean);
+        DiscreteSampler.poisson(random, means, samples, 0, SAMPLE_COUNT);
+
+        assertMoments(samples, mean, mean);
+    }
+
+    @Test public void testBinomial() {
+        RandomStream random = RandomStreams.create(20181017L);
+
+        // Inversion...
+        runBinomialTest(random, 20, 0.3);
+        runBinomialTest(random, 1000, 0.01);
+        runBinomialTest(random, 1000, 0.99);
+
+        // BTPE...
+        runBinomialTest(random, 1000, 0.25);
+        runBinomialTest(random, 100000, 0.6);
+        runBinomialTest(random, 10000000000L, 0.001);
+    }
+
+    @Test public void testBinomialLimits() {
+        RandomStream random = RandomStreams.create(1L);
+
+        assertEquals(0,   DiscreteSampler.binomial(random, 0, 0.5));
+        assertEquals(0,   DiscreteSampler.binomial(random, 100, 0.0));
+        assertEquals(100, DiscreteSampler.binomial(random, 100, 1.0));
+    }
+
+    @Test public void testPoisson() {
+        RandomStream random = RandomStreams.create(20181018L);
+
+        // Multiplication...
+        runPoissonTest(random, 0.1);
+        runPoissonTest(random, 4.5);
+
+        // PTRS...
+        runPoissonTest(random, 25.0);
+        runPoissonTest(random, 12345.6);
+
+        assertEquals(0, DiscreteSampler.poisson(random, 0.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTrials() {
+        DiscreteSampler.binomial(RandomStreams.create(1L), -1, 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProb() {
+        DiscreteSampler.binomial(RandomStreams.create(1L), 10, 1.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMean() {
+        DiscreteSampler.poisson(RandomStreams.create(1L), -1.0);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.DiscreteSamplerTest");
+    }
+}
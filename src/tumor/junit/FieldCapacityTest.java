@@ -0,0 +1,58 @@
+
+package tumor.junit;
+
+import jam.lattice.Coord;
+import jam.lattice.Neighborhood;
+
+import tumor.capacity.CapacityType;
+import tumor.capacity.FieldCapacity;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class FieldCapacityTest {
+    private static long sumNeighborhood(FieldCapacity model, Coord center, Neighborhood neighborhood) {
+        long result = 0;
+
+        for (Coord coord : neighborhood.getNeighbors(center))
+            result += model.getSiteCapacity(coord);
+
+        return result;
+    }
+
+    @Test public void testCore() {
+        FieldCapacity model = FieldCapacity.core(10L, 5, 2L);
+
+        assertEquals(CapacityType.FIELD, model.getType());
+        assertEquals(10L, model.getMeanCapacity());
+
+        assertEquals( 2L, model.getSiteCapacity(Coord.ORIGIN));
+        assertEquals( 2L, model.getSiteCapacity(Coord.at(5, 0, 0)));
+        assertEquals( 2L, model.getSiteCapacity(Coord.at(3, -3, 2)));
+        assertEquals(10L, model.getSiteCapacity(Coord.at(3, -3, 3)));
+        assertEquals(10L, model.getSiteCapacity(Coord.at(0, 0, -6)));
+        assertEquals(10L, model.getSiteCapacity(Coord.at(100, 100, 100)));
+    }
+
+    @Test public void testNeighborhood() {
+        FieldCapacity model = FieldCapacity.core(10L, 4, 3L);
+
+        for (Neighborhood neighborhood : Neighborhood.values())
+            for (int x = -7; x <= 7; ++x)
+                for (int y = -7; y <= 7; ++y)
+                    for (int z = -7; z <= 7; ++z) {
+                        Coord center = Coord.at(x, y, z);
+                        assertEquals(sumNeighborhood(model, center, neighborhood),
+                                     model.getNeighborhoodCapacity(center, neighborhood));
+                    }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        FieldCapacity.core(10L, 4, 0L);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.FieldCapacityTest");
+    }
+}
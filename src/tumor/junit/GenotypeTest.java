@@ -1,10 +1,15 @@
 
 package tumor.junit;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
 import tumor.mutation.Genotype;
+import tumor.mutation.GenotypeTree;
 import tumor.mutation.MutableGenotype;
 import tumor.mutation.Mutation;
 import tumor.driver.TumorDriver;
@@ -60,6 +65,99 @@ public class GenotypeTest {
         assertEquals(Set.of(M1, M2, M3, M4, M5), Genotype.findUnique(List.of(clone2, clone1)));
     }
 
+    @Test public void testAccumulated() {
+        MutableGenotype founder = MutableGenotype.founder(M1, M2);
+        MutableGenotype clone1  = founder.forClone();
+
+        founder.append(M3);
+        clone1.append(M4);
+
+        MutableGenotype clone2 = clone1.forClone();
+        Genotype daughter = clone2.forDaughter(List.of(M5, M6));
+
+        assertEquals(0, founder.getDepth());
+        assertEquals(3, daughter.getDepth());
+
+        assertEquals(List.of(M1, M2, M3), founder.viewAccumulatedMutations());
+        assertEquals(List.of(M1, M2, M4), clone1.viewAccumulatedMutations());
+        assertEquals(List.of(M1, M2, M4), clone2.viewAccumulatedMutations());
+        assertEquals(List.of(M1, M2, M4), daughter.viewInheritedMutations());
+        assertEquals(List.of(M1, M2, M4, M5, M6), daughter.viewAccumulatedMutations());
+
+        assertEquals(3, founder.countAccumulatedMutations());
+        assertEquals(2, clone1.countInheritedMutations());
+        assertEquals(3, daughter.countInheritedMutations());
+        assertEquals(5, daughter.countAccumulatedMutations());
+    }
+
+    private static List<Mutation> drain(Genotype.LineageCursor cursor) {
+        List<Mutation> mutations = new ArrayList<Mutation>();
+
+        while (cursor.hasNext())
+            mutations.add(cursor.next());
+
+        return mutations;
+    }
+
+    @Test public void testCursor() {
+        MutableGenotype founder = MutableGenotype.founder(M1, M2);
+        MutableGenotype clone1  = founder.forClone();
+
+        founder.append(M3);
+        clone1.append(M4);
+
+        Genotype daughter = clone1.forClone().forDaughter(List.of(M5, M6));
+
+        //
+        // One cursor scans genotypes of any depth in any order...
+        //
+        Genotype.LineageCursor cursor = new Genotype.LineageCursor();
+
+        assertEquals(List.of(M1, M2, M4, M5, M6), drain(cursor.reset(daughter, true)));
+        assertEquals(List.of(M1, M2, M3), drain(cursor.reset(founder, true)));
+        assertEquals(List.of(), drain(cursor.reset(founder, false)));
+        assertEquals(List.of(M1, M2, M4), drain(cursor.reset(daughter, false)));
+        assertEquals(List.of(M1, M2, M4), drain(cursor.reset(clone1, true)));
+
+        // The buffer grows for deep lineages and is then reused...
+        Genotype deep = founder;
+
+        for (int generation = 0; generation < 40; ++generation)
+            deep = deep.forDaughter(List.of(Mutation.neutral()));
+
+        assertEquals(43, drain(cursor.reset(deep, true)).size());
+        assertEquals(List.of(M1, M2, M4, M5, M6), drain(cursor.reset(daughter, true)));
+
+        cursor.reset(daughter, true);
+        assertEquals(M1.getIndex(), cursor.nextIndex());
+        assertEquals(M2.getType(), cursor.nextType());
+        assertEquals(M4, cursor.next());
+    }
+
+    @Test public void testTreeCount() {
+        MutableGenotype founder = MutableGenotype.founder(M1, M2);
+        MutableGenotype clone1  = founder.forClone();
+
+        founder.append(M3);
+        clone1.append(M4);
+
+        Genotype daughter = clone1.forDaughter(List.of(M5));
+        clone1.append(M6);
+
+        Object2LongOpenHashMap<Genotype> genotypeCounts = new Object2LongOpenHashMap<Genotype>();
+        genotypeCounts.put(founder,  10);
+        genotypeCounts.put(daughter,  5);
+
+        Object2LongMap<Mutation> mutationCounts = GenotypeTree.countMutations(genotypeCounts);
+
+        assertEquals(15, mutationCounts.getLong(M1));
+        assertEquals(15, mutationCounts.getLong(M2));
+        assertEquals(10, mutationCounts.getLong(M3));
+        assertEquals( 5, mutationCounts.getLong(M4));
+        assertEquals( 5, mutationCounts.getLong(M5));
+        assertFalse(mutationCounts.containsKey(M6));
+    }
+
     public static void main(String[] args) {
         org.junit.runner.JUnitCore.main("tumor.junit.GenotypeTest");
     }
@@ -34,6 +34,19 @@ public class GrowthCountTest {
         assertCount(count4, 111, 222);
     }
 
+    @Test public void testValueOf() {
+        assertSame(GrowthCount.NONE,         GrowthCount.valueOf(0, 0));
+        assertSame(GrowthCount.SINGLE_BIRTH, GrowthCount.valueOf(1, 0));
+        assertSame(GrowthCount.SINGLE_DEATH, GrowthCount.valueOf(0, 1));
+
+        assertCount(GrowthCount.valueOf(3, 4), 3, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValueOfInvalid() {
+        GrowthCount.valueOf(2, -1);
+    }
+
     @Test public void testZero() {
         assertCount(new GrowthCount(0, 0), 0, 0);
     }
@@ -132,6 +132,16 @@ public class GrowthRateTest extends NumericTestBase {
         assertFalse(r1.equals(r3));
     }
 
+    @Test public void testValueOf() {
+        GrowthRate r1 = GrowthRate.valueOf(0.1, 0.2);
+        GrowthRate r2 = GrowthRate.valueOf(0.1, 0.2);
+        GrowthRate r3 = GrowthRate.valueOf(0.2, 0.1);
+
+        assertSame(r1, r2);
+        assertEquals(new GrowthRate(0.1, 0.2), r1);
+        assertEquals(new GrowthRate(0.2, 0.1), r3);
+    }
+
     @Test public void testGet() {
         assertDouble(0.20, rate2025.getBirthRate().doubleValue());
         assertDouble(0.25, rate2025.getDeathRate().doubleValue());
@@ -0,0 +1,214 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import jam.lattice.Coord;
+import jam.lattice.DistanceComparator;
+
+import tumor.capacity.CapacityModel;
+import tumor.carrier.TumorCell;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.growth.LocalGrowthModel;
+import tumor.lattice.CellularLatticeTumor;
+import tumor.lattice.LatticeTumor;
+import tumor.lattice.RunningMoment;
+import tumor.migrate.MigrationModel;
+import tumor.senesce.SenescenceModel;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class LatticeTumorTest {
+    private static final int PERIOD_LENGTH = 10;
+
+    static {
+        System.setProperty(LatticeTumor.PERIOD_LENGTH_PROPERTY, Integer.toString(PERIOD_LENGTH));
+        System.setProperty(CapacityModel.MODEL_TYPE_PROPERTY, "SINGLE");
+        System.setProperty(LocalGrowthModel.MODEL_TYPE_PROPERTY, "INTRINSIC");
+        System.setProperty(MigrationModel.MODEL_TYPE_PROPERTY, "PINNED");
+        System.setProperty(SenescenceModel.MODEL_TYPE_PROPERTY, "NONE");
+        System.setProperty(GrowthRate.BIRTH_RATE_PROPERTY, "0.55");
+        System.setProperty(GrowthRate.DEATH_RATE_PROPERTY, "0.45");
+
+        TumorDriver.junit();
+    }
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+    private static final Coord ORIGIN = Coord.at(0, 0, 0);
+
+    private static CellularLatticeTumor createTumor(Coord... sites) {
+        CellularLatticeTumor tumor = CellularLatticeTumor.empty();
+
+        for (Coord site : sites)
+            tumor.restoreComponent(TumorCell.founder(GROWTH_RATE), site);
+
+        return tumor;
+    }
+
+    // The order documented by nearestSites(): increasing distance,
+    // with ties broken by coordinate...
+    private static List<Coord> sortNearestSites(LatticeTumor<?> tumor, Coord center, long targetCells) {
+        List<Coord> sites = new ArrayList<Coord>(tumor.getOccupiedCoord());
+
+        Comparator<Coord> comparator = new DistanceComparator(center);
+        comparator = comparator.thenComparingInt(coord -> coord.x);
+        comparator = comparator.thenComparingInt(coord -> coord.y);
+        comparator = comparator.thenComparingInt(coord -> coord.z);
+
+        sites.sort(comparator);
+
+        // One cell per site...
+        if (targetCells < sites.size())
+            sites = sites.subList(0, (int) Math.max(1L, targetCells));
+
+        return sites;
+    }
+
+    private static void assertNearestSites(LatticeTumor<?> tumor, Coord center, long targetCells) {
+        List<Coord> actual = tumor.nearestSites(center, targetCells);
+
+        assertEquals(sortNearestSites(tumor, center, targetCells), actual);
+        assertEquals(actual.size(), new HashSet<Coord>(actual).size());
+    }
+
+    @Test public void testEmpty() {
+        CellularLatticeTumor tumor = createTumor();
+
+        assertTrue(tumor.nearestSites(ORIGIN, 1).isEmpty());
+        assertTrue(tumor.nearestSites(Coord.at(3, -2, 1), 100).isEmpty());
+    }
+
+    @Test public void testTies() {
+        CellularLatticeTumor tumor =
+            createTumor(Coord.at( 1,  0,  0),
+                        Coord.at( 0,  1,  0),
+                        Coord.at(-1,  0,  0),
+                        Coord.at( 0,  0,  1),
+                        Coord.at( 1,  1,  0));
+
+        // Four sites at unit distance, ordered by coordinate...
+        assertEquals(List.of(Coord.at(-1, 0, 0), Coord.at(0, 0, 1)), tumor.nearestSites(ORIGIN, 2));
+        assertEquals(List.of(Coord.at(-1, 0, 0),
+                             Coord.at( 0, 0, 1),
+                             Coord.at( 0, 1, 0),
+                             Coord.at( 1, 0, 0)), tumor.nearestSites(ORIGIN, 4));
+
+        for (long target = 1; target <= 6; ++target)
+            assertNearestSites(tumor, ORIGIN, target);
+    }
+
+    @Test public void testSearchLimit() {
+        //
+        // A compact block of 100 cells, large enough that the shell
+        // scan may reach its maximum radius (four sites, for a period
+        // of ten) before exceeding the scan volume.  The last cell is
+        // reached in the final shell; a larger target exhausts the
+        // scan and every site is returned...
+        //
+        List<Coord> sites = new ArrayList<Coord>();
+
+        for (int x = -2; x <= 2; ++x)
+            for (int y = -2; y <= 2; ++y)
+                for (int z = -2; z <= 1; ++z)
+                    sites.add(Coord.at(x, y, z));
+
+        CellularLatticeTumor tumor = createTumor(sites.toArray(new Coord[0]));
+
+        for (long target : new long[] { 1, 7, 8, 27, 64, 99, 100, 101, 1000 })
+            assertNearestSites(tumor, ORIGIN, target);
+
+        assertEquals(100, tumor.nearestSites(ORIGIN, 1000).size());
+
+        // A center far from the tumor exceeds the scan volume...
+        for (long target : new long[] { 1, 10, 100 })
+            assertNearestSites(tumor, Coord.at(4, 4, 4), target);
+    }
+
+    @Test public void testPeriodicBoundary() {
+        //
+        // Sites on both sides of the periodic boundary: each occupied
+        // site is listed once, under its own coordinate, and in the
+        // same order as the sorted list of occupied sites...
+        //
+        int half = PERIOD_LENGTH / 2;
+
+        CellularLatticeTumor tumor =
+            createTumor(Coord.at(half - 1, 0, 0),
+                        Coord.at(half,     0, 0),
+                        Coord.at(1 - half, 0, 0),
+                        Coord.at(0, half - 1, 0),
+                        Coord.at(0, 1 - half, 0),
+                        Coord.at(0, 0, half),
+                        Coord.at(1, 1, 1));
+
+        for (Coord center : List.of(ORIGIN, Coord.at(half - 1, 0, 0), Coord.at(1 - half, 0, 0), Coord.at(0, 0, half)))
+            for (long target = 1; target <= 8; ++target)
+                assertNearestSites(tumor, center, target);
+    }
+
+    @Test public void testOccupancyGrid() {
+        System.setProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY, "true");
+
+        try {
+            testTies();
+            testSearchLimit();
+            testPeriodicBoundary();
+        }
+        finally {
+            System.clearProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY);
+        }
+    }
+
+    @Test public void testGridMoments() {
+        //
+        // The grid engine updates the running moments by site key;
+        // the moments must match those computed from the locations of
+        // the cells...
+        //
+        System.setProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY, "true");
+
+        try {
+            // A block of cells straddling the periodic boundary, placed
+            // at the canonical images of their sites...
+            CellularLatticeTumor tumor = CellularLatticeTumor.empty();
+
+            for (int x : new int[] { 3, 4, -5, -4 })
+                for (int y = -1; y <= 1; ++y)
+                    for (int z = -1; z <= 1; ++z)
+                        tumor.restoreComponent(TumorCell.founder(GROWTH_RATE), Coord.at(x, y, z));
+
+            for (int step = 0; step < 10; ++step)
+                tumor.advance();
+
+            assertTrue(tumor.countCells() > 0);
+
+            RunningMoment expected = new RunningMoment();
+
+            for (TumorCell cell : tumor.viewComponents())
+                expected.add(tumor.locateComponent(cell), 1);
+
+            RunningMoment actual = tumor.getCellMoment();
+
+            assertEquals(tumor.countCells(), actual.getWeight());
+            assertEquals(expected.getWeight(), actual.getWeight());
+            assertEquals(expected.getCMX(), actual.getCMX(), 1.0E-12);
+            assertEquals(expected.getCMY(), actual.getCMY(), 1.0E-12);
+            assertEquals(expected.getCMZ(), actual.getCMZ(), 1.0E-12);
+            assertArrayEquals(expected.getGyrationTensor()[0], actual.getGyrationTensor()[0], 1.0E-12);
+            assertArrayEquals(expected.getGyrationTensor()[1], actual.getGyrationTensor()[1], 1.0E-12);
+            assertArrayEquals(expected.getGyrationTensor()[2], actual.getGyrationTensor()[2], 1.0E-12);
+        }
+        finally {
+            System.clearProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY);
+        }
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.LatticeTumorTest");
+    }
+}
@@ -0,0 +1,284 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import tumor.carrier.Lineage;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.lattice.LineageSiteTable;
+import tumor.lattice.MortonCode;
+import tumor.mutation.Mutation;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class LineageSiteTableTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+
+    private static final long K1 = MortonCode.encode( 0,  0,  0);
+    private static final long K2 = MortonCode.encode( 1, -1,  2);
+    private static final long K3 = MortonCode.encode(-5,  3, -7);
+
+    private static Lineage newLineage(long cellCount) {
+        // Each lineage carries a distinct genotype...
+        return Lineage.founder(List.of(Mutation.neutral()), GROWTH_RATE, cellCount);
+    }
+
+    @Test public void testInsert() {
+        LineageSiteTable table = new LineageSiteTable();
+
+        Lineage L1 = newLineage(10);
+        Lineage L2 = newLineage(20);
+        Lineage L3 = newLineage(30);
+
+        assertEquals(0, table.countSites());
+        assertEquals(0L, table.countCells(K1));
+        assertNull(table.findUnique(K1, L1.getGenotype()));
+
+        table.add(K1, L1);
+        table.add(K1, L2);
+        table.add(K2, L3);
+
+        assertEquals(2, table.countSites());
+        assertEquals(30L, table.countCells(K1));
+        assertEquals(30L, table.countCells(K2));
+        assertEquals(0L, table.countCells(K3));
+        assertEquals(2, table.countLineages(K1));
+        assertEquals(1, table.countLineages(K2));
+
+        assertSame(L1, table.findUnique(K1, L1.getGenotype()));
+        assertSame(L2, table.findUnique(K1, L2.getGenotype()));
+        assertSame(L3, table.findUnique(K2, L3.getGenotype()));
+        assertNull(table.findUnique(K2, L1.getGenotype()));
+
+        table.addCells(K1, 5);
+        assertEquals(35L, table.countCells(K1));
+        table.addCells(K1, -5);
+        assertEquals(30L, table.countCells(K1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddCellsEmpty() {
+        new LineageSiteTable().addCells(K1, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateGenotype() {
+        LineageSiteTable table = new LineageSiteTable();
+
+        // Founders created without mutations share a genotype...
+        Lineage L1 = Lineage.founder(GROWTH_RATE, 10);
+        Lineage L2 = Lineage.founder(GROWTH_RATE, 20);
+
+        assertSame(L1.getGenotype(), L2.getGenotype());
+
+        table.add(K1, L1);
+        table.add(K1, L2);
+        table.findUnique(K1, L1.getGenotype());
+    }
+
+    @Test public void testRemove() {
+        LineageSiteTable table = new LineageSiteTable();
+
+        Lineage L1 = newLineage(10);
+        Lineage L2 = newLineage(20);
+
+        table.add(K1, L1);
+        table.add(K1, L2);
+
+        assertFalse(table.remove(K2, L1));
+        assertTrue(table.remove(K1, L1));
+        assertFalse(table.remove(K1, L1));
+
+        assertEquals(1, table.countSites());
+        assertEquals(20L, table.countCells(K1));
+        assertNull(table.findUnique(K1, L1.getGenotype()));
+        assertSame(L2, table.findUnique(K1, L2.getGenotype()));
+
+        assertTrue(table.remove(K1, L2));
+        assertEquals(0, table.countSites());
+        assertEquals(0L, table.countCells(K1));
+        assertEquals(0, table.countLineages(K1));
+    }
+
+    @Test public void testBackwardShift() {
+        //
+        // Many lineages at one site force collisions in the probe
+        // sequences; every remaining lineage must still be found after
+        // each deletion shifts its cluster backward...
+        //
+        LineageSiteTable table = new LineageSiteTable();
+        List<Lineage> lineages = new ArrayList<Lineage>();
+
+        for (int k = 0; k < 200; ++k) {
+            Lineage lineage = newLineage(1);
+
+            lineages.add(lineage);
+            table.add(K3, lineage);
+        }
+
+        Collections.shuffle(lineages, new Random(20181019L));
+
+        while (!lineages.isEmpty()) {
+            Lineage removed = lineages.remove(lineages.size() - 1);
+
+            assertTrue(table.remove(K3, removed));
+            assertNull(table.findUnique(K3, removed.getGenotype()));
+
+            for (Lineage lineage : lineages)
+                assertSame(lineage, table.findUnique(K3, lineage.getGenotype()));
+
+            assertEquals(lineages.size(), table.countLineages(K3));
+            assertEquals(lineages.size(), table.countCells(K3));
+        }
+
+        assertEquals(0, table.countSites());
+    }
+
+    @Test public void testSlotRelease() {
+        //
+        // Slots are reused within a shard, so all sites must share a
+        // single shard...
+        //
+        LineageSiteTable table = new LineageSiteTable(1);
+
+        Lineage L1 = newLineage(10);
+        Lineage L2 = newLineage(20);
+
+        table.add(K1, L1);
+        table.add(K2, L2);
+        assertEquals(2, table.countSlots());
+
+        // Released slots are reused before new slots are allocated...
+        for (int k = 0; k < 100; ++k) {
+            assertTrue(table.remove(K1, L1));
+            table.add(K3, L1);
+            assertTrue(table.remove(K3, L1));
+            table.add(K1, L1);
+        }
+
+        assertEquals(2, table.countSlots());
+        assertEquals(2, table.countSites());
+        assertEquals(10L, table.countCells(K1));
+        assertEquals(0L, table.countCells(K3));
+        assertSame(L1, table.findUnique(K1, L1.getGenotype()));
+        assertSame(L2, table.findUnique(K2, L2.getGenotype()));
+    }
+
+    @Test public void testConcurrentUpdates() throws Exception {
+        //
+        // Each thread moves its own lineages among a small set of
+        // shared sites, so the threads contend for the same sites and
+        // shards; the final state must match the final placement of
+        // every lineage...
+        //
+        int threadCount  = 8;
+        int lineageCount = 50;
+        int siteCount    = 32;
+        int moveCount    = 20000;
+
+        LineageSiteTable table = new LineageSiteTable();
+
+        long[] siteKeys = new long[siteCount];
+
+        for (int site = 0; site < siteCount; ++site)
+            siteKeys[site] = MortonCode.encode(site % 4, site / 4, -site);
+
+        Lineage[][] lineages   = new Lineage[threadCount][lineageCount];
+        int[][]     placements = new int[threadCount][lineageCount];
+        Thread[]    threads    = new Thread[threadCount];
+
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        for (int thread = 0; thread < threadCount; ++thread) {
+            for (int index = 0; index < lineageCount; ++index)
+                lineages[thread][index] = newLineage(1 + index);
+
+            final Lineage[] owned  = lineages[thread];
+            final int[]     placed = placements[thread];
+            final Random    random = new Random(20181019L + thread);
+
+            threads[thread] = new Thread(() -> {
+                    try {
+                        for (int index = 0; index < lineageCount; ++index) {
+                            placed[index] = random.nextInt(siteCount);
+                            table.add(siteKeys[placed[index]], owned[index]);
+                        }
+
+                        for (int move = 0; move < moveCount; ++move) {
+                            int index = random.nextInt(lineageCount);
+                            int site  = random.nextInt(siteCount);
+
+                            assertTrue(table.remove(siteKeys[placed[index]], owned[index]));
+                            table.add(siteKeys[site], owned[index]);
+                            placed[index] = site;
+
+                            // The site holds the lineage, so it cannot be
+                            // released by another thread...
+                            table.addCells(siteKeys[site], 1);
+                            table.addCells(siteKeys[site], -1);
+
+                            assertSame(owned[index], table.findUnique(siteKeys[site], owned[index].getGenotype()));
+                        }
+                    }
+                    catch (Throwable ex) {
+                        failure.compareAndSet(null, ex);
+                    }
+                });
+        }
+
+        for (Thread thread : threads)
+            thread.start();
+
+        for (Thread thread : threads)
+            thread.join();
+
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+
+        long[] expectedCells    = new long[siteCount];
+        int[]  expectedLineages = new int[siteCount];
+
+        for (int thread = 0; thread < threadCount; ++thread) {
+            for (int index = 0; index < lineageCount; ++index) {
+                int site = placements[thread][index];
+
+                expectedCells[site] += lineages[thread][index].countCells();
+                expectedLineages[site] += 1;
+
+                assertSame(lineages[thread][index],
+                           table.findUnique(siteKeys[site], lineages[thread][index].getGenotype()));
+            }
+        }
+
+        int occupied = 0;
+
+        for (int site = 0; site < siteCount; ++site) {
+            assertEquals(expectedCells[site], table.countCells(siteKeys[site]));
+            assertEquals(expectedLineages[site], table.countLineages(siteKeys[site]));
+
+            if (expectedLineages[site] > 0)
+                ++occupied;
+        }
+
+        assertEquals(occupied, table.countSites());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShardCount() {
+        new LineageSiteTable(3);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.LineageSiteTableTest");
+    }
+}
@@ -0,0 +1,74 @@
+
+package tumor.junit;
+
+import jam.lattice.Coord;
+
+import tumor.lattice.MortonCode;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class MortonCodeTest {
+    private void assertRoundTrip(int x, int y, int z) {
+        long key = MortonCode.encode(x, y, z);
+
+        assertTrue(key >= 0);
+        assertEquals(x, MortonCode.decodeX(key));
+        assertEquals(y, MortonCode.decodeY(key));
+        assertEquals(z, MortonCode.decodeZ(key));
+        assertEquals(Coord.at(x, y, z), MortonCode.decode(key));
+    }
+
+    @Test public void testRoundTrip() {
+        assertRoundTrip(0, 0, 0);
+        assertRoundTrip(1, -2, 3);
+        assertRoundTrip(-1000, 2000, -3000);
+
+        assertRoundTrip(MortonCode.MIN_COORD, MortonCode.MIN_COORD, MortonCode.MIN_COORD);
+        assertRoundTrip(MortonCode.MAX_COORD, MortonCode.MAX_COORD, MortonCode.MAX_COORD);
+        assertRoundTrip(MortonCode.MIN_COORD, 0, MortonCode.MAX_COORD);
+    }
+
+    @Test public void testUnique() {
+        assertNotEquals(MortonCode.encode(1, 0, 0), MortonCode.encode(0, 1, 0));
+        assertNotEquals(MortonCode.encode(0, 1, 0), MortonCode.encode(0, 0, 1));
+        assertNotEquals(MortonCode.encode(-1, 0, 0), MortonCode.encode(1, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRange() {
+        MortonCode.encode(MortonCode.MAX_COORD + 1, 0, 0);
+    }
+
+    @Test public void testPeriodic() {
+        int period = 10;
+
+        // Periodic images share one key...
+        assertEquals(MortonCode.encode(1, -2, 3), MortonCode.encode(11, -12, 23, period));
+        assertEquals(MortonCode.encode(1, -2, 3), MortonCode.encode(-9, 8, -7, period));
+
+        // The canonical images are centered on the origin...
+        assertEquals(-5, MortonCode.wrap(-5, period));
+        assertEquals( 4, MortonCode.wrap( 4, period));
+        assertEquals(-5, MortonCode.wrap( 5, period));
+        assertEquals( 4, MortonCode.wrap(-6, period));
+
+        assertEquals(-4, MortonCode.wrap( 5, 9));
+        assertEquals( 4, MortonCode.wrap(-5, 9));
+
+        // The longest period fits the encoding range...
+        int maxPeriod = MortonCode.MAX_PERIOD;
+
+        MortonCode.validatePeriod(maxPeriod);
+        assertRoundTrip(MortonCode.wrap(maxPeriod / 2, maxPeriod), 0, MortonCode.wrap(maxPeriod / 2 - 1, maxPeriod));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPeriodRange() {
+        MortonCode.validatePeriod(MortonCode.MAX_PERIOD + 1);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.MortonCodeTest");
+    }
+}
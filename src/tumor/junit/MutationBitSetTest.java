@@ -0,0 +1,80 @@
+
+package tumor.junit;
+
+import java.util.List;
+
+import tumor.driver.TumorDriver;
+import tumor.mutation.Mutation;
+import tumor.mutation.MutationBitSet;
+import tumor.mutation.MutationIndexMap;
+import tumor.mutation.MutationSet;
+import tumor.mutation.MutationalDistance;
+import tumor.mutation.MutationalDistanceMatrix;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class MutationBitSetTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    private static final Mutation M1 = Mutation.neutral();
+    private static final Mutation M2 = Mutation.neutral();
+    private static final Mutation M3 = Mutation.neutral();
+    private static final Mutation M4 = Mutation.neutral();
+    private static final Mutation M5 = Mutation.neutral();
+    private static final Mutation M6 = Mutation.neutral();
+    private static final Mutation M7 = Mutation.neutral();
+
+    private static final MutationSet S1 = MutationSet.of(M1, M2, M3);
+    private static final MutationSet S2 = MutationSet.of(M1, M2, M4, M5);
+    private static final MutationSet S3 = MutationSet.of(M6, M7);
+
+    @Test public void testBitSet() {
+        MutationIndexMap indexMap = MutationIndexMap.create(List.of(S1, S2, S3));
+
+        MutationBitSet b1 = indexMap.encode(S1);
+        MutationBitSet b2 = indexMap.encode(S2);
+        MutationBitSet b3 = indexMap.encode(S3);
+
+        assertEquals(7, indexMap.size());
+        assertEquals(3, b1.size());
+        assertTrue(b1.contains(M3));
+        assertFalse(b1.contains(M4));
+
+        assertEquals(2, b1.countShared(b2));
+        assertEquals(1, b1.countDifference(b2));
+        assertEquals(5, b1.countUnion(b2));
+        assertEquals(0, b1.countShared(b3));
+
+        assertEquals(List.of(M1, M2), b1.intersection(b2));
+        assertEquals(List.of(M4, M5), b2.difference(b1));
+    }
+
+    @Test public void testMatrix() {
+        List<MutationSet> sets = List.of(S1, S2, S3);
+        MutationalDistanceMatrix matrix = MutationalDistanceMatrix.compute(sets);
+
+        for (int row = 0; row < sets.size(); ++row)
+            for (int col = 0; col < sets.size(); ++col)
+                assertDistance(MutationalDistance.compute(sets.get(row), sets.get(col)), matrix.get(row, col));
+
+        matrix = MutationalDistanceMatrix.compute(List.of(S1), sets);
+
+        assertEquals(1, matrix.countRows());
+        assertEquals(3, matrix.countColumns());
+
+        for (int col = 0; col < sets.size(); ++col)
+            assertDistance(MutationalDistance.compute(S1, sets.get(col)), matrix.get(0, col));
+    }
+
+    private static void assertDistance(MutationalDistance expected, MutationalDistance actual) {
+        assertEquals(expected.countShared(), actual.countShared());
+        assertEquals(expected.countUnique(), actual.countUnique());
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.MutationBitSetTest");
+    }
+}
@@ -0,0 +1,79 @@
+
+package tumor.junit;
+
+import java.util.List;
+
+import tumor.carrier.Lineage;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.mutation.Mutation;
+import tumor.mutation.MutationFrequency;
+import tumor.mutation.MutationFrequencySketch;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class MutationFrequencySketchTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    private static final Mutation M1 = Mutation.neutral();
+    private static final Mutation M2 = Mutation.neutral();
+    private static final Mutation M3 = Mutation.neutral();
+    private static final Mutation M4 = Mutation.neutral();
+    private static final Mutation M5 = Mutation.neutral();
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+
+    private static final List<Lineage> LINEAGES =
+        List.of(Lineage.founder(List.of(M1, M2), GROWTH_RATE, 10),
+                Lineage.founder(List.of(M3, M5), GROWTH_RATE, 30),
+                Lineage.founder(List.of(M4),     GROWTH_RATE, 60));
+
+    @Test public void testTop() {
+        MutationFrequencySketch sketch = MutationFrequencySketch.compute(LINEAGES, 3, 10);
+        List<MutationFrequency> top = sketch.listTop();
+
+        assertEquals(5, sketch.countMutations());
+        assertEquals(3, top.size());
+
+        assertEquals(M4, top.get(0).getMutation());
+        assertEquals(M3, top.get(1).getMutation());
+        assertEquals(M5, top.get(2).getMutation());
+
+        assertEquals(0.6, top.get(0).getFrequency(), 1.0E-12);
+        assertEquals(0.3, top.get(1).getFrequency(), 1.0E-12);
+        assertEquals(0.3, top.get(2).getFrequency(), 1.0E-12);
+    }
+
+    @Test public void testQuantile() {
+        MutationFrequencySketch sketch = MutationFrequencySketch.compute(LINEAGES, 1, 10);
+        double tolerance = sketch.getErrorBound() + 1.0E-12;
+
+        assertEquals(0.05, sketch.getErrorBound(), 1.0E-12);
+        assertEquals(0.28, sketch.getMean(), 1.0E-12);
+
+        assertEquals(0.1, sketch.quantile(0.0), tolerance);
+        assertEquals(0.1, sketch.quantile(0.4), tolerance);
+        assertEquals(0.3, sketch.getMedian(),   tolerance);
+        assertEquals(0.6, sketch.quantile(1.0), tolerance);
+    }
+
+    @Test public void testEmpty() {
+        MutationFrequencySketch sketch = MutationFrequencySketch.compute(List.<Lineage>of(), 5, 10);
+
+        assertEquals(0, sketch.countMutations());
+        assertEquals(0.0, sketch.getMedian(), 0.0);
+        assertTrue(sketch.listTop().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBinCount() {
+        MutationFrequencySketch.compute(LINEAGES, 1, 0);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.MutationFrequencySketchTest");
+    }
+}
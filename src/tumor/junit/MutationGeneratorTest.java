@@ -10,6 +10,7 @@ import jam.junit.NumericTestBase;
 import jam.math.DoubleUtil;
 
 import tumor.mutation.Mutation;
+import tumor.mutation.MutationBatch;
 import tumor.mutation.MutationType;
 import tumor.mutation.MutationGenerator;
 import tumor.driver.TumorDriver;
@@ -37,6 +38,29 @@ public class MutationGeneratorTest extends NumericTestBase {
         TumorDriver.junit();
     }
 
+    @Test public void testBatch() {
+        MutationGenerator generator = MutationGenerator.global();
+        MutationBatch batch = new MutationBatch();
+
+        for (int trial = 0; trial < 1000; ++trial) {
+            generator.generateLineageMutations(20, batch);
+
+            int mutationCount = 0;
+
+            for (int daughterIndex = 0; daughterIndex < batch.countDaughters(); ++daughterIndex) {
+                List<Mutation> mutations = batch.viewMutations(daughterIndex);
+
+                assertFalse(mutations.isEmpty());
+                assertEquals(mutations.size(), batch.countMutations(daughterIndex));
+
+                mutationCount += mutations.size();
+            }
+
+            assertTrue(batch.countDaughters() <= 20);
+            assertEquals(mutationCount, batch.countMutations());
+        }
+    }
+
     @Test public void testCount() {
         int trialCount = 100000;
         MutationGenerator generator = MutationGenerator.global();
@@ -0,0 +1,91 @@
+
+package tumor.junit;
+
+import jam.lattice.Coord;
+import jam.lattice.Neighborhood;
+
+import tumor.capacity.CapacityModel;
+import tumor.carrier.TumorCell;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.growth.LocalGrowthModel;
+import tumor.lattice.CellularLatticeTumor;
+import tumor.lattice.LatticeTumor;
+import tumor.migrate.MigrationModel;
+import tumor.senesce.NOFSenescence;
+import tumor.senesce.SenescenceModel;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class NeighborhoodIndexTest {
+    static {
+        System.setProperty(LatticeTumor.PERIOD_LENGTH_PROPERTY, "10");
+        System.setProperty(LatticeTumor.NEIGHBORHOOD_INDEX_PROPERTY, "true");
+        System.setProperty(CapacityModel.MODEL_TYPE_PROPERTY, "SINGLE");
+        System.setProperty(LocalGrowthModel.MODEL_TYPE_PROPERTY, "INTRINSIC");
+        System.setProperty(MigrationModel.MODEL_TYPE_PROPERTY, "PINNED");
+        System.setProperty(SenescenceModel.MODEL_TYPE_PROPERTY, "NEIGHBORHOOD_OCCUPANCY_FRACTION");
+        System.setProperty(NOFSenescence.NEIGHBORHOOD_PROPERTY, "SECOND_NEAREST");
+        System.setProperty(NOFSenescence.OCCUPANCY_THRESHOLD_PROPERTY, "1.0");
+        System.setProperty(GrowthRate.BIRTH_RATE_PROPERTY, "0.55");
+        System.setProperty(GrowthRate.DEATH_RATE_PROPERTY, "0.45");
+
+        TumorDriver.junit();
+    }
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+
+    private static final Neighborhood NEIGHBORHOOD = Neighborhood.SECOND_NEAREST;
+
+    private static void assertConsistent(CellularLatticeTumor tumor) {
+        //
+        // The indexed totals must match the totals over the neighbors
+        // of every site, including the sites across the periodic
+        // boundary from the occupied sites...
+        //
+        for (int x = -5; x < 5; ++x) {
+            for (int y = -5; y < 5; ++y) {
+                for (int z = -5; z < 5; ++z) {
+                    Coord center = Coord.at(x, y, z);
+                    long  total  = 0;
+
+                    for (Coord neighbor : NEIGHBORHOOD.getNeighbors(center))
+                        total += tumor.countCells(neighbor);
+
+                    assertEquals(total, tumor.countCells(center, NEIGHBORHOOD));
+                }
+            }
+        }
+    }
+
+    @Test public void testPeriodicBoundary() {
+        CellularLatticeTumor tumor = CellularLatticeTumor.empty();
+
+        for (int x = 3; x <= 6; ++x)
+            for (int y = -6; y <= -3; ++y)
+                tumor.restoreComponent(TumorCell.founder(GROWTH_RATE), Coord.at(x, y, 4));
+
+        assertConsistent(tumor);
+
+        for (int step = 0; step < 10 && tumor.countCells() > 0; ++step) {
+            tumor.advance();
+            assertConsistent(tumor);
+        }
+    }
+
+    @Test public void testOccupancyGrid() {
+        System.setProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY, "true");
+
+        try {
+            testPeriodicBoundary();
+        }
+        finally {
+            System.clearProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY);
+        }
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.NeighborhoodIndexTest");
+    }
+}
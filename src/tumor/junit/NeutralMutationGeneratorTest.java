@@ -10,8 +10,12 @@ import jam.dist.PoissonDistribution;
 import jam.junit.NumericTestBase;
 import jam.util.MultisetUtil;
 
+import tumor.mutation.CompactMutationList;
+import tumor.mutation.FixedGenotype;
+import tumor.mutation.Genotype;
 import tumor.mutation.Mutation;
 import tumor.mutation.MutationRate;
+import tumor.mutation.MutationType;
 import tumor.mutation.NeutralMutationGenerator;
 import tumor.driver.TumorDriver;
 
@@ -39,6 +43,72 @@ public class NeutralMutationGeneratorTest extends NumericTestBase {
             assertEquals(dist.pdf(count), MultisetUtil.frequency(counts, count), 0.002);
     }
 
+    private static NeutralMutationGenerator rangeEncoded() {
+        System.setProperty(NeutralMutationGenerator.NEUTRAL_RANGES_PROPERTY, "true");
+
+        try {
+            return new NeutralMutationGenerator(MutationRate.poisson(1.0));
+        }
+        finally {
+            System.clearProperty(NeutralMutationGenerator.NEUTRAL_RANGES_PROPERTY);
+        }
+    }
+
+    @Test public void testRangeDefault() {
+        NeutralMutationGenerator generator =
+            new NeutralMutationGenerator(MutationRate.poisson(1.0));
+
+        assertFalse(generator.isRangeEncoded());
+        assertFalse(generator.generateList(5) instanceof CompactMutationList);
+    }
+
+    @Test public void testRangeEncoded() {
+        NeutralMutationGenerator generator = rangeEncoded();
+
+        assertTrue(generator.isRangeEncoded());
+
+        List<Mutation> mutations = generator.generateList(5);
+        assertTrue(mutations instanceof CompactMutationList);
+        assertEquals(5, mutations.size());
+
+        long first = mutations.get(0).getIndex();
+
+        for (int k = 0; k < 5; ++k) {
+            Mutation mutation = mutations.get(k);
+
+            assertTrue(mutation.isNeutral());
+            assertEquals(first + k, mutation.getIndex());
+
+            // Separate instances represent the same mutation...
+            assertNotSame(mutation, mutations.get(k));
+            assertEquals(mutation, mutations.get(k));
+            assertTrue(mutations.contains(mutation));
+        }
+
+        assertEquals(first + 1, Mutation.indexList(mutations).getLong(1));
+        assertEquals(first + 3, ((CompactMutationList) mutations).getIndex(3));
+        assertEquals(MutationType.NEUTRAL, ((CompactMutationList) mutations).getType(3));
+        assertFalse(mutations.contains(generator.generateOne()));
+        assertTrue(Mutation.count() >= first + 5);
+    }
+
+    @Test public void testGenotypeIndexes() {
+        //
+        // The index and type traversals must match the traversal of
+        // the (recreated) mutations...
+        //
+        NeutralMutationGenerator generator = rangeEncoded();
+
+        Genotype founder  = FixedGenotype.founder(generator.generateList(3));
+        Genotype daughter = founder.forDaughter(generator.generateList(4));
+
+        assertEquals(Mutation.indexList(daughter.scanAccumulatedMutations()), daughter.listAccumulatedIndexes());
+        assertEquals(Mutation.indexList(daughter.scanInheritedMutations()), daughter.listInheritedIndexes());
+        assertEquals(7, daughter.listAccumulatedIndexes().size());
+        assertEquals(3, daughter.listInheritedIndexes().size());
+        assertEquals(7, daughter.countMutationTypes().count(MutationType.NEUTRAL.name()));
+    }
+
     public static void main(String[] args) {
         org.junit.runner.JUnitCore.main("tumor.junit.NeutralMutationGeneratorTest");
     }
@@ -0,0 +1,201 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import jam.lattice.Coord;
+
+import tumor.carrier.TumorCell;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.lattice.MortonCode;
+import tumor.lattice.OccupancyGrid;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class OccupancyGridTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+
+    private static final int PERIOD = 100;
+
+    private static final Coord C1 = Coord.at( 0,  0,  0);
+    private static final Coord C2 = Coord.at( 1, -1,  2);
+    private static final Coord C3 = Coord.at(-5,  3, -7);
+
+    @Test public void testOccupy() {
+        TumorCell T1 = TumorCell.founder(GROWTH_RATE);
+        TumorCell T2 = TumorCell.founder(GROWTH_RATE);
+        TumorCell T3 = TumorCell.founder(GROWTH_RATE);
+
+        OccupancyGrid<TumorCell> grid = new OccupancyGrid<TumorCell>(PERIOD);
+        assertTrue(grid.isEmpty());
+
+        grid.occupy(T1, C1);
+        grid.occupy(T2, C2);
+
+        assertEquals(2, grid.countOccupants());
+        assertEquals(1, grid.countOccupants(C1));
+        assertEquals(0, grid.countOccupants(C3));
+
+        assertTrue(grid.isOccupied(C1));
+        assertTrue(grid.isOccupied(C2));
+        assertTrue(grid.isAvailable(C3));
+
+        assertEquals(T1, grid.getOccupant(C1));
+        assertEquals(T2, grid.getOccupant(C2));
+        assertNull(grid.getOccupant(C3));
+
+        assertEquals(C1, grid.locate(T1));
+        assertEquals(C2, grid.locate(T2));
+        assertNull(grid.locate(T3));
+
+        assertEquals(Set.of(T1, T2), grid.viewOccupants());
+        assertEquals(Set.of(T2), grid.viewOccupants(C2));
+        assertTrue(grid.viewOccupants(C3).isEmpty());
+    }
+
+    @Test public void testVacate() {
+        TumorCell T1 = TumorCell.founder(GROWTH_RATE);
+        TumorCell T2 = TumorCell.founder(GROWTH_RATE);
+        TumorCell T3 = TumorCell.founder(GROWTH_RATE);
+
+        OccupancyGrid<TumorCell> grid = new OccupancyGrid<TumorCell>(PERIOD);
+
+        grid.occupy(T1, C1);
+        grid.occupy(T2, C2);
+
+        assertTrue(grid.vacate(T1));
+        assertFalse(grid.vacate(T1));
+        assertFalse(grid.contains(T1));
+        assertTrue(grid.isAvailable(C1));
+        assertEquals(Set.of(T2), grid.viewOccupants());
+
+        // The identifier released by T1 is reused...
+        grid.occupy(T3, C1);
+        assertEquals(T3, grid.getOccupant(C1));
+        assertEquals(Set.of(T2, T3), grid.viewOccupants());
+    }
+
+    @Test public void testCaptureRestoreIds() {
+        List<TumorCell> cells = new ArrayList<TumorCell>();
+
+        for (int k = 0; k < 10; ++k)
+            cells.add(TumorCell.founder(GROWTH_RATE));
+
+        OccupancyGrid<TumorCell> grid = new OccupancyGrid<TumorCell>(PERIOD);
+
+        for (int k = 0; k < 8; ++k)
+            grid.occupy(cells.get(k), site(k));
+
+        // Leave two released identifiers on the free stack and reuse
+        // a third...
+        grid.vacate(cells.get(2));
+        grid.vacate(cells.get(5));
+        grid.vacate(cells.get(3));
+        grid.occupy(cells.get(8), site(8));
+
+        long[] ids = grid.captureIds();
+        assertEquals(8, ids.length);
+
+        // A restored grid receives its occupants in index order...
+        OccupancyGrid<TumorCell> restored = new OccupancyGrid<TumorCell>(PERIOD);
+
+        for (int k : new int[] { 0, 1, 4, 6, 7, 8 })
+            restored.occupy(cells.get(k), site(k));
+
+        restored.restoreIds(ids);
+
+        assertArrayEquals(ids, restored.captureIds());
+        assertEquals(new ArrayList<TumorCell>(grid.viewOccupants()),
+                     new ArrayList<TumorCell>(restored.viewOccupants()));
+
+        for (int k : new int[] { 0, 1, 4, 6, 7, 8 }) {
+            assertEquals(site(k), restored.locate(cells.get(k)));
+            assertEquals(cells.get(k), restored.getOccupant(site(k)));
+        }
+
+        // Both grids assign the same identifiers to new occupants...
+        grid.occupy(cells.get(9), site(9));
+        restored.occupy(cells.get(9), site(9));
+
+        assertArrayEquals(grid.captureIds(), restored.captureIds());
+        assertEquals(new ArrayList<TumorCell>(grid.viewOccupants()),
+                     new ArrayList<TumorCell>(restored.viewOccupants()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRestoreIdsMismatch() {
+        TumorCell T1 = TumorCell.founder(GROWTH_RATE);
+        TumorCell T2 = TumorCell.founder(GROWTH_RATE);
+
+        OccupancyGrid<TumorCell> grid = new OccupancyGrid<TumorCell>(PERIOD);
+        grid.occupy(T1, C1);
+
+        OccupancyGrid<TumorCell> restored = new OccupancyGrid<TumorCell>(PERIOD);
+        restored.occupy(T2, C1);
+        restored.restoreIds(grid.captureIds());
+    }
+
+    private static Coord site(int k) {
+        return Coord.at(k, -k, 2 * k);
+    }
+
+    @Test public void testPeriodic() {
+        TumorCell T1 = TumorCell.founder(GROWTH_RATE);
+        TumorCell T2 = TumorCell.founder(GROWTH_RATE);
+
+        OccupancyGrid<TumorCell> grid = new OccupancyGrid<TumorCell>(PERIOD);
+
+        // Every periodic image refers to the same site...
+        grid.occupy(T1, Coord.at(C3.x + PERIOD, C3.y - PERIOD, C3.z + 2 * PERIOD));
+
+        assertTrue(grid.isOccupied(C3));
+        assertTrue(grid.isOccupied(Coord.at(C3.x - PERIOD, C3.y, C3.z)));
+        assertEquals(T1, grid.getOccupant(Coord.at(C3.x, C3.y + PERIOD, C3.z)));
+        assertEquals(grid.siteKey(C3), grid.locateKey(T1));
+
+        // The canonical image is returned...
+        assertEquals(C3, grid.locate(T1));
+
+        // Sites on either side of the periodic boundary are distinct...
+        Coord edge = Coord.at(PERIOD / 2 - 1, 0, 0);
+        Coord wrap = Coord.at(PERIOD / 2, 0, 0);
+
+        grid.occupy(T2, edge);
+
+        assertTrue(grid.isAvailable(wrap));
+        assertEquals(Coord.at(-PERIOD / 2, 0, 0), grid.locate(T2).plus(Coord.at(1 - PERIOD, 0, 0)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPeriodicDoubleOccupancy() {
+        OccupancyGrid<TumorCell> grid = new OccupancyGrid<TumorCell>(PERIOD);
+
+        grid.occupy(TumorCell.founder(GROWTH_RATE), C2);
+        grid.occupy(TumorCell.founder(GROWTH_RATE), Coord.at(C2.x, C2.y, C2.z - PERIOD));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPeriodRange() {
+        new OccupancyGrid<TumorCell>(MortonCode.MAX_PERIOD + 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleOccupancy() {
+        OccupancyGrid<TumorCell> grid = new OccupancyGrid<TumorCell>(PERIOD);
+
+        grid.occupy(TumorCell.founder(GROWTH_RATE), C1);
+        grid.occupy(TumorCell.founder(GROWTH_RATE), C1);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.OccupancyGridTest");
+    }
+}
@@ -1,7 +1,16 @@
 
 package tumor.junit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import jam.junit.NumericTestBase;
 import jam.math.DoubleUtil;
@@ -23,6 +32,21 @@ public class PointTumorTest extends NumericTestBase {
     }
 
     @Test public void testTumorCell() {
+        runTumorCellTest();
+    }
+
+    @Test public void testTumorCellCohort() {
+        System.setProperty(PointTumor.COHORT_ADVANCE_PROPERTY, "true");
+
+        try {
+            runTumorCellTest();
+        }
+        finally {
+            System.clearProperty(PointTumor.COHORT_ADVANCE_PROPERTY);
+        }
+    }
+
+    private void runTumorCellTest() {
         int stepCount    = 25;
         int founderCount = 1000;
         int testCount    = 10;
@@ -92,6 +116,54 @@ public class PointTumorTest extends NumericTestBase {
             assertEquals(1.0, factorRatios[stepIndex], 0.001);
     }
 
+    @Test public void testOrderRoundTrip() throws IOException {
+        //
+        // Tumors record their insertion order only when checkpoints
+        // are enabled...
+        //
+        System.setProperty(TumorDriver.CHECKPOINT_INTERVAL_PROPERTY, "10");
+        TumorDriver.junit();
+
+        try {
+            assertOrderRoundTrip();
+        }
+        finally {
+            System.clearProperty(TumorDriver.CHECKPOINT_INTERVAL_PROPERTY);
+            TumorDriver.junit();
+        }
+    }
+
+    private static void assertOrderRoundTrip() throws IOException {
+        List<TumorCell> cells = TumorCell.founders(50, GrowthRate.net(0.1));
+        List<TumorCell> shuffled = new ArrayList<TumorCell>(cells);
+        Collections.shuffle(shuffled, new Random(20071206));
+
+        PointTumor<TumorCell> original = PointTumor.empty();
+
+        for (TumorCell cell : shuffled)
+            original.restoreComponent(cell, null);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            original.writeOrder(output);
+        }
+
+        // A checkpoint restores the components in index order, then
+        // restores their insertion order...
+        PointTumor<TumorCell> restored = PointTumor.empty();
+
+        for (TumorCell cell : cells)
+            restored.restoreComponent(cell, null);
+
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored.readOrder(input);
+        }
+
+        assertEquals(shuffled, new ArrayList<TumorCell>(original.viewActive()));
+        assertEquals(shuffled, new ArrayList<TumorCell>(restored.viewActive()));
+    }
+
     public static void main(String[] args) {
         org.junit.runner.JUnitCore.main("tumor.junit.PointTumorTest");
     }
@@ -0,0 +1,200 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import tumor.driver.TumorDriver;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreamType;
+import tumor.random.RandomStreams;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class RandomStreamTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    @Test public void testReproducible() {
+        for (RandomStreamType type : RandomStreamType.values()) {
+            RandomStream s1 = type.create(20181016L);
+            RandomStream s2 = type.create(20181016L);
+
+            for (int k = 0; k < 1000; ++k)
+                assertEquals(s1.nextLong(), s2.nextLong());
+        }
+    }
+
+    @Test public void testBound() {
+        RandomStream trial = RandomStreams.current();
+        RandomStream work  = RandomStreams.create(123L);
+
+        RandomStreams.run(work, () -> assertSame(work, RandomStreams.current()));
+        assertSame(trial, RandomStreams.current());
+
+        // Bindings nest...
+        RandomStreams.run(work, () -> {
+                RandomStreams.run(RandomStreams.create(456L), () -> assertNotSame(work, RandomStreams.current()));
+                assertSame(work, RandomStreams.current());
+            });
+
+        assertSame(trial, RandomStreams.current());
+    }
+
+    @Test public void testWorkStreams() {
+        //
+        // The deviates drawn for each work unit must not depend on
+        // the thread that processes the unit...
+        //
+        int unitCount = 8;
+
+        RandomStreams.reseed(789L);
+        RandomStream[] serial = RandomStreams.split(unitCount);
+
+        RandomStreams.reseed(789L);
+        RandomStream[] parallel = RandomStreams.split(unitCount);
+
+        long[] expected = new long[unitCount];
+        long[] actual   = new long[unitCount];
+
+        for (int unit = 0; unit < unitCount; ++unit) {
+            final int index = unit;
+            RandomStreams.run(serial[unit], () -> expected[index] = RandomStreams.current().nextLong());
+        }
+
+        IntStream.range(0, unitCount).parallel().forEach(unit ->
+            RandomStreams.run(parallel[unit], () -> actual[unit] = RandomStreams.current().nextLong()));
+
+        assertArrayEquals(expected, actual);
+        assertEquals(unitCount, Arrays.stream(expected).distinct().count());
+    }
+
+    @Test public void testSplit() {
+        for (RandomStreamType type : RandomStreamType.values()) {
+            RandomStream parent = type.create(99L);
+            RandomStream child  = parent.split();
+
+            long x1 = parent.nextLong();
+            long x2 = child.nextLong();
+
+            assertNotEquals(x1, x2);
+        }
+    }
+
+    @Test public void testStateRoundTrip() {
+        for (RandomStreamType type : RandomStreamType.values()) {
+            RandomStream original = type.create(33L);
+
+            // Leave a Gaussian deviate cached in the original...
+            original.nextGaussian();
+
+            RandomStream restored = type.create(0L);
+            restored.restoreState(original.captureState());
+
+            assertEquals(original.nextGaussian(), restored.nextGaussian(), 0.0);
+
+            for (int k = 0; k < 1000; ++k)
+                assertEquals(original.nextLong(), restored.nextLong());
+        }
+    }
+
+    @Test public void testTrialStreamState() {
+        RandomStreams.reseed(44L);
+        RandomStreams.current().nextLong();
+
+        long[] state    = RandomStreams.captureState();
+        long   expected = RandomStreams.current().nextLong();
+
+        RandomStreams.restoreState(state);
+        assertEquals(expected, RandomStreams.current().nextLong());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStateMismatch() {
+        RandomStreamType.SPLITMIX.create(1L).restoreState(RandomStreamType.XOROSHIRO.create(1L).captureState());
+    }
+
+    @Test public void testNextDoubles() {
+        RandomStream s1 = RandomStreams.create(55L);
+        RandomStream s2 = RandomStreams.create(55L);
+
+        double[] deviates = new double[100];
+        s1.nextDoubles(deviates);
+
+        for (double deviate : deviates) {
+            assertEquals(s2.nextDouble(), deviate, 0.0);
+            assertTrue(deviate >= 0.0 && deviate < 1.0);
+        }
+    }
+
+    @Test public void testNextInt() {
+        RandomStream stream = RandomStreams.create(77L);
+        int[] counts = new int[7];
+
+        for (int k = 0; k < 70000; ++k)
+            ++counts[stream.nextInt(7)];
+
+        for (int count : counts)
+            assertEquals(10000, count, 500);
+    }
+
+    @Test public void testDiscretize() {
+        RandomStream stream = RandomStreams.create(88L);
+        long total = 0;
+
+        for (int k = 0; k < 100000; ++k) {
+            long value = stream.discretize(2.25);
+
+            assertTrue(value == 2 || value == 3);
+            total += value;
+        }
+
+        assertEquals(2.25, total / 100000.0, 0.01);
+    }
+
+    @Test public void testShuffle() {
+        RandomStream stream = RandomStreams.create(11L);
+        List<Integer> list = new ArrayList<Integer>();
+
+        for (int k = 0; k < 100; ++k)
+            list.add(k);
+
+        stream.shuffle(list);
+
+        List<Integer> sorted = new ArrayList<Integer>(list);
+        sorted.sort(null);
+
+        for (int k = 0; k < 100; ++k)
+            assertEquals(k, sorted.get(k).intValue());
+    }
+
+    @Test public void testShuffleRange() {
+        RandomStream stream = RandomStreams.create(12L);
+        int[] array = new int[20];
+
+        for (int k = 0; k < array.length; ++k)
+            array[k] = k;
+
+        stream.shuffle(array, 5, 15);
+
+        for (int k = 0; k < 5; ++k)
+            assertEquals(k, array[k]);
+
+        for (int k = 15; k < 20; ++k)
+            assertEquals(k, array[k]);
+
+        int[] sorted = Arrays.copyOfRange(array, 5, 15);
+        Arrays.sort(sorted);
+
+        for (int k = 0; k < sorted.length; ++k)
+            assertEquals(k + 5, sorted[k]);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.RandomStreamTest");
+    }
+}
@@ -0,0 +1,223 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tumor.carrier.Deme;
+import tumor.carrier.Tumor;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.mutation.Mutation;
+import tumor.point.PointTumor;
+import tumor.report.ReportPipeline;
+import tumor.report.SnapshotView;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class ReportPipelineTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    private static final Mutation M0 = Mutation.neutral();
+    private static final Mutation M1 = Mutation.neutral();
+
+    private static void awaitGate(CountDownLatch gate) {
+        try {
+            assertTrue(gate.await(10, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join(10000);
+        }
+        catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        assertFalse(thread.isAlive());
+    }
+
+    @Test public void testSynchronous() {
+        ReportPipeline pipeline = ReportPipeline.create(0, 1);
+        List<Integer> output = new ArrayList<Integer>();
+
+        assertFalse(pipeline.isAsynchronous());
+
+        // Every task runs on the calling thread before submit returns...
+        for (int index = 0; index < 10; ++index) {
+            final int value = index;
+            pipeline.submit(output, () -> output.add(value));
+            assertEquals(index + 1, output.size());
+        }
+
+        pipeline.await();
+    }
+
+    @Test public void testChannelOrder() {
+        ReportPipeline pipeline = ReportPipeline.create(4, 8);
+        List<Integer> output = Collections.synchronizedList(new ArrayList<Integer>());
+        List<Integer> expected = new ArrayList<Integer>();
+
+        assertTrue(pipeline.isAsynchronous());
+
+        for (int index = 0; index < 200; ++index) {
+            final int value = index;
+            expected.add(value);
+            pipeline.submit(output, () -> output.add(value));
+        }
+
+        pipeline.await();
+        assertEquals(expected, output);
+    }
+
+    @Test public void testAwait() {
+        ReportPipeline pipeline = ReportPipeline.create(2, 8);
+
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger  completed = new AtomicInteger(0);
+        AtomicBoolean  awaited = new AtomicBoolean(false);
+
+        for (int index = 0; index < 4; ++index)
+            pipeline.submit(() -> { awaitGate(gate); completed.incrementAndGet(); });
+
+        Thread waiter = new Thread(() -> { pipeline.await(); awaited.set(true); });
+        waiter.start();
+
+        // The tasks are blocked, so await() must not return...
+        try {
+            Thread.sleep(200);
+        }
+        catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        assertFalse(awaited.get());
+        assertEquals(0, completed.get());
+
+        gate.countDown();
+        join(waiter);
+
+        assertTrue(awaited.get());
+        assertEquals(4, completed.get());
+    }
+
+    @Test public void testQueueCapacity() {
+        ReportPipeline pipeline = ReportPipeline.create(1, 2);
+
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicBoolean  submitted = new AtomicBoolean(false);
+
+        pipeline.submit(() -> awaitGate(gate));
+        pipeline.submit(() -> awaitGate(gate));
+
+        // The queue is full, so the third submission must block...
+        Thread submitter = new Thread(() -> { pipeline.submit(() -> {}); submitted.set(true); });
+        submitter.start();
+
+        try {
+            Thread.sleep(200);
+        }
+        catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        assertFalse(submitted.get());
+
+        gate.countDown();
+        join(submitter);
+
+        assertTrue(submitted.get());
+        pipeline.await();
+    }
+
+    @Test public void testFailure() {
+        ReportPipeline pipeline = ReportPipeline.create(2, 4);
+        AtomicInteger  completed = new AtomicInteger(0);
+        CountDownLatch gate = new CountDownLatch(1);
+
+        // Hold the failing task until both tasks have been submitted...
+        pipeline.submit("channel", () -> { awaitGate(gate); throw new IllegalStateException("Worker failure."); });
+        pipeline.submit("channel", () -> completed.incrementAndGet());
+        gate.countDown();
+
+        try {
+            pipeline.await();
+            fail("RuntimeException not thrown.");
+        }
+        catch (RuntimeException ex) {
+            // Expected...
+        }
+
+        // Later tasks on the channel still ran, so await() returned...
+        assertEquals(1, completed.get());
+
+        // The failure is reported to every later caller...
+        try {
+            pipeline.submit(() -> completed.incrementAndGet());
+            fail("RuntimeException not thrown.");
+        }
+        catch (RuntimeException ex) {
+            // Expected...
+        }
+
+        assertEquals(1, completed.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSynchronousFailure() {
+        ReportPipeline.create(0, 1).submit(() -> { throw new IllegalStateException("Task failure."); });
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidThreadCount() {
+        ReportPipeline.create(-1, 1);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidQueueCapacity() {
+        ReportPipeline.create(1, 0);
+    }
+
+    @Test public void testSnapshotIsolation() {
+        //
+        // A task that reads a snapshot view after the simulation has
+        // mutated the tumor must see the captured state...
+        //
+        ReportPipeline pipeline = ReportPipeline.create(1, 4);
+
+        Deme deme = Deme.founder(List.of(M0), GrowthRate.net(0.1), 100);
+        Tumor<Deme> tumor = PointTumor.primary(deme);
+
+        SnapshotView view = SnapshotView.capture(tumor);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Mutation> observed = Collections.synchronizedList(new ArrayList<Mutation>());
+
+        pipeline.submit(() -> {
+                awaitGate(gate);
+                observed.addAll(view.getGenotype(0).viewOriginalMutations());
+            });
+
+        deme.getGenotype().append(M1);
+        gate.countDown();
+        pipeline.await();
+
+        assertEquals(List.of(M0), observed);
+        assertEquals(List.of(M0, M1), deme.getGenotype().viewOriginalMutations());
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.ReportPipelineTest");
+    }
+}
@@ -0,0 +1,141 @@
+
+package tumor.junit;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import jam.lattice.Coord;
+import jam.math.VectorMoment;
+
+import tumor.lattice.RunningMoment;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class RunningMomentTest {
+    private static final double TOLERANCE = 1.0E-12;
+
+    @Test public void testEmpty() {
+        RunningMoment moment = new RunningMoment();
+
+        assertEquals(0, moment.getWeight());
+        assertEquals(0.0, moment.getCMX(), TOLERANCE);
+        assertEquals(0.0, moment.scalar(), TOLERANCE);
+    }
+
+    @Test public void testIncremental() {
+        Coord c1 = Coord.at( 1,  2,  3);
+        Coord c2 = Coord.at(-4,  0,  2);
+        Coord c3 = Coord.at( 0, -5,  1);
+        Coord c4 = Coord.at( 7,  3, -2);
+
+        RunningMoment running = new RunningMoment();
+        Multiset<Coord> coords = HashMultiset.create();
+
+        running.add(c1, 3);
+        running.add(c2, 1);
+        running.add(c3, 2);
+        running.add(c4, 5);
+        running.remove(c4, 5);
+        running.move(c3, c4, 1);
+        running.add(c2, -1);
+        running.add(c2, 4);
+
+        coords.add(c1, 3);
+        coords.add(c3, 1);
+        coords.add(c4, 1);
+        coords.add(c2, 4);
+
+        VectorMoment exact = VectorMoment.compute(coords);
+
+        assertEquals(9, running.getWeight());
+        assertEquals(exact.getCM().getDouble(0), running.getCMX(), TOLERANCE);
+        assertEquals(exact.getCM().getDouble(1), running.getCMY(), TOLERANCE);
+        assertEquals(exact.getCM().getDouble(2), running.getCMZ(), TOLERANCE);
+        assertEquals(exact.scalar(), running.scalar(), TOLERANCE);
+    }
+
+    @Test public void testTensor() {
+        RunningMoment moment = new RunningMoment();
+
+        moment.add(Coord.at( 1, 0, 0), 1);
+        moment.add(Coord.at(-1, 0, 0), 1);
+
+        double[][] tensor = moment.getGyrationTensor();
+
+        assertEquals(1.0, tensor[0][0], TOLERANCE);
+        assertEquals(0.0, tensor[0][1], TOLERANCE);
+        assertEquals(0.0, tensor[1][1], TOLERANCE);
+        assertEquals(0.0, tensor[2][2], TOLERANCE);
+        assertEquals(1.0, moment.scalar(), TOLERANCE);
+    }
+
+    @Test public void testPrincipalMoments() {
+        //
+        // Cells on a line along a diagonal: the tensor is not diagonal,
+        // but its only nonzero eigenvalue is the squared radius...
+        //
+        RunningMoment rod = new RunningMoment();
+
+        rod.add(Coord.at( 1,  1, 0), 1);
+        rod.add(Coord.at(-1, -1, 0), 1);
+
+        double[] pm = rod.getPrincipalMoments();
+
+        assertEquals(0.0, pm[0], TOLERANCE);
+        assertEquals(0.0, pm[1], TOLERANCE);
+        assertEquals(2.0, pm[2], TOLERANCE);
+        assertEquals(2.0, rod.asphericity(), TOLERANCE);
+        assertEquals(0.0, rod.acylindricity(), TOLERANCE);
+        assertEquals(1.0, rod.anisotropy(), TOLERANCE);
+
+        //
+        // The six nearest neighbors of the origin: every direction is
+        // equivalent...
+        //
+        RunningMoment sphere = new RunningMoment();
+
+        sphere.add(Coord.at( 1,  0,  0), 1);
+        sphere.add(Coord.at(-1,  0,  0), 1);
+        sphere.add(Coord.at( 0,  1,  0), 1);
+        sphere.add(Coord.at( 0, -1,  0), 1);
+        sphere.add(Coord.at( 0,  0,  1), 1);
+        sphere.add(Coord.at( 0,  0, -1), 1);
+
+        pm = sphere.getPrincipalMoments();
+
+        assertEquals(1.0 / 3.0, pm[0], TOLERANCE);
+        assertEquals(1.0 / 3.0, pm[2], TOLERANCE);
+        assertEquals(0.0, sphere.anisotropy(), TOLERANCE);
+        assertEquals(1.0, sphere.normR(Coord.at(1, 0, 0)), TOLERANCE);
+
+        //
+        // A general tensor: the eigenvalues must reproduce its trace
+        // and determinant...
+        //
+        RunningMoment blob = new RunningMoment();
+
+        blob.add(Coord.at( 1,  2,  3), 3);
+        blob.add(Coord.at(-4,  0,  2), 1);
+        blob.add(Coord.at( 0, -5,  1), 2);
+        blob.add(Coord.at( 7,  3, -2), 5);
+
+        double[][] t = blob.getGyrationTensor();
+        pm = blob.getPrincipalMoments();
+
+        double trace = t[0][0] + t[1][1] + t[2][2];
+        double det =
+            t[0][0] * (t[1][1] * t[2][2] - t[1][2] * t[2][1])
+            - t[0][1] * (t[1][0] * t[2][2] - t[1][2] * t[2][0])
+            + t[0][2] * (t[1][0] * t[2][1] - t[1][1] * t[2][0]);
+
+        assertTrue(pm[0] <= pm[1] && pm[1] <= pm[2]);
+        assertEquals(trace, pm[0] + pm[1] + pm[2], 1.0E-9);
+        assertEquals(det, pm[0] * pm[1] * pm[2], 1.0E-6);
+        assertEquals(blob.scalar() * blob.scalar(), trace, 1.0E-9);
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.RunningMomentTest");
+    }
+}
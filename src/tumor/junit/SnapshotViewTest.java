@@ -0,0 +1,129 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jam.lattice.Coord;
+
+import tumor.carrier.Deme;
+import tumor.carrier.Tumor;
+import tumor.carrier.TumorCell;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.mutation.Genotype;
+import tumor.mutation.Mutation;
+import tumor.point.PointTumor;
+import tumor.report.SnapshotView;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class SnapshotViewTest {
+    static {
+        TumorDriver.junit();
+    }
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+
+    private static final Mutation M0 = Mutation.neutral();
+    private static final Mutation M1 = Mutation.neutral();
+    private static final Mutation M2 = Mutation.neutral();
+    private static final Mutation M3 = Mutation.neutral();
+
+    @Test public void testCapture() {
+        Tumor<TumorCell> tumor = PointTumor.primary(TumorCell.founders(100, GROWTH_RATE));
+        SnapshotView view = SnapshotView.capture(tumor);
+
+        assertEquals(100, view.countComponents());
+        assertEquals(tumor.getAccumulatedMutations(), view.getAccumulatedMutations());
+
+        for (int row = 0; row < view.countComponents(); ++row) {
+            TumorCell cell = (TumorCell) view.getComponent(row);
+
+            assertEquals(cell.getIndex(), view.getComponentIndex(row));
+            assertEquals(1L, view.getCellCount(row));
+            assertEquals(tumor.locateComponent(cell), view.getCoord(row));
+            assertSame(cell.getGenotype(), view.getGenotype(row));
+
+            // Rows are sorted by component index...
+            if (row > 0)
+                assertTrue(view.getComponentIndex(row - 1) < view.getComponentIndex(row));
+        }
+    }
+
+    @Test public void testAdvance() {
+        //
+        // The view must be unaffected by later time steps, which
+        // create and destroy cells...
+        //
+        Tumor<TumorCell> tumor = PointTumor.primary(TumorCell.founders(100, GROWTH_RATE));
+        SnapshotView view = SnapshotView.capture(tumor);
+
+        List<Long>     indexes   = new ArrayList<Long>();
+        List<Coord>    coords    = new ArrayList<Coord>();
+        List<Genotype> genotypes = new ArrayList<Genotype>();
+
+        for (int row = 0; row < view.countComponents(); ++row) {
+            indexes.add(view.getComponentIndex(row));
+            coords.add(view.getCoord(row));
+            genotypes.add(view.getGenotype(row));
+        }
+
+        for (int step = 0; step < 10; ++step)
+            tumor.advance();
+
+        assertEquals(100, view.countComponents());
+
+        for (int row = 0; row < view.countComponents(); ++row) {
+            assertEquals(indexes.get(row).longValue(), view.getComponentIndex(row));
+            assertEquals(1L, view.getCellCount(row));
+            assertEquals(coords.get(row), view.getCoord(row));
+            assertSame(genotypes.get(row), view.getGenotype(row));
+        }
+    }
+
+    @Test public void testFrozenGenotypes() {
+        //
+        // Mutable genotypes acquire mutations in later time steps; the
+        // view must hold copies of the genotypes and their ancestors
+        // as they were at the time of the capture...
+        //
+        Deme parent = Deme.founder(List.of(M0), GROWTH_RATE, 100);
+        Deme child  = parent.divide(40);
+
+        child.getGenotype().append(M1);
+
+        Tumor<Deme> tumor = PointTumor.primary(List.of(parent, child));
+        SnapshotView view = SnapshotView.capture(tumor);
+
+        parent.getGenotype().append(M2);
+        child.getGenotype().append(M3);
+
+        assertEquals(2, view.countComponents());
+        assertEquals(parent.getIndex(), view.getComponentIndex(0));
+        assertEquals(child.getIndex(),  view.getComponentIndex(1));
+
+        assertEquals(60L, view.getCellCount(0));
+        assertEquals(40L, view.getCellCount(1));
+
+        Genotype parentCopy = view.getGenotype(0);
+        Genotype childCopy  = view.getGenotype(1);
+
+        assertNotSame(parent.getGenotype(), parentCopy);
+        assertNotSame(child.getGenotype(),  childCopy);
+
+        assertEquals(List.of(M0), parentCopy.viewAccumulatedMutations());
+        assertEquals(List.of(M0, M1), childCopy.viewAccumulatedMutations());
+        assertSame(parentCopy, childCopy.getParent());
+
+        assertEquals(List.of(M0, M2), parent.getGenotype().viewAccumulatedMutations());
+        assertEquals(List.of(M0, M1, M3), child.getGenotype().viewAccumulatedMutations());
+
+        assertEquals(List.of(parentCopy, childCopy), view.sortGenotypes());
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.SnapshotViewTest");
+    }
+}
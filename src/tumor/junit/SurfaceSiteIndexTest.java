@@ -0,0 +1,270 @@
+
+package tumor.junit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jam.lattice.Coord;
+import jam.lattice.Neighborhood;
+
+import tumor.capacity.CapacityModel;
+import tumor.carrier.TumorCell;
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+import tumor.growth.LocalGrowthModel;
+import tumor.lattice.CellularLatticeTumor;
+import tumor.lattice.LatticeTumor;
+import tumor.lattice.MortonCode;
+import tumor.lattice.SurfaceSiteIndex;
+import tumor.migrate.MigrationModel;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+import tumor.senesce.SenescenceModel;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class SurfaceSiteIndexTest {
+    static {
+        System.setProperty(LatticeTumor.PERIOD_LENGTH_PROPERTY, "10");
+        System.setProperty(CapacityModel.MODEL_TYPE_PROPERTY, "SINGLE");
+        System.setProperty(LocalGrowthModel.MODEL_TYPE_PROPERTY, "INTRINSIC");
+        System.setProperty(MigrationModel.MODEL_TYPE_PROPERTY, "PINNED");
+        System.setProperty(SenescenceModel.MODEL_TYPE_PROPERTY, "NONE");
+        System.setProperty(GrowthRate.BIRTH_RATE_PROPERTY, "0.55");
+        System.setProperty(GrowthRate.DEATH_RATE_PROPERTY, "0.45");
+        System.setProperty(LatticeTumor.SURFACE_INDEX_PROPERTY, "true");
+
+        TumorDriver.junit();
+    }
+
+    private static final GrowthRate GROWTH_RATE = GrowthRate.net(0.1);
+
+    // The index tests never approach the periodic boundary...
+    private static final int PERIOD = 100;
+
+    // The definition of a surface site, applied to every occupied
+    // site...
+    private static Set<Coord> scanSurface(Set<Coord> occupied) {
+        Set<Coord> surface = new HashSet<Coord>();
+
+        for (Coord site : occupied)
+            for (Coord offset : Neighborhood.FIRST_NEAREST)
+                if (!occupied.contains(site.plus(offset)))
+                    surface.add(site);
+
+        return surface;
+    }
+
+    private static Set<Coord> decodeKeys(SurfaceSiteIndex index) {
+        Set<Coord> sites = new HashSet<Coord>();
+
+        for (long key : index.captureKeys())
+            assertTrue(sites.add(MortonCode.decode(key)));
+
+        return sites;
+    }
+
+    private static void assertConsistent(SurfaceSiteIndex index, Set<Coord> occupied) {
+        Set<Coord> expected = scanSurface(occupied);
+
+        assertEquals(expected, decodeKeys(index));
+        assertEquals(expected.size(), index.size());
+
+        for (Coord site : occupied)
+            assertEquals(expected.contains(site), index.contains(site));
+    }
+
+    private static Coord randomNeighbor(Coord site, RandomStream random) {
+        List<Coord> offsets = new ArrayList<Coord>();
+
+        for (Coord offset : Neighborhood.FIRST_NEAREST)
+            offsets.add(offset);
+
+        return site.plus(offsets.get(random.nextInt(offsets.size())));
+    }
+
+    private static Coord randomElement(List<Coord> sites, RandomStream random) {
+        return sites.get(random.nextInt(sites.size()));
+    }
+
+    @Test public void testBirthDeathMigration() {
+        Set<Coord> occupied = new HashSet<Coord>();
+        List<Coord> sites = new ArrayList<Coord>();
+
+        SurfaceSiteIndex index = new SurfaceSiteIndex(PERIOD, key -> occupied.contains(MortonCode.decode(key)));
+        RandomStream random = RandomStreams.create(20181016L);
+
+        occupied.add(Coord.at(0, 0, 0));
+        sites.add(Coord.at(0, 0, 0));
+        index.update(Coord.at(0, 0, 0));
+        assertConsistent(index, occupied);
+
+        for (int trial = 0; trial < 5000; ++trial) {
+            double event = random.nextDouble();
+
+            if (event < 0.5 || sites.size() < 2) {
+                //
+                // Birth: a daughter occupies an empty neighbor...
+                //
+                Coord daughter = randomNeighbor(randomElement(sites, random), random);
+
+                if (occupied.add(daughter)) {
+                    sites.add(daughter);
+                    index.update(daughter);
+                }
+            }
+            else if (event < 0.75) {
+                //
+                // Death: an occupied site becomes empty...
+                //
+                Coord site = sites.remove(random.nextInt(sites.size()));
+
+                occupied.remove(site);
+                index.update(site);
+            }
+            else {
+                //
+                // Migration: the site is vacated before the destination
+                // is occupied, as in LatticeTumor.moveComponent...
+                //
+                int   position = random.nextInt(sites.size());
+                Coord fromSite = sites.get(position);
+                Coord toSite   = randomNeighbor(fromSite, random);
+
+                if (!occupied.contains(toSite)) {
+                    occupied.remove(fromSite);
+                    index.update(fromSite);
+
+                    occupied.add(toSite);
+                    index.update(toSite);
+
+                    sites.set(position, toSite);
+                }
+            }
+
+            assertConsistent(index, occupied);
+        }
+    }
+
+    @Test public void testKeyUpdate() {
+        //
+        // Updates by key must match updates by coordinate, including
+        // across the periodic boundary...
+        //
+        int period = 10;
+        Set<Coord> occupied = new HashSet<Coord>();
+
+        SurfaceSiteIndex byCoord = new SurfaceSiteIndex(period, key -> occupied.contains(MortonCode.decode(key)));
+        SurfaceSiteIndex byKey   = new SurfaceSiteIndex(period, key -> occupied.contains(MortonCode.decode(key)));
+
+        for (int x = -5; x <= 4; ++x) {
+            Coord site = Coord.at(x, -5, 4);
+
+            occupied.add(site);
+            byCoord.update(site);
+            byKey.update(MortonCode.encode(site.x, site.y, site.z, period));
+        }
+
+        // A complete periodic row has no empty neighbors along its
+        // own axis, but every site still borders empty sites...
+        assertEquals(10, byKey.size());
+        assertEquals(decodeKeys(byCoord), decodeKeys(byKey));
+        assertEquals(scanSurface(occupied, period), decodeKeys(byKey));
+    }
+
+    @Test public void testSelect() {
+        Set<Coord> occupied = new HashSet<Coord>();
+        SurfaceSiteIndex index = new SurfaceSiteIndex(PERIOD, key -> occupied.contains(MortonCode.decode(key)));
+        RandomStream random = RandomStreams.create(20181016L);
+
+        for (int x = -2; x <= 2; ++x) {
+            for (int y = -2; y <= 2; ++y) {
+                for (int z = -2; z <= 2; ++z) {
+                    Coord site = Coord.at(x, y, z);
+
+                    occupied.add(site);
+                    index.update(site);
+                }
+            }
+        }
+
+        // The 27 interior sites have no empty neighbors...
+        assertEquals(125 - 27, index.size());
+        assertConsistent(index, occupied);
+
+        for (int trial = 0; trial < 100; ++trial)
+            assertTrue(index.contains(index.select(random)));
+
+        // Partial shuffles reorder the keys but not the set...
+        assertEquals(10, index.select(10, random).size());
+        assertEquals(scanSurface(occupied), index.select(1000, random));
+        assertConsistent(index, occupied);
+    }
+
+    // The definition of a surface site on the periodic tumor lattice,
+    // applied to the canonical image of every occupied site...
+    private static Set<Coord> scanSurface(Set<Coord> occupied, int period) {
+        Set<Coord> images = new HashSet<Coord>();
+
+        for (Coord site : occupied)
+            images.add(wrap(site, period));
+
+        Set<Coord> surface = new HashSet<Coord>();
+
+        for (Coord site : images)
+            for (Coord offset : Neighborhood.FIRST_NEAREST)
+                if (!images.contains(wrap(site.plus(offset), period)))
+                    surface.add(site);
+
+        return surface;
+    }
+
+    private static Coord wrap(Coord site, int period) {
+        return Coord.at(MortonCode.wrap(site.x, period),
+                        MortonCode.wrap(site.y, period),
+                        MortonCode.wrap(site.z, period));
+    }
+
+    private static void assertConsistent(LatticeTumor<?> tumor) {
+        Set<Coord> expected = scanSurface(tumor.getOccupiedCoord(), LatticeTumor.resolvePeriodLength());
+
+        if (expected.isEmpty())
+            return;
+
+        assertEquals(expected, tumor.selectSurfaceSites(expected.size() + 1000));
+    }
+
+    @Test public void testTumorAdvance() {
+        CellularLatticeTumor tumor = CellularLatticeTumor.empty();
+
+        for (int x = -2; x <= 2; ++x)
+            for (int y = -2; y <= 2; ++y)
+                for (int z = -2; z <= 2; ++z)
+                    tumor.restoreComponent(TumorCell.founder(GROWTH_RATE), Coord.at(x, y, z));
+
+        assertConsistent(tumor);
+
+        for (int step = 0; step < 20 && tumor.countCells() > 0; ++step) {
+            tumor.advance();
+            assertConsistent(tumor);
+        }
+    }
+
+    @Test public void testTumorAdvanceOccupancyGrid() {
+        System.setProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY, "true");
+
+        try {
+            testTumorAdvance();
+        }
+        finally {
+            System.clearProperty(CellularLatticeTumor.OCCUPANCY_GRID_PROPERTY);
+        }
+    }
+
+    public static void main(String[] args) {
+        org.junit.runner.JUnitCore.main("tumor.junit.SurfaceSiteIndexTest");
+    }
+}
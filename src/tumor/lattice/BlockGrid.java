@@ -0,0 +1,263 @@
+
+package tumor.lattice;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import jam.lattice.Coord;
+
+/**
+ * Stores one {@code long} value for every site of an unbounded
+ * three-dimensional lattice in compressed blocks.
+ *
+ * <p>The lattice is divided into cubic blocks of {@code 8 x 8 x 8}
+ * sites, keyed by the {@link MortonCode} of the block coordinates.
+ * Blocks that have never been written hold the background value and
+ * occupy no memory; blocks in which every site holds the same value
+ * are stored as a single value; only the remaining blocks are stored
+ * densely.  Every lookup requires one hash probe.
+ *
+ * <p>Writes may expand a uniform block into a dense block; call
+ * {@link BlockGrid#compress()} to collapse dense blocks that have
+ * become uniform.  Concurrent reads are safe, but writes must not run
+ * concurrently with any other access.
+ */
+public final class BlockGrid {
+    private final long background;
+
+    // Uniform blocks are stored as arrays of length one, dense blocks
+    // as arrays of length BLOCK_VOLUME...
+    private final Long2ObjectOpenHashMap<long[]> blocks =
+        new Long2ObjectOpenHashMap<long[]>();
+
+    // Number of bits in each block coordinate...
+    private static final int BLOCK_BITS = 3;
+
+    // Mask for the position of a site within its block...
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+
+    /**
+     * Number of sites along each edge of a block.
+     */
+    public static final int BLOCK_WIDTH = 1 << BLOCK_BITS;
+
+    /**
+     * Number of sites in a block.
+     */
+    public static final int BLOCK_VOLUME = BLOCK_WIDTH * BLOCK_WIDTH * BLOCK_WIDTH;
+
+    /**
+     * Creates a grid with every site holding a background value.
+     *
+     * @param background the value initially held by every site.
+     */
+    public BlockGrid(long background) {
+        this.background = background;
+    }
+
+    private static long blockKey(int x, int y, int z) {
+        //
+        // Arithmetic shifts round toward negative infinity, so sites
+        // with negative coordinates are assigned to the correct
+        // blocks...
+        //
+        return MortonCode.encode(x >> BLOCK_BITS, y >> BLOCK_BITS, z >> BLOCK_BITS);
+    }
+
+    private static int siteIndex(int x, int y, int z) {
+        return (x & BLOCK_MASK) | ((y & BLOCK_MASK) << BLOCK_BITS) | ((z & BLOCK_MASK) << (2 * BLOCK_BITS));
+    }
+
+    /**
+     * Returns the value held by a lattice site.
+     *
+     * @param coord the lattice site to examine.
+     *
+     * @return the value held by the specified site.
+     */
+    public long get(Coord coord) {
+        return get(coord.x, coord.y, coord.z);
+    }
+
+    /**
+     * Returns the value held by a lattice site.
+     *
+     * @param x the x-coordinate of the site.
+     *
+     * @param y the y-coordinate of the site.
+     *
+     * @param z the z-coordinate of the site.
+     *
+     * @return the value held by the specified site.
+     */
+    public long get(int x, int y, int z) {
+        long[] block = blocks.get(blockKey(x, y, z));
+
+        if (block == null)
+            return background;
+        else if (block.length == 1)
+            return block[0];
+        else
+            return block[siteIndex(x, y, z)];
+    }
+
+    /**
+     * Assigns the value held by a lattice site.
+     *
+     * @param coord the lattice site to assign.
+     *
+     * @param value the new value for the site.
+     */
+    public void set(Coord coord, long value) {
+        set(coord.x, coord.y, coord.z, value);
+    }
+
+    /**
+     * Assigns the value held by a lattice site.
+     *
+     * @param x the x-coordinate of the site.
+     *
+     * @param y the y-coordinate of the site.
+     *
+     * @param z the z-coordinate of the site.
+     *
+     * @param value the new value for the site.
+     */
+    public void set(int x, int y, int z, long value) {
+        long   key   = blockKey(x, y, z);
+        long[] block = blocks.get(key);
+
+        if (block == null) {
+            if (value == background)
+                return;
+
+            block = expand(key, background);
+        }
+        else if (block.length == 1) {
+            if (value == block[0])
+                return;
+
+            block = expand(key, block[0]);
+        }
+
+        block[siteIndex(x, y, z)] = value;
+    }
+
+    /**
+     * Adds to the value held by a lattice site.
+     *
+     * @param coord the lattice site to update.
+     *
+     * @param delta the amount to add to the value of the site.
+     */
+    public void add(Coord coord, long delta) {
+        add(coord.x, coord.y, coord.z, delta);
+    }
+
+    /**
+     * Adds to the value held by a lattice site.
+     *
+     * @param x the x-coordinate of the site.
+     *
+     * @param y the y-coordinate of the site.
+     *
+     * @param z the z-coordinate of the site.
+     *
+     * @param delta the amount to add to the value of the site.
+     */
+    public void add(int x, int y, int z, long delta) {
+        if (delta == 0)
+            return;
+
+        long   key   = blockKey(x, y, z);
+        long[] block = blocks.get(key);
+
+        if (block == null)
+            block = expand(key, background);
+        else if (block.length == 1)
+            block = expand(key, block[0]);
+
+        block[siteIndex(x, y, z)] += delta;
+    }
+
+    private long[] expand(long key, long value) {
+        long[] block = new long[BLOCK_VOLUME];
+
+        if (value != 0)
+            Arrays.fill(block, value);
+
+        blocks.put(key, block);
+        return block;
+    }
+
+    /**
+     * Collapses every dense block in which all sites hold the same
+     * value into a uniform block, and removes the uniform blocks that
+     * hold the background value.
+     */
+    public void compress() {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator =
+            blocks.long2ObjectEntrySet().fastIterator();
+
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            long[] block = entry.getValue();
+
+            if (!isUniform(block))
+                continue;
+
+            if (block[0] == background)
+                iterator.remove();
+            else if (block.length > 1)
+                entry.setValue(new long[] { block[0] });
+        }
+
+        blocks.trim();
+    }
+
+    private static boolean isUniform(long[] block) {
+        for (int index = 1; index < block.length; ++index)
+            if (block[index] != block[0])
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Returns the number of blocks stored explicitly (uniform or
+     * dense).
+     *
+     * @return the number of blocks stored explicitly.
+     */
+    public int countBlocks() {
+        return blocks.size();
+    }
+
+    /**
+     * Returns the number of blocks stored densely.
+     *
+     * @return the number of blocks stored densely.
+     */
+    public int countDenseBlocks() {
+        int count = 0;
+
+        for (long[] block : blocks.values())
+            if (block.length > 1)
+                ++count;
+
+        return count;
+    }
+
+    /**
+     * Returns the value held by every site that lies outside of the
+     * explicitly stored blocks.
+     *
+     * @return the background value for this grid.
+     */
+    public long getBackground() {
+        return background;
+    }
+}
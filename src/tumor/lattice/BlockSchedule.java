@@ -0,0 +1,142 @@
+
+package tumor.lattice;
+
+/**
+ * Divides a periodic lattice into cubic blocks and colors the blocks
+ * so that blocks of the same color may be advanced concurrently.
+ *
+ * <p>Each axis of the lattice (with period {@code L}) is divided into
+ * {@code max(1, L / B)} intervals of {@code B} sites, where {@code B}
+ * is the block edge; the last interval absorbs the remainder.  The
+ * intervals along each axis are assigned alternating classes 0 and
+ * 1; when the number of intervals is odd, the last interval (which
+ * is adjacent to the first across the periodic boundary) is assigned
+ * class 2.  The color of a block is the combination of the classes
+ * of its three intervals.
+ *
+ * <p>Two distinct blocks of the same color are therefore separated
+ * along at least one axis by an entire block of another color, at
+ * least two sites wide, so no lattice site lies within one site of
+ * both blocks: a cell in one block cannot read or write any site
+ * that a cell in the other block may read or write during the same
+ * advance.
+ *
+ * <p>Sites are identified by the Morton keys of their canonical
+ * periodic images (see {@link MortonCode#encode(int, int, int, int)}).
+ */
+public final class BlockSchedule {
+    private final int period;
+    private final int blockEdge;
+    private final int intervalCount;
+    private final int classCount;
+
+    // The class of each interval along an axis...
+    private final int[] intervalClass;
+
+    /**
+     * The smallest allowed block edge.
+     */
+    public static final int MIN_BLOCK_EDGE = 2;
+
+    /**
+     * Creates a new block schedule.
+     *
+     * @param period the lattice period along each axis.
+     *
+     * @param blockEdge the number of sites along each edge of a block.
+     *
+     * @throws IllegalArgumentException unless the block edge is at
+     * least {@code MIN_BLOCK_EDGE} and the number of blocks fits in an
+     * {@code int}.
+     */
+    public BlockSchedule(int period, int blockEdge) {
+        if (blockEdge < MIN_BLOCK_EDGE)
+            throw new IllegalArgumentException("Block edge must be at least two sites.");
+
+        MortonCode.validatePeriod(period);
+
+        this.period        = period;
+        this.blockEdge     = blockEdge;
+        this.intervalCount = Math.max(1, period / blockEdge);
+
+        if ((long) intervalCount * intervalCount * intervalCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Block edge is too small for the lattice period.");
+
+        this.intervalClass = new int[intervalCount];
+
+        for (int interval = 0; interval < intervalCount; ++interval)
+            intervalClass[interval] = interval % 2;
+
+        if (intervalCount > 1 && intervalCount % 2 == 1)
+            intervalClass[intervalCount - 1] = 2;
+
+        this.classCount = classCount(intervalCount);
+    }
+
+    private static int classCount(int intervalCount) {
+        if (intervalCount == 1)
+            return 1;
+        else if (intervalCount % 2 == 0)
+            return 2;
+        else
+            return 3;
+    }
+
+    private int interval(int coord) {
+        //
+        // Canonical coordinates lie in [-(L / 2), L - L / 2)...
+        //
+        return Math.min((coord + period / 2) / blockEdge, intervalCount - 1);
+    }
+
+    /**
+     * Returns the number of blocks.
+     *
+     * @return the number of blocks.
+     */
+    public int countBlocks() {
+        return intervalCount * intervalCount * intervalCount;
+    }
+
+    /**
+     * Returns the number of block colors.
+     *
+     * @return the number of block colors.
+     */
+    public int countColors() {
+        return classCount * classCount * classCount;
+    }
+
+    /**
+     * Returns the block containing a lattice site.
+     *
+     * @param siteKey the Morton key for the canonical image of the
+     * site.
+     *
+     * @return the index of the block containing the specified site,
+     * in the range {@code [0, countBlocks())}.
+     */
+    public int blockOf(long siteKey) {
+        int ix = interval(MortonCode.decodeX(siteKey));
+        int iy = interval(MortonCode.decodeY(siteKey));
+        int iz = interval(MortonCode.decodeZ(siteKey));
+
+        return (ix * intervalCount + iy) * intervalCount + iz;
+    }
+
+    /**
+     * Returns the color of a block.
+     *
+     * @param block the index of the block.
+     *
+     * @return the color of the specified block, in the range
+     * {@code [0, countColors())}.
+     */
+    public int colorOf(int block) {
+        int iz = block % intervalCount;
+        int iy = (block / intervalCount) % intervalCount;
+        int ix = block / (intervalCount * intervalCount);
+
+        return (intervalClass[ix] * classCount + intervalClass[iy]) * classCount + intervalClass[iz];
+    }
+}
@@ -1,36 +1,212 @@
 
 package tumor.lattice;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import jam.app.JamProperties;
+import jam.lang.JamException;
 import jam.lattice.Coord;
 import jam.lattice.Lattice;
+import jam.lattice.LatticeView;
 
 import tumor.capacity.CapacityModel;
 import tumor.capacity.SingleCapacity;
 import tumor.carrier.TumorCell;
 import tumor.carrier.TumorEnv;
 import tumor.driver.TumorDriver;
+import tumor.growth.GrowthCount;
+import tumor.growth.GrowthRate;
+import tumor.mutation.MutationGenerator;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
 
 /**
  * Represents a three-dimensional tumor of individual cells on a
  * lattice.
+ *
+ * <p><b>Block-decomposed advance.</b> When the cells are stored in
+ * the {@link OccupancyGrid} and the parallelism property is positive,
+ * each time step divides the lattice into the colored blocks of a
+ * {@link BlockSchedule}.  The active cells are shuffled (as in the
+ * serial advance) and then partitioned into their blocks, keeping
+ * the shuffled order within each block; the colors are visited in a
+ * random order.  For each color, the blocks are advanced in two
+ * phases:
+ *
+ * <ol>
+ * <li>Worker threads select the expansion site and sample the growth
+ * event for every cell in the blocks of the color, tracking the
+ * occupancy changes within each block in a private overlay; the grid
+ * itself is read-only during this phase.</li>
+ *
+ * <li>The simulation thread applies the events block by block (in
+ * block order): it creates the daughter cells and their mutations and
+ * updates the grid, the surface and neighborhood indexes, and the
+ * running moments.</li>
+ * </ol>
+ *
+ * <p>Blocks of one color never read or write the same sites, so the
+ * result is the same as advancing the blocks one after another.  Each
+ * block draws its random deviates (in both phases) from its own
+ * stream, split from the trial stream in block order, so the results
+ * depend on the seed and the block edge but not on the number of
+ * threads.  The trajectories differ from those of the serial advance,
+ * which visits all cells in a single shuffled order.
  */
 public final class CellularLatticeTumor extends LatticeTumor<TumorCell> {
+    //
+    // When the compact occupancy grid is enabled, the cells are
+    // stored in the grid and the (sparse) lattice passed to the base
+    // class remains empty: it only defines the lattice period...
+    //
+    private final OccupancyGrid<TumorCell> grid;
+
+    //
+    // When the grid is enabled, the randomized advance and migration
+    // orders are built in this reusable buffer of occupant
+    // identifiers rather than in new lists of cells...
+    //
+    private int[] order = new int[0];
+
+    // The most recent local environment, which is reused for the
+    // next parent with the same local growth rate and mutation
+    // generator (the environment is immutable)...
+    private TumorEnv localEnv = null;
+
+    // The number of threads for the block-decomposed advance and its
+    // block schedule (null for the serial advance)...
+    private final int parallelism;
+    private final BlockSchedule blockSchedule;
+
+    //
+    // Reusable buffers for the block-decomposed advance, indexed by
+    // the position of each cell in block order: the sort keys (block
+    // index and shuffled position), the parents and their site keys,
+    // and the sampled events with their expansion sites (a null event
+    // means that the expansion site was occupied)...
+    //
+    private long[]        blockSortKeys = new long[0];
+    private TumorCell[]   blockParents  = new TumorCell[0];
+    private long[]        parentKeys    = new long[0];
+    private long[]        expansionKeys = new long[0];
+    private GrowthCount[] growthCounts  = new GrowthCount[0];
+
+    // Worker threads shared by all tumors for the block-decomposed
+    // advance (created on demand)...
+    private static ExecutorService blockExecutor = null;
+
     private CellularLatticeTumor(CellularLatticeTumor parent) {
         super(parent, createLattice(), getMaxSiteCount());
+        this.grid = resolveUseGrid() ? new OccupancyGrid<TumorCell>(resolvePeriodLength()) : null;
+        this.parallelism   = resolveParallelism();
+        this.blockSchedule = createBlockSchedule(parallelism, grid != null);
     }
 
+    /**
+     * Name of the system property that specifies whether or not to
+     * store the tumor cells in a compact {@link OccupancyGrid} rather
+     * than a dense or sparse lattice.
+     */
+    public static final String OCCUPANCY_GRID_PROPERTY = "tumor.lattice.occupancyGrid";
+
     // Lattices of this size and smaller will be dense, larger will be
     // sparse...
     private static final int MAX_DENSE_PERIOD_LENGTH = 500;
 
+    /**
+     * Name of the system property that specifies the number of threads
+     * that advance the cells stored in the occupancy grid.  With the
+     * default value of zero, the cells are advanced one at a time in a
+     * single randomized order; with a positive value, the cells are
+     * advanced in blocks (see the class documentation), and the
+     * results are identical for every positive value.  A value of one
+     * advances the blocks on the simulation thread.
+     */
+    public static final String PARALLELISM_PROPERTY = "tumor.lattice.parallelism";
+
+    /**
+     * Default value for the parallelism property.
+     */
+    public static final int PARALLELISM_DEFAULT = 0;
+
+    /**
+     * Name of the system property that specifies the number of sites
+     * along each edge of the blocks in the block-decomposed advance
+     * (at least two).
+     */
+    public static final String BLOCK_EDGE_PROPERTY = "tumor.lattice.blockEdge";
+
+    /**
+     * Default value for the block edge property.
+     */
+    public static final int BLOCK_EDGE_DEFAULT = 8;
+
+    private static boolean resolveUseGrid() {
+        return JamProperties.getOptionalBoolean(OCCUPANCY_GRID_PROPERTY, false);
+    }
+
+    private static int resolveParallelism() {
+        int parallelism = JamProperties.getOptionalInt(PARALLELISM_PROPERTY, PARALLELISM_DEFAULT);
+
+        if (parallelism < 0)
+            throw JamException.runtime("Lattice parallelism must be non-negative.");
+
+        return parallelism;
+    }
+
+    private static int resolveBlockEdge() {
+        int blockEdge = JamProperties.getOptionalInt(BLOCK_EDGE_PROPERTY, BLOCK_EDGE_DEFAULT);
+
+        if (blockEdge < BlockSchedule.MIN_BLOCK_EDGE)
+            throw JamException.runtime("Block edge must be at least [%d] sites.", BlockSchedule.MIN_BLOCK_EDGE);
+
+        return blockEdge;
+    }
+
+    private static BlockSchedule createBlockSchedule(int parallelism, boolean useGrid) {
+        if (parallelism == 0)
+            return null;
+
+        if (!useGrid)
+            throw JamException.runtime("The parallel lattice advance requires the occupancy grid.");
+
+        return new BlockSchedule(resolvePeriodLength(), resolveBlockEdge());
+    }
+
+    private static synchronized ExecutorService blockExecutor(int parallelism) {
+        //
+        // With a single thread, the blocks are advanced on the
+        // simulation thread...
+        //
+        if (parallelism == 1)
+            return null;
+
+        if (blockExecutor == null)
+            blockExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+                    Thread thread = new Thread(runnable, "lattice-block");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        return blockExecutor;
+    }
+
     private static Lattice<TumorCell> createLattice() {
         int periodLength = resolvePeriodLength();
 
-        if (periodLength <= MAX_DENSE_PERIOD_LENGTH)
+        if (resolveUseGrid())
+            return Lattice.sparseSO(periodLength);
+        else if (periodLength <= MAX_DENSE_PERIOD_LENGTH)
             return Lattice.denseSO(periodLength);
         else
             return Lattice.sparseSO(periodLength);
@@ -57,6 +233,16 @@ public final class CellularLatticeTumor extends LatticeTumor<TumorCell> {
         return tumor;
     }
 
+    /**
+     * Creates an empty primary tumor, to be populated with components
+     * restored from a checkpoint (by {@code restoreComponent}).
+     *
+     * @return the new empty primary tumor.
+     */
+    public static CellularLatticeTumor empty() {
+        return new CellularLatticeTumor(null);
+    }
+
     private void seed(TumorCell founder) {
         addComponent(founder, FOUNDER_COORD);
     }
@@ -93,17 +279,23 @@ public final class CellularLatticeTumor extends LatticeTumor<TumorCell> {
         while (true) {
             Coord nextCoord = selectExpansionSite(prevCoord);
 
-            if (lattice.isAvailable(nextCoord))
+            if (isAvailable(nextCoord, nextFounder))
                 return nextCoord;
         }
     }
 
     @Override public long countCells() {
-        return lattice.countOccupants();
+        if (grid != null)
+            return grid.countOccupants();
+        else
+            return lattice.countOccupants();
     }
 
     @Override public long countCells(Coord coord) {
-        return lattice.countOccupants(coord);
+        if (grid != null)
+            return grid.countOccupants(coord);
+        else
+            return lattice.countOccupants(coord);
     }
 
     @Override public CapacityModel getCapacityModel() {
@@ -115,25 +307,388 @@ public final class CellularLatticeTumor extends LatticeTumor<TumorCell> {
     }
 
     @Override public boolean isAvailable(Coord coord, TumorCell cell) {
-        return lattice.isAvailable(coord);
+        return !isOccupied(coord);
+    }
+
+    @Override public Coord locateComponent(TumorCell cell) {
+        if (grid == null)
+            return super.locateComponent(cell);
+
+        Coord coord = grid.locate(cell);
+
+        if (coord == null)
+            throw new IllegalArgumentException("Component is not present in the tumor.");
+
+        return coord;
     }
 
     @Override public Map<Coord, Collection<TumorCell>> mapComponents() {
         return mapComponentsSO();
     }
 
+    @Override protected void advanceActive() {
+        //
+        // The grid engine visits the cells by their identifiers...
+        //
+        if (grid == null) {
+            super.advanceActive();
+            return;
+        }
+
+        if (blockSchedule != null) {
+            advanceBlocks(orderActive());
+            return;
+        }
+
+        int count = orderActive();
+
+        for (int k = 0; k < count; ++k) {
+            //
+            // An identifier is released only when its occupant dies
+            // (during its own advance), and daughters always receive
+            // identifiers already visited or beyond the ordered
+            // range, so every remaining identifier in the order still
+            // belongs to the same parent...
+            //
+            TumorCell parent = grid.getOccupantById(order[k]);
+
+            checkParentState(parent);
+            advanceGrid(parent, grid.getSiteKeyById(order[k]));
+            updateParentState(parent);
+        }
+    }
+
+    @Override protected void migrateActive() {
+        if (grid == null) {
+            super.migrateActive();
+            return;
+        }
+
+        int count = orderActive();
+
+        for (int k = 0; k < count; ++k)
+            migrate(grid.getOccupantById(order[k]));
+    }
+
+    private int orderActive() {
+        //
+        // Collect the identifiers of the active cells, then shuffle
+        // them in place.  The identifiers depend on the history of
+        // the grid, so trial checkpoints record their assignment
+        // (see captureOrder)...
+        //
+        int limit = grid.idLimit();
+
+        if (order.length < limit)
+            order = new int[Math.max(limit, 2 * order.length)];
+
+        int count = 0;
+
+        for (int id = 0; id < limit; ++id) {
+            TumorCell cell = grid.getOccupantById(id);
+
+            if (cell != null && cell.isActive())
+                order[count++] = id;
+        }
+
+        RandomStreams.current().shuffle(order, 0, count);
+        return count;
+    }
+
+    @Override protected long[] captureOrder() {
+        //
+        // The grid engine visits the cells by their identifiers...
+        //
+        if (grid != null)
+            return grid.captureIds();
+        else
+            return super.captureOrder();
+    }
+
+    @Override protected void restoreOrder(long[] order) {
+        if (grid != null)
+            grid.restoreIds(order);
+        else
+            super.restoreOrder(order);
+    }
+
+    private void advanceBlocks(int count) {
+        sortByBlock(count);
+
+        //
+        // Identify the runs of cells in the same block (segments) and
+        // split one stream for each segment, in block order...
+        //
+        int[] segmentStart = new int[count + 1];
+        int   segmentCount = 0;
+
+        for (int k = 0; k < count; ++k)
+            if (k == 0 || blockOfSorted(k) != blockOfSorted(k - 1))
+                segmentStart[segmentCount++] = k;
+
+        segmentStart[segmentCount] = count;
+
+        RandomStream[] streams = RandomStreams.split(segmentCount);
+
+        // Group the segments by color, keeping the block order...
+        int   colorCount = blockSchedule.countColors();
+        int[] colorStart = new int[colorCount + 1];
+        int[] segmentColor = new int[segmentCount];
+
+        for (int segment = 0; segment < segmentCount; ++segment) {
+            segmentColor[segment] = blockSchedule.colorOf(blockOfSorted(segmentStart[segment]));
+            ++colorStart[segmentColor[segment] + 1];
+        }
+
+        for (int color = 0; color < colorCount; ++color)
+            colorStart[color + 1] += colorStart[color];
+
+        int[] colorSegments = new int[segmentCount];
+        int[] colorFill     = Arrays.copyOf(colorStart, colorCount);
+
+        for (int segment = 0; segment < segmentCount; ++segment)
+            colorSegments[colorFill[segmentColor[segment]]++] = segment;
+
+        // Visit the colors in a random order...
+        int[] colorOrder = new int[colorCount];
+
+        for (int color = 0; color < colorCount; ++color)
+            colorOrder[color] = color;
+
+        RandomStreams.current().shuffle(colorOrder, 0, colorCount);
+
+        for (int color : colorOrder) {
+            int first = colorStart[color];
+            int last  = colorStart[color + 1];
+
+            planSegments(colorSegments, first, last, segmentStart, streams);
+
+            for (int index = first; index < last; ++index) {
+                int segment = colorSegments[index];
+                RandomStreams.run(streams[segment],
+                                  () -> applySegment(segmentStart[segment], segmentStart[segment + 1]));
+            }
+        }
+
+        // Release the references to the parents...
+        Arrays.fill(blockParents, 0, count, null);
+        Arrays.fill(growthCounts, 0, count, null);
+    }
+
+    private void sortByBlock(int count) {
+        //
+        // Sort the shuffled identifiers by block, keeping the shuffled
+        // order within each block: the sort key holds the block index
+        // in the upper half and the shuffled position in the lower
+        // half...
+        //
+        if (blockSortKeys.length < count) {
+            int capacity = Math.max(count, 2 * blockSortKeys.length);
+
+            blockSortKeys = new long[capacity];
+            blockParents  = new TumorCell[capacity];
+            parentKeys    = new long[capacity];
+            expansionKeys = new long[capacity];
+            growthCounts  = new GrowthCount[capacity];
+        }
+
+        for (int k = 0; k < count; ++k)
+            blockSortKeys[k] = ((long) blockSchedule.blockOf(grid.getSiteKeyById(order[k])) << 32) | k;
+
+        Arrays.sort(blockSortKeys, 0, count);
+
+        for (int k = 0; k < count; ++k) {
+            int id = order[(int) blockSortKeys[k]];
+
+            blockParents[k] = grid.getOccupantById(id);
+            parentKeys[k]   = grid.getSiteKeyById(id);
+        }
+    }
+
+    private int blockOfSorted(int k) {
+        return (int) (blockSortKeys[k] >>> 32);
+    }
+
+    private void planSegments(int[] colorSegments, int first, int last, int[] segmentStart, RandomStream[] streams) {
+        ExecutorService executor = blockExecutor(parallelism);
+
+        if (executor == null) {
+            for (int index = first; index < last; ++index)
+                planSegment(colorSegments[index], segmentStart, streams);
+
+            return;
+        }
+
+        //
+        // Divide the segments among the worker threads; the segments
+        // are independent, so the assignment does not affect the
+        // results...
+        //
+        int taskCount = Math.min(parallelism, last - first);
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(taskCount);
+
+        for (int task = 0; task < taskCount; ++task) {
+            int taskFirst = first + task;
+
+            tasks.add(Executors.callable(() -> {
+                        for (int index = taskFirst; index < last; index += taskCount)
+                            planSegment(colorSegments[index], segmentStart, streams);
+                    }));
+        }
+
+        try {
+            for (Future<Object> future : executor.invokeAll(tasks))
+                future.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw JamException.runtime(ex);
+        }
+        catch (ExecutionException ex) {
+            throw JamException.runtime(ex.getCause());
+        }
+    }
+
+    private void planSegment(int segment, int[] segmentStart, RandomStream[] streams) {
+        RandomStreams.run(streams[segment], () -> planSegment(segmentStart[segment], segmentStart[segment + 1]));
+    }
+
+    private void planSegment(int start, int end) {
+        //
+        // Runs on a worker thread: the grid is read-only, and the
+        // occupancy changes caused by the events sampled for earlier
+        // cells in the same block are recorded in the overlay (one for
+        // occupied sites, zero for sites vacated by dead parents)...
+        //
+        LongIntTable   overlay = new LongIntTable(end - start);
+        ExpansionBatch batch   = ExpansionBatch.local();
+
+        //
+        // The mutation generator is resolved when the events are
+        // applied on the simulation thread (its limits depend on the
+        // mutations generated so far), so the environment used to
+        // sample the events carries only the growth rate...
+        //
+        TumorEnv sampleEnv = null;
+
+        for (int k = start; k < end; ++k) {
+            TumorCell parent       = blockParents[k];
+            long      expansionKey = batch.select(parentKeys[k], grid.getPeriod());
+
+            if (isOccupied(overlay, expansionKey)) {
+                growthCounts[k] = null;
+                continue;
+            }
+
+            GrowthRate growthRate = getLocalGrowthRate(parent);
+
+            if (sampleEnv == null || sampleEnv.getGrowthRate() != growthRate)
+                sampleEnv = new TumorEnv(1, growthRate, null);
+
+            GrowthCount growthCount = parent.sampleGrowthCount(sampleEnv);
+
+            growthCounts[k]  = growthCount;
+            expansionKeys[k] = expansionKey;
+
+            if (growthCount.getBirthCount() > 0)
+                overlay.put(expansionKey, 1);
+            else if (growthCount.getDeathCount() > 0)
+                overlay.put(parentKeys[k], 0);
+        }
+    }
+
+    private boolean isOccupied(LongIntTable overlay, long siteKey) {
+        int state = overlay.get(siteKey);
+
+        if (state == LongIntTable.NO_VALUE)
+            return grid.isOccupied(siteKey);
+        else
+            return state == 1;
+    }
+
+    private void applySegment(int start, int end) {
+        for (int k = start; k < end; ++k) {
+            TumorCell   parent      = blockParents[k];
+            GrowthCount growthCount = growthCounts[k];
+
+            checkParentState(parent);
+
+            if (growthCount != null)
+                resolveGrid(parent, parentKeys[k], expansionKeys[k],
+                            parent.advance(reuseLocalEnv(parent), growthCount));
+
+            updateParentState(parent);
+        }
+    }
+
+    private void advanceGrid(TumorCell parent, long parentKey) {
+        //
+        // Select the expansion site and test its occupancy by Morton
+        // key; in the interior of the tumor the site is almost always
+        // occupied and the advance ends here without creating any
+        // objects...
+        //
+        long expansionKey = ExpansionBatch.local().select(parentKey, grid.getPeriod());
+
+        if (grid.isOccupied(expansionKey))
+            return;
+
+        resolveGrid(parent, parentKey, expansionKey, parent.advance(reuseLocalEnv(parent)));
+    }
+
+    private void resolveGrid(TumorCell parent, long parentKey, long expansionKey, List<TumorCell> daughters) {
+        assert daughters.isEmpty() || (daughters.size() == 2 && parent.isDead());
+
+        //
+        // The sites are identified by key throughout, so the grid and
+        // the running moments and indexes are updated without creating
+        // any coordinates...
+        //
+        if (daughters.size() == 2) {
+            removeComponent(parent, parentKey);
+
+            addComponent(daughters.get(0), parentKey);
+            addComponent(daughters.get(1), expansionKey);
+        }
+        else if (parent.isDead()) {
+            removeComponent(parent, parentKey);
+        }
+    }
+
+    private TumorEnv reuseLocalEnv(TumorCell parent) {
+        //
+        // Equivalent to createLocalEnv(parent, parentCoord, 1), which
+        // ignores the parent coordinate...
+        //
+        GrowthRate        growthRate   = getLocalGrowthRate(parent);
+        MutationGenerator mutGenerator = getLocalMutationGenerator(parent);
+
+        if (localEnv == null
+            || localEnv.getGrowthRate() != growthRate
+            || localEnv.getMutationGenerator() != mutGenerator)
+            localEnv = new TumorEnv(1, growthRate, mutGenerator);
+
+        return localEnv;
+    }
+
     @Override protected void advance(TumorCell parent) {
+        if (grid != null) {
+            advanceGrid(parent, grid.locateKey(parent));
+            return;
+        }
+
         //
         // Locate the parent and choose a neighboring site at random
-        // where a daughter cell will be placed...
+        // where a daughter cell will be placed (from a batch of
+        // displacements drawn in advance)...
         //
         Coord parentCoord    = locateComponent(parent);
-        Coord expansionCoord = selectExpansionSite(parentCoord);
+        Coord expansionCoord = ExpansionBatch.local().select(parentCoord);
 
         // The growth capacity depends on the availability of the
         // neighbor site...
         long growthCapacity =
-            lattice.isAvailable(expansionCoord) ? 1 : 0;
+            isOccupied(expansionCoord) ? 0 : 1;
 
         if (growthCapacity == 0)
             return;
@@ -165,4 +720,73 @@ public final class CellularLatticeTumor extends LatticeTumor<TumorCell> {
             removeComponent(parent, parentCoord);
         }
     }
+
+    /**
+     * Returns a read-only view of the underlying lattice.
+     *
+     * @return a read-only view of the underlying lattice.
+     *
+     * @throws UnsupportedOperationException if the cells are stored in
+     * the occupancy grid (which does not implement the lattice view);
+     * use {@code viewComponents} and {@code locateComponent} instead.
+     */
+    @Override public LatticeView<TumorCell> viewLattice() {
+        if (grid != null)
+            throw new UnsupportedOperationException("The lattice view is not available with the occupancy grid.");
+
+        return super.viewLattice();
+    }
+
+    @Override public Set<TumorCell> viewComponents() {
+        if (grid != null)
+            return grid.viewOccupants();
+        else
+            return super.viewComponents();
+    }
+
+    @Override public Set<TumorCell> viewComponents(Coord location) {
+        if (grid != null)
+            return grid.viewOccupants(location);
+        else
+            return super.viewComponents(location);
+    }
+
+    @Override protected boolean isOccupied(Coord coord) {
+        if (grid != null)
+            return grid.isOccupied(coord);
+        else
+            return super.isOccupied(coord);
+    }
+
+    @Override protected boolean isOccupied(long siteKey) {
+        if (grid != null)
+            return grid.isOccupied(siteKey);
+        else
+            return super.isOccupied(siteKey);
+    }
+
+    @Override protected boolean isAvailable(long siteKey, TumorCell cell) {
+        return !isOccupied(siteKey);
+    }
+
+    @Override protected void occupy(TumorCell cell, Coord location) {
+        if (grid != null)
+            grid.occupy(cell, location);
+        else
+            super.occupy(cell, location);
+    }
+
+    @Override protected void occupy(TumorCell cell, long siteKey) {
+        if (grid != null)
+            grid.occupy(cell, siteKey);
+        else
+            super.occupy(cell, siteKey);
+    }
+
+    @Override protected void vacate(TumorCell cell) {
+        if (grid != null)
+            grid.vacate(cell);
+        else
+            super.vacate(cell);
+    }
 }
@@ -48,6 +48,16 @@ public final class DemeLatticeTumor extends MultiCellularLatticeTumor<Deme> {
         return tumor;
     }
 
+    /**
+     * Creates an empty primary tumor, to be populated with components
+     * restored from a checkpoint (by {@code restoreComponent}).
+     *
+     * @return the new empty primary tumor.
+     */
+    public static DemeLatticeTumor empty() {
+        return new DemeLatticeTumor(null);
+    }
+
     private void seed(Deme founder) {
         addComponent(founder, FOUNDER_COORD);
     }
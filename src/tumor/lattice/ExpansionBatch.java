@@ -0,0 +1,145 @@
+
+package tumor.lattice;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import jam.lang.JamException;
+import jam.lattice.Coord;
+
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+
+/**
+ * Buffers expansion displacements drawn in batches, for loops that
+ * select one expansion site for each of many parent components.
+ *
+ * <p>Each batch is drawn from a single random stream.  The buffer
+ * is discarded whenever the current stream changes (when the trial
+ * stream is reseeded at the start of a trial), so the displacements
+ * consumed after a reseed depend only on the new seed.  The
+ * displacements remaining in a batch drawn from the trial stream
+ * have already been drawn, so they are part of the state recorded in
+ * trial checkpoints.
+ *
+ * <p>Batches are not thread-safe; each thread should use its own.
+ */
+final class ExpansionBatch {
+    private final int[] packed;
+
+    private int position;
+    private RandomStream source;
+
+    // Number of displacements drawn in each batch...
+    private static final int BATCH_SIZE = 256;
+
+    private static final ThreadLocal<ExpansionBatch> local =
+        ThreadLocal.withInitial(ExpansionBatch::new);
+
+    private ExpansionBatch() {
+        this.packed   = new int[BATCH_SIZE];
+        this.position = BATCH_SIZE;
+        this.source   = null;
+    }
+
+    /**
+     * Returns the batch for the calling thread.
+     *
+     * @return the batch for the calling thread.
+     */
+    static ExpansionBatch local() {
+        return local.get();
+    }
+
+    /**
+     * Selects an expansion site at random using the next buffered
+     * displacement, drawing a new batch from the current stream if
+     * necessary.
+     *
+     * @param parentCoord the coordinate of a parent component.
+     *
+     * @return an expansion site for the specified parent site.
+     */
+    Coord select(Coord parentCoord) {
+        return ExpansionSiteSelector.unpack(parentCoord, next());
+    }
+
+    /**
+     * Selects an expansion site at random using the next buffered
+     * displacement (without creating any coordinate objects).
+     *
+     * @param parentKey the Morton key of the canonical periodic image
+     * of a parent site.
+     *
+     * @param period the lattice period.
+     *
+     * @return the Morton key of the canonical periodic image of an
+     * expansion site for the specified parent site.
+     */
+    long select(long parentKey, int period) {
+        return ExpansionSiteSelector.unpack(parentKey, next(), period);
+    }
+
+    private int next() {
+        RandomStream current = RandomStreams.current();
+
+        if (current != source || position == BATCH_SIZE)
+            refill(current);
+
+        return packed[position++];
+    }
+
+    private void refill(RandomStream current) {
+        ExpansionSiteSelector.INSTANCE.selectPacked(current, packed, 0, BATCH_SIZE);
+
+        source   = current;
+        position = 0;
+    }
+
+    /**
+     * Writes the displacements remaining in the batch for the calling
+     * thread to a trial checkpoint.
+     *
+     * @param output the checkpoint stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    static void write(DataOutputStream output) throws IOException {
+        ExpansionBatch batch = local();
+
+        if (batch.source != RandomStreams.current()) {
+            output.writeInt(0);
+            return;
+        }
+
+        output.writeInt(BATCH_SIZE - batch.position);
+
+        for (int index = batch.position; index < BATCH_SIZE; ++index)
+            output.writeInt(batch.packed[index]);
+    }
+
+    /**
+     * Restores the displacements written by {@code write()} to the
+     * batch for the calling thread; the trial stream must already
+     * have been restored.
+     *
+     * @param input the checkpoint stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    static void read(DataInputStream input) throws IOException {
+        ExpansionBatch batch = local();
+        int remaining = input.readInt();
+
+        if (remaining < 0 || remaining > BATCH_SIZE)
+            throw JamException.runtime("Invalid expansion batch size [%d].", remaining);
+
+        batch.position = BATCH_SIZE - remaining;
+
+        for (int index = batch.position; index < BATCH_SIZE; ++index)
+            batch.packed[index] = input.readInt();
+
+        batch.source = RandomStreams.current();
+    }
+}
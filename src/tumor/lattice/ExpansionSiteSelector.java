@@ -7,11 +7,19 @@ import java.util.List;
 import jam.lattice.Coord;
 import jam.lattice.Neighborhood;
 import jam.math.DoubleComparator;
-import jam.math.JamRandom;
+
+import tumor.random.AliasTable;
+import tumor.random.RandomStream;
 
 /**
  * Selects expansion coordinates at random with a distribution that
  * produces spherical growth patterns.
+ *
+ * <p>Displacements are drawn from an {@link AliasTable} in constant
+ * time (one random word per draw).  Callers that advance many cells
+ * in sequence may draw batches of displacements in advance, encoded
+ * as packed integers, and apply them with
+ * {@link ExpansionSiteSelector#unpack(Coord, int)}.
  */
 public final class ExpansionSiteSelector {
     // Displacements from the parent coordinate...
@@ -21,6 +29,12 @@ public final class ExpansionSiteSelector {
     // selection...
     private final double[] stepCDF;
 
+    // Alias table for the displacement selection...
+    private final AliasTable stepTable;
+
+    // Displacements encoded as packed integers...
+    private final int[] stepPacked;
+
     // Number of coordinates...
     private static final int COORD_COUNT = 18;
 
@@ -37,6 +51,9 @@ public final class ExpansionSiteSelector {
 
         validateStepCoord();
         validateStepCDF();
+
+        this.stepTable  = createStepTable(stepCDF);
+        this.stepPacked = createStepPacked(stepCoord);
     }
 
     private void validateStepCoord() {
@@ -83,6 +100,82 @@ public final class ExpansionSiteSelector {
         return CDF;
     }
 
+    private static AliasTable createStepTable(double[] CDF) {
+        double[] PDF = new double[CDF.length];
+        PDF[0] = CDF[0];
+
+        for (int k = 1; k < CDF.length; ++k)
+            PDF[k] = CDF[k] - CDF[k - 1];
+
+        return AliasTable.create(PDF);
+    }
+
+    private static int[] createStepPacked(List<Coord> stepCoord) {
+        int[] packed = new int[stepCoord.size()];
+
+        for (int k = 0; k < packed.length; ++k)
+            packed[k] = pack(stepCoord.get(k));
+
+        return packed;
+    }
+
+    // Each displacement component (-1, 0, or +1) is stored with an
+    // offset of one in a two-bit field...
+    private static final int FIELD_BITS = 2;
+    private static final int FIELD_MASK = 3;
+
+    private static int pack(Coord step) {
+        return ((step.x + 1) << (2 * FIELD_BITS))
+            |  ((step.y + 1) << FIELD_BITS)
+            |   (step.z + 1);
+    }
+
+    /**
+     * Applies a packed displacement to a parent coordinate.
+     *
+     * @param parentCoord the coordinate of a parent component.
+     *
+     * @param packed a displacement returned by
+     * {@link ExpansionSiteSelector#selectPacked(RandomStream)}.
+     *
+     * @return the expansion site for the specified parent site and
+     * displacement.
+     */
+    public static Coord unpack(Coord parentCoord, int packed) {
+        int dx = ((packed >>> (2 * FIELD_BITS)) & FIELD_MASK) - 1;
+        int dy = ((packed >>> FIELD_BITS) & FIELD_MASK) - 1;
+        int dz = (packed & FIELD_MASK) - 1;
+
+        return Coord.at(parentCoord.x + dx, parentCoord.y + dy, parentCoord.z + dz);
+    }
+
+    /**
+     * Applies a packed displacement to the Morton key of a parent
+     * site on a periodic lattice (without creating any coordinate
+     * objects).
+     *
+     * @param parentKey the Morton key of the canonical periodic image
+     * of a parent site.
+     *
+     * @param packed a displacement returned by
+     * {@link ExpansionSiteSelector#selectPacked(RandomStream)}.
+     *
+     * @param period the lattice period.
+     *
+     * @return the Morton key of the canonical periodic image of the
+     * expansion site for the specified parent site and displacement.
+     */
+    public static long unpack(long parentKey, int packed, int period) {
+        int dx = ((packed >>> (2 * FIELD_BITS)) & FIELD_MASK) - 1;
+        int dy = ((packed >>> FIELD_BITS) & FIELD_MASK) - 1;
+        int dz = (packed & FIELD_MASK) - 1;
+
+        return MortonCode.encode(MortonCode.decodeX(parentKey) + dx,
+                                 MortonCode.decodeY(parentKey) + dy,
+                                 MortonCode.decodeZ(parentKey) + dz,
+                                 period);
+    }
+
     /**
      * The single global instance.
      */
@@ -97,7 +190,39 @@ public final class ExpansionSiteSelector {
      *
      * @return an expansion site for the specified parent site.
      */
-    public Coord select(Coord parentCoord, JamRandom randomSource) {
-        return parentCoord.plus(stepCoord.get(randomSource.selectCDF(stepCDF)));
+    public Coord select(Coord parentCoord, RandomStream randomSource) {
+        return parentCoord.plus(stepCoord.get(stepTable.sample(randomSource)));
+    }
+
+    /**
+     * Selects an expansion displacement at random.
+     *
+     * @param randomSource the random number source.
+     *
+     * @return the selected displacement, encoded as a packed integer
+     * (to be applied with {@link ExpansionSiteSelector#unpack(Coord, int)}).
+     */
+    public int selectPacked(RandomStream randomSource) {
+        return stepPacked[stepTable.sample(randomSource)];
+    }
+
+    /**
+     * Fills a portion of an array with expansion displacements
+     * selected at random.
+     *
+     * @param randomSource the random number source.
+     *
+     * @param packed the array to fill with packed displacements (to
+     * be applied with {@link ExpansionSiteSelector#unpack(Coord, int)}).
+     *
+     * @param fromIndex the first element to fill (inclusive).
+     *
+     * @param toIndex the last element to fill (exclusive).
+     */
+    public void selectPacked(RandomStream randomSource, int[] packed, int fromIndex, int toIndex) {
+        stepTable.sample(randomSource, packed, fromIndex, toIndex);
+
+        for (int k = fromIndex; k < toIndex; ++k)
+            packed[k] = stepPacked[packed[k]];
     }
 }
@@ -1,14 +1,19 @@
 
 package tumor.lattice;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import com.google.common.collect.HashMultiset;
@@ -23,10 +28,9 @@ import jam.lattice.Coord;
 import jam.lattice.DistanceComparator;
 import jam.lattice.Lattice;
 import jam.lattice.LatticeView;
+import jam.lattice.Neighborhood;
 import jam.math.JamRandom;
-import jam.math.VectorMoment;
 import jam.util.CollectionUtil;
-import jam.util.ListUtil;
 import jam.vector.JamVector;
 import jam.vector.VectorView;
 
@@ -36,14 +40,14 @@ import tumor.carrier.Tumor;
 import tumor.carrier.TumorCell;
 import tumor.carrier.TumorComponent;
 import tumor.carrier.TumorEnv;
+import tumor.driver.StepMetrics;
 import tumor.growth.GrowthRate;
 import tumor.growth.LocalGrowthModel;
 import tumor.migrate.MigrationModel;
 import tumor.migrate.MigrationType;
-import tumor.mutation.Genotype;
-import tumor.mutation.Mutation;
 import tumor.mutation.MutationGenerator;
 import tumor.senesce.SenescenceModel;
+import tumor.random.RandomStreams;
 import tumor.senesce.SenescenceType;
 
 /**
@@ -76,10 +80,20 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      */
     protected final SenescenceModel senescenceModel = SenescenceModel.global();
 
-    /**
-     * The random number generator.
-     */
-    protected final JamRandom randomSource = JamRandom.global();
+    // Cell-weighted moments of the occupied sites, updated as the
+    // components are added, moved, removed, or change in size...
+    private final RunningMoment cellMoment = new RunningMoment();
+
+    // Occupied sites with at least one empty nearest neighbor, updated
+    // as sites become occupied or empty; null when surface sites are
+    // found by searching along random directions...
+    private final SurfaceSiteIndex surfaceIndex =
+        resolveSurfaceIndex() ? new SurfaceSiteIndex(resolvePeriodLength(), this::isOccupied) : null;
+
+    // Total cell counts in the neighborhood examined by the senescence
+    // model, updated as the site cell counts change; null when the
+    // model examines no neighborhood or the index is disabled...
+    private final NeighborhoodCellIndex neighborhoodIndex = resolveNeighborhoodIndex(senescenceModel);
 
     // Distribution of vectors randomly located on the surface of a
     // unit sphere, used to generate random search directions for
@@ -96,6 +110,11 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
     // Or at least this distance (in units of lattice sites)...
     private static final double MIN_UNOCC_DIST = 5.0;
 
+    // The nearest-site scan gives up and sorts all occupied sites
+    // once the scanned volume exceeds this multiple of the number of
+    // components...
+    private static final long NEAREST_SCAN_VOLUME_FACTOR = 8L;
+
     /**
      * Creates a new (empty) tumor.
      *
@@ -145,6 +164,49 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      */
     public static final String PERIOD_LENGTH_PROPERTY = "tumor.lattice.periodLength";
 
+    /**
+     * Name of the system property that specifies whether or not to
+     * maintain an index of the surface sites (occupied sites with at
+     * least one empty nearest neighbor), which are then selected
+     * uniformly at random in constant time.  When disabled (the
+     * default), surface sites are found by searching outward from the
+     * center of mass along random directions.
+     *
+     * <p>The two methods select surface sites with different
+     * probabilities: the index selects every surface site with equal
+     * probability, while the directional search favors sites that
+     * subtend a larger solid angle from the center of mass.  Enabling
+     * the index therefore changes the simulated dynamics, not just
+     * their cost.
+     */
+    public static final String SURFACE_INDEX_PROPERTY = "tumor.lattice.surfaceIndex";
+
+    /**
+     * Default value for the surface index flag.
+     */
+    public static final boolean SURFACE_INDEX_DEFAULT = false;
+
+    /**
+     * Name of the system property that specifies whether or not to
+     * maintain the total cell count in the neighborhood of every site
+     * when the senescence model examines neighborhood occupancy, so
+     * that the occupancy is found with one lookup rather than one
+     * lookup for each neighbor.
+     *
+     * <p>The index is disabled by default, because every change in a
+     * site cell count must then update every site in its neighborhood.
+     * It pays off only when neighborhood occupancy is queried more
+     * often than cell counts change (under {@code NOF} senescence with
+     * a large neighborhood, for example), and it has no effect unless
+     * the senescence model examines neighborhood occupancy.
+     */
+    public static final String NEIGHBORHOOD_INDEX_PROPERTY = "tumor.lattice.neighborhoodIndex";
+
+    /**
+     * Default value for the neighborhood index flag.
+     */
+    public static final boolean NEIGHBORHOOD_INDEX_DEFAULT = false;
+
     /**
      * Computes a lattice period that is safely large enough for
      * simulations of single tumors with a given maximum size.
@@ -207,6 +269,19 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         return JamProperties.getRequiredInt(PERIOD_LENGTH_PROPERTY);
     }
 
+    private static boolean resolveSurfaceIndex() {
+        return JamProperties.getOptionalBoolean(SURFACE_INDEX_PROPERTY, SURFACE_INDEX_DEFAULT);
+    }
+
+    private static NeighborhoodCellIndex resolveNeighborhoodIndex(SenescenceModel senescenceModel) {
+        Neighborhood neighborhood = senescenceModel.getNeighborhood();
+
+        if (neighborhood != null && JamProperties.getOptionalBoolean(NEIGHBORHOOD_INDEX_PROPERTY, NEIGHBORHOOD_INDEX_DEFAULT))
+            return new NeighborhoodCellIndex(neighborhood, resolvePeriodLength());
+        else
+            return null;
+    }
+
     /**
      * Advances a parent component by one discrete time step.
      *
@@ -225,6 +300,31 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      */
     public abstract long countCells(Coord coord);
 
+    /**
+     * Returns the total number of tumor cells present in the
+     * neighborhood surrounding a given lattice site (excluding the
+     * central site itself).
+     *
+     * @param center the center of the neighborhood.
+     *
+     * @param neighborhood the neighborhood surrounding the central
+     * site.
+     *
+     * @return the total number of tumor cells present in the
+     * neighborhood.
+     */
+    public long countCells(Coord center, Neighborhood neighborhood) {
+        if (neighborhoodIndex != null && neighborhoodIndex.getNeighborhood() == neighborhood)
+            return neighborhoodIndex.count(center);
+
+        long result = 0;
+
+        for (Coord coord : neighborhood.getNeighbors(center))
+            result += countCells(coord);
+
+        return result;
+    }
+
     /**
      * Returns the governing site capacity model.
      *
@@ -244,13 +344,33 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      */
     public abstract boolean isAvailable(Coord coord, E component);
 
+    /**
+     * Identifies lattice sites, given by their Morton keys, that can
+     * accomodate a new component.
+     *
+     * <p>This default method decodes the key and calls
+     * {@code isAvailable(Coord, E)}; subclasses that index their sites
+     * by key should override it to avoid creating the coordinate.
+     *
+     * @param siteKey the Morton key for the canonical periodic image
+     * of the site to examine.
+     *
+     * @param component the component to be added at the given site.
+     *
+     * @return {@code true} iff the component can be placed at the
+     * specified site without exceeding the capacity of that site.
+     */
+    protected boolean isAvailable(long siteKey, E component) {
+        return isAvailable(MortonCode.decode(siteKey), component);
+    }
+
     /**
      * Collects the tumor components that constitute a bulk sample.
      *
-     * <p>The sampled components are obtained by sorting the occupied
-     * lattice sites by their distance from the specified center site
-     * and adding the site contents to the sample until the specified
-     * size is accumulated.
+     * <p>The sampled components are obtained by visiting the occupied
+     * lattice sites in order of their distance from the specified
+     * center site (see {@code nearestSites}) and adding the site
+     * contents to the sample until the specified size is accumulated.
      *
      * @param sampleSite the site at the center of the bulk sample
      * (may be a surface site).
@@ -267,14 +387,11 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         if (targetSize > countCells())
             throw new IllegalArgumentException("Target size exceeds tumor size.");
 
-        List<Coord> occupiedCoord = new ArrayList<Coord>(getOccupiedCoord());
-        Collections.sort(occupiedCoord, new DistanceComparator(sampleSite));
-
         long sampleSize = 0;
         Multimap<Coord, E> sampleMap = LinkedHashMultimap.create();
 
-        for (Coord coord : occupiedCoord) {
-            Collection<E> occupants = lattice.viewOccupants(coord);
+        for (Coord coord : nearestSites(sampleSite, targetSize)) {
+            Collection<E> occupants = viewComponents(coord);
 
             for (E occupant : occupants) {
                 sampleMap.put(coord, occupant);
@@ -289,6 +406,153 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         throw new IllegalStateException("Failed to meet target sample size.");
     }
 
+    /**
+     * Finds the occupied lattice sites nearest to a given site.
+     *
+     * <p>The lattice is scanned in cubic shells of increasing size
+     * around the center site, so the cost scales with the volume
+     * enclosing the nearest sites rather than with the size of the
+     * tumor.  If the enclosing volume grows much larger than the
+     * number of tumor components (when the center site lies far from
+     * the tumor or the target covers most of the tumor), the method
+     * falls back to sorting all occupied sites.
+     *
+     * @param center the site at the center of the search.
+     *
+     * @param targetCells the minimum number of cells contained in the
+     * nearest sites.
+     *
+     * @return the occupied sites in order of increasing distance from
+     * the center site, up to and including the first site at which
+     * the cumulative cell count reaches the target (or every occupied
+     * site if the tumor contains fewer cells).
+     */
+    public List<Coord> nearestSites(Coord center, long targetCells) {
+        List<Coord> sites = scanNearestSites(center, targetCells);
+
+        if (sites == null)
+            sites = sortNearestSites(center, targetCells);
+
+        return sites;
+    }
+
+    private List<Coord> scanNearestSites(Coord center, long targetCells) {
+        //
+        // After scanning the cubic shells out to half-width R, every
+        // site within Euclidean distance R of the center has been
+        // visited, so candidates at squared distance R * R or less
+        // are final and may be emitted in order...
+        //
+        List<Coord> sites = new ArrayList<Coord>();
+        PriorityQueue<Coord> candidates = new PriorityQueue<Coord>(new NearestComparator(center));
+
+        //
+        // The scanned cube must be no wider than the lattice period,
+        // or two offsets could reach the same periodic image...
+        //
+        long cellCount  = 0;
+        long maxVolume  = NEAREST_SCAN_VOLUME_FACTOR * Math.max(1L, countComponents());
+        int  maxRadius  = (lattice.getPeriod().getMaxLength() - 1) / 2;
+
+        for (int radius = 0; radius <= maxRadius; ++radius) {
+            long width = 2L * radius + 1L;
+
+            if (width * width * width > maxVolume)
+                return null;
+
+            scanShell(center, radius, candidates);
+
+            long finalDist2 = (long) radius * (long) radius;
+
+            while (!candidates.isEmpty() && Coord.computeSquaredDistance(center, candidates.peek()) <= finalDist2) {
+                Coord site = candidates.poll();
+
+                sites.add(site);
+                cellCount += countCells(site);
+
+                if (cellCount >= targetCells)
+                    return sites;
+            }
+        }
+
+        return null;
+    }
+
+    private void scanShell(Coord center, int radius, PriorityQueue<Coord> candidates) {
+        for (int dx = -radius; dx <= radius; ++dx) {
+            for (int dy = -radius; dy <= radius; ++dy) {
+                //
+                // Interior rows of the cube only touch the shell at
+                // the two z-faces...
+                //
+                boolean onFace = (Math.abs(dx) == radius) || (Math.abs(dy) == radius);
+                int     dzStep = onFace ? 1 : Math.max(1, 2 * radius);
+
+                for (int dz = -radius; dz <= radius; dz += dzStep) {
+                    Coord site = Coord.at(center.x + dx, center.y + dy, center.z + dz);
+
+                    if (isOccupiedAt(site))
+                        candidates.add(site);
+                }
+            }
+        }
+    }
+
+    private boolean isOccupiedAt(Coord site) {
+        //
+        // A periodic lattice reports a site as occupied when any of its
+        // periodic images is occupied; the site is accepted only under
+        // the coordinate where its occupants are located, so the scan
+        // agrees with the sorted list of occupied sites...
+        //
+        if (!isOccupied(site))
+            return false;
+
+        Collection<E> occupants = viewComponents(site);
+        return occupants.isEmpty() || locateComponent(occupants.iterator().next()).equals(site);
+    }
+
+    private List<Coord> sortNearestSites(Coord center, long targetCells) {
+        List<Coord> occupiedCoord = new ArrayList<Coord>(getOccupiedCoord());
+        Collections.sort(occupiedCoord, new NearestComparator(center));
+
+        long cellCount = 0;
+
+        for (int index = 0; index < occupiedCoord.size(); ++index) {
+            cellCount += countCells(occupiedCoord.get(index));
+
+            if (cellCount >= targetCells)
+                return occupiedCoord.subList(0, index + 1);
+        }
+
+        return occupiedCoord;
+    }
+
+    // Orders sites by distance from a center site, with ties broken
+    // by coordinate so that the ordering is deterministic...
+    private static final class NearestComparator implements Comparator<Coord> {
+        private final DistanceComparator distanceComparator;
+
+        NearestComparator(Coord center) {
+            this.distanceComparator = new DistanceComparator(center);
+        }
+
+        @Override public int compare(Coord c1, Coord c2) {
+            int result = distanceComparator.compare(c1, c2);
+
+            if (result == 0)
+                result = Integer.compare(c1.x, c2.x);
+
+            if (result == 0)
+                result = Integer.compare(c1.y, c2.y);
+
+            if (result == 0)
+                result = Integer.compare(c1.z, c2.z);
+
+            return result;
+        }
+    }
+
     /**
      * Collects a single tumor cell from a specified sample site.
      *
@@ -340,7 +604,23 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * specified lattice site.
      */
     public JamVector computeRadialVector(Coord coord) {
-        return coord.toVector().minus(getVectorMoment().getCM());
+        return coord.toVector().minus(cellMoment.getCM());
+    }
+
+    /**
+     * Returns the running cell-weighted moments of the occupied
+     * lattice sites.
+     *
+     * <p>The center of mass, radius of gyration, principal moments,
+     * and shape descriptors are available from the running moments in
+     * constant time, so lattice reports should use them rather than
+     * {@code getVectorMoment()}, which requires a complete scan of the
+     * tumor components.
+     *
+     * @return the running cell-weighted moments of this tumor.
+     */
+    public RunningMoment getCellMoment() {
+        return cellMoment;
     }
 
     /**
@@ -353,7 +633,7 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * lattice site.
      */
     public long countComponents(Coord coord) {
-        return lattice.countOccupants(coord);
+        return viewComponents(coord).size();
     }
 
     /**
@@ -370,13 +650,15 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         Multiset<String> typeCounts = HashMultiset.create();
 
         for (TumorComponent component : components) {
-            Genotype genotype = component.getGenotype();
-            Iterator<Mutation> iterator = genotype.scanAccumulatedMutations();
-
-            while (iterator.hasNext()) {
-                Mutation mutation = iterator.next();
-                typeCounts.add(mutation.getType().name(), (int) component.countCells());
-            }
+            //
+            // Count the types of the genotype once, without creating
+            // any range-encoded mutations, then weight by cells...
+            //
+            Multiset<String> genotypeCounts = component.getGenotype().countMutationTypes();
+            int cellCount = (int) component.countCells();
+
+            for (Multiset.Entry<String> entry : genotypeCounts.entrySet())
+                typeCounts.add(entry.getElement(), entry.getCount() * cellCount);
         }
 
         return typeCounts;
@@ -418,10 +700,8 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * @throws IllegalStateException if a surface site cannot be found.
      */
     public Coord findSurfaceSite(VectorView step) {
-        VectorMoment moment = getVectorMoment();
-
-        VectorView start = moment.getCM();
-        double     udist = Math.max(MIN_UNOCC_DIST, UNOCC_DIST_RG_FRAC * moment.scalar());
+        VectorView start = cellMoment.getCM();
+        double     udist = Math.max(MIN_UNOCC_DIST, UNOCC_DIST_RG_FRAC * cellMoment.scalar());
 
         return findSurfaceSite(start, step, udist);
     }
@@ -449,7 +729,7 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         while (true) {
             ++iterCount;
 
-            if (lattice.isOccupied(cursorSite)) {
+            if (isOccupied(cursorSite)) {
                 //
                 // Store the location of the last occupied site...
                 //
@@ -556,22 +836,30 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * found.
      */
     public Coord selectExpansionSite(Coord parentCoord) {
-        return ExpansionSiteSelector.INSTANCE.select(parentCoord, randomSource);
+        return ExpansionSiteSelector.INSTANCE.select(parentCoord, RandomStreams.current());
     }
 
     /**
      * Selects a lattice site on the surface of this tumor at random
      * (with a uniform distribution along the surface of the tumor).
      *
+     * <p>When the surface index is enabled, the site is selected
+     * uniformly from the occupied sites with at least one empty
+     * nearest neighbor in constant time; otherwise, the surface is
+     * searched along a randomly generated direction.
+     *
      * @return a randomly selected site on the surface of this tumor.
      *
      * @throws IllegalStateException if a surface site cannot be found.
      */
     public Coord selectSurfaceSite() {
+        if (surfaceIndex != null)
+            return surfaceIndex.select(RandomStreams.current());
+
         //
         // Conduct a search with a randomly generated step direction...
         //
-        return findSurfaceSite(SURFACE_DISTRIB.sample(randomSource));
+        return findSurfaceSite(SURFACE_DISTRIB.sample(JamRandom.global()));
     }
 
     /**
@@ -579,7 +867,10 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * random (with a uniform distribution along the surface of the
      * tumor).
      *
-     * <p>It is difficult to count the number of surface sites, so the
+     * <p>When the surface index is enabled, the sites are selected
+     * without replacement, so the set contains the target number of
+     * sites unless the surface contains fewer sites.  Otherwise, it
+     * is difficult to count the number of surface sites, so the
      * desired number of sites may exceed the number available. Rather
      * than iterate until the desired number of unique sites has been
      * sampled (which would result in an infinite loop), we return a
@@ -597,6 +888,13 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * @throws IllegalStateException if no surface sites can be found.
      */
     public Set<Coord> selectSurfaceSites(int sampleTrials) {
+        if (surfaceIndex != null) {
+            if (surfaceIndex.size() == 0)
+                throw new IllegalStateException("No surface site found.");
+
+            return surfaceIndex.select(sampleTrials, RandomStreams.current());
+        }
+
         Set<Coord> surfaceSites = new HashSet<Coord>(sampleTrials);
 
         for (int trialIndex = 0; trialIndex < sampleTrials; ++trialIndex)
@@ -630,6 +928,56 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * its cell capacity after adding the component.
      */
     protected void addComponent(E component, Coord location) {
+        addState(component);
+
+        boolean wasOccupied = isOccupied(location);
+
+        if (isAvailable(location, component))
+            occupy(component, location);
+        else
+            throw new IllegalStateException("Exceeded local site capacity.");
+
+        updateSurface(location, wasOccupied);
+        updateCellCounts(location, component.countCells());
+        cellMoment.add(location, component.countCells());
+    }
+
+    /**
+     * Adds a component to this tumor at a site identified by its
+     * Morton key.
+     *
+     * <p>This method performs the same bookkeeping as
+     * {@code addComponent(E, Coord)} without creating a coordinate for
+     * the site, so subclasses that override {@code addComponent(E,
+     * Coord)} must not call it.
+     *
+     * @param component the component to add.
+     *
+     * @param siteKey the Morton key for the canonical periodic image
+     * of the site where the component will be added.
+     *
+     * @throws IllegalStateException if the lattice site would exceed
+     * its cell capacity after adding the component.
+     */
+    protected void addComponent(E component, long siteKey) {
+        addState(component);
+
+        boolean wasOccupied = isOccupied(siteKey);
+
+        if (isAvailable(siteKey, component))
+            occupy(component, siteKey);
+        else
+            throw new IllegalStateException("Exceeded local site capacity.");
+
+        updateSurface(siteKey, wasOccupied);
+        updateCellCounts(siteKey, component.countCells());
+        cellMoment.add(MortonCode.decodeX(siteKey),
+                       MortonCode.decodeY(siteKey),
+                       MortonCode.decodeZ(siteKey),
+                       component.countCells());
+    }
+
+    private void addState(E component) {
         switch (component.getState()) {
         case ACTIVE:
             active.add(component);
@@ -645,11 +993,21 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         default:
             throw new IllegalStateException("Unknown component state.");
         }
+    }
 
-        if (isAvailable(location, component))
-            lattice.occupy(component, location);
-        else
-            throw new IllegalStateException("Exceeded local site capacity.");
+    private void updateSurface(Coord site, boolean wasOccupied) {
+        //
+        // The surface classification of the site and its neighbors can
+        // only change when the site becomes occupied or empty, not when
+        // a component joins or leaves a site shared with others...
+        //
+        if (surfaceIndex != null && isOccupied(site) != wasOccupied)
+            surfaceIndex.update(site);
+    }
+
+    private void updateSurface(long siteKey, boolean wasOccupied) {
+        if (surfaceIndex != null && isOccupied(siteKey) != wasOccupied)
+            surfaceIndex.update(siteKey);
     }
 
     /**
@@ -696,6 +1054,78 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         return map;
     }
 
+    /**
+     * Identifies occupied lattice sites.
+     *
+     * <p>This default method queries the underlying lattice; subclasses
+     * that store their components elsewhere must override the
+     * {@code isOccupied}, {@code occupy}, and {@code vacate} methods
+     * together with {@code locateComponent} and {@code viewComponents}.
+     *
+     * @param coord the site to examine.
+     *
+     * @return {@code true} iff one or more components occupy the
+     * specified site.
+     */
+    protected boolean isOccupied(Coord coord) {
+        return lattice.isOccupied(coord);
+    }
+
+    /**
+     * Identifies occupied lattice sites by their Morton keys.
+     *
+     * <p>This default method decodes the key and calls
+     * {@code isOccupied(Coord)}; subclasses that index their sites by
+     * key should override it to avoid creating the coordinate.
+     *
+     * @param siteKey the Morton key for the canonical periodic image
+     * of the site to examine.
+     *
+     * @return {@code true} iff one or more components occupy the
+     * specified site.
+     */
+    protected boolean isOccupied(long siteKey) {
+        return isOccupied(MortonCode.decode(siteKey));
+    }
+
+    /**
+     * Places a component at a lattice site (after the site capacity
+     * has been verified).
+     *
+     * @param component the component to place.
+     *
+     * @param location the site where the component will be placed.
+     */
+    protected void occupy(E component, Coord location) {
+        lattice.occupy(component, location);
+    }
+
+    /**
+     * Places a component at a lattice site identified by its Morton
+     * key (after the site capacity has been verified).
+     *
+     * <p>This default method decodes the key and calls
+     * {@code occupy(E, Coord)}; subclasses that index their sites by
+     * key should override it to avoid creating the coordinate.
+     *
+     * @param component the component to place.
+     *
+     * @param siteKey the Morton key for the canonical periodic image
+     * of the site where the component will be placed.
+     */
+    protected void occupy(E component, long siteKey) {
+        occupy(component, MortonCode.decode(siteKey));
+    }
+
+    /**
+     * Removes a component from its lattice site.
+     *
+     * @param component the component to remove.
+     */
+    protected void vacate(E component) {
+        lattice.vacate(component);
+    }
+
     /**
      * Moves a tumor component from one site to another.
      *
@@ -709,12 +1139,49 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
      * the component at the new location.
      */
     protected void moveComponent(E component, Coord fromCoord, Coord toCoord) {
-        lattice.vacate(component);
+        vacate(component);
+        updateSurface(fromCoord, true);
+
+        boolean wasOccupied = isOccupied(toCoord);
 
         if (isAvailable(toCoord, component))
-            lattice.occupy(component, toCoord);
+            occupy(component, toCoord);
         else
             throw new IllegalStateException("Exceeded local site capacity.");
+
+        updateSurface(toCoord, wasOccupied);
+        updateCellCounts(fromCoord, -component.countCells());
+        updateCellCounts(toCoord, component.countCells());
+        cellMoment.move(fromCoord, toCoord, component.countCells());
+    }
+
+    /**
+     * Updates the running cell moments when the number of cells at a
+     * lattice site changes without a component being added, moved, or
+     * removed (when a multi-cellular component grows or shrinks in
+     * place).
+     *
+     * @param coord the lattice site where the cell count changed.
+     *
+     * @param netChange the net change in the number of cells at the
+     * site.
+     */
+    protected void updateCellMoment(Coord coord, long netChange) {
+        updateCellCounts(coord, netChange);
+        cellMoment.add(coord, netChange);
+    }
+
+    private void updateCellCounts(Coord coord, long netChange) {
+        if (neighborhoodIndex != null)
+            neighborhoodIndex.add(coord, netChange);
+    }
+
+    private void updateCellCounts(long siteKey, long netChange) {
+        if (neighborhoodIndex != null)
+            neighborhoodIndex.add(MortonCode.decodeX(siteKey),
+                                  MortonCode.decodeY(siteKey),
+                                  MortonCode.decodeZ(siteKey),
+                                  netChange);
     }
 
     /**
@@ -736,7 +1203,38 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         //
         active.remove(component);
         senescent.remove(component);
-        lattice.vacate(component);
+        vacate(component);
+        updateSurface(location, true);
+
+        updateCellCounts(location, -component.countCells());
+        cellMoment.remove(location, component.countCells());
+    }
+
+    /**
+     * Removes a component from this tumor, given the Morton key of its
+     * last site.
+     *
+     * <p>This method performs the same bookkeeping as
+     * {@code removeComponent(E, Coord)} without creating a coordinate
+     * for the site, so subclasses that override {@code
+     * removeComponent(E, Coord)} must not call it.
+     *
+     * @param component the component to remove.
+     *
+     * @param siteKey the Morton key for the canonical periodic image
+     * of the last site occupied by the component.
+     */
+    protected void removeComponent(E component, long siteKey) {
+        active.remove(component);
+        senescent.remove(component);
+        vacate(component);
+        updateSurface(siteKey, true);
+
+        updateCellCounts(siteKey, -component.countCells());
+        cellMoment.add(MortonCode.decodeX(siteKey),
+                       MortonCode.decodeY(siteKey),
+                       MortonCode.decodeZ(siteKey),
+                       -component.countCells());
     }
 
     @Override protected List<Tumor<E>> runAdvance() {
@@ -744,21 +1242,42 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         // Advance the active tumor components in a randomized
         // order...
         //
-        advance(randomizeActiveComponents());
+        StepMetrics stepMetrics = StepMetrics.global();
+        stepMetrics.begin(StepMetrics.COMPONENT_PHASE);
+
+        advanceActive();
+        stepMetrics.end(StepMetrics.COMPONENT_PHASE);
 
         // Check for newly senescent components...
+        stepMetrics.begin(StepMetrics.SENESCE_PHASE);
         senesce();
+        stepMetrics.end(StepMetrics.SENESCE_PHASE);
 
         // Migrate after advancement...
+        stepMetrics.begin(StepMetrics.MIGRATE_PHASE);
         migrate();
+        stepMetrics.end(StepMetrics.MIGRATE_PHASE);
 
         // This base class never divides...
         return Collections.emptyList();
     }
 
+    /**
+     * Advances every active component through one time step, visiting
+     * the components in a randomized order.
+     *
+     * <p>Subclasses that store their components in a form with a
+     * cheaper randomization may override this method; overrides must
+     * call {@code checkParentState} before and {@code updateParentState}
+     * after advancing each parent.
+     */
+    protected void advanceActive() {
+        advance(randomizeActiveComponents());
+    }
+
     private List<E> randomizeActiveComponents() {
-        List<E> randomized = new ArrayList<E>(active);
-        ListUtil.shuffle(randomized, randomSource);
+        List<E> randomized = listActive();
+        RandomStreams.current().shuffle(randomized);
         
         return randomized;
     }
@@ -771,12 +1290,25 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         }
     }
 
-    private void checkParentState(E parent) {
+    /**
+     * Verifies that a parent component may be advanced.
+     *
+     * @param parent the parent component about to be advanced.
+     *
+     * @throws IllegalStateException unless the parent is active.
+     */
+    protected void checkParentState(E parent) {
         if (!parent.isActive())
             throw new IllegalStateException("Only active parents should advance.");
     }
 
-    private void updateParentState(E parent) {
+    /**
+     * Moves a parent component that has just been advanced into the
+     * collection matching its new replication state.
+     *
+     * @param parent the parent component that was advanced.
+     */
+    protected void updateParentState(E parent) {
         switch (parent.getState()) {
         case ACTIVE:
             // Active components should never be empty...
@@ -792,7 +1324,7 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
 
         case DEAD:
             // Subclasses should remove dead parents...
-            assert !lattice.contains(parent);
+            assert !viewComponents().contains(parent);
             break;
 
         default:
@@ -825,15 +1357,30 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
         if (migrationModel.getType() == MigrationType.PINNED)
             return;
 
-        // Migrate the active tumor components in a randomized
-        // order...
+        migrateActive();
+    }
+
+    /**
+     * Migrates every active component, visiting the components in a
+     * randomized order.
+     *
+     * <p>Subclasses that override {@code advanceActive} may override
+     * this method to reuse the same randomization.
+     */
+    protected void migrateActive() {
         List<E> randomized = randomizeActiveComponents();
 
         for (E component : randomized)
             migrate(component);
     }
 
-    private void migrate(E component) {
+    /**
+     * Moves a single component to the site selected by the migration
+     * model (if any).
+     *
+     * @param component the component to migrate.
+     */
+    protected void migrate(E component) {
         Coord fromCoord = locateComponent(component);
         Coord toCoord   = migrationModel.migrate(this, component);
 
@@ -841,6 +1388,36 @@ public abstract class LatticeTumor<E extends TumorComponent> extends Tumor<E> {
             moveComponent(component, fromCoord, toCoord);
     }
 
+    @Override public void restoreComponent(E component, Coord location) {
+        addComponent(component, location);
+    }
+
+    @Override public void writeOrder(DataOutputStream output) throws IOException {
+        super.writeOrder(output);
+
+        // Surface sites are selected by their position in the index...
+        output.writeBoolean(surfaceIndex != null);
+
+        if (surfaceIndex != null)
+            writeIndexes(output, surfaceIndex.captureKeys());
+
+        // Expansion sites are selected with displacements buffered
+        // from the trial stream...
+        ExpansionBatch.write(output);
+    }
+
+    @Override public void readOrder(DataInputStream input) throws IOException {
+        super.readOrder(input);
+
+        if (input.readBoolean() != (surfaceIndex != null))
+            throw JamException.runtime("Checkpoint and simulation disagree on the surface site index.");
+
+        if (surfaceIndex != null)
+            surfaceIndex.restoreKeys(readIndexes(input));
+
+        ExpansionBatch.read(input);
+    }
+
     @Override public Coord locateComponent(E component) {
         Coord coord = lattice.locate(component);
 
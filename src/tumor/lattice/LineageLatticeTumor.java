@@ -1,18 +1,12 @@
 
 package tumor.lattice;
 
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-
-import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
 import jam.lattice.Coord;
 import jam.lattice.Lattice;
 
 import tumor.carrier.Carrier;
-import tumor.carrier.GenotypeMap;
 import tumor.carrier.Lineage;
 import tumor.carrier.TumorEnv;
 
@@ -35,8 +29,6 @@ public final class LineageLatticeTumor extends MultiCellularLatticeTumor<Lineage
     // cells between identical lineages rather than dividing lineages
     // and placing a new instance on a neighbor site.
     //
-    private final Map<Coord, GenotypeMap> genotypeMaps = new HashMap<Coord, GenotypeMap>();
-    
     // A large tumor with high mutation rates may contain hundreds of
     // lineages at each site.  Computing the total number of cells at
     // a site by explicitly iterating over each lineage becomes a
@@ -45,8 +37,12 @@ public final class LineageLatticeTumor extends MultiCellularLatticeTumor<Lineage
     // when lineages change their cell count, produce offspring, or
     // die.  The multi-cellular superclass maintains a cache of the
     // total cell count in the tumor.
-    private final Object2LongOpenHashMap<Coord> siteCellCounts =
-        new Object2LongOpenHashMap<Coord>();
+    //
+    // The genotype index and the cell count for each site are stored
+    // together in a compact table keyed by the packed site
+    // coordinates...
+    //
+    private final LineageSiteTable siteTable = new LineageSiteTable();
 
     private LineageLatticeTumor(LineageLatticeTumor parent) {
         super(parent, createLineageLattice());
@@ -73,6 +69,16 @@ public final class LineageLatticeTumor extends MultiCellularLatticeTumor<Lineage
         return tumor;
     }
 
+    /**
+     * Creates an empty primary tumor, to be populated with components
+     * restored from a checkpoint (by {@code restoreComponent}).
+     *
+     * @return the new empty primary tumor.
+     */
+    public static LineageLatticeTumor empty() {
+        return new LineageLatticeTumor(null);
+    }
+
     private void seed(Lineage founder) {
         addComponent(founder, FOUNDER_COORD);
     }
@@ -82,8 +88,10 @@ public final class LineageLatticeTumor extends MultiCellularLatticeTumor<Lineage
         // Enable assertions to check the consistency of the cached
         // cell counts...
         //
-        assert siteCellCounts.getLong(coord) == Carrier.countCells(lattice.viewOccupants(coord));
-        return siteCellCounts.getLong(coord);
+        long siteCount = siteTable.countCells(MortonCode.encode(coord));
+
+        assert siteCount == Carrier.countCells(lattice.viewOccupants(coord));
+        return siteCount;
     }
 
     @Override public boolean isAvailable(Coord coord, Lineage lineage) {
@@ -206,12 +214,7 @@ public final class LineageLatticeTumor extends MultiCellularLatticeTumor<Lineage
     }
 
     private Lineage findClone(Lineage lineage, Coord coord) {
-        GenotypeMap genoMap = genotypeMaps.get(coord);
-
-        if (genoMap != null)
-            return genoMap.getUnique(lineage.getGenotype());
-        else
-            return null;
+        return siteTable.findUnique(MortonCode.encode(coord), lineage.getGenotype());
     }
 
     @Override protected long computeExpansionFreeCapacity(Coord expansionCoord) {
@@ -233,59 +236,29 @@ public final class LineageLatticeTumor extends MultiCellularLatticeTumor<Lineage
             super.updateComponentCellCount(component, location);
 
             // We update the site-specific count...
-            siteCellCounts.addTo(location, netChange);
+            siteTable.addCells(MortonCode.encode(location), netChange);
         }
     }
 
     @Override protected void addComponent(Lineage component, Coord location) {
         super.addComponent(component, location);
-
-        addCellCount(location, component);
-        addGenotype(location, component);
-    }
-
-    private void addCellCount(Coord location, Lineage component) {
-        siteCellCounts.addTo(location, component.countCells());
-    }
-
-    private void addGenotype(Coord location, Lineage component) {
-        getGenotypeMap(location).add(component);
-    }
-
-    private GenotypeMap getGenotypeMap(Coord location) {
-        GenotypeMap genotypeMap = genotypeMaps.get(location);
-
-        if (genotypeMap == null) {
-            genotypeMap = new GenotypeMap();
-            genotypeMaps.put(location, genotypeMap);
-        }
-
-        return genotypeMap;
+        siteTable.add(MortonCode.encode(location), component);
     }
 
     @Override protected void moveComponent(Lineage component, Coord fromCoord, Coord toCoord) {
         super.moveComponent(component, fromCoord, toCoord);
 
-        removeCellCount(fromCoord, component);
-        removeGenotype(fromCoord, component);
-        
-        addCellCount(toCoord, component);
-        addGenotype(toCoord, component);
-    }
-
-    private void removeCellCount(Coord location, Lineage component) {
-        siteCellCounts.addTo(location, -component.countCells());
+        removeSiteState(fromCoord, component);
+        siteTable.add(MortonCode.encode(toCoord), component);
     }
 
-    private void removeGenotype(Coord location, Lineage component) {
-        if (!getGenotypeMap(location).remove(component))
+    private void removeSiteState(Coord location, Lineage component) {
+        if (!siteTable.remove(MortonCode.encode(location), component))
             throw new IllegalStateException("Lineage genotype was not mapped.");
     }
 
     @Override protected void removeComponent(Lineage component, Coord location) {
         super.removeComponent(component, location);
-
-        removeCellCount(location, component);
-        removeGenotype(location, component);
+        removeSiteState(location, component);
     }
 }
@@ -0,0 +1,425 @@
+
+package tumor.lattice;
+
+import java.util.Arrays;
+
+import tumor.carrier.Lineage;
+import tumor.mutation.Genotype;
+
+/**
+ * Maintains the cell count and the resident lineages (indexed by
+ * genotype) at each occupied site of a lineage lattice tumor.
+ *
+ * <p><b>Layout.</b> Sites are packed into {@code long} keys by
+ * {@link MortonCode}, which are mapped to compact slot numbers in an
+ * open-addressing {@link LongIntTable}.  The per-site state is stored
+ * in parallel arrays indexed by slot: the
+ * cell count, the number of resident lineages, and a small
+ * open-addressing table of the lineages, probed by the identity hash
+ * of their genotypes.  (Genotypes do not override {@code equals}, so
+ * clones are lineages that share the same genotype instance.)  A site
+ * with a single lineage requires a few dozen bytes, compared with
+ * several hundred for a {@code Coord}, a map entry, and a hash
+ * multimap per site.  Slots released by sites that become empty are
+ * reused by the next sites to be occupied in the same shard.
+ *
+ * <p><b>Concurrency.</b> The sites are divided among independent
+ * shards by a hash of their keys; each shard holds its own slot table
+ * and per-site arrays and is guarded by its own lock.  Every method
+ * is atomic, and operations on sites in different shards proceed
+ * concurrently, so threads that update different sites rarely
+ * contend.  The cell count of a lineage is read when the lineage is
+ * added or removed, so callers must not change that count
+ * concurrently.
+ */
+public final class LineageSiteTable {
+    private final Shard[] shards;
+    private final int shardMask;
+
+    /**
+     * Default number of shards.
+     */
+    public static final int DEFAULT_SHARD_COUNT = 64;
+
+    private static final int INITIAL_SLOTS = 64;
+
+    // Capacity of the lineage table for a new site...
+    private static final int INITIAL_LINEAGE_CAPACITY = 2;
+
+    // Multiplier for Fibonacci hashing of genotypes and site keys...
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Creates an empty table with the default number of shards.
+     */
+    public LineageSiteTable() {
+        this(DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * Creates an empty table.
+     *
+     * @param shardCount the number of independently locked shards.
+     *
+     * @throws IllegalArgumentException unless the shard count is a
+     * positive power of two.
+     */
+    public LineageSiteTable(int shardCount) {
+        if (shardCount < 1 || Integer.bitCount(shardCount) != 1)
+            throw new IllegalArgumentException("Shard count must be a positive power of two.");
+
+        this.shards    = new Shard[shardCount];
+        this.shardMask = shardCount - 1;
+
+        for (int index = 0; index < shardCount; ++index)
+            shards[index] = new Shard();
+    }
+
+    private Shard shard(long siteKey) {
+        //
+        // Morton keys of neighboring sites differ in their low bits,
+        // so the keys are mixed before they are assigned to shards...
+        //
+        return shards[(int) ((siteKey * GOLDEN_GAMMA) >>> 32) & shardMask];
+    }
+
+    /**
+     * Returns the total number of cells at a site.
+     *
+     * @param siteKey the Morton key of the site.
+     *
+     * @return the total number of cells at the specified site (zero
+     * if the site is empty).
+     */
+    public long countCells(long siteKey) {
+        Shard shard = shard(siteKey);
+
+        synchronized (shard) {
+            return shard.countCells(siteKey);
+        }
+    }
+
+    /**
+     * Returns the number of lineages at a site.
+     *
+     * @param siteKey the Morton key of the site.
+     *
+     * @return the number of lineages at the specified site.
+     */
+    public int countLineages(long siteKey) {
+        Shard shard = shard(siteKey);
+
+        synchronized (shard) {
+            return shard.countLineages(siteKey);
+        }
+    }
+
+    /**
+     * Returns the number of occupied sites.
+     *
+     * <p>The shards are counted one at a time, so the result is exact
+     * only when no other thread is modifying the table.
+     *
+     * @return the number of occupied sites.
+     */
+    public int countSites() {
+        int count = 0;
+
+        for (Shard shard : shards)
+            synchronized (shard) {
+                count += shard.slotTable.size();
+            }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of slots allocated for site state (occupied
+     * sites plus released slots awaiting reuse).
+     *
+     * <p>The shards are counted one at a time, so the result is exact
+     * only when no other thread is modifying the table.
+     *
+     * @return the number of slots allocated for site state.
+     */
+    public int countSlots() {
+        int count = 0;
+
+        for (Shard shard : shards)
+            synchronized (shard) {
+                count += shard.nextSlot;
+            }
+
+        return count;
+    }
+
+    /**
+     * Adds a lineage (and its cells) to a site.
+     *
+     * @param siteKey the Morton key of the site.
+     *
+     * @param lineage the lineage to add.
+     */
+    public void add(long siteKey, Lineage lineage) {
+        Shard shard = shard(siteKey);
+
+        synchronized (shard) {
+            shard.add(siteKey, lineage);
+        }
+    }
+
+    /**
+     * Adds (or subtracts) cells at a site without a change in the
+     * resident lineages.
+     *
+     * @param siteKey the Morton key of an occupied site.
+     *
+     * @param netChange the net change in the cell count.
+     *
+     * @throws IllegalStateException if the site is empty.
+     */
+    public void addCells(long siteKey, long netChange) {
+        Shard shard = shard(siteKey);
+
+        synchronized (shard) {
+            shard.addCells(siteKey, netChange);
+        }
+    }
+
+    /**
+     * Finds the lineage at a site with a given genotype.
+     *
+     * @param siteKey the Morton key of the site.
+     *
+     * @param genotype the genotype to find.
+     *
+     * @return the lineage at the specified site with the specified
+     * genotype, or {@code null} if there is no such lineage.
+     *
+     * @throws IllegalStateException if multiple lineages at the site
+     * share the genotype.
+     */
+    public Lineage findUnique(long siteKey, Genotype genotype) {
+        Shard shard = shard(siteKey);
+
+        synchronized (shard) {
+            return shard.findUnique(siteKey, genotype);
+        }
+    }
+
+    /**
+     * Removes a lineage (and its cells) from a site.
+     *
+     * @param siteKey the Morton key of the site.
+     *
+     * @param lineage the lineage to remove.
+     *
+     * @return {@code true} iff the lineage was present at the site.
+     */
+    public boolean remove(long siteKey, Lineage lineage) {
+        Shard shard = shard(siteKey);
+
+        synchronized (shard) {
+            return shard.remove(siteKey, lineage);
+        }
+    }
+
+    // The site state for the keys assigned to one shard; callers must
+    // hold the lock on the shard...
+    private static final class Shard {
+        // Site key to slot number...
+        private final LongIntTable slotTable = new LongIntTable(INITIAL_SLOTS);
+
+        // Per-site state, indexed by slot number...
+        private long[]      cellCounts    = new long[INITIAL_SLOTS];
+        private int[]       lineageCounts = new int[INITIAL_SLOTS];
+        private Lineage[][] lineages      = new Lineage[INITIAL_SLOTS][];
+
+        // Slots released by sites that have become empty...
+        private int[] freeSlots = new int[INITIAL_SLOTS];
+        private int   freeCount = 0;
+        private int   nextSlot  = 0;
+
+        private long countCells(long siteKey) {
+            int slot = slotTable.get(siteKey);
+
+            if (slot == LongIntTable.NO_VALUE)
+                return 0L;
+            else
+                return cellCounts[slot];
+        }
+
+        private int countLineages(long siteKey) {
+            int slot = slotTable.get(siteKey);
+
+            if (slot == LongIntTable.NO_VALUE)
+                return 0;
+            else
+                return lineageCounts[slot];
+        }
+
+        private void add(long siteKey, Lineage lineage) {
+            int slot = slotTable.get(siteKey);
+
+            if (slot == LongIntTable.NO_VALUE)
+                slot = allocateSlot(siteKey);
+
+            // Keep the lineage table at most half full...
+            if (2 * (lineageCounts[slot] + 1) > lineages[slot].length)
+                lineages[slot] = rehash(lineages[slot], 2 * lineages[slot].length);
+
+            insert(lineages[slot], lineage);
+
+            lineageCounts[slot] += 1;
+            cellCounts[slot]    += lineage.countCells();
+        }
+
+        private void addCells(long siteKey, long netChange) {
+            int slot = slotTable.get(siteKey);
+
+            if (slot == LongIntTable.NO_VALUE)
+                throw new IllegalStateException("Site is not occupied.");
+
+            cellCounts[slot] += netChange;
+        }
+
+        private Lineage findUnique(long siteKey, Genotype genotype) {
+            int slot = slotTable.get(siteKey);
+
+            if (slot == LongIntTable.NO_VALUE)
+                return null;
+
+            Lineage[] table = lineages[slot];
+            Lineage   found = null;
+
+            int mask  = table.length - 1;
+            int index = genotypeHash(genotype) & mask;
+
+            while (table[index] != null) {
+                if (table[index].getGenotype() == genotype) {
+                    if (found != null)
+                        throw new IllegalStateException("Multiple lineages share the ostensibly unique genotype.");
+
+                    found = table[index];
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            return found;
+        }
+
+        private boolean remove(long siteKey, Lineage lineage) {
+            int slot = slotTable.get(siteKey);
+
+            if (slot == LongIntTable.NO_VALUE)
+                return false;
+
+            if (!delete(lineages[slot], lineage))
+                return false;
+
+            lineageCounts[slot] -= 1;
+            cellCounts[slot]    -= lineage.countCells();
+
+            if (lineageCounts[slot] == 0) {
+                assert cellCounts[slot] == 0L;
+                releaseSlot(siteKey, slot);
+            }
+
+            return true;
+        }
+
+        private int allocateSlot(long siteKey) {
+            int slot;
+
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            }
+            else {
+                if (nextSlot == cellCounts.length) {
+                    int capacity = 2 * cellCounts.length;
+
+                    cellCounts    = Arrays.copyOf(cellCounts, capacity);
+                    lineageCounts = Arrays.copyOf(lineageCounts, capacity);
+                    lineages      = Arrays.copyOf(lineages, capacity);
+                }
+
+                slot = nextSlot++;
+            }
+
+            cellCounts[slot]    = 0L;
+            lineageCounts[slot] = 0;
+            lineages[slot]      = new Lineage[INITIAL_LINEAGE_CAPACITY];
+
+            slotTable.put(siteKey, slot);
+            return slot;
+        }
+
+        private void releaseSlot(long siteKey, int slot) {
+            slotTable.remove(siteKey);
+            lineages[slot] = null;
+
+            if (freeCount == freeSlots.length)
+                freeSlots = Arrays.copyOf(freeSlots, 2 * freeSlots.length);
+
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    private static int genotypeHash(Genotype genotype) {
+        return (int) ((System.identityHashCode(genotype) * GOLDEN_GAMMA) >>> 32);
+    }
+
+    private static void insert(Lineage[] table, Lineage lineage) {
+        int mask  = table.length - 1;
+        int index = genotypeHash(lineage.getGenotype()) & mask;
+
+        while (table[index] != null)
+            index = (index + 1) & mask;
+
+        table[index] = lineage;
+    }
+
+    private static Lineage[] rehash(Lineage[] table, int capacity) {
+        Lineage[] result = new Lineage[capacity];
+
+        for (Lineage lineage : table)
+            if (lineage != null)
+                insert(result, lineage);
+
+        return result;
+    }
+
+    private static boolean delete(Lineage[] table, Lineage lineage) {
+        int mask  = table.length - 1;
+        int index = genotypeHash(lineage.getGenotype()) & mask;
+
+        while (table[index] != lineage) {
+            if (table[index] == null)
+                return false;
+
+            index = (index + 1) & mask;
+        }
+
+        // Shift subsequent entries in the probe cluster backward to
+        // fill the gap, so that lookups never need tombstones...
+        int gap  = index;
+        int next = (gap + 1) & mask;
+
+        while (table[next] != null) {
+            int home = genotypeHash(table[next].getGenotype()) & mask;
+
+            // Move the entry unless its home lies cyclically in the
+            // range (gap, next]...
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        table[gap] = null;
+        return true;
+    }
+}
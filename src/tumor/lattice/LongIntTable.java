@@ -0,0 +1,207 @@
+
+package tumor.lattice;
+
+import java.util.Arrays;
+
+/**
+ * Maps non-negative {@code long} keys to {@code int} values in an
+ * open-addressing hash table with linear probing.
+ *
+ * <p>Keys and values are stored in parallel primitive arrays, so the
+ * table creates no objects on lookup, insertion, or removal (apart
+ * from the occasional resize).
+ */
+final class LongIntTable {
+    private long[] keys;
+    private int[]  values;
+    private int    mask;
+    private int    size;
+
+    // Marks empty slots; all valid keys are non-negative...
+    private static final long EMPTY_KEY = -1L;
+
+    // The smallest table allocated; the table doubles in size when
+    // its load factor exceeds one-half...
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The value returned for keys that are not present.
+     */
+    static final int NO_VALUE = -1;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param expectedSize the number of keys expected to be stored.
+     */
+    LongIntTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+
+        while (capacity < 2 * size)
+            capacity <<= 1;
+
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        this.keys   = new long[capacity];
+        this.values = new int[capacity];
+        this.mask   = capacity - 1;
+
+        Arrays.fill(keys, EMPTY_KEY);
+    }
+
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private int find(long key) {
+        int slot = home(key);
+
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == key)
+                return slot;
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Determines whether a key is present in this table.
+     *
+     * @param key the key of interest.
+     *
+     * @return {@code true} iff the key is present in this table.
+     */
+    boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Retrieves the value mapped to a key.
+     *
+     * @param key the key of interest.
+     *
+     * @return the value mapped to the key, or {@code NO_VALUE} if the
+     * key is not present.
+     */
+    int get(long key) {
+        int slot = find(key);
+
+        if (slot >= 0)
+            return values[slot];
+        else
+            return NO_VALUE;
+    }
+
+    /**
+     * Maps a key to a value.
+     *
+     * @param key the (non-negative) key.
+     *
+     * @param value the value to map.
+     *
+     * @return the value previously mapped to the key, or
+     * {@code NO_VALUE} if the key was not present.
+     *
+     * @throws IllegalArgumentException if the key is negative.
+     */
+    int put(long key, int value) {
+        if (key < 0)
+            throw new IllegalArgumentException("Keys must be non-negative.");
+
+        int slot = home(key);
+
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot]   = key;
+        values[slot] = value;
+
+        if (++size > keys.length / 2)
+            resize(2 * keys.length);
+
+        return NO_VALUE;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys   = keys;
+        int[]  oldValues = values;
+
+        allocate(capacity);
+
+        for (int slot = 0; slot < oldKeys.length; ++slot) {
+            if (oldKeys[slot] != EMPTY_KEY) {
+                int newSlot = home(oldKeys[slot]);
+
+                while (keys[newSlot] != EMPTY_KEY)
+                    newSlot = (newSlot + 1) & mask;
+
+                keys[newSlot]   = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    /**
+     * Removes a key from this table.
+     *
+     * @param key the key to remove.
+     *
+     * @return the value that was mapped to the key, or
+     * {@code NO_VALUE} if the key was not present.
+     */
+    int remove(long key) {
+        int slot = find(key);
+
+        if (slot < 0)
+            return NO_VALUE;
+
+        int removed = values[slot];
+
+        // Shift later entries in the probe sequence back into the gap
+        // so that no tombstones are required...
+        int gap  = slot;
+        int next = (gap + 1) & mask;
+
+        while (keys[next] != EMPTY_KEY) {
+            int home = home(keys[next]);
+
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap]   = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        keys[gap] = EMPTY_KEY;
+        --size;
+
+        return removed;
+    }
+
+    /**
+     * Returns the number of keys in this table.
+     *
+     * @return the number of keys in this table.
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,207 @@
+
+package tumor.lattice;
+
+import jam.lattice.Coord;
+
+/**
+ * Packs three-dimensional lattice coordinates into a single
+ * {@code long} key by interleaving their bits (Morton or Z-order
+ * encoding).
+ *
+ * <p>Each coordinate is offset by {@code 2^20} and stored in 21 bits,
+ * so coordinates in the range {@code [-2^20, 2^20)} are supported and
+ * every key is non-negative.  Sites that are close together on the
+ * lattice tend to have keys that are close together, which improves
+ * the memory locality of tables indexed by the keys.
+ */
+public final class MortonCode {
+    private MortonCode() {}
+
+    // Number of bits stored for each coordinate...
+    private static final int BITS_PER_COORD = 21;
+
+    // Coordinates are offset by this value to make them non-negative...
+    private static final int OFFSET = 1 << (BITS_PER_COORD - 1);
+
+    // Mask for the bits of a single coordinate...
+    private static final long COORD_MASK = (1L << BITS_PER_COORD) - 1L;
+
+    /**
+     * The smallest coordinate value that may be encoded.
+     */
+    public static final int MIN_COORD = -OFFSET;
+
+    /**
+     * The largest coordinate value that may be encoded.
+     */
+    public static final int MAX_COORD = OFFSET - 1;
+
+    /**
+     * The longest lattice period that may be encoded: every site on a
+     * periodic lattice with this period (or a shorter one) has a
+     * periodic image in the encoding range.
+     */
+    public static final int MAX_PERIOD = 2 * OFFSET;
+
+    /**
+     * Encodes a lattice site.
+     *
+     * @param coord the lattice site to encode.
+     *
+     * @return the Morton key for the specified site.
+     *
+     * @throws IllegalArgumentException unless each coordinate is in
+     * the range {@code [MIN_COORD, MAX_COORD]}.
+     */
+    public static long encode(Coord coord) {
+        return encode(coord.x, coord.y, coord.z);
+    }
+
+    /**
+     * Encodes a lattice site.
+     *
+     * @param x the x-coordinate of the site.
+     *
+     * @param y the y-coordinate of the site.
+     *
+     * @param z the z-coordinate of the site.
+     *
+     * @return the Morton key for the specified site.
+     *
+     * @throws IllegalArgumentException unless each coordinate is in
+     * the range {@code [MIN_COORD, MAX_COORD]}.
+     */
+    public static long encode(int x, int y, int z) {
+        return spread(offset(x)) | (spread(offset(y)) << 1) | (spread(offset(z)) << 2);
+    }
+
+    /**
+     * Encodes a site on a periodic lattice by the key of its periodic
+     * image in the range {@code [-(period / 2), period - period / 2)}
+     * along each axis, so that every periodic image of a site has the
+     * same key and sites near the origin keep their coordinates.
+     *
+     * @param x the x-coordinate of the site.
+     *
+     * @param y the y-coordinate of the site.
+     *
+     * @param z the z-coordinate of the site.
+     *
+     * @param period the lattice period, which must have been
+     * validated by {@code validatePeriod()}.
+     *
+     * @return the Morton key for the periodic image of the specified
+     * site.
+     */
+    public static long encode(int x, int y, int z, int period) {
+        return encode(wrap(x, period), wrap(y, period), wrap(z, period));
+    }
+
+    /**
+     * Maps a coordinate to its periodic image in the range
+     * {@code [-(period / 2), period - period / 2)}.
+     *
+     * @param coord the coordinate to map.
+     *
+     * @param period the lattice period.
+     *
+     * @return the periodic image of the specified coordinate.
+     */
+    public static int wrap(int coord, int period) {
+        int half = period / 2;
+        return Math.floorMod(coord + half, period) - half;
+    }
+
+    /**
+     * Ensures that every site on a periodic lattice has a periodic
+     * image in the encoding range.
+     *
+     * @param period the lattice period.
+     *
+     * @throws IllegalArgumentException unless the period is positive
+     * and no longer than {@code MAX_PERIOD}.
+     */
+    public static void validatePeriod(int period) {
+        if (period < 1 || period > MAX_PERIOD)
+            throw new IllegalArgumentException("Lattice period is outside the encoding range.");
+    }
+
+    private static long offset(int coord) {
+        if (coord < MIN_COORD || coord > MAX_COORD)
+            throw new IllegalArgumentException("Coordinate is outside the encoding range.");
+
+        return coord + OFFSET;
+    }
+
+    /**
+     * Decodes a Morton key.
+     *
+     * @param key a key created by {@code encode()}.
+     *
+     * @return the lattice site with the specified key.
+     */
+    public static Coord decode(long key) {
+        return Coord.at(decodeX(key), decodeY(key), decodeZ(key));
+    }
+
+    /**
+     * Decodes the x-coordinate from a Morton key.
+     *
+     * @param key a key created by {@code encode()}.
+     *
+     * @return the x-coordinate of the site with the specified key.
+     */
+    public static int decodeX(long key) {
+        return (int) (compact(key) - OFFSET);
+    }
+
+    /**
+     * Decodes the y-coordinate from a Morton key.
+     *
+     * @param key a key created by {@code encode()}.
+     *
+     * @return the y-coordinate of the site with the specified key.
+     */
+    public static int decodeY(long key) {
+        return (int) (compact(key >>> 1) - OFFSET);
+    }
+
+    /**
+     * Decodes the z-coordinate from a Morton key.
+     *
+     * @param key a key created by {@code encode()}.
+     *
+     * @return the z-coordinate of the site with the specified key.
+     */
+    public static int decodeZ(long key) {
+        return (int) (compact(key >>> 2) - OFFSET);
+    }
+
+    private static long spread(long value) {
+        //
+        // Insert two zero bits between each of the lowest 21 bits...
+        //
+        value &= COORD_MASK;
+        value = (value | (value << 32)) & 0x001f00000000ffffL;
+        value = (value | (value << 16)) & 0x001f0000ff0000ffL;
+        value = (value | (value <<  8)) & 0x100f00f00f00f00fL;
+        value = (value | (value <<  4)) & 0x10c30c30c30c30c3L;
+        value = (value | (value <<  2)) & 0x1249249249249249L;
+
+        return value;
+    }
+
+    private static long compact(long value) {
+        //
+        // The inverse of spread()...
+        //
+        value &= 0x1249249249249249L;
+        value = (value ^ (value >>>  2)) & 0x10c30c30c30c30c3L;
+        value = (value ^ (value >>>  4)) & 0x100f00f00f00f00fL;
+        value = (value ^ (value >>>  8)) & 0x001f0000ff0000ffL;
+        value = (value ^ (value >>> 16)) & 0x001f00000000ffffL;
+        value = (value ^ (value >>> 32)) & COORD_MASK;
+
+        return value;
+    }
+}
@@ -113,6 +113,7 @@ public abstract class MultiCellularLatticeTumor<E extends MultiCellularComponent
      */
     protected void updateComponentCellCount(E component, Coord coord) {
         totalCellCount += component.netChange();
+        updateCellMoment(coord, component.netChange());
     }
 
     @Override public long countCells() {
@@ -0,0 +1,121 @@
+
+package tumor.lattice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jam.lattice.Coord;
+import jam.lattice.Neighborhood;
+
+/**
+ * Maintains the total number of cells in the neighborhood surrounding
+ * every lattice site (excluding the central site itself).
+ *
+ * <p>The tumor reports every change in the cell count of a site; the
+ * index then adds the change to the neighborhood totals of the sites
+ * whose neighborhood contains that site.  The lattice neighborhoods
+ * are symmetric, so those are the neighbors of the site itself.  The
+ * totals are stored in a {@link BlockGrid}, so the neighborhood
+ * occupancy of a site is found with a single lookup rather than one
+ * lookup for each neighbor.
+ *
+ * <p>The lattice is periodic: the totals are stored at the canonical
+ * periodic image of every site (see {@link MortonCode#wrap(int, int)}),
+ * so a change near one face of the lattice is counted in the
+ * neighborhoods of the sites across the opposite face.
+ */
+final class NeighborhoodCellIndex {
+    private final int period;
+    private final Neighborhood neighborhood;
+    private final BlockGrid cellCounts = new BlockGrid(0L);
+
+    // The neighborhood offsets, unpacked once so that updates do not
+    // iterate over the neighborhood...
+    private final int[] dx;
+    private final int[] dy;
+    private final int[] dz;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param neighborhood the neighborhood to track.
+     *
+     * @param period the length of the periodic lattice along each
+     * dimension.
+     */
+    NeighborhoodCellIndex(Neighborhood neighborhood, int period) {
+        this.period = period;
+        this.neighborhood = neighborhood;
+
+        List<Coord> offsets = new ArrayList<Coord>();
+
+        for (Coord offset : neighborhood)
+            offsets.add(offset);
+
+        this.dx = new int[offsets.size()];
+        this.dy = new int[offsets.size()];
+        this.dz = new int[offsets.size()];
+
+        for (int k = 0; k < offsets.size(); ++k) {
+            dx[k] = offsets.get(k).x;
+            dy[k] = offsets.get(k).y;
+            dz[k] = offsets.get(k).z;
+        }
+    }
+
+    /**
+     * Updates the index after the cell count of a site has changed.
+     *
+     * @param site the site whose cell count has changed.
+     *
+     * @param netChange the net change in the cell count of the site.
+     */
+    void add(Coord site, long netChange) {
+        add(site.x, site.y, site.z, netChange);
+    }
+
+    /**
+     * Updates the index after the cell count of a site, given by its
+     * coordinates, has changed.
+     *
+     * @param x the x-coordinate of the site.
+     *
+     * @param y the y-coordinate of the site.
+     *
+     * @param z the z-coordinate of the site.
+     *
+     * @param netChange the net change in the cell count of the site.
+     */
+    void add(int x, int y, int z, long netChange) {
+        if (netChange == 0)
+            return;
+
+        for (int k = 0; k < dx.length; ++k)
+            cellCounts.add(wrap(x + dx[k]), wrap(y + dy[k]), wrap(z + dz[k]), netChange);
+    }
+
+    /**
+     * Returns the total number of cells in the neighborhood of a site.
+     *
+     * @param center the center of the neighborhood.
+     *
+     * @return the total number of cells in the neighborhood of the
+     * specified site.
+     */
+    long count(Coord center) {
+        return cellCounts.get(wrap(center.x), wrap(center.y), wrap(center.z));
+    }
+
+    private int wrap(int coord) {
+        return MortonCode.wrap(coord, period);
+    }
+
+    /**
+     * Returns the neighborhood tracked by this index.
+     *
+     * @return the neighborhood tracked by this index.
+     */
+    Neighborhood getNeighborhood() {
+        return neighborhood;
+    }
+}
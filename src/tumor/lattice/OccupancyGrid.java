@@ -0,0 +1,518 @@
+
+package tumor.lattice;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import jam.lattice.Coord;
+
+import tumor.carrier.TumorComponent;
+
+/**
+ * Stores the components of a single-occupancy lattice tumor in
+ * compact primitive tables.
+ *
+ * <p>Each occupant is assigned a compact integer identifier.  Sites
+ * are packed into {@code long} keys by {@link MortonCode} and mapped
+ * to occupant identifiers in an open-addressing table; the component
+ * ordinal indexes are mapped to identifiers in a second table.  The
+ * grid stores no {@code Coord} objects and no per-site entry objects,
+ * so the memory required for each occupied site is a few dozen bytes
+ * and the occupancy queries ({@code isOccupied}, {@code getOccupant},
+ * {@code locateKey}) create no objects.
+ *
+ * <p>The grid is periodic, like the lattice that it replaces: every
+ * periodic image of a site refers to the same site, which is stored
+ * under the key of its image nearest the origin (see
+ * {@link MortonCode#encode(int, int, int, int)}).  Methods that take
+ * a {@code Coord} accept any periodic image; methods that take a
+ * {@code long} key require the key of that canonical image, and
+ * {@code locate} returns the canonical image.
+ *
+ * @param <E> the concrete subtype for the tumor components.
+ */
+public final class OccupancyGrid<E extends TumorComponent> {
+    // The lattice period along each axis...
+    private final int period;
+
+    // Site key to occupant identifier...
+    private final LongIntTable siteTable;
+
+    // Component ordinal index to occupant identifier...
+    private final LongIntTable compTable;
+
+    // Occupants and their site keys, indexed by identifier...
+    private Object[] occupants;
+    private long[]   siteKeys;
+
+    // Identifiers released by vacated occupants, available for
+    // reuse...
+    private int[] freeIds;
+    private int   freeCount = 0;
+
+    // Next never-used identifier...
+    private int nextId = 0;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param period the lattice period along each axis.
+     *
+     * @throws IllegalArgumentException unless every site on the
+     * periodic lattice has a Morton key (the period is positive and no
+     * longer than {@code MortonCode.MAX_PERIOD}).
+     */
+    public OccupancyGrid(int period) {
+        MortonCode.validatePeriod(period);
+
+        this.period    = period;
+        this.siteTable = new LongIntTable(INITIAL_CAPACITY);
+        this.compTable = new LongIntTable(INITIAL_CAPACITY);
+        this.occupants = new Object[INITIAL_CAPACITY];
+        this.siteKeys  = new long[INITIAL_CAPACITY];
+        this.freeIds   = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the lattice period along each axis.
+     *
+     * @return the lattice period along each axis.
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Returns the Morton key for the canonical periodic image of a
+     * site.
+     *
+     * @param coord any periodic image of the site.
+     *
+     * @return the Morton key for the canonical image of the site.
+     */
+    public long siteKey(Coord coord) {
+        return MortonCode.encode(coord.x, coord.y, coord.z, period);
+    }
+
+    /**
+     * Determines whether a component occupies this grid.
+     *
+     * @param component the component of interest.
+     *
+     * @return {@code true} iff the component occupies this grid.
+     */
+    public boolean contains(TumorComponent component) {
+        return findId(component) != LongIntTable.NO_VALUE;
+    }
+
+    /**
+     * Returns the number of occupied sites.
+     *
+     * @return the number of occupied sites.
+     */
+    public int countOccupants() {
+        return siteTable.size();
+    }
+
+    /**
+     * Returns the number of occupants at a given site.
+     *
+     * @param coord the site to examine.
+     *
+     * @return the number of occupants at the specified site (zero or
+     * one).
+     */
+    public int countOccupants(Coord coord) {
+        return isOccupied(coord) ? 1 : 0;
+    }
+
+    /**
+     * Returns the occupant of a given site.
+     *
+     * @param coord the site to examine.
+     *
+     * @return the occupant of the specified site, or {@code null} if
+     * the site is empty.
+     */
+    public E getOccupant(Coord coord) {
+        return getOccupant(siteKey(coord));
+    }
+
+    /**
+     * Returns the occupant of a given site.
+     *
+     * @param siteKey the Morton key for the canonical image of the
+     * site to examine.
+     *
+     * @return the occupant of the specified site, or {@code null} if
+     * the site is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E getOccupant(long siteKey) {
+        int id = siteTable.get(siteKey);
+
+        if (id == LongIntTable.NO_VALUE)
+            return null;
+        else
+            return (E) occupants[id];
+    }
+
+    /**
+     * Identifies empty sites.
+     *
+     * @param coord the site to examine.
+     *
+     * @return {@code true} iff the specified site is empty.
+     */
+    public boolean isAvailable(Coord coord) {
+        return !isOccupied(coord);
+    }
+
+    /**
+     * Identifies empty grids.
+     *
+     * @return {@code true} iff no sites are occupied.
+     */
+    public boolean isEmpty() {
+        return siteTable.size() == 0;
+    }
+
+    /**
+     * Identifies occupied sites.
+     *
+     * @param coord the site to examine.
+     *
+     * @return {@code true} iff the specified site is occupied.
+     */
+    public boolean isOccupied(Coord coord) {
+        return siteTable.containsKey(siteKey(coord));
+    }
+
+    /**
+     * Returns the location of a component.
+     *
+     * @param component the component to locate.
+     *
+     * @return the location (canonical periodic image) of the
+     * specified component, or {@code null} if the component does not
+     * occupy this grid.
+     */
+    public Coord locate(TumorComponent component) {
+        int id = findId(component);
+
+        if (id == LongIntTable.NO_VALUE)
+            return null;
+        else
+            return MortonCode.decode(siteKeys[id]);
+    }
+
+    /**
+     * Identifies occupied sites by their Morton keys.
+     *
+     * @param siteKey the Morton key for the canonical image of the
+     * site to examine.
+     *
+     * @return {@code true} iff the specified site is occupied.
+     */
+    public boolean isOccupied(long siteKey) {
+        return siteTable.containsKey(siteKey);
+    }
+
+    /**
+     * Returns the occupant with a given identifier.
+     *
+     * @param id an occupant identifier in the range
+     * {@code [0, idLimit())}.
+     *
+     * @return the occupant with the specified identifier, or
+     * {@code null} if the identifier is not in use.
+     */
+    @SuppressWarnings("unchecked")
+    E getOccupantById(int id) {
+        return (E) occupants[id];
+    }
+
+    /**
+     * Returns the Morton key for the site of the occupant with a
+     * given identifier.
+     *
+     * @param id the identifier of a current occupant.
+     *
+     * @return the Morton key for the site of the specified occupant.
+     */
+    long getSiteKeyById(int id) {
+        return siteKeys[id];
+    }
+
+    /**
+     * Returns the upper bound (exclusive) on occupant identifiers.
+     *
+     * <p>Identifiers are not dense: the limit never decreases, so an
+     * identifier released by a vacated occupant leaves a hole (a
+     * {@code null} value of {@code getOccupantById(id)}) until it is
+     * reused.  The occupants are exactly the non-null values for
+     * {@code 0 <= id < idLimit()}, and callers that scan the range
+     * must skip the holes.  An occupant keeps its identifier until it
+     * is vacated, and the identifier most recently released is the
+     * next one assigned.
+     *
+     * @return the upper bound (exclusive) on occupant identifiers.
+     */
+    int idLimit() {
+        return nextId;
+    }
+
+    /**
+     * Returns the Morton key for the location of a component.
+     *
+     * @param component the component to locate.
+     *
+     * @return the Morton key for the location of the component.
+     *
+     * @throws IllegalArgumentException unless the component occupies
+     * this grid.
+     */
+    public long locateKey(TumorComponent component) {
+        int id = findId(component);
+
+        if (id == LongIntTable.NO_VALUE)
+            throw new IllegalArgumentException("Component is not present in the grid.");
+
+        return siteKeys[id];
+    }
+
+    private int findId(TumorComponent component) {
+        return compTable.get(component.getIndex());
+    }
+
+    /**
+     * Places a component on this grid.
+     *
+     * @param component the component to place.
+     *
+     * @param coord the site where the component will be placed.
+     *
+     * @throws IllegalStateException if the site is already occupied
+     * or the component already occupies another site.
+     */
+    public void occupy(E component, Coord coord) {
+        occupy(component, siteKey(coord));
+    }
+
+    /**
+     * Places a component on this grid at a site identified by its
+     * Morton key.
+     *
+     * @param component the component to place.
+     *
+     * @param siteKey the Morton key for the canonical periodic image
+     * of the site where the component will be placed.
+     *
+     * @throws IllegalStateException if the site is already occupied
+     * or the component already occupies another site.
+     */
+    public void occupy(E component, long siteKey) {
+        if (siteTable.containsKey(siteKey))
+            throw new IllegalStateException("Site is already occupied.");
+
+        if (contains(component))
+            throw new IllegalStateException("Component already occupies the grid.");
+
+        int id = nextFreeId();
+
+        occupants[id] = component;
+        siteKeys[id]  = siteKey;
+
+        siteTable.put(siteKey, id);
+        compTable.put(component.getIndex(), id);
+    }
+
+    private int nextFreeId() {
+        if (freeCount > 0)
+            return freeIds[--freeCount];
+
+        if (nextId == occupants.length) {
+            int capacity = 2 * occupants.length;
+
+            occupants = Arrays.copyOf(occupants, capacity);
+            siteKeys  = Arrays.copyOf(siteKeys, capacity);
+        }
+
+        return nextId++;
+    }
+
+    /**
+     * Removes a component from this grid.
+     *
+     * @param component the component to remove.
+     *
+     * @return {@code true} iff the component occupied this grid.
+     */
+    public boolean vacate(TumorComponent component) {
+        int id = compTable.remove(component.getIndex());
+
+        if (id == LongIntTable.NO_VALUE)
+            return false;
+
+        siteTable.remove(siteKeys[id]);
+        occupants[id] = null;
+
+        if (freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, 2 * freeIds.length);
+
+        freeIds[freeCount++] = id;
+        return true;
+    }
+
+    /**
+     * Records the assignment of occupant identifiers, which depends
+     * on the history of the grid and not only on its occupants.
+     *
+     * <p>Element {@code id} of the returned array is the ordinal index
+     * of the occupant with identifier {@code id}, or, for an unused
+     * identifier, {@code -1 - k}, where {@code k} is the position of
+     * the identifier in the stack of released identifiers.
+     *
+     * @return the assignment of occupant identifiers.
+     */
+    public long[] captureIds() {
+        long[] ids = new long[nextId];
+
+        for (int id = 0; id < nextId; ++id)
+            if (occupants[id] != null)
+                ids[id] = ((TumorComponent) occupants[id]).getIndex();
+
+        for (int k = 0; k < freeCount; ++k)
+            ids[freeIds[k]] = -1 - k;
+
+        return ids;
+    }
+
+    /**
+     * Reassigns the occupant identifiers recorded by
+     * {@code captureIds()}, so that this grid assigns and visits
+     * identifiers exactly as the original grid did.
+     *
+     * @param ids the assignment returned by {@code captureIds()}.
+     *
+     * @throws IllegalArgumentException unless the assignment lists
+     * exactly the current occupants of this grid.
+     */
+    public void restoreIds(long[] ids) {
+        int capacity = INITIAL_CAPACITY;
+
+        while (capacity < ids.length)
+            capacity *= 2;
+
+        Object[] newOccupants = new Object[capacity];
+        long[]   newSiteKeys  = new long[capacity];
+        int[]    newFreeIds   = new int[capacity];
+
+        int occupantCount = 0;
+        int newFreeCount  = 0;
+
+        for (int id = 0; id < ids.length; ++id) {
+            if (ids[id] < 0) {
+                newFreeIds[(int) (-1 - ids[id])] = id;
+                ++newFreeCount;
+                continue;
+            }
+
+            int oldId = compTable.get(ids[id]);
+
+            if (oldId == LongIntTable.NO_VALUE)
+                throw new IllegalArgumentException("Component is not present in the grid.");
+
+            newOccupants[id] = occupants[oldId];
+            newSiteKeys[id]  = siteKeys[oldId];
+            ++occupantCount;
+        }
+
+        if (occupantCount != countOccupants())
+            throw new IllegalArgumentException("Identifier assignment does not match the grid occupants.");
+
+        for (int id = 0; id < ids.length; ++id) {
+            if (newOccupants[id] != null) {
+                siteTable.put(newSiteKeys[id], id);
+                compTable.put(ids[id], id);
+            }
+        }
+
+        this.occupants = newOccupants;
+        this.siteKeys  = newSiteKeys;
+        this.freeIds   = newFreeIds;
+        this.freeCount = newFreeCount;
+        this.nextId    = ids.length;
+    }
+
+    /**
+     * Returns a read-only view of all occupants.
+     *
+     * @return a read-only view of all occupants.
+     */
+    public Set<E> viewOccupants() {
+        return occupantView;
+    }
+
+    /**
+     * Returns a read-only view of the occupants of a given site.
+     *
+     * @param coord the site to examine.
+     *
+     * @return a read-only view of the occupants of the specified site.
+     */
+    public Set<E> viewOccupants(Coord coord) {
+        E occupant = getOccupant(coord);
+
+        if (occupant == null)
+            return Collections.emptySet();
+        else
+            return Collections.singleton(occupant);
+    }
+
+    private final Set<E> occupantView = new AbstractSet<E>() {
+            @Override public boolean contains(Object obj) {
+                return (obj instanceof TumorComponent) && OccupancyGrid.this.contains((TumorComponent) obj);
+            }
+
+            @Override public Iterator<E> iterator() {
+                return new OccupantIterator();
+            }
+
+            @Override public int size() {
+                return countOccupants();
+            }
+        };
+
+    private final class OccupantIterator implements Iterator<E> {
+        private int cursor = advance(0);
+
+        private int advance(int id) {
+            while (id < nextId && occupants[id] == null)
+                ++id;
+
+            return id;
+        }
+
+        @Override public boolean hasNext() {
+            return cursor < nextId;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            E occupant = (E) occupants[cursor];
+            cursor = advance(cursor + 1);
+
+            return occupant;
+        }
+    }
+}
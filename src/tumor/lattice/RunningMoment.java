@@ -0,0 +1,332 @@
+
+package tumor.lattice;
+
+import java.util.Arrays;
+
+import jam.lattice.Coord;
+import jam.vector.VectorView;
+
+/**
+ * Maintains the cell-weighted first and second moments of the sites
+ * occupied by a lattice tumor as cells are added, removed, or moved.
+ *
+ * <p>The moments are accumulated as exact integer sums, so they do
+ * not drift after many updates, and the center of mass, gyration
+ * tensor, radius of gyration, principal moments, and shape
+ * descriptors are available in constant time.
+ */
+public final class RunningMoment {
+    private long weight = 0;
+
+    private long sumX = 0;
+    private long sumY = 0;
+    private long sumZ = 0;
+
+    private long sumXX = 0;
+    private long sumXY = 0;
+    private long sumXZ = 0;
+    private long sumYY = 0;
+    private long sumYZ = 0;
+    private long sumZZ = 0;
+
+    /**
+     * Creates an empty moment.
+     */
+    public RunningMoment() {
+    }
+
+    /**
+     * Adds cells at a lattice site (or removes them if the count is
+     * negative).
+     *
+     * @param coord the lattice site.
+     *
+     * @param cellCount the number of cells added at the site.
+     */
+    public void add(Coord coord, long cellCount) {
+        add(coord.x, coord.y, coord.z, cellCount);
+    }
+
+    /**
+     * Adds cells at a lattice site given by its coordinates (or
+     * removes them if the count is negative).
+     *
+     * @param x the x-coordinate of the lattice site.
+     *
+     * @param y the y-coordinate of the lattice site.
+     *
+     * @param z the z-coordinate of the lattice site.
+     *
+     * @param cellCount the number of cells added at the site.
+     */
+    public void add(long x, long y, long z, long cellCount) {
+        if (cellCount == 0)
+            return;
+
+        weight += cellCount;
+
+        sumX += cellCount * x;
+        sumY += cellCount * y;
+        sumZ += cellCount * z;
+
+        sumXX += cellCount * x * x;
+        sumXY += cellCount * x * y;
+        sumXZ += cellCount * x * z;
+        sumYY += cellCount * y * y;
+        sumYZ += cellCount * y * z;
+        sumZZ += cellCount * z * z;
+    }
+
+    /**
+     * Removes cells from a lattice site.
+     *
+     * @param coord the lattice site.
+     *
+     * @param cellCount the number of cells removed from the site.
+     */
+    public void remove(Coord coord, long cellCount) {
+        add(coord, -cellCount);
+    }
+
+    /**
+     * Moves cells from one lattice site to another.
+     *
+     * @param fromCoord the original site.
+     *
+     * @param toCoord the new site.
+     *
+     * @param cellCount the number of cells moved.
+     */
+    public void move(Coord fromCoord, Coord toCoord, long cellCount) {
+        remove(fromCoord, cellCount);
+        add(toCoord, cellCount);
+    }
+
+    /**
+     * Returns the total number of cells contributing to the moments.
+     *
+     * @return the total number of cells contributing to the moments.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the x-component of the center of mass.
+     *
+     * @return the x-component of the center of mass (zero for an
+     * empty tumor).
+     */
+    public double getCMX() {
+        return mean(sumX);
+    }
+
+    /**
+     * Returns the y-component of the center of mass.
+     *
+     * @return the y-component of the center of mass (zero for an
+     * empty tumor).
+     */
+    public double getCMY() {
+        return mean(sumY);
+    }
+
+    /**
+     * Returns the z-component of the center of mass.
+     *
+     * @return the z-component of the center of mass (zero for an
+     * empty tumor).
+     */
+    public double getCMZ() {
+        return mean(sumZ);
+    }
+
+    /**
+     * Returns the center of mass.
+     *
+     * @return the center of mass (the origin for an empty tumor).
+     */
+    public VectorView getCM() {
+        return VectorView.wrap(getCMX(), getCMY(), getCMZ());
+    }
+
+    /**
+     * Returns the gyration tensor: the cell-weighted covariance of the
+     * occupied site coordinates.
+     *
+     * @return the symmetric gyration tensor as a new 3 x 3 array.
+     */
+    public double[][] getGyrationTensor() {
+        double cmX = getCMX();
+        double cmY = getCMY();
+        double cmZ = getCMZ();
+
+        double xx = mean(sumXX) - cmX * cmX;
+        double xy = mean(sumXY) - cmX * cmY;
+        double xz = mean(sumXZ) - cmX * cmZ;
+        double yy = mean(sumYY) - cmY * cmY;
+        double yz = mean(sumYZ) - cmY * cmZ;
+        double zz = mean(sumZZ) - cmZ * cmZ;
+
+        return new double[][] {
+            { xx, xy, xz },
+            { xy, yy, yz },
+            { xz, yz, zz }
+        };
+    }
+
+    /**
+     * Returns the scalar radius of gyration: the square root of the
+     * trace of the gyration tensor.
+     *
+     * @return the scalar radius of gyration.
+     */
+    public double scalar() {
+        double cmX = getCMX();
+        double cmY = getCMY();
+        double cmZ = getCMZ();
+
+        double trace =
+            mean(sumXX) + mean(sumYY) + mean(sumZZ) - (cmX * cmX + cmY * cmY + cmZ * cmZ);
+
+        // Guard against round-off for single-site tumors...
+        return Math.sqrt(Math.max(0.0, trace));
+    }
+
+    /**
+     * Returns the distance from the center of mass to a lattice site
+     * in units of the radius of gyration.
+     *
+     * @param coord the lattice site.
+     *
+     * @return the normalized radial distance of the specified site.
+     */
+    public double normR(Coord coord) {
+        double dx = coord.x - getCMX();
+        double dy = coord.y - getCMY();
+        double dz = coord.z - getCMZ();
+
+        return Math.sqrt(dx * dx + dy * dy + dz * dz) / scalar();
+    }
+
+    /**
+     * Returns the principal moments: the eigenvalues of the gyration
+     * tensor, computed by cyclic Jacobi rotations.
+     *
+     * @return the principal moments in ascending order, as a new
+     * array of length three.
+     */
+    public double[] getPrincipalMoments() {
+        double[][] a = getGyrationTensor();
+
+        //
+        // Each rotation annihilates one off-diagonal element; the
+        // iteration converges quadratically, so a handful of sweeps
+        // reduce the off-diagonal elements to round-off...
+        //
+        for (int sweep = 0; sweep < MAX_JACOBI_SWEEPS; ++sweep) {
+            double offDiag = a[0][1] * a[0][1] + a[0][2] * a[0][2] + a[1][2] * a[1][2];
+            double diag    = a[0][0] * a[0][0] + a[1][1] * a[1][1] + a[2][2] * a[2][2];
+
+            if (offDiag <= JACOBI_TOLERANCE * diag)
+                break;
+
+            rotate(a, 0, 1);
+            rotate(a, 0, 2);
+            rotate(a, 1, 2);
+        }
+
+        double[] moments = new double[] { a[0][0], a[1][1], a[2][2] };
+        Arrays.sort(moments);
+
+        return moments;
+    }
+
+    private static final int MAX_JACOBI_SWEEPS = 50;
+    private static final double JACOBI_TOLERANCE = 1.0E-32;
+
+    private static void rotate(double[][] a, int p, int q) {
+        double apq = a[p][q];
+
+        if (apq == 0.0)
+            return;
+
+        double theta = (a[q][q] - a[p][p]) / (2.0 * apq);
+        double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1.0));
+
+        if (theta == 0.0)
+            t = 1.0;
+
+        double c = 1.0 / Math.sqrt(t * t + 1.0);
+        double s = t * c;
+
+        a[p][p] -= t * apq;
+        a[q][q] += t * apq;
+        a[p][q] = 0.0;
+        a[q][p] = 0.0;
+
+        for (int r = 0; r < 3; ++r) {
+            if (r == p || r == q)
+                continue;
+
+            double arp = a[r][p];
+            double arq = a[r][q];
+
+            a[r][p] = c * arp - s * arq;
+            a[p][r] = a[r][p];
+            a[r][q] = s * arp + c * arq;
+            a[q][r] = a[r][q];
+        }
+    }
+
+    /**
+     * Returns the asphericity: the largest principal moment less the
+     * mean of the other two (zero for spherically symmetric tumors).
+     *
+     * @return the asphericity.
+     */
+    public double asphericity() {
+        double[] pm = getPrincipalMoments();
+        return pm[2] - 0.5 * (pm[0] + pm[1]);
+    }
+
+    /**
+     * Returns the acylindricity: the difference between the two
+     * smallest principal moments (zero for cylindrically symmetric
+     * tumors).
+     *
+     * @return the acylindricity.
+     */
+    public double acylindricity() {
+        double[] pm = getPrincipalMoments();
+        return pm[1] - pm[0];
+    }
+
+    /**
+     * Returns the relative shape anisotropy, which ranges from zero
+     * (for spherically symmetric tumors) to one (for tumors whose
+     * cells lie on a line).
+     *
+     * @return the relative shape anisotropy (zero for a tumor that
+     * occupies a single site).
+     */
+    public double anisotropy() {
+        double[] pm = getPrincipalMoments();
+
+        double b  = pm[2] - 0.5 * (pm[0] + pm[1]);
+        double c  = pm[1] - pm[0];
+        double r2 = pm[0] + pm[1] + pm[2];
+
+        if (r2 <= 0.0)
+            return 0.0;
+        else
+            return (b * b + 0.75 * c * c) / (r2 * r2);
+    }
+
+    private double mean(long sum) {
+        if (weight == 0)
+            return 0.0;
+        else
+            return ((double) sum) / ((double) weight);
+    }
+}
@@ -0,0 +1,260 @@
+
+package tumor.lattice;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+import jam.lattice.Coord;
+
+import tumor.random.RandomStream;
+
+/**
+ * Maintains the set of surface sites of a lattice tumor: the occupied
+ * sites with at least one empty nearest neighbor.
+ *
+ * <p>The tumor reports every lattice site whose occupancy changes;
+ * the index then reclassifies that site and its six nearest
+ * neighbors, the only sites whose classification may change.  The
+ * surface sites are packed into {@code long} keys by
+ * {@link MortonCode} and stored in a dense array (with a key table
+ * giving the position of each key in the array), so a site may be
+ * added, removed, or selected uniformly at random in constant time.
+ * The neighbors of a site are found by arithmetic on its key, and the
+ * occupancy of a site is tested by key, so an update creates no
+ * objects.
+ *
+ * <p>The lattice is periodic: every site is indexed by the key of its
+ * canonical periodic image, and selected sites are returned in their
+ * canonical images.
+ */
+public final class SurfaceSiteIndex {
+    private final int period;
+    private final LongPredicate occupied;
+
+    // Surface site keys in arbitrary order, and the position of each
+    // key in that array...
+    private long[] siteKeys;
+    private int    siteCount = 0;
+
+    private final LongIntTable positions;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Offsets to the six nearest neighbors...
+    private static final int[] DX = { 1, -1, 0,  0, 0,  0 };
+    private static final int[] DY = { 0,  0, 1, -1, 0,  0 };
+    private static final int[] DZ = { 0,  0, 0,  0, 1, -1 };
+
+    /**
+     * Creates an empty index.
+     *
+     * @param period the length of the periodic lattice along each
+     * dimension.
+     *
+     * @param occupied the occupancy test for the tumor, which is
+     * applied to the Morton key of the canonical periodic image of a
+     * site.
+     *
+     * @throws IllegalArgumentException unless the period lies within
+     * the range of the Morton encoding.
+     */
+    public SurfaceSiteIndex(int period, LongPredicate occupied) {
+        MortonCode.validatePeriod(period);
+
+        this.period    = period;
+        this.occupied  = occupied;
+        this.siteKeys  = new long[INITIAL_CAPACITY];
+        this.positions = new LongIntTable(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Updates the index after the occupancy of a site has changed.
+     *
+     * @param site the site that has become occupied or empty.
+     */
+    public void update(Coord site) {
+        update(siteKey(site));
+    }
+
+    /**
+     * Updates the index after the occupancy of a site has changed.
+     *
+     * @param siteKey the Morton key for the canonical periodic image
+     * of the site that has become occupied or empty.
+     */
+    public void update(long siteKey) {
+        classify(siteKey);
+
+        for (int k = 0; k < DX.length; ++k)
+            classify(neighborKey(siteKey, k));
+    }
+
+    private void classify(long key) {
+        if (isSurface(key))
+            add(key);
+        else
+            remove(key);
+    }
+
+    private long siteKey(Coord site) {
+        return MortonCode.encode(site.x, site.y, site.z, period);
+    }
+
+    private long neighborKey(long key, int k) {
+        return MortonCode.encode(MortonCode.decodeX(key) + DX[k],
+                                 MortonCode.decodeY(key) + DY[k],
+                                 MortonCode.decodeZ(key) + DZ[k],
+                                 period);
+    }
+
+    private boolean isSurface(long key) {
+        if (!occupied.test(key))
+            return false;
+
+        for (int k = 0; k < DX.length; ++k)
+            if (!occupied.test(neighborKey(key, k)))
+                return true;
+
+        return false;
+    }
+
+    private void add(long key) {
+        if (positions.containsKey(key))
+            return;
+
+        if (siteCount == siteKeys.length)
+            siteKeys = Arrays.copyOf(siteKeys, 2 * siteKeys.length);
+
+        siteKeys[siteCount] = key;
+        positions.put(key, siteCount);
+        ++siteCount;
+    }
+
+    private void remove(long key) {
+        int position = positions.remove(key);
+
+        if (position == LongIntTable.NO_VALUE)
+            return;
+
+        // Move the last key into the vacated position...
+        --siteCount;
+
+        if (position < siteCount) {
+            long lastKey = siteKeys[siteCount];
+
+            siteKeys[position] = lastKey;
+            positions.put(lastKey, position);
+        }
+    }
+
+    private void swap(int i, int j) {
+        long keyI = siteKeys[i];
+        long keyJ = siteKeys[j];
+
+        siteKeys[i] = keyJ;
+        siteKeys[j] = keyI;
+
+        positions.put(keyJ, i);
+        positions.put(keyI, j);
+    }
+
+    /**
+     * Identifies surface sites.
+     *
+     * @param site the site to examine.
+     *
+     * @return {@code true} iff the specified site is in this index.
+     */
+    public boolean contains(Coord site) {
+        return positions.containsKey(siteKey(site));
+    }
+
+    /**
+     * Selects a surface site uniformly at random.
+     *
+     * @param random the source of uniform random deviates.
+     *
+     * @return a randomly selected surface site.
+     *
+     * @throws IllegalStateException if the index is empty.
+     */
+    public Coord select(RandomStream random) {
+        if (siteCount == 0)
+            throw new IllegalStateException("No surface site found.");
+
+        return MortonCode.decode(siteKeys[random.nextInt(siteCount)]);
+    }
+
+    /**
+     * Selects distinct surface sites uniformly at random (without
+     * replacement).
+     *
+     * <p>The selected keys are moved to the front of the key array by
+     * a partial Fisher-Yates shuffle, so the selection requires time
+     * proportional to the number of sites selected.  The order of the
+     * keys carries no meaning, so the shuffle does not disturb the
+     * index.
+     *
+     * @param count the number of sites to select.
+     *
+     * @param random the source of uniform random deviates.
+     *
+     * @return a set containing {@code min(count, size())} distinct
+     * surface sites.
+     */
+    public Set<Coord> select(int count, RandomStream random) {
+        int selectCount = Math.min(count, siteCount);
+        Set<Coord> sites = new HashSet<Coord>(selectCount);
+
+        for (int index = 0; index < selectCount; ++index) {
+            swap(index, index + random.nextInt(siteCount - index));
+            sites.add(MortonCode.decode(siteKeys[index]));
+        }
+
+        return sites;
+    }
+
+    /**
+     * Returns the surface site keys in their current order (which
+     * determines the sites selected by a given random stream).
+     *
+     * @return the surface site keys in their current order.
+     */
+    public long[] captureKeys() {
+        return Arrays.copyOf(siteKeys, siteCount);
+    }
+
+    /**
+     * Restores the order of the surface site keys recorded by
+     * {@code captureKeys()}.
+     *
+     * @param keys the keys returned by {@code captureKeys()}.
+     *
+     * @throws IllegalArgumentException unless the keys are exactly
+     * the surface sites in this index.
+     */
+    public void restoreKeys(long[] keys) {
+        if (keys.length != siteCount)
+            throw new IllegalArgumentException("Surface site keys do not match the index.");
+
+        for (long key : keys)
+            if (!positions.containsKey(key))
+                throw new IllegalArgumentException("Surface site keys do not match the index.");
+
+        for (int position = 0; position < keys.length; ++position) {
+            siteKeys[position] = keys[position];
+            positions.put(keys[position], position);
+        }
+    }
+
+    /**
+     * Returns the number of surface sites.
+     *
+     * @return the number of surface sites.
+     */
+    public int size() {
+        return siteCount;
+    }
+}
@@ -0,0 +1,238 @@
+
+package tumor.mutation;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+
+import tumor.driver.TumorDriver;
+
+/**
+ * An immutable list of mutations that stores neutral mutations as a
+ * contiguous range of indexes rather than as individual objects.
+ *
+ * <p>The list contains zero or more <em>explicit</em> mutations
+ * (stored as objects) followed by zero or more neutral mutations with
+ * consecutive indexes and a shared origination time.  The neutral
+ * mutations are created on demand by {@code get()}; since mutations
+ * are identified by their indexes, the instances created on separate
+ * calls are equal to each other.  A daughter with any number of new
+ * neutral mutations therefore occupies a few dozen bytes rather than
+ * a few dozen bytes per mutation.
+ *
+ * <p>Every call to {@code get()} (and therefore every step of an
+ * iterator) for a range-encoded mutation creates a new object, so
+ * callers that need only the indexes or types of the mutations should
+ * use {@code getIndex()}, {@code getType()}, or {@code indexList()}.
+ * The encoding is disabled by default (see
+ * {@link NeutralMutationGenerator#NEUTRAL_RANGES_PROPERTY}).
+ */
+public final class CompactMutationList extends AbstractList<Mutation> {
+    private final Mutation[] explicit;
+    private final long rangeStart;
+    private final int  rangeCount;
+    private final int  rangeTime;
+
+    private static final Mutation[] NO_EXPLICIT = new Mutation[0];
+
+    private CompactMutationList(Mutation[] explicit, long rangeStart, int rangeCount, int rangeTime) {
+        if (rangeCount < 0)
+            throw new IllegalArgumentException("Range count must be non-negative.");
+
+        this.explicit   = explicit;
+        this.rangeStart = rangeStart;
+        this.rangeCount = rangeCount;
+        this.rangeTime  = rangeTime;
+    }
+
+    /**
+     * Creates new neutral mutations (with consecutive indexes and the
+     * current time step as the origination time).
+     *
+     * @param count the number of neutral mutations to create.
+     *
+     * @return a list containing the new neutral mutations.
+     */
+    public static CompactMutationList neutral(int count) {
+        return new CompactMutationList(NO_EXPLICIT,
+                                       Mutation.reserveIndexes(count),
+                                       count,
+                                       TumorDriver.global().getTimeStep());
+    }
+
+    /**
+     * Creates a list of explicit mutations followed by a range of
+     * existing neutral mutations.
+     *
+     * @param explicit the explicit mutations.
+     *
+     * @param rangeStart the index of the first neutral mutation.
+     *
+     * @param rangeCount the number of neutral mutations.
+     *
+     * @param rangeTime the origination time of the neutral mutations.
+     *
+     * @return the compact mutation list.
+     */
+    public static CompactMutationList create(List<Mutation> explicit, long rangeStart, int rangeCount, int rangeTime) {
+        return new CompactMutationList(explicit.toArray(NO_EXPLICIT), rangeStart, rangeCount, rangeTime);
+    }
+
+    /**
+     * Creates a new list with additional explicit mutations preceding
+     * the mutations in this list.
+     *
+     * @param mutations the explicit mutations to prepend.
+     *
+     * @return a new list with the specified mutations followed by the
+     * mutations in this list.
+     */
+    public CompactMutationList prepend(List<Mutation> mutations) {
+        if (mutations.isEmpty())
+            return this;
+
+        Mutation[] combined = new Mutation[mutations.size() + explicit.length];
+
+        for (int index = 0; index < mutations.size(); ++index)
+            combined[index] = mutations.get(index);
+
+        System.arraycopy(explicit, 0, combined, mutations.size(), explicit.length);
+        return new CompactMutationList(combined, rangeStart, rangeCount, rangeTime);
+    }
+
+    /**
+     * Returns the number of range-encoded neutral mutations.
+     *
+     * @return the number of range-encoded neutral mutations.
+     */
+    public int countRange() {
+        return rangeCount;
+    }
+
+    /**
+     * Returns the index of the first range-encoded neutral mutation.
+     *
+     * @return the index of the first range-encoded neutral mutation
+     * (meaningful only if the range is not empty).
+     */
+    public long getRangeStart() {
+        return rangeStart;
+    }
+
+    /**
+     * Returns the origination time of the range-encoded neutral
+     * mutations.
+     *
+     * @return the origination time of the range-encoded neutral
+     * mutations.
+     */
+    public int getRangeTime() {
+        return rangeTime;
+    }
+
+    /**
+     * Returns the indexes of the mutations in this list (without
+     * creating the range-encoded mutations).
+     *
+     * @return the indexes of the mutations in this list, in list
+     * order.
+     */
+    public LongList indexList() {
+        LongList indexes = new LongArrayList(size());
+
+        for (Mutation mutation : explicit)
+            indexes.add(mutation.getIndex());
+
+        for (int offset = 0; offset < rangeCount; ++offset)
+            indexes.add(rangeStart + offset);
+
+        return indexes;
+    }
+
+    /**
+     * Returns a read-only view of the explicit (not range-encoded)
+     * mutations in this list.
+     *
+     * @return a read-only view of the explicit mutations.
+     */
+    public List<Mutation> viewExplicit() {
+        return Collections.unmodifiableList(Arrays.asList(explicit));
+    }
+
+    /**
+     * Returns the index of a mutation in this list without creating
+     * the mutation.
+     *
+     * @param index the position of the mutation in this list.
+     *
+     * @return the index of the mutation at the specified position.
+     *
+     * @throws IndexOutOfBoundsException unless the position is valid.
+     */
+    public long getIndex(int index) {
+        validatePosition(index);
+
+        if (index < explicit.length)
+            return explicit[index].getIndex();
+        else
+            return rangeStart + (index - explicit.length);
+    }
+
+    /**
+     * Returns the type of a mutation in this list without creating
+     * the mutation.
+     *
+     * @param index the position of the mutation in this list.
+     *
+     * @return the type of the mutation at the specified position.
+     *
+     * @throws IndexOutOfBoundsException unless the position is valid.
+     */
+    public MutationType getType(int index) {
+        validatePosition(index);
+
+        if (index < explicit.length)
+            return explicit[index].getType();
+        else
+            return MutationType.NEUTRAL;
+    }
+
+    private void validatePosition(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    @Override public boolean contains(Object obj) {
+        if (!(obj instanceof Mutation))
+            return false;
+
+        Mutation mutation = (Mutation) obj;
+        long     offset   = mutation.getIndex() - rangeStart;
+
+        if (mutation.isNeutral() && offset >= 0 && offset < rangeCount)
+            return true;
+
+        for (Mutation element : explicit)
+            if (element.equals(mutation))
+                return true;
+
+        return false;
+    }
+
+    @Override public Mutation get(int index) {
+        validatePosition(index);
+
+        if (index < explicit.length)
+            return explicit[index];
+        else
+            return new NeutralMutation(rangeStart + (index - explicit.length), rangeTime);
+    }
+
+    @Override public int size() {
+        return explicit.length + rangeCount;
+    }
+}
@@ -5,6 +5,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
+
 /**
  * Generates mutations of multiple types.
  */
@@ -69,21 +72,45 @@ public final class CompositeGenerator extends MutationGenerator {
     }
 
     @Override public List<Mutation> generateCellMutations() {
-        List<Mutation> mutations = new ArrayList<Mutation>();
+        List<Mutation>      mutations = new ArrayList<Mutation>();
+        CompactMutationList range     = null;
 
         for (HomogeneousGenerator generator : generators)
-            mutations.addAll(generator.generateCellMutations());
+            range = combine(mutations, range, generator.generateCellMutations());
 
-        return mutations;
+        return finish(mutations, range);
     }
 
     @Override public List<Mutation> generateDemeMutations(long daughterCount) {
-        List<Mutation> mutations = new ArrayList<Mutation>();
+        List<Mutation>      mutations = new ArrayList<Mutation>();
+        CompactMutationList range     = null;
 
         for (HomogeneousGenerator generator : generators)
-            mutations.addAll(generator.generateDemeMutations(daughterCount));
+            range = combine(mutations, range, generator.generateDemeMutations(daughterCount));
+
+        return finish(mutations, range);
+    }
+
+    private static CompactMutationList combine(List<Mutation> mutations,
+                                               CompactMutationList range,
+                                               List<Mutation> generated) {
+        //
+        // Keep the first range-encoded list intact (the explicit
+        // mutations are prepended to it when the list is finished);
+        // any other mutations are accumulated explicitly...
+        //
+        if (range == null && generated instanceof CompactMutationList)
+            return (CompactMutationList) generated;
+
+        mutations.addAll(generated);
+        return range;
+    }
 
-        return mutations;
+    private static List<Mutation> finish(List<Mutation> mutations, CompactMutationList range) {
+        if (range == null)
+            return mutations;
+        else
+            return range.prepend(mutations);
     }
     /*
     @Override public List<List<Mutation>> generateLineageMutations(long daughterCount) {
@@ -122,19 +149,20 @@ public final class CompositeGenerator extends MutationGenerator {
     }
     */
 
-    @Override public List<List<Mutation>> generateLineageMutations(long daughterCount) {
-        List<List<Mutation>> lineageMutations = new ArrayList<List<Mutation>>();
+    @Override public void generateLineageMutations(long daughterCount, MutationBatch batch) {
+        batch.clear();
+        RandomStream random = RandomStreams.current();
 
         for (long daughterIndex = 0; daughterIndex < daughterCount; ++daughterIndex) {
             //
-            // The new lineage is a single cell...
+            // The new lineage is a single cell, so sample the number of
+            // each mutation type exactly as in generateCellMutations()
+            // but write the mutations directly into the batch...
             //
-            List<Mutation> daughterMutations = generateCellMutations();
+            for (HomogeneousGenerator generator : generators)
+                generator.generateInto(batch, generator.getMutationRate().sampleMutationCount(random));
 
-            if (!daughterMutations.isEmpty())
-                lineageMutations.add(daughterMutations);
+            batch.endDaughter();
         }
-
-        return lineageMutations;
     }
 }
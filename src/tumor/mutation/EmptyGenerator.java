@@ -20,4 +20,8 @@ final class EmptyGenerator extends MutationGenerator {
     @Override public List<List<Mutation>> generateLineageMutations(long daughterCount) {
         return Collections.emptyList();
     }
+
+    @Override public void generateLineageMutations(long daughterCount, MutationBatch batch) {
+        batch.clear();
+    }
 }
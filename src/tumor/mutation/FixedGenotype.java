@@ -17,6 +17,10 @@ public final class FixedGenotype extends Genotype {
         super(parent, original);
     }
 
+    private FixedGenotype(long index, FixedGenotype parent, List<Mutation> original) {
+        super(index, parent, original);
+    }
+
     /**
      * The single fixed genotype containing the mutations responsible
      * for the transformation to malignancy as its original mutations.
@@ -46,7 +50,41 @@ public final class FixedGenotype extends Genotype {
      * mutations and no inherited mutations.
      */
     public static FixedGenotype founder(List<Mutation> original) {
-        return new FixedGenotype(null, FixedList.create(original));
+        return new FixedGenotype(null, fix(original));
+    }
+
+    /**
+     * Recreates a fixed genotype recorded in a checkpoint.
+     *
+     * <p>The transforming genotype is a global singleton, so it is
+     * returned in place of a new genotype with the same index.
+     *
+     * @param index the ordinal index of the genotype.
+     *
+     * @param parent the restored parent genotype; {@code null} for
+     * founding genotypes.
+     *
+     * @param original the mutations originating in the carrier.
+     *
+     * @return the restored genotype.
+     */
+    public static FixedGenotype restore(long index, FixedGenotype parent, List<Mutation> original) {
+        if (index == TRANSFORMER.getIndex())
+            return TRANSFORMER;
+        else
+            return new FixedGenotype(index, parent, fix(original));
+    }
+
+    private static List<Mutation> fix(List<Mutation> mutations) {
+        //
+        // Compact lists are already immutable and independent of the
+        // batch that generated them, so copying them would only
+        // materialize their range-encoded mutations...
+        //
+        if (mutations instanceof CompactMutationList)
+            return mutations;
+        else
+            return FixedList.create(mutations);
     }
 
     @Override public FixedGenotype forClone() {
@@ -58,10 +96,14 @@ public final class FixedGenotype extends Genotype {
     }
 
     @Override public FixedGenotype forDaughter(List<Mutation> daughterMut) {
-        return new FixedGenotype(this, FixedList.create(daughterMut));
+        return new FixedGenotype(this, fix(daughterMut));
     }
 
     @Override protected List<Mutation> fromParentOriginal() {
         return parent.original;
     }
+
+    @Override protected int countParentOriginal() {
+        return parent.original.size();
+    }
 }
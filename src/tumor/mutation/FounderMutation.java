@@ -15,6 +15,11 @@ public final class FounderMutation extends Mutation {
         super();
     }
 
+    // Recreates a mutation restored from a checkpoint...
+    FounderMutation(long index, int originationTime) {
+        super(index, originationTime);
+    }
+
     @Override public GrowthRate apply(GrowthRate rate) {
         return rate;
     }
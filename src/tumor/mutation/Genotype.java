@@ -2,23 +2,26 @@
 package tumor.mutation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+
 import jam.lang.Ordinal;
-import jam.lang.OrdinalIndex;
 import jam.util.CollectionUtil;
-import jam.util.ConcatIterator;
 import jam.util.ListUtil;
-import jam.util.ReadOnlyIterator;
 
 /**
  * Encapsulates the mutations that originate within a carrier and the
@@ -42,7 +45,16 @@ public abstract class Genotype extends Ordinal {
      */
     protected List<Mutation> accumulated = null;
 
-    private static OrdinalIndex ordinalIndex = OrdinalIndex.create();
+    // Number of generations between this genotype and its founder...
+    private final int depth;
+
+    // Number of inherited mutations, computed on demand and cached
+    // (the inherited mutations never change, even for mutable
+    // genotypes, so the cached value never becomes stale)...
+    private int inheritedCount = -1;
+
+    // The index of the next new genotype...
+    private static final AtomicLong nextIndex = new AtomicLong(0L);
 
     /**
      * Creates a new genotype with an automatically generated index.
@@ -53,10 +65,26 @@ public abstract class Genotype extends Ordinal {
      * @param original the mutations originating in the carrier.
      */
     protected Genotype(Genotype parent, List<Mutation> original) {
-        super(ordinalIndex.next());
+        this(nextIndex.getAndIncrement(), parent, original);
+    }
+
+    /**
+     * Creates a genotype with an assigned index (when restoring a
+     * simulation from a checkpoint).
+     *
+     * @param index the ordinal index of the genotype.
+     *
+     * @param parent the genotype of the parent carrier; {@code null}
+     * for founding genotypes.
+     *
+     * @param original the mutations originating in the carrier.
+     */
+    protected Genotype(long index, Genotype parent, List<Mutation> original) {
+        super(index);
 
         this.parent   = parent;
         this.original = original;
+        this.depth    = (parent == null) ? 0 : parent.depth + 1;
     }
 
     /**
@@ -93,6 +121,51 @@ public abstract class Genotype extends Ordinal {
      */
     protected abstract List<Mutation> fromParentOriginal();
 
+    /**
+     * Returns the number of original mutations from the parent
+     * genotype that were inherited by this genotype (the size of the
+     * list returned by {@code fromParentOriginal()}, without creating
+     * the list).
+     *
+     * @return the number of original mutations from the parent
+     * genotype that were inherited by this genotype.
+     */
+    protected abstract int countParentOriginal();
+
+    /**
+     * Returns the total number of genotypes created in this JVM
+     * session.
+     *
+     * @return the total number of genotypes created in this JVM
+     * session.
+     */
+    public static long count() {
+        return nextIndex.get();
+    }
+
+    /**
+     * Assigns the index of the next new genotype (when restoring a
+     * simulation from a checkpoint or starting a new trial).
+     *
+     * @param count the total number of genotypes created before the
+     * checkpoint was recorded or the trial started.
+     */
+    public static void restoreCount(long count) {
+        nextIndex.set(count);
+    }
+
+    /**
+     * Returns the number of original mutations from the parent
+     * genotype that were inherited by this genotype.
+     *
+     * @return the number of original mutations from the parent
+     * genotype that were inherited by this genotype (zero for
+     * founding genotypes).
+     */
+    public int countParentOriginalMutations() {
+        return (parent == null) ? 0 : countParentOriginal();
+    }
+
     /**
      * Counts the number of times each mutation occurs in a collection
      * of genotypes.
@@ -104,9 +177,10 @@ public abstract class Genotype extends Ordinal {
      */
     public static Multiset<Mutation> count(Collection<? extends Genotype> genotypes) {
         Multiset<Mutation> counts = HashMultiset.create();
+        LineageCursor      cursor = new LineageCursor();
 
         for (Genotype genotype : genotypes)
-            CollectionUtil.addAll(counts, genotype.scanAccumulatedMutations());
+            CollectionUtil.addAll(counts, cursor.reset(genotype, true));
 
         return counts;
     }
@@ -176,6 +250,7 @@ public abstract class Genotype extends Ordinal {
             (genotypes instanceof Set) ? (Set<Genotype>) genotypes : new HashSet<Genotype>(genotypes);
 
         Set<Mutation> uniqueMutations = new HashSet<Mutation>();
+        LineageCursor cursor = new LineageCursor();
 
         for (Genotype genotype : genotypeSet) {
             Genotype parent = genotype.getParent();
@@ -183,7 +258,7 @@ public abstract class Genotype extends Ordinal {
             if (parent != null && genotypeSet.contains(parent))
                 uniqueMutations.addAll(genotype.original);
             else
-                CollectionUtil.addAll(uniqueMutations, genotype.scanAccumulatedMutations());
+                CollectionUtil.addAll(uniqueMutations, cursor.reset(genotype, true));
         }
 
         return MutationSet.wrap(uniqueMutations);
@@ -197,7 +272,7 @@ public abstract class Genotype extends Ordinal {
      * the carrier.
      */
     public int countAccumulatedMutations() {
-        return CollectionUtil.count(scanAccumulatedMutations());
+        return countInheritedMutations() + original.size();
     }
 
     /**
@@ -208,7 +283,38 @@ public abstract class Genotype extends Ordinal {
      * its parent.
      */
     public int countInheritedMutations() {
-        return CollectionUtil.count(scanInheritedMutations());
+        if (inheritedCount < 0)
+            inheritedCount = computeInheritedCount();
+
+        return inheritedCount;
+    }
+
+    private int computeInheritedCount() {
+        //
+        // Walk up the lineage only as far as the nearest ancestor
+        // with a cached count...
+        //
+        int count = 0;
+
+        for (Genotype genotype = this; genotype.parent != null; genotype = genotype.parent) {
+            count += genotype.countParentOriginal();
+
+            if (genotype.parent.inheritedCount >= 0)
+                return count + genotype.parent.inheritedCount;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of generations between this genotype and its
+     * founder.
+     *
+     * @return the number of generations between this genotype and its
+     * founder (zero for founding genotypes).
+     */
+    public int getDepth() {
+        return depth;
     }
 
     /**
@@ -228,11 +334,11 @@ public abstract class Genotype extends Ordinal {
      * mutation type occurs in this genotype.
      */
     public Multiset<String> countMutationTypes() {
-        Multiset<String>   counts   = HashMultiset.create();
-        Iterator<Mutation> iterator = scanAccumulatedMutations();
+        Multiset<String> counts = HashMultiset.create();
+        LineageCursor    cursor = new LineageCursor().reset(this, true);
 
-        while (iterator.hasNext())
-            counts.add(iterator.next().getType().name());
+        while (cursor.hasNext())
+            counts.add(cursor.nextType().name());
 
         return counts;
     }
@@ -355,7 +461,7 @@ public abstract class Genotype extends Ordinal {
      * the carrier of this genotype (in chronological order).
      */
     public Iterator<Mutation> scanAccumulatedMutations() {
-        return ReadOnlyIterator.create(ConcatIterator.concat(List.of(scanInheritedMutations(), original.iterator())));
+        return new LineageCursor().reset(this, true);
     }
 
     /**
@@ -366,16 +472,185 @@ public abstract class Genotype extends Ordinal {
      * the carrier of this genotype (in chronological order).
      */
     public Iterator<Mutation> scanInheritedMutations() {
-        //
-        // Use a ConcatIterator to seamlessly iterate over all
-        // mutations inherited from each ancestor in the lineage...
-        //
-        LinkedList<Iterator<Mutation>> iterators = new LinkedList<Iterator<Mutation>>();
+        return new LineageCursor().reset(this, false);
+    }
+
+    /**
+     * Returns the indexes of all mutations accumulated in the carrier
+     * of this genotype (in chronological order), without creating any
+     * range-encoded neutral mutations.
+     *
+     * @return the indexes of all mutations accumulated in the carrier
+     * of this genotype (in chronological order).
+     */
+    public LongList listAccumulatedIndexes() {
+        return listIndexes(new LineageCursor().reset(this, true));
+    }
+
+    /**
+     * Returns the indexes of all mutations inherited by the carrier
+     * of this genotype (in chronological order), without creating any
+     * range-encoded neutral mutations.
+     *
+     * @return the indexes of all mutations inherited by the carrier
+     * of this genotype (in chronological order).
+     */
+    public LongList listInheritedIndexes() {
+        return listIndexes(new LineageCursor().reset(this, false));
+    }
+
+    private static LongList listIndexes(LineageCursor cursor) {
+        LongList indexes = new LongArrayList();
+
+        while (cursor.hasNext())
+            indexes.add(cursor.nextIndex());
+
+        return indexes;
+    }
+
+    /**
+     * Iterates over the mutations accumulated along the lineage of a
+     * genotype (in chronological order) and may be reset to scan any
+     * number of genotypes in turn.
+     *
+     * <p>The cursor walks the parent chain once per scan, recording
+     * the ancestors (from the genotype itself back to the founder) in
+     * a buffer that grows to the deepest lineage scanned and is then
+     * reused, so scanning many genotypes with one cursor allocates
+     * nothing after the first few scans.  The cursor then walks the
+     * original mutations of each ancestor in turn, from the founder
+     * forward, stopping at the subset inherited by the next
+     * generation.  The mutation indexes and types may be read without
+     * creating range-encoded neutral mutations.
+     *
+     * <p>The buffer holds references to the ancestors of the genotype
+     * most recently scanned, so long-lived cursors should be reset to
+     * a founder (or discarded) when they are no longer needed.
+     */
+    public static final class LineageCursor implements Iterator<Mutation> {
+        private Genotype[] lineage = new Genotype[INITIAL_CAPACITY];
+        private int length = 0;
+
+        private boolean includeOriginal;
+
+        // The ancestor being scanned (an index into the lineage, which
+        // decreases toward the scanned genotype at index zero), the
+        // position within its original mutations, and the end of its
+        // inherited or scanned subset...
+        private int lineageIndex = -1;
+        private int cursor = 0;
+        private int limit = 0;
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Creates an empty cursor.
+         */
+        public LineageCursor() {
+        }
+
+        /**
+         * Begins a new scan of the lineage of a genotype.
+         *
+         * @param genotype the genotype to scan.
+         *
+         * @param includeOriginal whether to include the mutations that
+         * originated in the genotype itself ({@code true}) or only
+         * those that it inherited ({@code false}).
+         *
+         * @return this cursor, positioned before the first mutation.
+         */
+        public LineageCursor reset(Genotype genotype, boolean includeOriginal) {
+            int previous = length;
+            length = 0;
+
+            for (Genotype ancestor = genotype; ancestor != null; ancestor = ancestor.parent) {
+                if (length == lineage.length)
+                    lineage = Arrays.copyOf(lineage, 2 * lineage.length);
+
+                lineage[length++] = ancestor;
+            }
+
+            // Release the ancestors of a deeper genotype scanned
+            // previously...
+            if (previous > length)
+                Arrays.fill(lineage, length, previous, null);
+
+            this.includeOriginal = includeOriginal;
+            this.lineageIndex = length - 1;
+            this.cursor = 0;
+            this.limit  = segmentLimit(lineageIndex);
+
+            return this;
+        }
+
+        private int segmentLimit(int index) {
+            if (index > 0)
+                return lineage[index - 1].countParentOriginal();
+            else if (includeOriginal)
+                return lineage[0].original.size();
+            else
+                return 0;
+        }
+
+        @Override public boolean hasNext() {
+            while (cursor >= limit && lineageIndex > 0) {
+                --lineageIndex;
+                cursor = 0;
+                limit  = segmentLimit(lineageIndex);
+            }
 
-        for (Genotype genotype = this; genotype.parent != null; genotype = genotype.parent)
-            iterators.addFirst(genotype.fromParentOriginal().iterator());
+            return cursor < limit;
+        }
+
+        @Override public Mutation next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return lineage[lineageIndex].original.get(cursor++);
+        }
 
-        return ConcatIterator.concat(iterators);
+        /**
+         * Returns the index of the next mutation without creating a
+         * range-encoded mutation.
+         *
+         * @return the index of the next mutation.
+         *
+         * @throws NoSuchElementException if the scan is complete.
+         */
+        public long nextIndex() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            List<Mutation> segment  = lineage[lineageIndex].original;
+            int            position = cursor++;
+
+            if (segment instanceof CompactMutationList)
+                return ((CompactMutationList) segment).getIndex(position);
+            else
+                return segment.get(position).getIndex();
+        }
+
+        /**
+         * Returns the type of the next mutation without creating a
+         * range-encoded mutation.
+         *
+         * @return the type of the next mutation.
+         *
+         * @throws NoSuchElementException if the scan is complete.
+         */
+        public MutationType nextType() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            List<Mutation> segment  = lineage[lineageIndex].original;
+            int            position = cursor++;
+
+            if (segment instanceof CompactMutationList)
+                return ((CompactMutationList) segment).getType(position);
+            else
+                return segment.get(position).getType();
+        }
     }
 
     /**
@@ -443,6 +718,13 @@ public abstract class Genotype extends Ordinal {
      * the carrier of this genotype.
      */
     public List<Mutation> viewOriginalMutations() {
-        return Collections.unmodifiableList(original);
+        //
+        // Compact lists are immutable; returning them directly lets
+        // callers map them to indexes without creating mutations...
+        //
+        if (original instanceof CompactMutationList)
+            return original;
+        else
+            return Collections.unmodifiableList(original);
     }
 }
@@ -0,0 +1,198 @@
+
+package tumor.mutation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import tumor.carrier.TumorComponent;
+
+/**
+ * Counts the number of cells carrying each mutation in a population
+ * by aggregating cell counts over the genotype phylogeny.
+ *
+ * <p>Rather than scanning every accumulated mutation of every
+ * component, the cell counts are summed for each genotype, pushed up
+ * the phylogeny once (deepest genotypes first), and each genotype's
+ * original mutations are credited with the total for the subtree
+ * that inherited them.  The cost is proportional to the number of
+ * genotypes (including ancestors) plus the number of original
+ * mutations, independent of the depth of the lineages.
+ */
+public final class GenotypeTree {
+    private GenotypeTree() {}
+
+    /**
+     * Counts the number of cells carrying each mutation in a
+     * component population.
+     *
+     * @param components the components to analyze.
+     *
+     * @return a new map containing the number of cells carrying each
+     * mutation present in the population (mutations carried only by
+     * components with no cells are omitted).
+     */
+    public static Object2LongOpenHashMap<Mutation> countMutations(Collection<? extends TumorComponent> components) {
+        Object2LongOpenHashMap<Genotype> genotypeCounts = new Object2LongOpenHashMap<Genotype>();
+
+        for (TumorComponent component : components)
+            genotypeCounts.addTo(component.getGenotype(), component.countCells());
+
+        return countMutations(genotypeCounts);
+    }
+
+    /**
+     * Counts the number of cells carrying each mutation in a
+     * population described by the number of cells carrying each
+     * genotype.
+     *
+     * @param genotypeCounts the number of cells carrying each
+     * genotype.
+     *
+     * @return a new map containing the number of cells carrying each
+     * mutation present in the population (mutations carried only by
+     * genotypes with no cells are omitted).
+     */
+    public static Object2LongOpenHashMap<Mutation> countMutations(Object2LongMap<Genotype> genotypeCounts) {
+        Object2LongOpenHashMap<Mutation> mutationCounts = new Object2LongOpenHashMap<Mutation>();
+        visitMutations(genotypeCounts, mutationCounts::addTo);
+        return mutationCounts;
+    }
+
+    /**
+     * Passes the number of cells carrying each mutation in a component
+     * population to a visitor, without collecting the counts.
+     *
+     * @param components the components to analyze.
+     *
+     * @param visitor the visitor to receive each mutation and the
+     * number of cells carrying it.
+     */
+    public static void visitMutations(Collection<? extends TumorComponent> components, ObjLongConsumer<Mutation> visitor) {
+        Object2LongOpenHashMap<Genotype> genotypeCounts = new Object2LongOpenHashMap<Genotype>();
+
+        for (TumorComponent component : components)
+            genotypeCounts.addTo(component.getGenotype(), component.countCells());
+
+        visitMutations(genotypeCounts, visitor);
+    }
+
+    /**
+     * Passes the number of cells carrying each mutation in a
+     * population (described by the number of cells carrying each
+     * genotype) to a visitor, without collecting the counts.
+     *
+     * <p>Each mutation originates in exactly one genotype, so the
+     * visitor receives each mutation once, with its total count;
+     * mutations carried by no cells are skipped.
+     *
+     * @param genotypeCounts the number of cells carrying each
+     * genotype.
+     *
+     * @param visitor the visitor to receive each mutation and the
+     * number of cells carrying it.
+     */
+    public static void visitMutations(Object2LongMap<Genotype> genotypeCounts, ObjLongConsumer<Mutation> visitor) {
+        Map<Genotype, Node> nodes = buildTree(genotypeCounts);
+
+        List<Node> ordered = new ArrayList<Node>(nodes.values());
+        ordered.sort(DEEPEST_FIRST);
+
+        for (Node node : ordered) {
+            node.creditOriginal(visitor);
+
+            if (node.genotype.parent != null)
+                nodes.get(node.genotype.parent).addChild(node);
+        }
+    }
+
+    private static Map<Genotype, Node> buildTree(Object2LongMap<Genotype> genotypeCounts) {
+        //
+        // Create nodes for the genotypes and all of their ancestors;
+        // stop climbing at the first ancestor already in the tree...
+        //
+        Map<Genotype, Node> nodes = new HashMap<Genotype, Node>();
+
+        for (Object2LongMap.Entry<Genotype> entry : genotypeCounts.object2LongEntrySet()) {
+            Genotype genotype = entry.getKey();
+            Node     node     = nodes.get(genotype);
+
+            if (node == null) {
+                node = new Node(genotype);
+                nodes.put(genotype, node);
+
+                for (Genotype ancestor = genotype.parent; ancestor != null && !nodes.containsKey(ancestor); ancestor = ancestor.parent)
+                    nodes.put(ancestor, new Node(ancestor));
+            }
+
+            node.ownCount += entry.getLongValue();
+        }
+
+        return nodes;
+    }
+
+    private static final Comparator<Node> DEEPEST_FIRST =
+        new Comparator<Node>() {
+            @Override public int compare(Node n1, Node n2) {
+                return Integer.compare(n2.genotype.getDepth(), n1.genotype.getDepth());
+            }
+        };
+
+    private static final class Node {
+        private final Genotype genotype;
+
+        // Cells carrying exactly this genotype...
+        private long ownCount = 0;
+
+        // Cells carrying any descendant genotype...
+        private long childCount = 0;
+
+        // Descendant cells that inherited only a prefix of the
+        // original mutations: excluded[k] holds the descendant cells
+        // that inherited exactly the first k original mutations (only
+        // allocated for mutable genotypes that grew after cloning)...
+        private long[] excluded = null;
+
+        Node(Genotype genotype) {
+            this.genotype = genotype;
+        }
+
+        long subtreeCount() {
+            return ownCount + childCount;
+        }
+
+        void addChild(Node child) {
+            long cellCount = child.subtreeCount();
+            int  inherited = child.genotype.countParentOriginal();
+
+            childCount += cellCount;
+
+            if (inherited < genotype.original.size()) {
+                if (excluded == null)
+                    excluded = new long[genotype.original.size()];
+
+                excluded[inherited] += cellCount;
+            }
+        }
+
+        void creditOriginal(ObjLongConsumer<Mutation> visitor) {
+            long carrierCount = subtreeCount();
+            List<Mutation> original = genotype.original;
+
+            for (int index = 0; index < original.size(); ++index) {
+                if (excluded != null)
+                    carrierCount -= excluded[index];
+
+                if (carrierCount > 0)
+                    visitor.accept(original.get(index), carrierCount);
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ package tumor.mutation;
 import java.util.ArrayList;
 import java.util.List;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
 import jam.app.JamProperties;
 
 /**
@@ -37,6 +39,9 @@ public abstract class HomogeneousGenerator extends MutationGenerator {
      * @return a list containing the specified number of mutations.
      */
     public List<Mutation> generateList(long mutationCount) {
+        if (isRangeEncoded() && mutationCount > 0)
+            return CompactMutationList.neutral((int) mutationCount);
+
         List<Mutation> mutations = new ArrayList<Mutation>((int) mutationCount);
 
         for (int index = 0; index < mutationCount; ++index)
@@ -45,6 +50,39 @@ public abstract class HomogeneousGenerator extends MutationGenerator {
         return mutations;
     }
 
+    /**
+     * Identifies generators whose mutations are stored as ranges of
+     * indexes (see {@link CompactMutationList}) rather than as
+     * individual objects.
+     *
+     * <p>Only neutral mutations may be range-encoded: they carry no
+     * state apart from their index and origination time.  This
+     * default implementation returns {@code false}.
+     *
+     * @return {@code true} iff this generator range-encodes its
+     * mutations.
+     */
+    public boolean isRangeEncoded() {
+        return false;
+    }
+
+    /**
+     * Generates mutations for the current daughter in a batch.
+     *
+     * @param batch the batch under construction.
+     *
+     * @param mutationCount the number of mutations to generate.
+     */
+    void generateInto(MutationBatch batch, long mutationCount) {
+        if (isRangeEncoded()) {
+            batch.addNeutralRange((int) mutationCount);
+        }
+        else {
+            for (long index = 0; index < mutationCount; ++index)
+                batch.add(generateOne());
+        }
+    }
+
     /**
      * Returns the rate at which mutations arrive.
      *
@@ -62,41 +100,18 @@ public abstract class HomogeneousGenerator extends MutationGenerator {
         return generateList(mutationRate.resolveMutationCount(daughterCount));
     }
 
-    @Override public List<List<Mutation>> generateLineageMutations(long daughterCount) {
-        if (daughterCount <= MutationRate.EXPLICIT_SAMPLING_LIMIT)
-            return sampleLineageMutations(daughterCount);
-        else
-            return computeLineageMutations(daughterCount);
-    }
+    @Override public void generateLineageMutations(long daughterCount, MutationBatch batch) {
+        batch.clear();
 
-    private List<List<Mutation>> computeLineageMutations(long daughterCount) {
-        List<List<Mutation>> lists = new ArrayList<List<Mutation>>();
+        // Resolve the number of mutations in each mutated daughter
+        // with one call to the mutation rate, then generate all of
+        // the mutations into the flat batch arrays...
+        IntArrayList mutatedCounts = batch.mutatedCounts();
+        mutationRate.resolveMutatedCounts(daughterCount, mutatedCounts);
 
-        // The element countDistribution[k] contains the number of
-        // mutation lists to generate with exactly "k" mutations...
-        long[] countDistribution =
-            mutationRate.computeMutationDistribution(daughterCount);
-
-        for (int mutationCount = 1; mutationCount < countDistribution.length; ++mutationCount) {
-            long lineageCount = countDistribution[mutationCount];
-
-            for (long lineageIndex = 0; lineageIndex < lineageCount; ++lineageIndex)
-                lists.add(generateList(mutationCount));
+        for (int daughterIndex = 0; daughterIndex < mutatedCounts.size(); ++daughterIndex) {
+            generateInto(batch, mutatedCounts.getInt(daughterIndex));
+            batch.endDaughter();
         }
-
-        return lists;
-    }
-
-    private List<List<Mutation>> sampleLineageMutations(long daughterCount) {
-        List<List<Mutation>> lists = new ArrayList<List<Mutation>>();
-
-        for (long index = 0; index < daughterCount; ++index) {
-            long mutationCount = mutationRate.sampleMutationCount();
-
-            if (mutationCount > 0)
-                lists.add(generateList(mutationCount));
-        }
-
-        return lists;
     }
 }
@@ -39,6 +39,11 @@ public final class MutableGenotype extends Genotype {
             this.parentOriginalEnd = 0;
     }
 
+    private MutableGenotype(long index, MutableGenotype parent, List<Mutation> original, int parentOriginalEnd) {
+        super(index, parent, new ArrayList<Mutation>(original));
+        this.parentOriginalEnd = parentOriginalEnd;
+    }
+
     /**
      * Creates a mutable genotype for a founding carrier.
      *
@@ -75,6 +80,40 @@ public final class MutableGenotype extends Genotype {
         return founder(Mutation.TRANSFORMERS);
     }
 
+    /**
+     * Recreates a mutable genotype recorded in a checkpoint.
+     *
+     * @param index the ordinal index of the genotype.
+     *
+     * @param parent the restored parent genotype; {@code null} for
+     * founding genotypes.
+     *
+     * @param original the mutations originating in the carrier
+     * (at the time the checkpoint was recorded).
+     *
+     * @param parentOriginalEnd the number of original mutations from
+     * the parent genotype that were inherited by this genotype.
+     *
+     * @return the restored genotype.
+     */
+    public static MutableGenotype restore(long index, MutableGenotype parent, List<Mutation> original, int parentOriginalEnd) {
+        return new MutableGenotype(index, parent, original, parentOriginalEnd);
+    }
+
+    /**
+     * Returns a copy of this genotype that is unaffected by mutations
+     * appended to this genotype later (for output on another thread).
+     *
+     * @param parentCopy the frozen copy of the parent genotype;
+     * {@code null} for founding genotypes.
+     *
+     * @return a copy of this genotype with the original mutations
+     * present at the time of the call.
+     */
+    public MutableGenotype freeze(MutableGenotype parentCopy) {
+        return new MutableGenotype(getIndex(), parentCopy, original, parentOriginalEnd);
+    }
+
     /**
      * Appends newly acquired mutations to this genotype.
      *
@@ -104,4 +143,8 @@ public final class MutableGenotype extends Genotype {
     @Override protected List<Mutation> fromParentOriginal() {
         return parent.original.subList(0, parentOriginalEnd);
     }
+
+    @Override protected int countParentOriginal() {
+        return parentOriginalEnd;
+    }
 }
@@ -4,12 +4,12 @@ package tumor.mutation;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongList;
 
 import jam.lang.Ordinal;
-import jam.lang.OrdinalIndex;
 
 import tumor.driver.TumorDriver;
 import tumor.growth.GrowthRate;
@@ -26,9 +26,11 @@ import tumor.growth.GrowthRate;
  * only independent mutations.
  */
 public abstract class Mutation extends Ordinal {
-    private final int originationTime = TumorDriver.global().getTimeStep();
+    private final int originationTime;
     
-    private static OrdinalIndex ordinalIndex = OrdinalIndex.create();
+    // The index of the next new mutation; blocks of consecutive
+    // indexes are reserved for range-encoded neutral mutations...
+    private static final AtomicLong nextIndex = new AtomicLong(0L);
 
     /**
      * The single mutation responsible for transformation to malignancy.
@@ -44,7 +46,22 @@ public abstract class Mutation extends Ordinal {
      * Creates a new mutation with an automatically generated index.
      */
     protected Mutation() {
-        super(ordinalIndex.next());
+        super(nextIndex.getAndIncrement());
+        this.originationTime = TumorDriver.global().getTimeStep();
+    }
+
+    /**
+     * Creates a mutation with an assigned index and origination time
+     * (when restoring a simulation from a checkpoint).
+     *
+     * @param index the ordinal index of the mutation.
+     *
+     * @param originationTime the time step when the mutation
+     * originated.
+     */
+    protected Mutation(long index, int originationTime) {
+        super(index);
+        this.originationTime = originationTime;
     }
 
     /**
@@ -53,7 +70,73 @@ public abstract class Mutation extends Ordinal {
      * @return the total number of mutations created in this JVM session.
      */
     public static long count() {
-        return ordinalIndex.peek();
+        return nextIndex.get();
+    }
+
+    /**
+     * Reserves a block of consecutive indexes for mutations that are
+     * created together (range-encoded neutral mutations).
+     *
+     * @param count the number of indexes to reserve.
+     *
+     * @return the first index in the reserved block.
+     */
+    static long reserveIndexes(int count) {
+        return nextIndex.getAndAdd(count);
+    }
+
+    /**
+     * Assigns the index of the next new mutation (when restoring a
+     * simulation from a checkpoint or starting a new trial).
+     *
+     * @param count the total number of mutations created before the
+     * checkpoint was recorded or the trial started.
+     */
+    public static void restoreCount(long count) {
+        nextIndex.set(count);
+    }
+
+    /**
+     * Recreates a mutation recorded in a checkpoint.
+     *
+     * <p>The transforming mutation is a global singleton, so it is
+     * returned in place of a new mutation with the same index.
+     *
+     * @param type the type of the mutation.
+     *
+     * @param index the ordinal index of the mutation.
+     *
+     * @param originationTime the time step when the mutation
+     * originated.
+     *
+     * @param selectionCoeff the selection coefficient (used only for
+     * scalar mutations).
+     *
+     * @return the restored mutation.
+     */
+    public static Mutation restore(MutationType type, long index, int originationTime, double selectionCoeff) {
+        if (index == TRANSFORMER.getIndex())
+            return TRANSFORMER;
+
+        switch (type) {
+        case FOUNDER:
+            return new FounderMutation(index, originationTime);
+
+        case NEOANTIGEN:
+            return new NeoantigenMutation(index, originationTime);
+
+        case NEUTRAL:
+            return new NeutralMutation(index, originationTime);
+
+        case RESISTANCE:
+            return new ResistanceMutation(index, originationTime);
+
+        case SCALAR:
+            return new ScalarMutation(index, originationTime, selectionCoeff);
+
+        default:
+            throw new IllegalArgumentException("Unknown mutation type.");
+        }
     }
 
     /**
@@ -106,6 +189,13 @@ public abstract class Mutation extends Ordinal {
      * have been applied; the original rate is unchanged.
      */
     public static GrowthRate apply(GrowthRate rate, Collection<Mutation> mutations) {
+        //
+        // Neutral mutations never change the growth rate, so there is
+        // no need to create the range-encoded mutations...
+        //
+        if (mutations instanceof CompactMutationList)
+            mutations = ((CompactMutationList) mutations).viewExplicit();
+
         for (Mutation mutation : mutations) {
             if (mutation.isIndependent())
                 rate = mutation.apply(rate);
@@ -125,7 +215,10 @@ public abstract class Mutation extends Ordinal {
      * the collection iterator.
      */
     public static LongList indexList(Collection<Mutation> mutations) {
-        return indexList(mutations.iterator());
+        if (mutations instanceof CompactMutationList)
+            return ((CompactMutationList) mutations).indexList();
+        else
+            return indexList(mutations.iterator());
     }
 
     /**
@@ -217,6 +310,21 @@ public abstract class Mutation extends Ordinal {
         return originationTime;
     }
 
+    /**
+     * Mutations are equal if they have the same index.
+     *
+     * <p>Range-encoded neutral mutations are created on demand each
+     * time they are accessed, so several instances may represent the
+     * same mutation; the index uniquely identifies the mutation.
+     */
+    @Override public boolean equals(Object that) {
+        return (that instanceof Mutation) && this.getIndex() == ((Mutation) that).getIndex();
+    }
+
+    @Override public int hashCode() {
+        return Long.hashCode(getIndex());
+    }
+
     @Override public String toString() {
         return String.format("%s(%d; %d)", getClass().getSimpleName(), getIndex(), getOriginationTime());
     }
@@ -0,0 +1,244 @@
+
+package tumor.mutation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import tumor.driver.TumorDriver;
+import tumor.growth.GrowthRate;
+
+/**
+ * Stores the mutations originating in the mutated daughters of one
+ * division cycle in flat arrays that are reused from one cycle to
+ * the next.
+ *
+ * <p>The mutations for all daughters are stored contiguously in a
+ * single array; daughter {@code k} owns the mutations in positions
+ * {@code [offset(k), offset(k + 1))}.  Only daughters with at least
+ * one mutation are stored.  A batch is filled by a single call to
+ * {@link MutationGenerator#generateLineageMutations(long, MutationBatch)},
+ * which replaces the contents from any previous call, so a carrier
+ * may process any number of division cycles without allocating a
+ * list per daughter.
+ *
+ * <p>Neutral mutations from range-encoding generators are not
+ * stored as objects: each daughter records a single range of
+ * consecutive mutation indexes (with a shared origination time),
+ * and {@link MutationBatch#viewMutations(int)} returns a
+ * {@link CompactMutationList} for such daughters.
+ *
+ * <p>Batches are not thread-safe; each thread must use its own.
+ */
+public final class MutationBatch {
+    private int daughterCount = 0;
+    private int mutationCount = 0;
+
+    private int[]      offsets   = new int[INITIAL_CAPACITY + 1];
+    private Mutation[] mutations = new Mutation[INITIAL_CAPACITY];
+
+    // Range-encoded neutral mutations for each daughter (the first
+    // index, count, and origination time), indexed like "offsets"...
+    private long[] rangeStarts = new long[INITIAL_CAPACITY + 1];
+    private int[]  rangeCounts = new int[INITIAL_CAPACITY + 1];
+    private int[]  rangeTimes  = new int[INITIAL_CAPACITY + 1];
+
+    // Total number of range-encoded mutations in the batch...
+    private int rangeTotal = 0;
+
+    // The range for the daughter under construction...
+    private long pendingStart = 0L;
+    private int  pendingCount = 0;
+    private int  pendingTime  = 0;
+
+    // Scratch space for the mutation counts resolved by the
+    // mutation rates...
+    private final IntArrayList mutatedCounts = new IntArrayList();
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Creates an empty batch.
+     */
+    public MutationBatch() {
+    }
+
+    void clear() {
+        daughterCount = 0;
+        mutationCount = 0;
+        rangeTotal    = 0;
+        pendingCount  = 0;
+    }
+
+    IntArrayList mutatedCounts() {
+        mutatedCounts.clear();
+        return mutatedCounts;
+    }
+
+    void add(Mutation mutation) {
+        if (mutationCount == mutations.length)
+            mutations = Arrays.copyOf(mutations, 2 * mutations.length);
+
+        mutations[mutationCount++] = mutation;
+    }
+
+    void addNeutralRange(int count) {
+        if (count <= 0)
+            return;
+
+        long start = Mutation.reserveIndexes(count);
+        int  time  = TumorDriver.global().getTimeStep();
+
+        if (pendingCount == 0) {
+            pendingStart = start;
+            pendingCount = count;
+            pendingTime  = time;
+        }
+        else if (pendingStart + pendingCount == start && pendingTime == time) {
+            pendingCount += count;
+        }
+        else {
+            //
+            // A daughter may hold only one range, so any disjoint
+            // range must be stored explicitly...
+            //
+            for (int offset = 0; offset < count; ++offset)
+                add(new NeutralMutation(start + offset, time));
+        }
+    }
+
+    void endDaughter() {
+        //
+        // The mutations added since the previous daughter belong to
+        // the daughter just completed; daughters without mutations
+        // are discarded...
+        //
+        if (mutationCount == offsets[daughterCount] && pendingCount == 0)
+            return;
+
+        if (daughterCount + 1 == offsets.length) {
+            int capacity = 2 * offsets.length;
+
+            offsets     = Arrays.copyOf(offsets, capacity);
+            rangeStarts = Arrays.copyOf(rangeStarts, capacity);
+            rangeCounts = Arrays.copyOf(rangeCounts, capacity);
+            rangeTimes  = Arrays.copyOf(rangeTimes, capacity);
+        }
+
+        rangeStarts[daughterCount] = pendingStart;
+        rangeCounts[daughterCount] = pendingCount;
+        rangeTimes[daughterCount]  = pendingTime;
+
+        rangeTotal  += pendingCount;
+        pendingCount = 0;
+
+        offsets[++daughterCount] = mutationCount;
+    }
+
+    /**
+     * Computes the growth rate of a mutated daughter.
+     *
+     * @param rate the growth rate of the parent.
+     *
+     * @param daughterIndex the index of the daughter in this batch.
+     *
+     * @return the growth rate after applying the mutations of the
+     * daughter to the parent rate.
+     *
+     * @throws IllegalStateException if any mutation is not
+     * independent.
+     */
+    public GrowthRate apply(GrowthRate rate, int daughterIndex) {
+        //
+        // Range-encoded neutral mutations never change the rate...
+        //
+        for (int index = offsets[daughterIndex]; index < offsets[daughterIndex + 1]; ++index) {
+            Mutation mutation = mutations[index];
+
+            if (mutation.isIndependent())
+                rate = mutation.apply(rate);
+            else
+                throw new IllegalStateException("Synergistic or antagonistic mutations are not yet suppported.");
+        }
+
+        return rate;
+    }
+
+    /**
+     * Returns the number of mutated daughters in this batch.
+     *
+     * @return the number of mutated daughters in this batch.
+     */
+    public int countDaughters() {
+        return daughterCount;
+    }
+
+    /**
+     * Returns the total number of mutations in this batch.
+     *
+     * @return the total number of mutations in this batch.
+     */
+    public int countMutations() {
+        return mutationCount + rangeTotal;
+    }
+
+    /**
+     * Returns the number of mutations originating in a daughter.
+     *
+     * @param daughterIndex the index of the daughter in this batch.
+     *
+     * @return the number of mutations originating in the daughter.
+     */
+    public int countMutations(int daughterIndex) {
+        return offsets[daughterIndex + 1] - offsets[daughterIndex] + rangeCounts[daughterIndex];
+    }
+
+    /**
+     * Returns a view of the mutations originating in a daughter.
+     *
+     * <p>The view is backed by this batch and becomes invalid when
+     * the batch is filled again; callers that retain the mutations
+     * must copy them (as the genotype factories do).  Daughters with
+     * range-encoded mutations are returned as independent (and
+     * immutable) compact lists, which need not be copied.
+     *
+     * @param daughterIndex the index of the daughter in this batch.
+     *
+     * @return a view of the mutations originating in the daughter.
+     */
+    public List<Mutation> viewMutations(int daughterIndex) {
+        List<Mutation> explicit =
+            Arrays.asList(mutations).subList(offsets[daughterIndex], offsets[daughterIndex + 1]);
+
+        if (rangeCounts[daughterIndex] == 0)
+            return explicit;
+
+        return CompactMutationList.create(explicit,
+                                          rangeStarts[daughterIndex],
+                                          rangeCounts[daughterIndex],
+                                          rangeTimes[daughterIndex]);
+    }
+
+    /**
+     * Copies the contents of this batch into separate lists.
+     *
+     * @return a list containing one list of mutations for each
+     * mutated daughter.
+     */
+    public List<List<Mutation>> toLists() {
+        List<List<Mutation>> lists = new ArrayList<List<Mutation>>(daughterCount);
+
+        for (int daughterIndex = 0; daughterIndex < daughterCount; ++daughterIndex) {
+            List<Mutation> daughterMut = viewMutations(daughterIndex);
+
+            if (daughterMut instanceof CompactMutationList)
+                lists.add(daughterMut);
+            else
+                lists.add(new ArrayList<Mutation>(daughterMut));
+        }
+
+        return lists;
+    }
+}
@@ -0,0 +1,198 @@
+
+package tumor.mutation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Represents a set of mutations as a bit vector over the dense
+ * indexes assigned by a {@link MutationIndexMap}.
+ *
+ * <p>The cardinality of intersections, unions, and differences is
+ * computed by population counts over the bit words, without probing
+ * hash tables.  Bit sets may only be combined with other bit sets
+ * encoded by the same index map.
+ */
+public final class MutationBitSet {
+    private final MutationIndexMap indexMap;
+    private final long[] words;
+    private final int cardinality;
+
+    private MutationBitSet(MutationIndexMap indexMap, long[] words, int cardinality) {
+        this.indexMap    = indexMap;
+        this.words       = words;
+        this.cardinality = cardinality;
+    }
+
+    static MutationBitSet encode(MutationIndexMap indexMap, Collection<Mutation> collection) {
+        long[] words = new long[wordCount(indexMap.size())];
+
+        for (Mutation mutation : collection) {
+            int denseIndex = indexMap.indexOf(mutation);
+
+            if (denseIndex < 0)
+                throw new IllegalArgumentException("Mutation [" + mutation + "] is not covered by the index map.");
+
+            words[denseIndex >>> 6] |= 1L << denseIndex;
+        }
+
+        return new MutationBitSet(indexMap, words, popCount(words));
+    }
+
+    private static int wordCount(int bitCount) {
+        return (bitCount + 63) >>> 6;
+    }
+
+    private static int popCount(long[] words) {
+        int count = 0;
+
+        for (long word : words)
+            count += Long.bitCount(word);
+
+        return count;
+    }
+
+    /**
+     * Identifies mutations contained in this set.
+     *
+     * @param mutation the mutation of interest.
+     *
+     * @return {@code true} iff this set contains the specified
+     * mutation.
+     */
+    public boolean contains(Mutation mutation) {
+        int denseIndex = indexMap.indexOf(mutation);
+        return denseIndex >= 0 && (words[denseIndex >>> 6] & (1L << denseIndex)) != 0;
+    }
+
+    /**
+     * Counts the mutations contained in both this set and another.
+     *
+     * @param that the other mutation set.
+     *
+     * @return the number of mutations in the intersection of the two
+     * sets.
+     *
+     * @throws IllegalArgumentException unless the sets were encoded by
+     * the same index map.
+     */
+    public int countShared(MutationBitSet that) {
+        validateIndexMap(that);
+
+        int count = 0;
+
+        for (int index = 0; index < words.length; ++index)
+            count += Long.bitCount(this.words[index] & that.words[index]);
+
+        return count;
+    }
+
+    /**
+     * Counts the mutations contained in this set but not in another.
+     *
+     * @param that the other mutation set.
+     *
+     * @return the number of mutations in the difference of the two
+     * sets.
+     *
+     * @throws IllegalArgumentException unless the sets were encoded by
+     * the same index map.
+     */
+    public int countDifference(MutationBitSet that) {
+        return this.cardinality - countShared(that);
+    }
+
+    /**
+     * Counts the mutations contained in either this set or another.
+     *
+     * @param that the other mutation set.
+     *
+     * @return the number of mutations in the union of the two sets.
+     *
+     * @throws IllegalArgumentException unless the sets were encoded by
+     * the same index map.
+     */
+    public int countUnion(MutationBitSet that) {
+        return this.cardinality + that.cardinality - countShared(that);
+    }
+
+    /**
+     * Computes the mutational distance between this set and another.
+     *
+     * @param that the other mutation set.
+     *
+     * @return the mutational distance between the two sets.
+     *
+     * @throws IllegalArgumentException unless the sets were encoded by
+     * the same index map.
+     */
+    public MutationalDistance distance(MutationBitSet that) {
+        int shared = countShared(that);
+        return MutationalDistance.create(shared, this.cardinality + that.cardinality - shared);
+    }
+
+    /**
+     * Lists the mutations contained in both this set and another.
+     *
+     * @param that the other mutation set.
+     *
+     * @return the mutations in the intersection of the two sets (in
+     * chronological order).
+     *
+     * @throws IllegalArgumentException unless the sets were encoded by
+     * the same index map.
+     */
+    public List<Mutation> intersection(MutationBitSet that) {
+        validateIndexMap(that);
+        List<Mutation> mutations = new ArrayList<Mutation>();
+
+        for (int index = 0; index < words.length; ++index)
+            decode(index, this.words[index] & that.words[index], mutations);
+
+        return mutations;
+    }
+
+    /**
+     * Lists the mutations contained in this set but not in another.
+     *
+     * @param that the other mutation set.
+     *
+     * @return the mutations in the difference of the two sets (in
+     * chronological order).
+     *
+     * @throws IllegalArgumentException unless the sets were encoded by
+     * the same index map.
+     */
+    public List<Mutation> difference(MutationBitSet that) {
+        validateIndexMap(that);
+        List<Mutation> mutations = new ArrayList<Mutation>();
+
+        for (int index = 0; index < words.length; ++index)
+            decode(index, this.words[index] & ~that.words[index], mutations);
+
+        return mutations;
+    }
+
+    private void decode(int wordIndex, long word, List<Mutation> mutations) {
+        while (word != 0) {
+            int bit = Long.numberOfTrailingZeros(word);
+            mutations.add(indexMap.get((wordIndex << 6) + bit));
+            word &= word - 1;
+        }
+    }
+
+    private void validateIndexMap(MutationBitSet that) {
+        if (this.indexMap != that.indexMap)
+            throw new IllegalArgumentException("Mutation bit sets were encoded by different index maps.");
+    }
+
+    /**
+     * Returns the number of mutations in this set.
+     *
+     * @return the number of mutations in this set.
+     */
+    public int size() {
+        return cardinality;
+    }
+}
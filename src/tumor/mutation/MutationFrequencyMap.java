@@ -19,6 +19,7 @@ import jam.vector.JamVector;
 import jam.vector.VectorView;
 
 import tumor.carrier.Carrier;
+import tumor.carrier.TumorComponent;
 
 /**
  * Associates a mutation with its frequency of occurrence in a
@@ -49,6 +50,19 @@ public final class MutationFrequencyMap {
     }
 
     private static Object2LongMap<Mutation> countMutations(Collection<? extends Carrier> carriers) {
+        //
+        // Tumor components carry genotypes, so their mutation counts
+        // may be aggregated over the genotype phylogeny; other
+        // carriers (whole tumors) must list their mutations...
+        //
+        if (allComponents(carriers)) {
+            @SuppressWarnings("unchecked")
+                Collection<? extends TumorComponent> components =
+                (Collection<? extends TumorComponent>) carriers;
+
+            return GenotypeTree.countMutations(components);
+        }
+
         Object2LongOpenHashMap<Mutation> counts =
             new Object2LongOpenHashMap<Mutation>();
 
@@ -62,6 +76,14 @@ public final class MutationFrequencyMap {
         return counts;
     }
 
+    private static boolean allComponents(Collection<? extends Carrier> carriers) {
+        for (Carrier carrier : carriers)
+            if (!(carrier instanceof TumorComponent))
+                return false;
+
+        return true;
+    }
+
     private static Object2DoubleMap<Mutation> computeFrequencies(Object2LongMap<Mutation> mutationCounts, long totalCellCount) {
         Object2DoubleMap<Mutation> mutationFreq =
             new Object2DoubleOpenHashMap<Mutation>(mutationCounts.size());
@@ -0,0 +1,235 @@
+
+package tumor.mutation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import jam.app.JamProperties;
+import jam.math.DoubleRange;
+
+import tumor.carrier.Carrier;
+import tumor.carrier.TumorComponent;
+
+/**
+ * Summarizes the mutation frequency distribution of a population in
+ * bounded memory: the most frequent mutations and a histogram of all
+ * mutation frequencies.
+ *
+ * <p>The cell count for each mutation is streamed from the genotype
+ * phylogeny (see {@link GenotypeTree#visitMutations}), which credits
+ * every mutation exactly once with its total count, so no map over
+ * all mutations is ever built.  The most frequent mutations are kept
+ * in a bounded min-heap and are therefore exact.  The frequency
+ * distribution is binned into equal-width bins on {@code [0, 1]}, so
+ * quantiles are accurate to half of the bin width; the mean and the
+ * mutation count are exact.  Memory is proportional to the number of
+ * top mutations plus the number of bins, independent of the number
+ * of distinct mutations.
+ */
+public final class MutationFrequencySketch {
+    private final int    topCount;
+    private final long[] bins;
+
+    // Min-heap of the most frequent mutations seen so far...
+    private final PriorityQueue<MutationFrequency> top;
+
+    private long   mutationCount = 0;
+    private double frequencySum  = 0.0;
+
+    /**
+     * Name of the system property that enables the approximate
+     * (sketch) mode for tumor-wide mutation frequency calculations.
+     */
+    public static final String ENABLED_PROPERTY = "tumor.mutation.frequencySketch";
+
+    /**
+     * Name of the system property that defines the number of most
+     * frequent mutations retained by the sketch.
+     */
+    public static final String TOP_COUNT_PROPERTY = "tumor.mutation.frequencySketchTopCount";
+
+    /**
+     * Name of the system property that defines the number of
+     * histogram bins; the frequency quantiles are accurate to
+     * {@code 0.5 / binCount}.
+     */
+    public static final String BIN_COUNT_PROPERTY = "tumor.mutation.frequencySketchBinCount";
+
+    /**
+     * Default value for the top count property.
+     */
+    public static final int TOP_COUNT_DEFAULT = 1000;
+
+    /**
+     * Default value for the bin count property.
+     */
+    public static final int BIN_COUNT_DEFAULT = 1000;
+
+    private MutationFrequencySketch(int topCount, int binCount) {
+        if (topCount < 1)
+            throw new IllegalArgumentException("Top count must be positive.");
+
+        if (binCount < 1)
+            throw new IllegalArgumentException("Bin count must be positive.");
+
+        this.topCount = topCount;
+        this.bins     = new long[binCount];
+        this.top      = new PriorityQueue<MutationFrequency>(topCount, MutationFrequency.ASCENDING_FREQUENCY_COMPARATOR);
+    }
+
+    /**
+     * Identifies simulations that use the sketch in place of the
+     * exact mutation frequency map for tumor-wide calculations.
+     *
+     * @return {@code true} iff the sketch mode is enabled.
+     */
+    public static boolean isEnabled() {
+        return JamProperties.getOptionalBoolean(ENABLED_PROPERTY, false);
+    }
+
+    /**
+     * Computes a sketch of the mutation frequency distribution for a
+     * component population with the resolution specified by system
+     * properties.
+     *
+     * @param components the components to be analyzed.
+     *
+     * @return the sketch for the specified components.
+     */
+    public static MutationFrequencySketch compute(Collection<? extends TumorComponent> components) {
+        return compute(components,
+                       JamProperties.getOptionalInt(TOP_COUNT_PROPERTY, TOP_COUNT_DEFAULT),
+                       JamProperties.getOptionalInt(BIN_COUNT_PROPERTY, BIN_COUNT_DEFAULT));
+    }
+
+    /**
+     * Computes a sketch of the mutation frequency distribution for a
+     * component population.
+     *
+     * @param components the components to be analyzed.
+     *
+     * @param topCount the number of most frequent mutations to retain.
+     *
+     * @param binCount the number of frequency histogram bins.
+     *
+     * @return the sketch for the specified components.
+     *
+     * @throws IllegalArgumentException unless the top count and bin
+     * count are positive.
+     */
+    public static MutationFrequencySketch compute(Collection<? extends TumorComponent> components, int topCount, int binCount) {
+        MutationFrequencySketch sketch = new MutationFrequencySketch(topCount, binCount);
+        long totalCellCount = Carrier.countCells(components);
+
+        if (totalCellCount > 0)
+            GenotypeTree.visitMutations(components, (mutation, cellCount) ->
+                                        sketch.add(mutation, (double) cellCount / totalCellCount));
+
+        return sketch;
+    }
+
+    private void add(Mutation mutation, double frequency) {
+        DoubleRange.FRACTIONAL.validate("Mutation frequency", frequency);
+
+        mutationCount += 1;
+        frequencySum  += frequency;
+        bins[binIndex(frequency)] += 1;
+
+        if (top.size() < topCount) {
+            top.add(new MutationFrequency(mutation, frequency));
+        }
+        else if (frequency > top.peek().getFrequency()) {
+            top.poll();
+            top.add(new MutationFrequency(mutation, frequency));
+        }
+    }
+
+    private int binIndex(double frequency) {
+        return Math.min((int) (frequency * bins.length), bins.length - 1);
+    }
+
+    /**
+     * Returns the number of distinct mutations in the population.
+     *
+     * @return the number of distinct mutations in the population.
+     */
+    public long countMutations() {
+        return mutationCount;
+    }
+
+    /**
+     * Returns the maximum error in the frequency quantiles.
+     *
+     * @return the maximum error in the frequency quantiles.
+     */
+    public double getErrorBound() {
+        return 0.5 / bins.length;
+    }
+
+    /**
+     * Returns the mean mutation frequency (exactly).
+     *
+     * @return the mean mutation frequency (or zero if the population
+     * carries no mutations).
+     */
+    public double getMean() {
+        return (mutationCount > 0) ? frequencySum / mutationCount : 0.0;
+    }
+
+    /**
+     * Returns the median mutation frequency.
+     *
+     * @return the median mutation frequency (to within the error
+     * bound of this sketch).
+     */
+    public double getMedian() {
+        return quantile(0.5);
+    }
+
+    /**
+     * Estimates a quantile of the mutation frequency distribution.
+     *
+     * @param prob the cumulative probability of the quantile.
+     *
+     * @return the midpoint of the histogram bin containing the
+     * specified quantile (within the error bound of the exact value),
+     * or zero if the population carries no mutations.
+     *
+     * @throws RuntimeException unless the probability lies within the
+     * unit interval.
+     */
+    public double quantile(double prob) {
+        DoubleRange.FRACTIONAL.validate("Quantile probability", prob);
+
+        if (mutationCount == 0)
+            return 0.0;
+
+        // The quantile is the k-th smallest frequency (one-based)...
+        long rank = Math.max(1L, (long) Math.ceil(prob * mutationCount));
+        long cumulative = 0L;
+
+        for (int index = 0; index < bins.length; ++index) {
+            cumulative += bins[index];
+
+            if (cumulative >= rank)
+                return (index + 0.5) / bins.length;
+        }
+
+        throw new IllegalStateException("Histogram bins are inconsistent with the mutation count.");
+    }
+
+    /**
+     * Lists the most frequent mutations (exactly).
+     *
+     * @return a new list containing the most frequent mutations in
+     * <em>decreasing</em> order by frequency (the most frequent
+     * mutation first).
+     */
+    public List<MutationFrequency> listTop() {
+        List<MutationFrequency> list = new ArrayList<MutationFrequency>(top);
+        MutationFrequency.sortDescending(list);
+        return list;
+    }
+}
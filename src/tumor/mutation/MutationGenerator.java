@@ -127,7 +127,26 @@ public abstract class MutationGenerator {
      * @return the mutations originating in mutated daughter lineages
      * only.
      */
-    public abstract List<List<Mutation>> generateLineageMutations(long daughterCount);
+    public List<List<Mutation>> generateLineageMutations(long daughterCount) {
+        MutationBatch batch = new MutationBatch();
+        generateLineageMutations(daughterCount, batch);
+        return batch.toLists();
+    }
+
+    /**
+     * Generates the mutations that originate in a lineage during
+     * one division cycle and stores them in a reusable batch.
+     *
+     * <p>The batch is cleared and then filled with the mutations for
+     * the mutated daughter cells only, in the same order (and with
+     * the same random deviates) as the list-based method.
+     *
+     * @param daughterCount the number of daughter cells produced
+     * during the division cycle.
+     *
+     * @param batch the batch to fill.
+     */
+    public abstract void generateLineageMutations(long daughterCount, MutationBatch batch);
 
     /**
      * Returns the global mutation generator (defined through system
@@ -139,9 +158,15 @@ public abstract class MutationGenerator {
      * are defined.
      */
     public static MutationGenerator global() {
+        //
+        // The limits are checked on every call (rather than replacing
+        // the global generator once they are reached), because the
+        // mutation count and time step start over in each trial...
+        //
         if (generationMustStop())
-            global = EmptyGenerator.INSTANCE;
-        else if (global == null)
+            return EmptyGenerator.INSTANCE;
+
+        if (global == null)
             global = createGlobal();
 
         return global;
@@ -0,0 +1,129 @@
+
+package tumor.mutation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+/**
+ * Assigns dense integer indexes {@code 0, 1, ..., size() - 1} to a
+ * fixed collection of mutations, so that sets of those mutations may
+ * be encoded as compact bit sets.
+ *
+ * <p>The dense indexes are assigned in the order of the mutation
+ * ordinal indexes, so iterating over the dense indexes visits the
+ * mutations in chronological order.
+ */
+public final class MutationIndexMap {
+    private final Mutation[] mutations;
+    private final Long2IntOpenHashMap denseIndexes;
+
+    private MutationIndexMap(Mutation[] mutations) {
+        this.mutations    = mutations;
+        this.denseIndexes = new Long2IntOpenHashMap(mutations.length);
+        this.denseIndexes.defaultReturnValue(-1);
+
+        for (int index = 0; index < mutations.length; ++index)
+            denseIndexes.put(mutations[index].getIndex(), index);
+    }
+
+    /**
+     * Creates a dense index map covering every mutation in a group of
+     * mutation collections.
+     *
+     * @param collections the mutation collections to cover.
+     *
+     * @return a dense index map covering every mutation in the given
+     * collections.
+     */
+    public static MutationIndexMap create(Collection<? extends Collection<Mutation>> collections) {
+        Long2ObjectOpenHashMap<Mutation> unique = new Long2ObjectOpenHashMap<Mutation>();
+
+        for (Collection<Mutation> collection : collections)
+            for (Mutation mutation : collection)
+                unique.put(mutation.getIndex(), mutation);
+
+        long[] ordinals = unique.keySet().toLongArray();
+        LongArrays.radixSort(ordinals);
+
+        Mutation[] mutations = new Mutation[ordinals.length];
+
+        for (int index = 0; index < ordinals.length; ++index)
+            mutations[index] = unique.get(ordinals[index]);
+
+        return new MutationIndexMap(mutations);
+    }
+
+    /**
+     * Encodes a collection of mutations as a bit set.
+     *
+     * @param collection the mutations to encode.
+     *
+     * @return the bit set containing the given mutations.
+     *
+     * @throws IllegalArgumentException unless every mutation in the
+     * collection is covered by this map.
+     */
+    public MutationBitSet encode(Collection<Mutation> collection) {
+        return MutationBitSet.encode(this, collection);
+    }
+
+    /**
+     * Encodes a group of mutation collections as bit sets.
+     *
+     * @param collections the mutation collections to encode.
+     *
+     * @return the bit sets containing the given collections (in the
+     * same order).
+     *
+     * @throws IllegalArgumentException unless every mutation in the
+     * collections is covered by this map.
+     */
+    public List<MutationBitSet> encodeAll(Collection<? extends Collection<Mutation>> collections) {
+        List<MutationBitSet> bitSets = new ArrayList<MutationBitSet>(collections.size());
+
+        for (Collection<Mutation> collection : collections)
+            bitSets.add(encode(collection));
+
+        return bitSets;
+    }
+
+    /**
+     * Returns the mutation assigned to a dense index.
+     *
+     * @param denseIndex the dense index of the mutation.
+     *
+     * @return the mutation assigned to the specified dense index.
+     *
+     * @throws IndexOutOfBoundsException unless the dense index is in
+     * the range {@code [0, size())}.
+     */
+    public Mutation get(int denseIndex) {
+        return mutations[denseIndex];
+    }
+
+    /**
+     * Returns the dense index assigned to a mutation.
+     *
+     * @param mutation the mutation of interest.
+     *
+     * @return the dense index assigned to the specified mutation, or
+     * {@code -1} if the mutation is not covered by this map.
+     */
+    public int indexOf(Mutation mutation) {
+        return denseIndexes.get(mutation.getIndex());
+    }
+
+    /**
+     * Returns the number of mutations covered by this map.
+     *
+     * @return the number of mutations covered by this map.
+     */
+    public int size() {
+        return mutations.length;
+    }
+}
@@ -1,7 +1,7 @@
 
 package tumor.mutation;
 
-import org.apache.commons.math3.util.MathArrays;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import jam.app.JamProperties;
 import jam.dist.DiscretePDF;
@@ -10,7 +10,10 @@ import jam.lang.JamException;
 import jam.math.DoubleComparator;
 import jam.math.DoubleRange;
 import jam.math.IntRange;
-import jam.math.JamRandom;
+
+import tumor.random.DiscreteSampler;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
 
 /**
  * Defines the stochastic process by which mutations arise, quantified
@@ -42,6 +45,25 @@ public abstract class MutationRate {
      */
     public static final int EXPLICIT_SAMPLING_LIMIT_DEFAULT = 10;
 
+    /**
+     * Name of the system property that specifies whether mutation
+     * counts for generations larger than the sampling limit are drawn
+     * from their exact distributions rather than computed
+     * semi-stochastically.
+     */
+    public static final String EXACT_SAMPLING_PROPERTY = "tumor.mutation.exactSampling";
+
+    /**
+     * Default value for the exact sampling property.
+     */
+    public static final boolean EXACT_SAMPLING_DEFAULT = false;
+
+    private static final boolean EXACT_SAMPLING = resolveExactSampling();
+
+    private static boolean resolveExactSampling() {
+        return JamProperties.getOptionalBoolean(EXACT_SAMPLING_PROPERTY, EXACT_SAMPLING_DEFAULT);
+    }
+
     /**
      * Creates a new fixed mutation rate.
      *
@@ -148,7 +170,7 @@ public abstract class MutationRate {
      * given size.
      */
     public long computeMutationCount(long daughterCount) {
-        return JamRandom.global().discretize(daughterCount * mean);
+        return RandomStreams.current().discretize(daughterCount * mean);
     }
 
     /**
@@ -172,11 +194,15 @@ public abstract class MutationRate {
         // where D[k] is the number of daughters receiving exactly
         // "k" mutations...
         //
-        long[] mutationDistribution = computeMutationDistribution(daughterCount);
+        return assignMutationCounts(computeMutationDistribution(daughterCount), daughterCount);
+    }
 
-        // Now assign a mutation count to each daughter, but skip the
-        // zero count because it is the default value when the array
-        // is created...
+    private static int[] assignMutationCounts(long[] mutationDistribution, long daughterCount) {
+        //
+        // Assign a mutation count to each daughter, but skip the zero
+        // count because it is the default value when the array is
+        // created...
+        //
         int   daughterIndex  = 0;
         int[] mutationCounts = new int[(int) daughterCount];
         
@@ -185,7 +211,7 @@ public abstract class MutationRate {
                 mutationCounts[daughterIndex++] = realizedCount;
 
         // Now shuffle the mutation counts randomly...
-        MathArrays.shuffle(mutationCounts, JamRandom.global());
+        RandomStreams.current().shuffle(mutationCounts);
         return mutationCounts;
     }
 
@@ -205,11 +231,47 @@ public abstract class MutationRate {
      */
     public abstract long[] computeMutationDistribution(long daughterCount);
 
+    /**
+     * Draws the total number of mutations arising in a generation of
+     * daughter cells from its exact distribution (the sum of the
+     * per-daughter counts), with a cost independent of the number of
+     * daughters.
+     *
+     * <p>This default implementation draws a Poisson deviate with the
+     * total mean, which is exact for Poisson mutation processes.
+     *
+     * @param random the source of random deviates.
+     *
+     * @param daughterCount the number of daughter cells in the new
+     * generation.
+     *
+     * @return the total number of mutations in the new generation.
+     */
+    public long drawMutationCount(RandomStream random, long daughterCount) {
+        return DiscreteSampler.poisson(random, daughterCount * mean);
+    }
+
+    /**
+     * Draws the distribution of mutation counts in a generation of
+     * daughter cells from its exact (multinomial) distribution, with a
+     * cost independent of the number of daughters.
+     *
+     * @param random the source of random deviates.
+     *
+     * @param daughterCount the number of daughter cells in the new
+     * generation.
+     *
+     * @return an array {@code counts} where {@code counts[k]} is the
+     * number of daughter cells receiving exactly {@code k} mutations.
+     */
+    public abstract long[] drawMutationDistribution(RandomStream random, long daughterCount);
+
     /**
      * Returns the total number of mutations arising in a generation
      * of daughter cells.
      *
      * <p>This method will use the efficient semi-stochastic algorithm
+     * (or the exact draw, if enabled by the exact sampling property)
      * for generations larger than the sampling limit and the explicit
      * sampling algorithm for smaller populations.
      *
@@ -221,6 +283,8 @@ public abstract class MutationRate {
     public long resolveMutationCount(long daughterCount) {
         if (daughterCount <= EXPLICIT_SAMPLING_LIMIT)
             return sampleMutationCount(daughterCount);
+        else if (EXACT_SAMPLING)
+            return drawMutationCount(RandomStreams.current(), daughterCount);
         else
             return computeMutationCount(daughterCount);
     }
@@ -243,17 +307,73 @@ public abstract class MutationRate {
     public int[] resolveMutationCounts(long daughterCount) {
         if (daughterCount <= EXPLICIT_SAMPLING_LIMIT)
             return sampleMutationCounts(daughterCount);
+        else if (EXACT_SAMPLING)
+            return assignMutationCounts(drawMutationDistribution(RandomStreams.current(), daughterCount), daughterCount);
         else
             return computeMutationCounts(daughterCount);
     }
 
+    /**
+     * Resolves the number of mutations arising in each <em>mutated</em>
+     * daughter from a new generation and appends those counts to a
+     * primitive list; daughters without mutations are omitted.
+     *
+     * <p>This method will use the efficient semi-stochastic algorithm
+     * for generations larger than the sampling limit (in which case
+     * the counts are appended in increasing order) and the explicit
+     * sampling algorithm for smaller populations.
+     *
+     * @param daughterCount the number of daughter cells in the new
+     * generation.
+     *
+     * @param mutatedCounts the list where the (positive) mutation
+     * counts will be appended.
+     */
+    public void resolveMutatedCounts(long daughterCount, IntArrayList mutatedCounts) {
+        if (daughterCount <= EXPLICIT_SAMPLING_LIMIT) {
+            RandomStream random = RandomStreams.current();
+
+            for (long index = 0; index < daughterCount; ++index) {
+                long mutationCount = sampleMutationCount(random);
+
+                if (mutationCount > 0)
+                    mutatedCounts.add((int) mutationCount);
+            }
+        }
+        else {
+            //
+            // The element countDistribution[k] contains the number of
+            // daughters with exactly "k" mutations...
+            //
+            long[] countDistribution = EXACT_SAMPLING
+                ? drawMutationDistribution(RandomStreams.current(), daughterCount)
+                : computeMutationDistribution(daughterCount);
+
+            for (int mutationCount = 1; mutationCount < countDistribution.length; ++mutationCount)
+                for (long index = 0; index < countDistribution[mutationCount]; ++index)
+                    mutatedCounts.add(mutationCount);
+        }
+    }
+
     /**
      * Stochastically samples the number of mutations arising in a
      * single daughter cell.
      *
      * @return a randomly generated mutation count.
      */
-    public abstract long sampleMutationCount();
+    public long sampleMutationCount() {
+        return sampleMutationCount(RandomStreams.current());
+    }
+
+    /**
+     * Stochastically samples the number of mutations arising in a
+     * single daughter cell.
+     *
+     * @param random the source of random deviates.
+     *
+     * @return a randomly generated mutation count.
+     */
+    public abstract long sampleMutationCount(RandomStream random);
 
     /**
      * Stochastically samples the total number of mutations arising in
@@ -267,9 +387,10 @@ public abstract class MutationRate {
      */
     public long sampleMutationCount(long daughterCount) {
         long result = 0;
+        RandomStream random = RandomStreams.current();
 
         for (long index = 0; index < daughterCount; ++index)
-            result += sampleMutationCount();
+            result += sampleMutationCount(random);
 
         return result;
     }
@@ -287,9 +408,10 @@ public abstract class MutationRate {
      */
     public int[] sampleMutationCounts(long daughterCount) {
         int[] mutationCounts = new int[(int) daughterCount];
+        RandomStream random = RandomStreams.current();
 
         for (int daughterIndex = 0; daughterIndex < daughterCount; ++daughterIndex)
-            mutationCounts[daughterIndex] = (int) sampleMutationCount();
+            mutationCounts[daughterIndex] = (int) sampleMutationCount(random);
 
         return mutationCounts;
     }
@@ -327,11 +449,19 @@ public abstract class MutationRate {
             return new long[] { 0 };
         }
 
+        @Override public long drawMutationCount(RandomStream random, long daughterCount) {
+            return 0;
+        }
+
+        @Override public long[] drawMutationDistribution(RandomStream random, long daughterCount) {
+            return new long[] { 0 };
+        }
+
         @Override public boolean isZero() {
             return true;
         }
 
-        @Override public long sampleMutationCount() {
+        @Override public long sampleMutationCount(RandomStream random) {
             return 0;
         }
 
@@ -342,27 +472,70 @@ public abstract class MutationRate {
 
     private static final class PoissonRate extends MutationRate {
         private final DiscretePDF cache;
-        private final PoissonDistribution dist;
+
+        // Cumulative distribution over the cached support, so that
+        // counts are sampled by inversion with a single deviate...
+        private final double[] cdf;
 
         private PoissonRate(double mean) {
             super(mean);
 
-            this.dist  = PoissonDistribution.create(mean);
-            this.cache = DiscretePDF.cache(dist);
+            this.cache = DiscretePDF.cache(PoissonDistribution.create(mean));
+            this.cdf   = computeCDF(cache);
+        }
+
+        private static double[] computeCDF(DiscretePDF cache) {
+            IntRange range = cache.support();
+            double[] cdf   = new double[range.upper() + 1];
+            double   total = 0.0;
+
+            for (int k = 0; k <= range.upper(); ++k) {
+                total += cache.evaluate(k);
+                cdf[k] = total;
+            }
+
+            return cdf;
         }
 
         @Override public long[] computeMutationDistribution(long daughterCount) {
-            IntRange range  = cache.support();
-            long[]   counts = new long[range.upper() + 1];
+            IntRange     range  = cache.support();
+            long[]       counts = new long[range.upper() + 1];
+            RandomStream random = RandomStreams.current();
 
             for (int k = 0; k <= range.upper(); ++k)
-                counts[k] = JamRandom.global().discretize(daughterCount * cache.evaluate(k));
+                counts[k] = random.discretize(daughterCount * cache.evaluate(k));
 
             return counts;
         }
 
-        @Override public long sampleMutationCount() {
-            return dist.sample();
+        @Override public long[] drawMutationDistribution(RandomStream random, long daughterCount) {
+            //
+            // Draw the multinomial counts by binomial splitting: the
+            // number of daughters with exactly "k" mutations among
+            // those not yet assigned, with the probability conditioned
+            // on the remaining mass; the daughters left over at the
+            // end of the cached support take the truncated tail...
+            //
+            int    upper     = cache.support().upper();
+            long[] counts    = new long[upper + 1];
+            long   remaining = daughterCount;
+            double remainingMass = 1.0;
+
+            for (int k = 0; k < upper && remaining > 0; ++k) {
+                double mass = cache.evaluate(k);
+                double prob = (remainingMass > mass) ? mass / remainingMass : 1.0;
+
+                counts[k]  = DiscreteSampler.binomial(random, remaining, prob);
+                remaining -= counts[k];
+                remainingMass -= mass;
+            }
+
+            counts[upper] += remaining;
+            return counts;
+        }
+
+        @Override public long sampleMutationCount(RandomStream random) {
+            return random.selectCDF(cdf);
         }
     }
 
@@ -381,8 +554,17 @@ public abstract class MutationRate {
             return new long[] { daughterCount - mutationCount, mutationCount };
         }
 
-        @Override public long sampleMutationCount() {
-            return JamRandom.global().accept(getMean()) ? 1 : 0;
+        @Override public long drawMutationCount(RandomStream random, long daughterCount) {
+            return DiscreteSampler.binomial(random, daughterCount, getMean());
+        }
+
+        @Override public long[] drawMutationDistribution(RandomStream random, long daughterCount) {
+            long mutationCount = drawMutationCount(random, daughterCount);
+            return new long[] { daughterCount - mutationCount, mutationCount };
+        }
+
+        @Override public long sampleMutationCount(RandomStream random) {
+            return random.accept(getMean()) ? 1 : 0;
         }
     }
 
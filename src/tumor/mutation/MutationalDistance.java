@@ -45,6 +45,11 @@ public final class MutationalDistance {
             throw new IllegalArgumentException("Unique count must be at least as large as shared count.");
     }
 
+    // Creates a distance from previously computed counts...
+    static MutationalDistance create(int countShared, int countUnique) {
+        return new MutationalDistance(countShared, countUnique);
+    }
+
     /**
      * Computes the mutational distance between two sets of mutations.
      *
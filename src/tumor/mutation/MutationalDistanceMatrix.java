@@ -0,0 +1,181 @@
+
+package tumor.mutation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the mutational distances between every pair of mutation
+ * sets drawn from two groups (or every pair within one group) in a
+ * single pass.
+ *
+ * <p>The mutations in all sets are assigned dense indexes once, each
+ * set is encoded as a {@link MutationBitSet}, and the shared counts
+ * for all pairs are computed by population counts.  Rows of the
+ * matrix are computed in parallel when the total work is large enough
+ * to repay the overhead; the results do not depend on the order of
+ * evaluation.
+ */
+public final class MutationalDistanceMatrix {
+    private final int[] rowSizes;
+    private final int[] colSizes;
+    private final int[][] shared;
+
+    // Minimum number of word operations to compute in parallel...
+    private static final long PARALLEL_THRESHOLD = 1L << 18;
+
+    private MutationalDistanceMatrix(int[] rowSizes, int[] colSizes, int[][] shared) {
+        this.rowSizes = rowSizes;
+        this.colSizes = colSizes;
+        this.shared   = shared;
+    }
+
+    /**
+     * Computes the mutational distance between every set in one group
+     * and every set in another.
+     *
+     * @param rowSets the mutation sets for the matrix rows.
+     *
+     * @param colSets the mutation sets for the matrix columns.
+     *
+     * @return the matrix of mutational distances.
+     */
+    public static MutationalDistanceMatrix compute(List<? extends Set<Mutation>> rowSets,
+                                                   List<? extends Set<Mutation>> colSets) {
+        List<Set<Mutation>> allSets = new ArrayList<Set<Mutation>>(rowSets.size() + colSets.size());
+        allSets.addAll(rowSets);
+        allSets.addAll(colSets);
+
+        MutationIndexMap indexMap = MutationIndexMap.create(allSets);
+
+        List<MutationBitSet> rowBits = indexMap.encodeAll(rowSets);
+        List<MutationBitSet> colBits = indexMap.encodeAll(colSets);
+
+        int[][] shared = new int[rowBits.size()][colBits.size()];
+
+        forEachRow(rowBits.size(), (long) rowBits.size() * colBits.size() * wordCount(indexMap), row -> {
+                for (int col = 0; col < colBits.size(); ++col)
+                    shared[row][col] = rowBits.get(row).countShared(colBits.get(col));
+            });
+
+        return new MutationalDistanceMatrix(sizes(rowBits), sizes(colBits), shared);
+    }
+
+    /**
+     * Computes the mutational distance between every pair of sets in
+     * a group; each distinct pair is computed once.
+     *
+     * @param sets the mutation sets for the matrix rows and columns.
+     *
+     * @return the (symmetric) matrix of mutational distances.
+     */
+    public static MutationalDistanceMatrix compute(List<? extends Set<Mutation>> sets) {
+        MutationIndexMap     indexMap = MutationIndexMap.create(sets);
+        List<MutationBitSet> bitSets  = indexMap.encodeAll(sets);
+
+        int     count  = bitSets.size();
+        int[][] shared = new int[count][count];
+
+        forEachRow(count, (long) count * count * wordCount(indexMap) / 2, row -> {
+                shared[row][row] = bitSets.get(row).size();
+
+                for (int col = row + 1; col < count; ++col)
+                    shared[row][col] = bitSets.get(row).countShared(bitSets.get(col));
+            });
+
+        for (int row = 0; row < count; ++row)
+            for (int col = 0; col < row; ++col)
+                shared[row][col] = shared[col][row];
+
+        int[] sizes = sizes(bitSets);
+        return new MutationalDistanceMatrix(sizes, sizes, shared);
+    }
+
+    private static long wordCount(MutationIndexMap indexMap) {
+        return 1 + indexMap.size() / 64;
+    }
+
+    private static void forEachRow(int rowCount, long work, IntConsumer rowTask) {
+        IntStream rows = IntStream.range(0, rowCount);
+
+        if (work >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+
+        rows.forEach(rowTask);
+    }
+
+    private static int[] sizes(List<MutationBitSet> bitSets) {
+        int[] sizes = new int[bitSets.size()];
+
+        for (int index = 0; index < sizes.length; ++index)
+            sizes[index] = bitSets.get(index).size();
+
+        return sizes;
+    }
+
+    /**
+     * Returns the number of mutations shared by the sets at a given
+     * row and column.
+     *
+     * @param row the row index.
+     *
+     * @param col the column index.
+     *
+     * @return the number of mutations shared by the sets at the
+     * specified row and column.
+     */
+    public int countShared(int row, int col) {
+        return shared[row][col];
+    }
+
+    /**
+     * Returns the number of unique mutations in the union of the sets
+     * at a given row and column.
+     *
+     * @param row the row index.
+     *
+     * @param col the column index.
+     *
+     * @return the number of unique mutations in the union of the sets
+     * at the specified row and column.
+     */
+    public int countUnique(int row, int col) {
+        return rowSizes[row] + colSizes[col] - shared[row][col];
+    }
+
+    /**
+     * Returns the mutational distance between the sets at a given row
+     * and column.
+     *
+     * @param row the row index.
+     *
+     * @param col the column index.
+     *
+     * @return the mutational distance between the sets at the
+     * specified row and column.
+     */
+    public MutationalDistance get(int row, int col) {
+        return MutationalDistance.create(countShared(row, col), countUnique(row, col));
+    }
+
+    /**
+     * Returns the number of rows in this matrix.
+     *
+     * @return the number of rows in this matrix.
+     */
+    public int countRows() {
+        return rowSizes.length;
+    }
+
+    /**
+     * Returns the number of columns in this matrix.
+     *
+     * @return the number of columns in this matrix.
+     */
+    public int countColumns() {
+        return colSizes.length;
+    }
+}
@@ -15,6 +15,11 @@ public final class NeoantigenMutation extends Mutation {
         super();
     }
 
+    // Recreates a mutation restored from a checkpoint...
+    NeoantigenMutation(long index, int originationTime) {
+        super(index, originationTime);
+    }
+
     @Override public GrowthRate apply(GrowthRate rate) {
         return rate;
     }
@@ -15,6 +15,12 @@ public final class NeutralMutation extends Mutation {
         super();
     }
 
+    // Recreates a mutation restored from a checkpoint or from a
+    // range-encoded list...
+    NeutralMutation(long index, int originationTime) {
+        super(index, originationTime);
+    }
+
     @Override public GrowthRate apply(GrowthRate rate) {
         return rate;
     }
@@ -1,10 +1,30 @@
 
 package tumor.mutation;
 
+import jam.app.JamProperties;
+
 /**
  * Generates neutral mutations with a fixed mutation rate.
  */
 public final class NeutralMutationGenerator extends HomogeneousGenerator {
+    private final boolean rangeEncoded;
+
+    /**
+     * Name of the system property that specifies whether neutral
+     * mutations are stored as ranges of indexes rather than as
+     * individual objects (the default).
+     *
+     * <p>Range encoding saves memory when cells acquire many neutral
+     * mutations, but each range-encoded mutation is recreated whenever
+     * it is retrieved as an object (see {@link CompactMutationList}).
+     */
+    public static final String NEUTRAL_RANGES_PROPERTY = "tumor.mutation.neutralRanges";
+
+    /**
+     * Default value for the neutral ranges property.
+     */
+    public static final boolean NEUTRAL_RANGES_DEFAULT = false;
+
     /**
      * Creates a neutral mutation generator with a fixed mutation
      * rate.
@@ -13,9 +33,18 @@ public final class NeutralMutationGenerator extends HomogeneousGenerator {
      */
     public NeutralMutationGenerator(MutationRate mutationRate) {
         super(mutationRate);
+        this.rangeEncoded = resolveRangeEncoded();
+    }
+
+    private static boolean resolveRangeEncoded() {
+        return JamProperties.getOptionalBoolean(NEUTRAL_RANGES_PROPERTY, NEUTRAL_RANGES_DEFAULT);
     }
-    
+
     @Override public Mutation generateOne() {
         return new NeutralMutation();
     }
+
+    @Override public boolean isRangeEncoded() {
+        return rangeEncoded;
+    }
 }
@@ -14,6 +14,11 @@ public final class ResistanceMutation extends Mutation {
         super();
     }
 
+    // Recreates a mutation restored from a checkpoint...
+    ResistanceMutation(long index, int originationTime) {
+        super(index, originationTime);
+    }
+
     @Override public GrowthRate apply(GrowthRate rate) {
         return rate;
     }
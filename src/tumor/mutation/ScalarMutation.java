@@ -35,6 +35,13 @@ public class ScalarMutation extends Mutation {
         validateSelectionCoeff(selectionCoeff);
     }
 
+    // Recreates a mutation restored from a checkpoint...
+    ScalarMutation(long index, int originationTime, double selectionCoeff) {
+        super(index, originationTime);
+        this.selectionCoeff = selectionCoeff;
+        validateSelectionCoeff(selectionCoeff);
+    }
+
     private static void validateSelectionCoeff(double selectionCoeff) {
         if (selectionCoeff < MIN_COEFF || selectionCoeff > MAX_COEFF)
             throw new IllegalArgumentException("Invalid selection coefficient.");
@@ -57,7 +64,7 @@ public class ScalarMutation extends Mutation {
         double Dprime = D * (1.0 - s);
         double Bprime = (B + D) - Dprime;
 
-        return new GrowthRate(Bprime, Dprime);
+        return GrowthRate.valueOf(Bprime, Dprime);
     }
 
     @Override public double getSelectionCoeff() {
@@ -4,14 +4,22 @@ package tumor.point;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import jam.app.JamProperties;
 import jam.lattice.Coord;
 
 import tumor.carrier.Tumor;
+import tumor.carrier.TumorCell;
 import tumor.carrier.TumorComponent;
 import tumor.carrier.TumorEnv;
+import tumor.growth.GrowthRate;
+import tumor.mutation.MutationGenerator;
+import tumor.random.RandomStream;
+import tumor.random.RandomStreams;
 
 /**
  * Represents a <em>zero-dimensional</em> (point) tumor with no
@@ -20,9 +28,51 @@ import tumor.carrier.TumorEnv;
  * <p>The spatial locations of the cell lineages are not tracked;
  * the intrinsic growth rates of the lineages are never adjusted.
  *
+ * <p><b>Cohort advance.</b> By default, each active component is
+ * advanced individually in its own environment.  When the system
+ * property {@code tumor.point.cohortAdvance} is {@code true}, the
+ * active components are grouped into cohorts that share the same
+ * growth rate, and a single environment is created for each cohort.
+ * Single-cell cohorts are advanced collectively: the numbers of birth
+ * and death events in each cohort are sampled from the exact
+ * multinomial distribution (by binomial splitting), the cells that
+ * experience those events are chosen uniformly at random, and the
+ * remaining cells are not advanced.  The event statistics are
+ * identical to the default cell-by-cell advance.  (The event counts
+ * for one time step are exact in this discrete-time model, so there
+ * is no need for the event-by-event scheduling of the Gillespie
+ * algorithm or the approximate leaps of tau-leaping.)
+ *
+ * <p>The cohorts are rebuilt at every step: the active components
+ * are listed and grouped by growth rate, a pass over every component
+ * with one identity-map lookup each.  The cohort advance therefore
+ * still requires time proportional to the number of cells in every
+ * step; it replaces the growth-rate sampling and environment work
+ * for each cell (the expensive part of the cell-by-cell advance) with
+ * work proportional to the number of events.
+ *
  * @param <E> the concrete type for the tumor components.
  */
 public final class PointTumor<E extends TumorComponent> extends Tumor<E> {
+    private final boolean cohortAdvance = resolveCohortAdvance();
+
+    /**
+     * Name of the system property that enables the collective advance
+     * of single-cell cohorts.
+     */
+    public static final String COHORT_ADVANCE_PROPERTY = "tumor.point.cohortAdvance";
+
+    /**
+     * Default value for the cohort advance property.
+     */
+    public static final boolean COHORT_ADVANCE_DEFAULT = false;
+
+    // Environments that force a birth or death event when a cell is
+    // advanced; the daughter cells inherit the growth rate of their
+    // parent, not of the environment...
+    private static final GrowthRate BIRTH_EVENT_RATE = new GrowthRate(1.0, 0.0);
+    private static final GrowthRate DEATH_EVENT_RATE = GrowthRate.noBirth(1.0);
+
     private PointTumor(E founder) {
         super();
         this.active.add(founder);
@@ -61,6 +111,22 @@ public final class PointTumor<E extends TumorComponent> extends Tumor<E> {
         return new PointTumor<E>(founders);
     }
 
+    /**
+     * Creates an empty primary tumor, to be populated with components
+     * restored from a checkpoint (by {@code restoreComponent}).
+     *
+     * @param <E> the concrete type for the tumor components.
+     *
+     * @return the new empty primary tumor.
+     */
+    public static <E extends TumorComponent> PointTumor<E> empty() {
+        return new PointTumor<E>(Collections.<E>emptyList());
+    }
+
+    private static boolean resolveCohortAdvance() {
+        return JamProperties.getOptionalBoolean(COHORT_ADVANCE_PROPERTY, COHORT_ADVANCE_DEFAULT);
+    }
+
     @Override protected Collection<Tumor<E>> runAdvance() {
         //
         // Collect the parent components that die and the offspring
@@ -69,18 +135,11 @@ public final class PointTumor<E extends TumorComponent> extends Tumor<E> {
         //
         Collection<E> deadParents = new ArrayList<E>();
         Collection<E> allChildren = new ArrayList<E>();
-        
-        for (E parent : active) {
-            TumorEnv tumorEnv = TumorEnv.unconstrained(parent.getGrowthRate());
-            
-            @SuppressWarnings("unchecked")
-                Collection<E> children = (Collection<E>) parent.advance(tumorEnv);
-            
-            allChildren.addAll(children);
-
-            if (parent.isDead())
-                deadParents.add(parent);
-        }
+
+        if (cohortAdvance)
+            advanceCohorts(allChildren, deadParents);
+        else
+            advanceComponents(allChildren, deadParents);
 
         active.addAll(allChildren);
         active.removeAll(deadParents);
@@ -89,6 +148,120 @@ public final class PointTumor<E extends TumorComponent> extends Tumor<E> {
         return Collections.emptyList();
     }
 
+    private void advanceComponents(Collection<E> allChildren, Collection<E> deadParents) {
+        for (E parent : active)
+            advanceParent(parent, TumorEnv.unconstrained(parent.getGrowthRate()), allChildren, deadParents);
+    }
+
+    private void advanceCohorts(Collection<E> allChildren, Collection<E> deadParents) {
+        List<List<E>> cohorts     = groupActiveCohorts();
+        int           cohortCount = cohorts.size();
+
+        GrowthRate[] growthRates = new GrowthRate[cohortCount];
+        long[]       cellCounts  = new long[cohortCount];
+        long[]       birthCounts = new long[cohortCount];
+        long[]       deathCounts = new long[cohortCount];
+
+        for (int index = 0; index < cohortCount; ++index) {
+            List<E> cohort = cohorts.get(index);
+
+            growthRates[index] = cohort.get(0).getGrowthRate();
+
+            if (isCellCohort(cohort))
+                cellCounts[index] = cohort.size();
+        }
+
+        //
+        // Draw the event counts for every single-cell cohort in one
+        // pass (cohorts advanced component-by-component have no cells
+        // here, so their counts are zero and consume no random
+        // deviates)...
+        //
+        GrowthRate.drawCounts(RandomStreams.current(), growthRates, cellCounts, birthCounts, deathCounts, 0, cohortCount);
+
+        for (int index = 0; index < cohortCount; ++index) {
+            List<E> cohort = cohorts.get(index);
+
+            if (cellCounts[index] > 0)
+                advanceCellCohort(cohort, (int) birthCounts[index], (int) deathCounts[index], allChildren, deadParents);
+            else
+                advanceCohort(TumorEnv.unconstrained(growthRates[index]), cohort, allChildren, deadParents);
+        }
+    }
+
+    private List<List<E>> groupActiveCohorts() {
+        //
+        // GrowthRate does not define a hash code, so the cohorts are
+        // keyed by identity; equal rates held by distinct objects
+        // simply form separate cohorts.  The identity map iterates in
+        // an arbitrary order, so the cohorts are returned in the order
+        // that their first members appear in the active list...
+        //
+        Map<GrowthRate, List<E>> cohortMap  = new IdentityHashMap<GrowthRate, List<E>>();
+        List<List<E>>            cohortList = new ArrayList<List<E>>();
+
+        for (E component : listActive()) {
+            List<E> cohort = cohortMap.get(component.getGrowthRate());
+
+            if (cohort == null) {
+                cohort = new ArrayList<E>();
+                cohortMap.put(component.getGrowthRate(), cohort);
+                cohortList.add(cohort);
+            }
+
+            cohort.add(component);
+        }
+
+        return cohortList;
+    }
+
+    private static boolean isCellCohort(List<? extends TumorComponent> cohort) {
+        return cohort.get(0) instanceof TumorCell;
+    }
+
+    private void advanceCohort(TumorEnv tumorEnv, List<E> cohort, Collection<E> allChildren, Collection<E> deadParents) {
+        for (E parent : cohort)
+            advanceParent(parent, tumorEnv, allChildren, deadParents);
+    }
+
+    private void advanceParent(E parent, TumorEnv tumorEnv, Collection<E> allChildren, Collection<E> deadParents) {
+        @SuppressWarnings("unchecked")
+            Collection<E> children = (Collection<E>) parent.advance(tumorEnv);
+
+        allChildren.addAll(children);
+
+        if (parent.isDead())
+            deadParents.add(parent);
+    }
+
+    private void advanceCellCohort(List<E> cohort, int birthCount, int deathCount, Collection<E> allChildren, Collection<E> deadParents) {
+        //
+        // Each cell independently divides with the birth probability,
+        // dies with the death probability, or does nothing, so the
+        // event counts are multinomial (and have been drawn by the
+        // caller by binomial splitting)...
+        //
+        int cellCount = cohort.size();
+
+        // Move a uniform random selection of the cells experiencing an
+        // event to the front of the cohort (a partial Fisher-Yates
+        // shuffle)...
+        int eventCount = birthCount + deathCount;
+        RandomStream random = RandomStreams.current();
+
+        for (int index = 0; index < eventCount; ++index)
+            Collections.swap(cohort, index, index + random.nextInt(cellCount - index));
+
+        TumorEnv birthEnv = new TumorEnv(Long.MAX_VALUE, BIRTH_EVENT_RATE, MutationGenerator.global());
+        TumorEnv deathEnv = new TumorEnv(Long.MAX_VALUE, DEATH_EVENT_RATE, MutationGenerator.global());
+
+        for (int index = 0; index < birthCount; ++index)
+            advanceParent(cohort.get(index), birthEnv, allChildren, deadParents);
+
+        for (int index = birthCount; index < eventCount; ++index)
+            advanceParent(cohort.get(index), deathEnv, allChildren, deadParents);
+    }
+
     @Override public long countComponents() {
         return active.size();
     }
@@ -104,6 +277,21 @@ public final class PointTumor<E extends TumorComponent> extends Tumor<E> {
         return Coord.ORIGIN;
     }
 
+    @Override public void restoreComponent(E component, Coord location) {
+        switch (component.getState()) {
+        case ACTIVE:
+            active.add(component);
+            break;
+
+        case SENESCENT:
+            senescent.add(component);
+            break;
+
+        default:
+            throw new IllegalStateException("Should not restore a dead tumor component.");
+        }
+    }
+
     @Override public Set<E> viewComponents() {
         return Collections.unmodifiableSet(active);
     }
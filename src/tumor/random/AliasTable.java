@@ -0,0 +1,220 @@
+
+package tumor.random;
+
+import java.util.Arrays;
+
+/**
+ * Samples from a discrete probability distribution in constant time
+ * with the alias method of Walker (as constructed by Vose).
+ *
+ * <p>The table divides the probability mass into {@code n} columns
+ * of equal width; each column holds the mass of at most two indexes:
+ * its own index (with probability equal to the column cutoff) and an
+ * alias.  A single 64-bit random word selects a column (upper 32
+ * bits) and decides between the column index and its alias (lower 32
+ * bits), so each draw costs one call to {@link RandomStream#nextLong()},
+ * one multiplication, and one comparison regardless of the number of
+ * indexes.
+ *
+ * <p>Tables are immutable and may be shared among threads.
+ */
+public final class AliasTable {
+    // Column cutoffs scaled to the range [0, 2^32]: the column index
+    // is selected when the lower 32 random bits fall below the
+    // cutoff, otherwise the alias is selected...
+    private final long[] cutoff;
+
+    // Alias index for each column...
+    private final int[] alias;
+
+    // The cutoff value for columns that never select their alias...
+    private static final long FULL_CUTOFF = 1L << 32;
+
+    private static final long LOWER_MASK = 0xFFFFFFFFL;
+
+    private AliasTable(long[] cutoff, int[] alias) {
+        this.cutoff = cutoff;
+        this.alias  = alias;
+    }
+
+    /**
+     * Creates an alias table for a discrete distribution.
+     *
+     * @param weights the (non-negative, unnormalized) relative weight
+     * of each index.
+     *
+     * @return an alias table that selects index {@code k} with
+     * probability {@code weights[k] / sum(weights)}.
+     *
+     * @throws IllegalArgumentException if the weight array is empty,
+     * any weight is negative or not finite, or the total weight is
+     * zero.
+     */
+    public static AliasTable create(double... weights) {
+        int n = weights.length;
+
+        if (n < 1)
+            throw new IllegalArgumentException("At least one weight is required.");
+
+        double total = 0.0;
+
+        for (double weight : weights) {
+            if (weight < 0.0 || !Double.isFinite(weight))
+                throw new IllegalArgumentException("Invalid weight: [" + weight + "].");
+
+            total += weight;
+        }
+
+        if (total <= 0.0)
+            throw new IllegalArgumentException("Total weight must be positive.");
+
+        // Scale the weights so that the average column holds exactly
+        // one unit of mass...
+        double[] scaled = new double[n];
+
+        for (int k = 0; k < n; ++k)
+            scaled[k] = weights[k] * n / total;
+
+        // Partition the indexes into columns that are under-full and
+        // over-full; the work stacks share one array, with the small
+        // indexes growing up from the bottom and the large indexes
+        // growing down from the top...
+        int[] work  = new int[n];
+        int   small = 0;
+        int   large = n;
+
+        for (int k = 0; k < n; ++k) {
+            if (scaled[k] < 1.0)
+                work[small++] = k;
+            else
+                work[--large] = k;
+        }
+
+        long[] cutoff = new long[n];
+        int[]  alias  = new int[n];
+
+        // Fill each under-full column with mass from an over-full
+        // index, which then becomes under-full itself if it has given
+        // away too much...
+        while (small > 0 && large < n) {
+            int lo = work[--small];
+            int hi = work[large++];
+
+            cutoff[lo] = toCutoff(scaled[lo]);
+            alias[lo]  = hi;
+
+            scaled[hi] = (scaled[hi] + scaled[lo]) - 1.0;
+
+            if (scaled[hi] < 1.0)
+                work[small++] = hi;
+            else
+                work[--large] = hi;
+        }
+
+        // Any remaining columns are full (up to round-off error)...
+        while (large < n) {
+            int k = work[large++];
+            cutoff[k] = FULL_CUTOFF;
+            alias[k]  = k;
+        }
+
+        while (small > 0) {
+            int k = work[--small];
+            cutoff[k] = FULL_CUTOFF;
+            alias[k]  = k;
+        }
+
+        return new AliasTable(cutoff, alias);
+    }
+
+    private static long toCutoff(double mass) {
+        return Math.min(FULL_CUTOFF, Math.round(mass * FULL_CUTOFF));
+    }
+
+    /**
+     * Returns the number of indexes in this table.
+     *
+     * @return the number of indexes in this table.
+     */
+    public int size() {
+        return alias.length;
+    }
+
+    /**
+     * Selects an index at random.
+     *
+     * @param random the random number source.
+     *
+     * @return an index selected with the distribution of this table.
+     */
+    public int sample(RandomStream random) {
+        return sample(random.nextLong());
+    }
+
+    /**
+     * Selects the index corresponding to a 64-bit random word.
+     *
+     * @param bits 64 uniformly distributed random bits.
+     *
+     * @return the index corresponding to the random bits.
+     */
+    public int sample(long bits) {
+        int column = (int) (((bits >>> 32) * alias.length) >>> 32);
+
+        if ((bits & LOWER_MASK) < cutoff[column])
+            return column;
+        else
+            return alias[column];
+    }
+
+    /**
+     * Fills an array with indexes selected at random.
+     *
+     * @param random the random number source.
+     *
+     * @param indexes the array to fill.
+     */
+    public void sample(RandomStream random, int[] indexes) {
+        sample(random, indexes, 0, indexes.length);
+    }
+
+    /**
+     * Fills a portion of an array with indexes selected at random.
+     *
+     * @param random the random number source.
+     *
+     * @param indexes the array to fill.
+     *
+     * @param fromIndex the first element to fill (inclusive).
+     *
+     * @param toIndex the last element to fill (exclusive).
+     */
+    public void sample(RandomStream random, int[] indexes, int fromIndex, int toIndex) {
+        for (int k = fromIndex; k < toIndex; ++k)
+            indexes[k] = sample(random.nextLong());
+    }
+
+    /**
+     * Computes the exact probability of selecting each index (as
+     * realized by the scaled integer cutoffs in this table).
+     *
+     * @return the probability of selecting each index.
+     */
+    public double[] computePDF() {
+        int      n   = alias.length;
+        double[] pdf = new double[n];
+
+        for (int k = 0; k < n; ++k) {
+            double keep = (double) cutoff[k] / FULL_CUTOFF;
+
+            pdf[k]        += keep / n;
+            pdf[alias[k]] += (1.0 - keep) / n;
+        }
+
+        return pdf;
+    }
+
+    @Override public String toString() {
+        return "AliasTable(" + Arrays.toString(computePDF()) + ")";
+    }
+}
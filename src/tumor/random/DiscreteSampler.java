@@ -0,0 +1,383 @@
+
+package tumor.random;
+
+/**
+ * Draws exact binomial and Poisson deviates from a random stream.
+ *
+ * <p>Binomial deviates are generated by inversion (sequential search
+ * from zero) when the mean of the smaller tail is small and by the
+ * BTPE algorithm of Kachitvichyanukul and Schmeiser (1988) otherwise.
+ * Poisson deviates are generated by the multiplication method when
+ * the mean is small and by the transformed rejection algorithm PTRS
+ * of H&ouml;rmann (1993) otherwise.  Both large-mean algorithms have
+ * a bounded expected number of uniform deviates per sample, so the
+ * cost is independent of the number of trials or the mean; the
+ * results follow the exact distributions (not a normal or
+ * semi-stochastic approximation).
+ *
+ * <p>The array methods fill a batch of deviates (one for each
+ * component in a population, for example) in one call without any
+ * object allocation.
+ */
+public final class DiscreteSampler {
+    private DiscreteSampler() {}
+
+    // Means of the smaller binomial tail below this limit are sampled
+    // by inversion...
+    private static final double BINOMIAL_INVERSION_LIMIT = 30.0;
+
+    // Poisson means below this limit are sampled by multiplication...
+    private static final double POISSON_MULTIPLICATION_LIMIT = 10.0;
+
+    /**
+     * Draws a deviate from the binomial distribution {@code B(n, p)}.
+     *
+     * @param random the source of uniform deviates.
+     *
+     * @param trials the number of trials {@code n}.
+     *
+     * @param prob the success probability {@code p} for each trial.
+     *
+     * @return the number of successes.
+     *
+     * @throws IllegalArgumentException if the number of trials is
+     * negative or the probability lies outside the unit interval.
+     */
+    public static long binomial(RandomStream random, long trials, double prob) {
+        if (trials < 0)
+            throw new IllegalArgumentException("Negative trial count.");
+
+        if (!(prob >= 0.0 && prob <= 1.0))
+            throw new IllegalArgumentException("Invalid probability: [" + prob + "].");
+
+        if (trials == 0 || prob == 0.0)
+            return 0;
+
+        if (prob == 1.0)
+            return trials;
+
+        //
+        // Sample the smaller tail, then reflect if necessary...
+        //
+        double p = Math.min(prob, 1.0 - prob);
+        long   k;
+
+        if (trials * p < BINOMIAL_INVERSION_LIMIT)
+            k = binomialInversion(random, trials, p);
+        else
+            k = binomialBTPE(random, trials, p);
+
+        return (prob > 0.5) ? trials - k : k;
+    }
+
+    /**
+     * Fills a range of an array with binomial deviates, one for each
+     * pair of trial counts and probabilities.
+     *
+     * @param random the source of uniform deviates.
+     *
+     * @param trials the number of trials for each deviate.
+     *
+     * @param probs the success probability for each deviate.
+     *
+     * @param counts the array to fill with the numbers of successes.
+     *
+     * @param fromIndex the first index to fill (inclusive).
+     *
+     * @param toIndex the last index to fill (exclusive).
+     *
+     * @throws IllegalArgumentException if any trial count is negative
+     * or any probability lies outside the unit interval.
+     */
+    public static void binomial(RandomStream random, long[] trials, double[] probs, long[] counts, int fromIndex, int toIndex) {
+        for (int index = fromIndex; index < toIndex; ++index)
+            counts[index] = binomial(random, trials[index], probs[index]);
+    }
+
+    /**
+     * Draws a deviate from the Poisson distribution with a given mean.
+     *
+     * @param random the source of uniform deviates.
+     *
+     * @param mean the mean of the distribution.
+     *
+     * @return the Poisson deviate.
+     *
+     * @throws IllegalArgumentException if the mean is negative or not
+     * finite.
+     */
+    public static long poisson(RandomStream random, double mean) {
+        if (!(mean >= 0.0 && mean < Double.POSITIVE_INFINITY))
+            throw new IllegalArgumentException("Invalid mean: [" + mean + "].");
+
+        if (mean == 0.0)
+            return 0;
+
+        if (mean < POISSON_MULTIPLICATION_LIMIT)
+            return poissonMultiplication(random, mean);
+        else
+            return poissonPTRS(random, mean);
+    }
+
+    /**
+     * Fills a range of an array with Poisson deviates, one for each
+     * mean.
+     *
+     * @param random the source of uniform deviates.
+     *
+     * @param means the mean of each deviate.
+     *
+     * @param counts the array to fill with the deviates.
+     *
+     * @param fromIndex the first index to fill (inclusive).
+     *
+     * @param toIndex the last index to fill (exclusive).
+     *
+     * @throws IllegalArgumentException if any mean is negative or not
+     * finite.
+     */
+    public static void poisson(RandomStream random, double[] means, long[] counts, int fromIndex, int toIndex) {
+        for (int index = fromIndex; index < toIndex; ++index)
+            counts[index] = poisson(random, means[index]);
+    }
+
+    private static long binomialInversion(RandomStream random, long n, double p) {
+        //
+        // Sequential search from zero; the search is restarted with a
+        // fresh deviate in the (vanishingly rare) event that it runs
+        // far into the upper tail due to round-off...
+        //
+        double q     = 1.0 - p;
+        double qn    = Math.exp(n * Math.log(q));
+        double np    = n * p;
+        double bound = Math.min(n, np + 10.0 * Math.sqrt(np * q + 1.0));
+
+        long   x  = 0;
+        double px = qn;
+        double u  = random.nextDouble();
+
+        while (u > px) {
+            ++x;
+
+            if (x > bound) {
+                x  = 0;
+                px = qn;
+                u  = random.nextDouble();
+            }
+            else {
+                u -= px;
+                px = ((n - x + 1) * p * px) / (x * q);
+            }
+        }
+
+        return x;
+    }
+
+    private static long binomialBTPE(RandomStream random, long n, double p) {
+        //
+        // Setup: the majorizing function is a triangle in the center,
+        // flanked by parallelograms and exponential tails...
+        //
+        double q    = 1.0 - p;
+        double fm   = n * p + p;
+        long   m    = (long) Math.floor(fm);
+        double npq  = n * p * q;
+        double p1   = Math.floor(2.195 * Math.sqrt(npq) - 4.6 * q) + 0.5;
+        double xm   = m + 0.5;
+        double xl   = xm - p1;
+        double xr   = xm + p1;
+        double c    = 0.134 + 20.5 / (15.3 + m);
+        double al   = (fm - xl) / (fm - xl * p);
+        double laml = al * (1.0 + 0.5 * al);
+        double ar   = (xr - fm) / (xr * q);
+        double lamr = ar * (1.0 + 0.5 * ar);
+        double p2   = p1 * (1.0 + 2.0 * c);
+        double p3   = p2 + c / laml;
+        double p4   = p3 + c / lamr;
+
+        while (true) {
+            double u = random.nextDouble() * p4;
+            double v = random.nextDouble();
+            long   y;
+
+            if (u <= p1) {
+                // Triangular region: accept immediately...
+                return (long) Math.floor(xm - p1 * v + u);
+            }
+            else if (u <= p2) {
+                // Parallelogram region...
+                double x = xl + (u - p1) / c;
+                v = v * c + 1.0 - Math.abs(m - x + 0.5) / p1;
+
+                if (v > 1.0)
+                    continue;
+
+                y = (long) Math.floor(x);
+            }
+            else if (u <= p3) {
+                // Left exponential tail...
+                if (v == 0.0)
+                    continue;
+
+                y = (long) Math.floor(xl + Math.log(v) / laml);
+
+                if (y < 0)
+                    continue;
+
+                v = v * (u - p2) * laml;
+            }
+            else {
+                // Right exponential tail...
+                if (v == 0.0)
+                    continue;
+
+                y = (long) Math.floor(xr - Math.log(v) / lamr);
+
+                if (y > n)
+                    continue;
+
+                v = v * (u - p3) * lamr;
+            }
+
+            if (acceptBTPE(n, p, q, m, npq, xm, y, v))
+                return y;
+        }
+    }
+
+    private static boolean acceptBTPE(long n, double p, double q, long m, double npq, double xm, long y, double v) {
+        long k = Math.abs(y - m);
+
+        if (k <= 20 || k >= npq / 2.0 - 1.0) {
+            //
+            // Explicit evaluation of f(y) / f(m) by recursion...
+            //
+            double s = p / q;
+            double a = s * (n + 1);
+            double f = 1.0;
+
+            if (m < y) {
+                for (long i = m + 1; i <= y; ++i)
+                    f *= (a / i - s);
+            }
+            else if (m > y) {
+                for (long i = y + 1; i <= m; ++i)
+                    f /= (a / i - s);
+            }
+
+            return v <= f;
+        }
+
+        //
+        // Squeeze using upper and lower bounds on log(f(y) / f(m)),
+        // then the final comparison with Stirling's formula...
+        //
+        double rho = (k / npq) * ((k * (k / 3.0 + 0.625) + 1.0 / 6.0) / npq + 0.5);
+        double t   = -k * (double) k / (2.0 * npq);
+        double A   = Math.log(v);
+
+        if (A < t - rho)
+            return true;
+
+        if (A > t + rho)
+            return false;
+
+        double x1 = y + 1;
+        double f1 = m + 1;
+        double z  = n + 1 - m;
+        double w  = n - y + 1;
+
+        double bound =
+            xm * Math.log(f1 / x1)
+            + (n - m + 0.5) * Math.log(z / w)
+            + (y - m) * Math.log(w * p / (x1 * q))
+            + stirlingCorrection(f1)
+            + stirlingCorrection(z)
+            + stirlingCorrection(x1)
+            + stirlingCorrection(w);
+
+        return A <= bound;
+    }
+
+    private static double stirlingCorrection(double x) {
+        double x2 = x * x;
+        return (13860.0 - (462.0 - (132.0 - (99.0 - 140.0 / x2) / x2) / x2) / x2) / x / 166320.0;
+    }
+
+    private static long poissonMultiplication(RandomStream random, double mean) {
+        double limit   = Math.exp(-mean);
+        double product = random.nextDouble();
+        long   count   = 0;
+
+        while (product > limit) {
+            ++count;
+            product *= random.nextDouble();
+        }
+
+        return count;
+    }
+
+    private static long poissonPTRS(RandomStream random, double mean) {
+        double slam     = Math.sqrt(mean);
+        double loglam   = Math.log(mean);
+        double b        = 0.931 + 2.53 * slam;
+        double a        = -0.059 + 0.02483 * b;
+        double invalpha = 1.1239 + 1.1328 / (b - 3.4);
+        double vr       = 0.9277 - 3.6224 / (b - 2.0);
+
+        while (true) {
+            double u  = random.nextDouble() - 0.5;
+            double v  = random.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            long   k  = (long) Math.floor((2.0 * a / us + b) * u + mean + 0.43);
+
+            if (us >= 0.07 && v <= vr)
+                return k;
+
+            if (k < 0 || (us < 0.013 && v > us))
+                continue;
+
+            if (Math.log(v) + Math.log(invalpha) - Math.log(a / (us * us) + b)
+                <= -mean + k * loglam - logFactorial(k))
+                return k;
+        }
+    }
+
+    // Coefficients of the asymptotic series for log(Gamma(x))...
+    private static final double[] LOG_GAMMA_SERIES = {
+        8.333333333333333e-02, -2.777777777777778e-03,
+        7.936507936507937e-04, -5.952380952380952e-04,
+        8.417508417508418e-04, -1.917526917526918e-03,
+        6.410256410256410e-03, -2.955065359477124e-02,
+        1.796443723688307e-01, -1.39243221690590e+00
+    };
+
+    private static final double HALF_LOG_TWO_PI = 0.9189385332046727;
+
+    private static double logFactorial(long k) {
+        //
+        // log(k!) = log(Gamma(k + 1)), evaluated with the asymptotic
+        // series after shifting small arguments up to seven...
+        //
+        double x = k + 1.0;
+
+        if (x <= 2.0)
+            return 0.0;
+
+        int    shift = (x < 7.0) ? (int) (7.0 - x) : 0;
+        double x0    = x + shift;
+        double x2    = 1.0 / (x0 * x0);
+        double sum   = LOG_GAMMA_SERIES[9];
+
+        for (int j = 8; j >= 0; --j)
+            sum = sum * x2 + LOG_GAMMA_SERIES[j];
+
+        double result = sum / x0 + HALF_LOG_TWO_PI + (x0 - 0.5) * Math.log(x0) - x0;
+
+        for (int j = 0; j < shift; ++j) {
+            x0 -= 1.0;
+            result -= Math.log(x0);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,379 @@
+
+package tumor.random;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Generates a stream of pseudo-random numbers for a single thread of
+ * work.
+ *
+ * <p>Concrete streams implement only {@link RandomStream#nextLong()},
+ * {@link RandomStream#setSeed(long)}, {@link RandomStream#split()},
+ * and the access to their generator state; every other deviate (and the sampling methods used in the simulation
+ * hot paths) is derived from the 64-bit output here.  Streams are not
+ * thread-safe: each thread must draw from its own stream, which is
+ * normally obtained from {@link RandomStreams#current()}.
+ *
+ * <p>Streams implement the Apache Commons {@code RandomGenerator}
+ * interface, so they may be passed to the Commons distributions and
+ * array utilities.
+ */
+public abstract class RandomStream implements RandomGenerator {
+    // Cached second deviate from the polar Gaussian method...
+    private double nextGaussian = Double.NaN;
+
+    // Scale factor that converts 53 random bits into a double on the
+    // unit interval...
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    // Scale factor that converts 24 random bits into a float on the
+    // unit interval...
+    private static final float FLOAT_UNIT = 0x1.0p-24f;
+
+    /**
+     * Creates a new stream.
+     */
+    protected RandomStream() {
+    }
+
+    /**
+     * Applies the SplitMix64 finalizer to a 64-bit value.
+     *
+     * <p>The finalizer is a bijection with strong avalanche behavior,
+     * so it converts sequential or otherwise correlated seeds into
+     * well-distributed generator states.
+     *
+     * @param z the value to mix.
+     *
+     * @return the mixed value.
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates the next 64 random bits in this stream.
+     *
+     * @return the next 64 random bits in this stream.
+     */
+    @Override public abstract long nextLong();
+
+    /**
+     * Resets the state of this stream from a 64-bit seed.
+     *
+     * @param seed the new seed.
+     */
+    @Override public abstract void setSeed(long seed);
+
+    /**
+     * Splits off a new stream that is statistically independent of
+     * this stream; this stream advances past the sequence assigned to
+     * the new stream.
+     *
+     * @return a new independent stream.
+     */
+    public abstract RandomStream split();
+
+    /**
+     * Returns the state of the underlying generator.
+     *
+     * @return the words of the generator state, in a new array.
+     */
+    protected abstract long[] getGeneratorState();
+
+    /**
+     * Assigns the state of the underlying generator.
+     *
+     * @param state the words of a state returned by
+     * {@code getGeneratorState()}, followed by any other words (which
+     * are ignored).
+     *
+     * @throws IllegalArgumentException unless the array contains a
+     * valid state.
+     */
+    protected abstract void setGeneratorState(long[] state);
+
+    /**
+     * Captures the complete state of this stream: the generator
+     * state and any deviate cached by {@code nextGaussian()}.  A
+     * stream of the same type restored from the state with
+     * {@code restoreState()} produces exactly the same sequence as
+     * this stream.
+     *
+     * @return the state of this stream, in a new array.
+     */
+    public long[] captureState() {
+        long[] generator = getGeneratorState();
+        long[] state = Arrays.copyOf(generator, generator.length + 1);
+
+        state[generator.length] = Double.doubleToRawLongBits(nextGaussian);
+        return state;
+    }
+
+    /**
+     * Restores the state captured by {@code captureState()}.
+     *
+     * @param state the state of a stream of the same type.
+     *
+     * @throws IllegalArgumentException unless the state was captured
+     * from a stream of the same type.
+     */
+    public void restoreState(long[] state) {
+        if (state.length != getGeneratorState().length + 1)
+            throw new IllegalArgumentException("Random stream state does not match the generator type.");
+
+        setGeneratorState(state);
+        nextGaussian = Double.longBitsToDouble(state[state.length - 1]);
+    }
+
+    @Override public void setSeed(int seed) {
+        setSeed((long) seed);
+    }
+
+    @Override public void setSeed(int[] seed) {
+        long combined = 0L;
+
+        for (int element : seed)
+            combined = mix64(combined ^ element);
+
+        setSeed(combined);
+    }
+
+    @Override public void nextBytes(byte[] bytes) {
+        int index = 0;
+
+        while (index < bytes.length) {
+            long bits = nextLong();
+
+            for (int k = 0; k < Long.BYTES && index < bytes.length; ++k, bits >>>= 8)
+                bytes[index++] = (byte) bits;
+        }
+    }
+
+    @Override public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * Generates a uniformly distributed integer in the range
+     * {@code [0, bound)}.
+     *
+     * <p>This method uses Lemire's multiply-and-reject algorithm, which
+     * is unbiased and almost never requires more than one draw.
+     *
+     * @param bound the (exclusive) upper bound.
+     *
+     * @return a random integer in the range {@code [0, bound)}.
+     *
+     * @throws IllegalArgumentException unless the bound is positive.
+     */
+    @Override public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("Bound must be positive.");
+
+        long product = (nextLong() >>> 32) * bound;
+        int  low     = (int) product;
+
+        if (Integer.compareUnsigned(low, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+
+            while (Integer.compareUnsigned(low, threshold) < 0) {
+                product = (nextLong() >>> 32) * bound;
+                low     = (int) product;
+            }
+        }
+
+        return (int) (product >>> 32);
+    }
+
+    @Override public boolean nextBoolean() {
+        return nextLong() < 0L;
+    }
+
+    @Override public float nextFloat() {
+        return (nextLong() >>> 40) * FLOAT_UNIT;
+    }
+
+    /**
+     * Generates a uniformly distributed double in the range
+     * {@code [0.0, 1.0)}.
+     *
+     * @return a uniformly distributed double in the range
+     * {@code [0.0, 1.0)}.
+     */
+    @Override public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Fills an array with uniformly distributed doubles in the range
+     * {@code [0.0, 1.0)}.
+     *
+     * @param deviates the array to fill.
+     */
+    public void nextDoubles(double[] deviates) {
+        nextDoubles(deviates, 0, deviates.length);
+    }
+
+    /**
+     * Fills a range of an array with uniformly distributed doubles in
+     * the range {@code [0.0, 1.0)}.
+     *
+     * @param deviates the array to fill.
+     *
+     * @param fromIndex the first index to fill (inclusive).
+     *
+     * @param toIndex the last index to fill (exclusive).
+     */
+    public void nextDoubles(double[] deviates, int fromIndex, int toIndex) {
+        for (int index = fromIndex; index < toIndex; ++index)
+            deviates[index] = (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override public double nextGaussian() {
+        //
+        // Marsaglia polar method, which produces deviates in pairs...
+        //
+        if (!Double.isNaN(nextGaussian)) {
+            double result = nextGaussian;
+            nextGaussian = Double.NaN;
+            return result;
+        }
+
+        double v1, v2, s;
+
+        do {
+            v1 = 2.0 * nextDouble() - 1.0;
+            v2 = 2.0 * nextDouble() - 1.0;
+            s  = v1 * v1 + v2 * v2;
+        } while (s >= 1.0 || s == 0.0);
+
+        double multiplier = Math.sqrt(-2.0 * Math.log(s) / s);
+        nextGaussian = v2 * multiplier;
+
+        return v1 * multiplier;
+    }
+
+    /**
+     * Accepts or rejects an event with a given probability.
+     *
+     * @param probability the probability of acceptance.
+     *
+     * @return {@code true} with the specified probability.
+     */
+    public boolean accept(double probability) {
+        return nextDouble() < probability;
+    }
+
+    /**
+     * Rounds a non-negative real value to one of its neighboring
+     * integers at random, so that the expected value of the result
+     * equals the input.
+     *
+     * @param value the non-negative value to discretize.
+     *
+     * @return {@code floor(value) + 1} with probability equal to the
+     * fractional part of the value, {@code floor(value)} otherwise.
+     */
+    public long discretize(double value) {
+        long floor = (long) value;
+
+        if (accept(value - floor))
+            return floor + 1;
+        else
+            return floor;
+    }
+
+    /**
+     * Selects an index at random from a cumulative distribution.
+     *
+     * @param cdf the cumulative probabilities (non-decreasing, with a
+     * final element of one).
+     *
+     * @return the first index {@code k} such that {@code u < cdf[k]}
+     * for a uniform deviate {@code u}; the last index if rounding
+     * leaves the final element slightly below one.
+     */
+    public int selectCDF(double[] cdf) {
+        double deviate = nextDouble();
+        int    last    = cdf.length - 1;
+
+        for (int index = 0; index < last; ++index)
+            if (deviate < cdf[index])
+                return index;
+
+        return last;
+    }
+
+    /**
+     * Selects an index at random from a discrete probability
+     * distribution.
+     *
+     * @param pdf the probabilities of each index (non-negative, with
+     * a sum of one).
+     *
+     * @return an index selected with the specified probabilities.
+     */
+    public int selectPDF(double[] pdf) {
+        double deviate    = nextDouble();
+        double cumulative = 0.0;
+        int    last       = pdf.length - 1;
+
+        for (int index = 0; index < last; ++index) {
+            cumulative += pdf[index];
+
+            if (deviate < cumulative)
+                return index;
+        }
+
+        return last;
+    }
+
+    /**
+     * Shuffles an array in place (with a uniform distribution over
+     * all permutations).
+     *
+     * @param array the array to shuffle.
+     */
+    public void shuffle(int[] array) {
+        shuffle(array, 0, array.length);
+    }
+
+    /**
+     * Shuffles a portion of an array in place (with a uniform
+     * distribution over all permutations of the portion).
+     *
+     * @param array the array to shuffle.
+     *
+     * @param fromIndex the first element to shuffle (inclusive).
+     *
+     * @param toIndex the last element to shuffle (exclusive).
+     */
+    public void shuffle(int[] array, int fromIndex, int toIndex) {
+        for (int index = toIndex - 1; index > fromIndex; --index) {
+            int other = fromIndex + nextInt(index - fromIndex + 1);
+            int value = array[index];
+
+            array[index] = array[other];
+            array[other] = value;
+        }
+    }
+
+    /**
+     * Shuffles a list in place (with a uniform distribution over all
+     * permutations).
+     *
+     * @param <T> the list element type.
+     *
+     * @param list the list to shuffle.
+     */
+    public <T> void shuffle(List<T> list) {
+        for (int index = list.size() - 1; index > 0; --index)
+            list.set(index, list.set(nextInt(index + 1), list.get(index)));
+    }
+}
@@ -0,0 +1,34 @@
+
+package tumor.random;
+
+/**
+ * Enumerates the available random stream generators.
+ */
+public enum RandomStreamType {
+    /**
+     * The xoroshiro128++ generator (with constant-time jumps).
+     */
+    XOROSHIRO {
+        @Override public RandomStream create(long seed) {
+            return new XoroshiroStream(seed);
+        }
+    },
+
+    /**
+     * The SplitMix64 generator.
+     */
+    SPLITMIX {
+        @Override public RandomStream create(long seed) {
+            return new SplitMixStream(seed);
+        }
+    };
+
+    /**
+     * Creates a new stream of this type.
+     *
+     * @param seed the initial seed.
+     *
+     * @return a new stream of this type with the specified seed.
+     */
+    public abstract RandomStream create(long seed);
+}
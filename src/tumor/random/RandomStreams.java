@@ -0,0 +1,184 @@
+
+package tumor.random;
+
+import jam.app.JamProperties;
+import jam.math.JamRandom;
+
+/**
+ * Creates random streams and binds them to the threads that draw
+ * from them.
+ *
+ * <p><b>Trial stream.</b> The simulation driver reseeds the trial
+ * stream at the start of every trial, so each trial draws from its
+ * own stream, determined only by the base seed and the trial index.
+ * Trial checkpoints record the state of the trial stream, which is
+ * restored when the trial is resumed.  Any thread that has not bound
+ * a stream of its own draws from the trial stream.
+ *
+ * <p><b>Work streams.</b> Work that may be divided among several
+ * threads splits one stream per unit of work from the trial stream
+ * with {@link RandomStreams#split(int)}, in the deterministic order
+ * of the units, and binds each stream to the thread that processes
+ * its unit with {@link RandomStreams#run(RandomStream, Runnable)}.
+ * The deviates consumed by each unit, and therefore the results,
+ * depend on the seed but not on the number of threads or the order
+ * in which they process the units.
+ *
+ * <p><b>Generator type.</b> The system property
+ * {@code tumor.random.streamType} selects the generator (one of the
+ * {@link RandomStreamType} values; {@code XOROSHIRO} by default).
+ */
+public final class RandomStreams {
+    private RandomStreams() {}
+
+    /**
+     * Name of the system property that defines the random stream
+     * generator type.
+     */
+    public static final String STREAM_TYPE_PROPERTY = "tumor.random.streamType";
+
+    /**
+     * Default value for the random stream generator type.
+     */
+    public static final RandomStreamType STREAM_TYPE_DEFAULT = RandomStreamType.XOROSHIRO;
+
+    // The stream type for the simulation, resolved after the default
+    // has been initialized...
+    private static final RandomStreamType streamType = resolveStreamType();
+
+    // The trial stream, created on demand if the driver has not yet
+    // assigned it...
+    private static volatile RandomStream trialStream = null;
+
+    // Streams bound to individual threads...
+    private static final ThreadLocal<RandomStream> bound = new ThreadLocal<RandomStream>();
+
+    private static RandomStreamType resolveStreamType() {
+        if (JamProperties.isSet(STREAM_TYPE_PROPERTY))
+            return JamProperties.getRequiredEnum(STREAM_TYPE_PROPERTY, RandomStreamType.class);
+        else
+            return STREAM_TYPE_DEFAULT;
+    }
+
+    /**
+     * Creates a new stream of the configured type.
+     *
+     * @param seed the initial seed.
+     *
+     * @return a new stream with the specified seed.
+     */
+    public static RandomStream create(long seed) {
+        return streamType.create(seed);
+    }
+
+    /**
+     * Returns the stream bound to the calling thread, or the trial
+     * stream if the thread has not bound its own stream.
+     *
+     * @return the stream for the calling thread.
+     */
+    public static RandomStream current() {
+        RandomStream stream = bound.get();
+
+        if (stream != null)
+            return stream;
+        else
+            return trialStream();
+    }
+
+    private static RandomStream trialStream() {
+        RandomStream stream = trialStream;
+
+        if (stream == null)
+            stream = initTrialStream();
+
+        return stream;
+    }
+
+    private static synchronized RandomStream initTrialStream() {
+        //
+        // Without an explicit seed from the driver, seed the trial
+        // stream from the JAM generator (which honors its own seed
+        // property)...
+        //
+        if (trialStream == null)
+            trialStream = create(JamRandom.global().nextLong());
+
+        return trialStream;
+    }
+
+    /**
+     * Reseeds the trial stream.
+     *
+     * @param seed the new seed.
+     */
+    public static synchronized void reseed(long seed) {
+        trialStream = create(seed);
+    }
+
+    /**
+     * Captures the state of the trial stream.
+     *
+     * @return the state of the trial stream, in a new array.
+     */
+    public static long[] captureState() {
+        return trialStream().captureState();
+    }
+
+    /**
+     * Replaces the trial stream with a stream restored from a state
+     * returned by {@code captureState()}.
+     *
+     * @param state the state of the trial stream.
+     *
+     * @throws IllegalArgumentException unless the state was captured
+     * from a stream of the configured type.
+     */
+    public static synchronized void restoreState(long[] state) {
+        RandomStream stream = create(0L);
+        stream.restoreState(state);
+        trialStream = stream;
+    }
+
+    /**
+     * Splits independent streams for units of work from the stream
+     * for the calling thread.
+     *
+     * @param count the number of work units.
+     *
+     * @return an array containing one new stream for each work unit,
+     * in the order of the units.
+     */
+    public static RandomStream[] split(int count) {
+        RandomStream   source  = current();
+        RandomStream[] streams = new RandomStream[count];
+
+        for (int index = 0; index < count; ++index)
+            streams[index] = source.split();
+
+        return streams;
+    }
+
+    /**
+     * Executes a task with a stream bound to the calling thread; the
+     * previous binding is restored when the task completes.
+     *
+     * @param stream the stream for the task.
+     *
+     * @param task the task to execute.
+     */
+    public static void run(RandomStream stream, Runnable task) {
+        RandomStream previous = bound.get();
+        bound.set(stream);
+
+        try {
+            task.run();
+        }
+        finally {
+            if (previous != null)
+                bound.set(previous);
+            else
+                bound.remove();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+
+package tumor.random;
+
+/**
+ * Implements the SplitMix64 generator (the algorithm underlying
+ * {@code java.util.SplittableRandom}): a 64-bit Weyl sequence passed
+ * through a mixing function.
+ */
+final class SplitMixStream extends RandomStream {
+    private long state;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    SplitMixStream(long seed) {
+        setSeed(seed);
+    }
+
+    @Override public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    @Override public void setSeed(long seed) {
+        state = seed;
+    }
+
+    @Override protected long[] getGeneratorState() {
+        return new long[] { state };
+    }
+
+    @Override protected void setGeneratorState(long[] state) {
+        this.state = state[0];
+    }
+
+    @Override public RandomStream split() {
+        return new SplitMixStream(mix64(nextLong()));
+    }
+}
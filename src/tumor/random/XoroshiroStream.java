@@ -0,0 +1,93 @@
+
+package tumor.random;
+
+/**
+ * Implements the xoroshiro128++ generator of Blackman and Vigna: 128
+ * bits of state, a period of {@code 2^128 - 1}, and a jump function
+ * that advances the state by {@code 2^64} draws in constant time.
+ */
+final class XoroshiroStream extends RandomStream {
+    private long s0;
+    private long s1;
+
+    // Jump polynomial equivalent to 2^64 calls to nextLong()...
+    private static final long[] JUMP = { 0x2BD7A6A6E99C2DDCL, 0x0992CCAF6A6FCA05L };
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    XoroshiroStream(long seed) {
+        setSeed(seed);
+    }
+
+    private XoroshiroStream(long s0, long s1) {
+        this.s0 = s0;
+        this.s1 = s1;
+    }
+
+    @Override public long nextLong() {
+        long t0 = s0;
+        long t1 = s1;
+        long result = Long.rotateLeft(t0 + t1, 17) + t0;
+
+        t1 ^= t0;
+        s0 = Long.rotateLeft(t0, 49) ^ t1 ^ (t1 << 21);
+        s1 = Long.rotateLeft(t1, 28);
+
+        return result;
+    }
+
+    @Override public void setSeed(long seed) {
+        //
+        // Expand the seed into the full state with SplitMix64, which
+        // never produces the forbidden all-zero state from two
+        // consecutive outputs...
+        //
+        s0 = mix64(seed + GOLDEN_GAMMA);
+        s1 = mix64(seed + 2 * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Advances this stream by {@code 2^64} draws.
+     */
+    void jump() {
+        long j0 = 0L;
+        long j1 = 0L;
+
+        for (long word : JUMP) {
+            for (int bit = 0; bit < 64; ++bit) {
+                if ((word & (1L << bit)) != 0) {
+                    j0 ^= s0;
+                    j1 ^= s1;
+                }
+
+                nextLong();
+            }
+        }
+
+        s0 = j0;
+        s1 = j1;
+    }
+
+    @Override protected long[] getGeneratorState() {
+        return new long[] { s0, s1 };
+    }
+
+    @Override protected void setGeneratorState(long[] state) {
+        if (state[0] == 0L && state[1] == 0L)
+            throw new IllegalArgumentException("The all-zero state is forbidden.");
+
+        s0 = state[0];
+        s1 = state[1];
+    }
+
+    @Override public RandomStream split() {
+        //
+        // The new stream takes the next 2^64 draws of this stream,
+        // which jumps past them...
+        //
+        RandomStream split = new XoroshiroStream(s0, s1);
+        jump();
+
+        return split;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Provides fast, splittable random number streams for the simulation
+ * hot paths, assigns one stream to each trial, and splits one stream
+ * for each unit of work divided among threads, so that results are
+ * reproducible for a given seed.
+ */
+package tumor.random;
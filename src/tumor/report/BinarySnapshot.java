@@ -0,0 +1,595 @@
+
+package tumor.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import jam.app.JamLogger;
+import jam.lang.JamException;
+import jam.lattice.Coord;
+
+import tumor.carrier.Tumor;
+import tumor.carrier.TumorComponent;
+import tumor.mutation.Genotype;
+
+/**
+ * Reads and writes tumor snapshots in a binary columnar format that
+ * may be memory-mapped and scanned without parsing.
+ *
+ * <p>A snapshot file contains the information from the component
+ * coordinate and genotype detail files in fixed-width little-endian
+ * columns:
+ *
+ * <ul>
+ *   <li>{@code COMP_INDEX} ({@code long}), {@code CELL_COUNT}
+ *   ({@code long}), {@code COORD_X}, {@code COORD_Y}, {@code COORD_Z},
+ *   and {@code COMP_GENOTYPE} ({@code int}) with one element per
+ *   component, sorted by component index; {@code COMP_GENOTYPE} holds
+ *   the row of the component genotype in the genotype columns.</li>
+ *
+ *   <li>{@code GENO_INDEX} ({@code long}) and {@code GENO_ORIGINAL}
+ *   ({@code int}, the number of original mutations) with one element
+ *   per unique genotype, sorted by genotype index.</li>
+ *
+ *   <li>{@code MUT_OFFSET} ({@code long}, one element per genotype plus
+ *   one) and {@code MUT_INDEX} ({@code long}): the accumulated mutation
+ *   indexes of every genotype in compressed sparse row format.  The
+ *   accumulated mutations of genotype row {@code g} occupy elements
+ *   {@code MUT_OFFSET[g]} (inclusive) through {@code MUT_OFFSET[g + 1]}
+ *   (exclusive) of {@code MUT_INDEX}, with the inherited mutations
+ *   followed by the original mutations.</li>
+ * </ul>
+ *
+ * <p>Each column starts on an eight-byte boundary.  The file begins
+ * with a 16-byte header (magic number, version, trial index, and time
+ * step) and ends with a footer index giving the type, offset, and
+ * length of each column, followed by a 16-byte trailer containing the
+ * footer offset, magic number, and version.
+ */
+public final class BinarySnapshot {
+    private final int trialIndex;
+    private final int timeStep;
+
+    private final LongBuffer compIndex;
+    private final LongBuffer cellCount;
+    private final IntBuffer  coordX;
+    private final IntBuffer  coordY;
+    private final IntBuffer  coordZ;
+    private final IntBuffer  compGenotype;
+
+    private final LongBuffer genoIndex;
+    private final IntBuffer  genoOriginal;
+
+    private final LongBuffer mutOffset;
+    private final LongBuffer mutIndex;
+
+    /**
+     * Magic number identifying snapshot files (the bytes {@code TSNP}
+     * in little-endian order).
+     */
+    public static final int MAGIC = 0x504E5354;
+
+    /**
+     * Current version of the snapshot format.
+     */
+    public static final int VERSION = 1;
+
+    // Column identifiers, in the order that the columns are written...
+    private static final int COMP_INDEX    = 0;
+    private static final int CELL_COUNT    = 1;
+    private static final int COORD_X       = 2;
+    private static final int COORD_Y       = 3;
+    private static final int COORD_Z       = 4;
+    private static final int COMP_GENOTYPE = 5;
+    private static final int GENO_INDEX    = 6;
+    private static final int GENO_ORIGINAL = 7;
+    private static final int MUT_OFFSET    = 8;
+    private static final int MUT_INDEX     = 9;
+
+    private static final int COLUMN_COUNT = 10;
+
+    private static final int HEADER_BYTES  = 16;
+    private static final int TRAILER_BYTES = 16;
+
+    // Element widths (in bytes) for the columns...
+    private static final int[] COLUMN_WIDTH = { 8, 8, 4, 4, 4, 4, 8, 4, 8, 8 };
+
+    // Size of the output buffer used by the writer...
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private BinarySnapshot(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long fileSize = channel.size();
+
+            if (fileSize < HEADER_BYTES + TRAILER_BYTES)
+                throw JamException.runtime("File [%s] is not a binary snapshot.", file);
+
+            ByteBuffer header  = map(channel, 0, HEADER_BYTES);
+            ByteBuffer trailer = map(channel, fileSize - TRAILER_BYTES, TRAILER_BYTES);
+
+            validateMagic(file, header.getInt(0), header.getInt(4));
+            validateMagic(file, trailer.getInt(8), trailer.getInt(12));
+
+            this.trialIndex = header.getInt(8);
+            this.timeStep   = header.getInt(12);
+
+            long footerOffset = trailer.getLong(0);
+            ByteBuffer footer = map(channel, footerOffset, fileSize - TRAILER_BYTES - footerOffset);
+
+            int columnCount = footer.getInt(0);
+
+            if (columnCount != COLUMN_COUNT)
+                throw JamException.runtime("File [%s] contains [%d] columns; expected [%d].", file, columnCount, COLUMN_COUNT);
+
+            ByteBuffer[] columns = new ByteBuffer[COLUMN_COUNT];
+
+            for (int index = 0; index < COLUMN_COUNT; ++index) {
+                int  base   = 8 + 24 * index;
+                int  column = footer.getInt(base);
+                int  width  = footer.getInt(base + 4);
+                long offset = footer.getLong(base + 8);
+                long length = footer.getLong(base + 16);
+
+                if (column != index || width != COLUMN_WIDTH[index])
+                    throw JamException.runtime("File [%s] has an invalid footer index.", file);
+
+                columns[index] = map(channel, offset, width * length);
+            }
+
+            this.compIndex    = columns[COMP_INDEX].asLongBuffer();
+            this.cellCount    = columns[CELL_COUNT].asLongBuffer();
+            this.coordX       = columns[COORD_X].asIntBuffer();
+            this.coordY       = columns[COORD_Y].asIntBuffer();
+            this.coordZ       = columns[COORD_Z].asIntBuffer();
+            this.compGenotype = columns[COMP_GENOTYPE].asIntBuffer();
+            this.genoIndex    = columns[GENO_INDEX].asLongBuffer();
+            this.genoOriginal = columns[GENO_ORIGINAL].asIntBuffer();
+            this.mutOffset    = columns[MUT_OFFSET].asLongBuffer();
+            this.mutIndex     = columns[MUT_INDEX].asLongBuffer();
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        //
+        // A single mapped buffer is limited to 2 GB, which holds more
+        // than 250 million elements of the widest column...
+        //
+        if (size > Integer.MAX_VALUE)
+            throw JamException.runtime("Snapshot column exceeds the maximum mapped size.");
+
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void validateMagic(File file, int magic, int version) {
+        if (magic != MAGIC)
+            throw JamException.runtime("File [%s] is not a binary snapshot.", file);
+
+        if (version != VERSION)
+            throw JamException.runtime("File [%s] has unsupported snapshot version [%d].", file, version);
+    }
+
+    /**
+     * Opens a binary snapshot file for reading.
+     *
+     * <p>The columns are memory-mapped; the file remains mapped until
+     * the returned snapshot is garbage collected.
+     *
+     * @param file the snapshot file to open.
+     *
+     * @return a read-only view of the snapshot file.
+     *
+     * @throws RuntimeException unless the file is a valid snapshot
+     * file.
+     */
+    public static BinarySnapshot open(File file) {
+        try {
+            return new BinarySnapshot(file);
+        }
+        catch (IOException ex) {
+            throw JamException.runtime(ex);
+        }
+    }
+
+    /**
+     * Writes a binary snapshot of a tumor.
+     *
+     * @param <E> the tumor component type.
+     *
+     * @param reportDir the directory where the snapshot file will be
+     * written.
+     *
+     * @param baseName the base name of the snapshot file.
+     *
+     * @param tumor the active tumor in the simulation.
+     */
+    public static <E extends TumorComponent> void write(File reportDir, String baseName, Tumor<E> tumor) {
+        write(reportDir, baseName, SnapshotView.capture(tumor));
+    }
+
+    /**
+     * Writes a binary snapshot of a captured tumor state.
+     *
+     * @param reportDir the directory where the snapshot file will be
+     * written.
+     *
+     * @param baseName the base name of the snapshot file.
+     *
+     * @param view the captured tumor state.
+     */
+    public static void write(File reportDir, String baseName, SnapshotView view) {
+        JamLogger.info("Writing binary snapshot...");
+
+        try {
+            new Writer(new File(reportDir, baseName), view).write();
+        }
+        catch (IOException ex) {
+            throw JamException.runtime(ex);
+        }
+    }
+
+    private static final class Writer {
+        private final File file;
+        private final SnapshotView view;
+        private final List<Genotype> genotypes;
+        private final Reference2IntOpenHashMap<Genotype> genotypeRows;
+
+        private final ByteBuffer buffer =
+            ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        private final long[] columnOffset = new long[COLUMN_COUNT];
+        private final long[] columnLength = new long[COLUMN_COUNT];
+
+        private FileChannel channel;
+        private long position = 0;
+
+        Writer(File file, SnapshotView view) {
+            this.file = file;
+            this.view = view;
+            this.genotypes    = view.sortGenotypes();
+            this.genotypeRows = new Reference2IntOpenHashMap<Genotype>(genotypes.size());
+
+            for (int row = 0; row < genotypes.size(); ++row)
+                genotypeRows.put(genotypes.get(row), row);
+        }
+
+        void write() throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+                channel = raf.getChannel();
+
+                writeHeader();
+                writeComponentColumns();
+                writeGenotypeColumns();
+                writeMutationColumns();
+                writeFooter();
+                flush();
+            }
+        }
+
+        private void writeHeader() throws IOException {
+            putInt(MAGIC);
+            putInt(VERSION);
+            putInt(view.getTrialIndex());
+            putInt(view.getTimeStep());
+        }
+
+        private void writeComponentColumns() throws IOException {
+            int count = view.countComponents();
+
+            beginColumn(COMP_INDEX);
+            for (int row = 0; row < count; ++row)
+                putLong(view.getComponentIndex(row));
+            endColumn(COMP_INDEX, count);
+
+            beginColumn(CELL_COUNT);
+            for (int row = 0; row < count; ++row)
+                putLong(view.getCellCount(row));
+            endColumn(CELL_COUNT, count);
+
+            for (int axis = 0; axis < 3; ++axis) {
+                beginColumn(COORD_X + axis);
+
+                for (int row = 0; row < count; ++row)
+                    putInt(coordinate(view.getCoord(row), axis));
+
+                endColumn(COORD_X + axis, count);
+            }
+
+            beginColumn(COMP_GENOTYPE);
+            for (int row = 0; row < count; ++row)
+                putInt(genotypeRows.getInt(view.getGenotype(row)));
+            endColumn(COMP_GENOTYPE, count);
+        }
+
+        private static int coordinate(Coord coord, int axis) {
+            switch (axis) {
+            case 0:
+                return coord.x;
+
+            case 1:
+                return coord.y;
+
+            default:
+                return coord.z;
+            }
+        }
+
+        private void writeGenotypeColumns() throws IOException {
+            beginColumn(GENO_INDEX);
+            for (Genotype genotype : genotypes)
+                putLong(genotype.getIndex());
+            endColumn(GENO_INDEX, genotypes.size());
+
+            beginColumn(GENO_ORIGINAL);
+            for (Genotype genotype : genotypes)
+                putInt(genotype.countOriginalMutations());
+            endColumn(GENO_ORIGINAL, genotypes.size());
+        }
+
+        private void writeMutationColumns() throws IOException {
+            long offset = 0;
+
+            beginColumn(MUT_OFFSET);
+            putLong(offset);
+
+            for (Genotype genotype : genotypes) {
+                offset += genotype.countAccumulatedMutations();
+                putLong(offset);
+            }
+
+            endColumn(MUT_OFFSET, genotypes.size() + 1);
+
+            beginColumn(MUT_INDEX);
+
+            Genotype.LineageCursor cursor = new Genotype.LineageCursor();
+
+            for (Genotype genotype : genotypes) {
+                cursor.reset(genotype, true);
+
+                while (cursor.hasNext())
+                    putLong(cursor.nextIndex());
+            }
+
+            endColumn(MUT_INDEX, offset);
+        }
+
+        private void writeFooter() throws IOException {
+            align();
+            long footerOffset = position;
+
+            putInt(COLUMN_COUNT);
+            putInt(0);
+
+            for (int column = 0; column < COLUMN_COUNT; ++column) {
+                putInt(column);
+                putInt(COLUMN_WIDTH[column]);
+                putLong(columnOffset[column]);
+                putLong(columnLength[column]);
+            }
+
+            putLong(footerOffset);
+            putInt(MAGIC);
+            putInt(VERSION);
+        }
+
+        private void beginColumn(int column) throws IOException {
+            align();
+            columnOffset[column] = position;
+        }
+
+        private void endColumn(int column, long length) {
+            columnLength[column] = length;
+        }
+
+        private void align() throws IOException {
+            while (position % 8 != 0)
+                putByte((byte) 0);
+        }
+
+        private void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+            position += 1;
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        private void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Returns the index of the trial when the snapshot was recorded.
+     *
+     * @return the index of the trial when the snapshot was recorded.
+     */
+    public int getTrialIndex() {
+        return trialIndex;
+    }
+
+    /**
+     * Returns the time step when the snapshot was recorded.
+     *
+     * @return the time step when the snapshot was recorded.
+     */
+    public int getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Returns the number of components in the snapshot.
+     *
+     * @return the number of components in the snapshot.
+     */
+    public int countComponents() {
+        return compIndex.limit();
+    }
+
+    /**
+     * Returns the number of unique genotypes in the snapshot.
+     *
+     * @return the number of unique genotypes in the snapshot.
+     */
+    public int countGenotypes() {
+        return genoIndex.limit();
+    }
+
+    /**
+     * Returns the index of a component.
+     *
+     * @param row the component row.
+     *
+     * @return the index of the component in the specified row.
+     */
+    public long getCompIndex(int row) {
+        return compIndex.get(row);
+    }
+
+    /**
+     * Returns the number of cells in a component.
+     *
+     * @param row the component row.
+     *
+     * @return the number of cells in the component in the specified
+     * row.
+     */
+    public long getCellCount(int row) {
+        return cellCount.get(row);
+    }
+
+    /**
+     * Returns the location of a component.
+     *
+     * @param row the component row.
+     *
+     * @return the location of the component in the specified row.
+     */
+    public Coord getCompCoord(int row) {
+        return Coord.at(coordX.get(row), coordY.get(row), coordZ.get(row));
+    }
+
+    /**
+     * Returns the genotype row for a component.
+     *
+     * @param row the component row.
+     *
+     * @return the row of the genotype carried by the component in the
+     * specified row.
+     */
+    public int getGenotypeRow(int row) {
+        return compGenotype.get(row);
+    }
+
+    /**
+     * Returns the index of a genotype.
+     *
+     * @param genoRow the genotype row.
+     *
+     * @return the index of the genotype in the specified row.
+     */
+    public long getGenotypeIndex(int genoRow) {
+        return genoIndex.get(genoRow);
+    }
+
+    /**
+     * Returns the number of accumulated mutations in a genotype.
+     *
+     * @param genoRow the genotype row.
+     *
+     * @return the number of accumulated mutations in the genotype in
+     * the specified row.
+     */
+    public int countAccumulatedMutations(int genoRow) {
+        return (int) (mutOffset.get(genoRow + 1) - mutOffset.get(genoRow));
+    }
+
+    /**
+     * Returns the number of original mutations in a genotype.
+     *
+     * @param genoRow the genotype row.
+     *
+     * @return the number of original mutations in the genotype in the
+     * specified row.
+     */
+    public int countOriginalMutations(int genoRow) {
+        return genoOriginal.get(genoRow);
+    }
+
+    /**
+     * Returns the indexes of the accumulated mutations in a genotype.
+     *
+     * @param genoRow the genotype row.
+     *
+     * @return a new list containing the indexes of the accumulated
+     * mutations in the genotype in the specified row.
+     */
+    public LongList getAccumulatedIndexes(int genoRow) {
+        return copyIndexes(mutOffset.get(genoRow), mutOffset.get(genoRow + 1));
+    }
+
+    /**
+     * Returns the indexes of the inherited mutations in a genotype.
+     *
+     * @param genoRow the genotype row.
+     *
+     * @return a new list containing the indexes of the inherited
+     * mutations in the genotype in the specified row.
+     */
+    public LongList getInheritedIndexes(int genoRow) {
+        return copyIndexes(mutOffset.get(genoRow), mutOffset.get(genoRow + 1) - genoOriginal.get(genoRow));
+    }
+
+    /**
+     * Returns the indexes of the original mutations in a genotype.
+     *
+     * @param genoRow the genotype row.
+     *
+     * @return a new list containing the indexes of the original
+     * mutations in the genotype in the specified row.
+     */
+    public LongList getOriginalIndexes(int genoRow) {
+        return copyIndexes(mutOffset.get(genoRow + 1) - genoOriginal.get(genoRow), mutOffset.get(genoRow + 1));
+    }
+
+    private LongList copyIndexes(long start, long end) {
+        LongArrayList indexes = new LongArrayList((int) (end - start));
+
+        for (long index = start; index < end; ++index)
+            indexes.add(mutIndex.get((int) index));
+
+        return indexes;
+    }
+}
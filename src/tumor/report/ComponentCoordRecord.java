@@ -114,11 +114,29 @@ public final class ComponentCoordRecord extends StepRecord {
      * @param tumor the active tumor in the simulation.
      */
     public static <E extends TumorComponent> void write(File reportDir, String baseName, Tumor<E> tumor) {
+        write(reportDir, baseName, SnapshotView.capture(tumor));
+    }
+
+    /**
+     * Generates a component coordinate report from a captured tumor
+     * state.
+     *
+     * @param reportDir the directory where the report file will be written.
+     *
+     * @param baseName the base name of the report file that will be written.
+     *
+     * @param view the captured tumor state.
+     */
+    public static void write(File reportDir, String baseName, SnapshotView view) {
         PrintWriter writer = IOUtil.openWriter(reportDir, baseName);
         writer.println(header());
 
-        for (E component : tumor.sortComponents())
-            writer.println(create(tumor, component).format());
+        for (int row = 0; row < view.countComponents(); ++row)
+            writer.println(new ComponentCoordRecord(view.getTrialIndex(),
+                                                    view.getTimeStep(),
+                                                    view.getComponentIndex(row),
+                                                    view.getCellCount(row),
+                                                    view.getCoord(row)).format());
 
         writer.close();
     }
@@ -57,10 +57,13 @@ public final class ComponentMutationRecord extends StepRecord {
     }
 
     private static ComponentMutationRecord create(TumorComponent component, List<Mutation> mutationList) {
-        int trialIndex = TumorDriver.global().getTrialIndex();
-        int timeStep   = TumorDriver.global().getTimeStep();
-        
-        long componentIndex = component.getIndex();
+        return create(TumorDriver.global().getTrialIndex(),
+                      TumorDriver.global().getTimeStep(),
+                      component.getIndex(),
+                      mutationList);
+    }
+
+    private static ComponentMutationRecord create(int trialIndex, int timeStep, long componentIndex, List<Mutation> mutationList) {
         LongList mutationIndexes = new LongArrayList(mutationList.size());
 
         for (Mutation mutation : mutationList)
@@ -107,10 +110,27 @@ public final class ComponentMutationRecord extends StepRecord {
      * @param tumor the active tumor in the simulation.
      */
     public static <E extends TumorComponent> void writeAccumulated(File reportDir, String baseName, Tumor<E> tumor) {
+        writeAccumulated(reportDir, baseName, SnapshotView.capture(tumor));
+    }
+
+    /**
+     * Writes the accumulated mutations for each component in a
+     * captured tumor state.
+     *
+     * @param reportDir the directory where the report file will be written.
+     *
+     * @param baseName the base name of the report file that will be written.
+     *
+     * @param view the captured tumor state.
+     */
+    public static void writeAccumulated(File reportDir, String baseName, SnapshotView view) {
         PrintWriter writer = IOUtil.openWriter(reportDir, baseName);
 
-        for (E component : tumor.sortComponents())
-            writer.println(accumulated(component).format());
+        for (int row = 0; row < view.countComponents(); ++row)
+            writer.println(create(view.getTrialIndex(),
+                                  view.getTimeStep(),
+                                  view.getComponentIndex(row),
+                                  view.getGenotype(row).viewAccumulatedMutations()).format());
 
         writer.close();
     }
@@ -127,10 +147,27 @@ public final class ComponentMutationRecord extends StepRecord {
      * @param tumor the active tumor in the simulation.
      */
     public static <E extends TumorComponent> void writeOriginal(File reportDir, String baseName, Tumor<E> tumor) {
+        writeOriginal(reportDir, baseName, SnapshotView.capture(tumor));
+    }
+
+    /**
+     * Writes the original mutations for each component in a captured
+     * tumor state.
+     *
+     * @param reportDir the directory where the report file will be written.
+     *
+     * @param baseName the base name of the report file that will be written.
+     *
+     * @param view the captured tumor state.
+     */
+    public static void writeOriginal(File reportDir, String baseName, SnapshotView view) {
         PrintWriter writer = IOUtil.openWriter(reportDir, baseName);
 
-        for (E component : tumor.sortComponents())
-            writer.println(original(component).format());
+        for (int row = 0; row < view.countComponents(); ++row)
+            writer.println(create(view.getTrialIndex(),
+                                  view.getTimeStep(),
+                                  view.getComponentIndex(row),
+                                  view.getGenotype(row).viewOriginalMutations()).format());
 
         writer.close();
     }
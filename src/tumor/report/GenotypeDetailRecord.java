@@ -48,12 +48,13 @@ public final class GenotypeDetailRecord extends StepRecord {
      * @return a new detail record for the given genotype.
      */
     public static GenotypeDetailRecord create(Genotype genotype) {
-        int trialIndex = TumorDriver.global().getTrialIndex();
-        int timeStep   = TumorDriver.global().getTimeStep();
+        return create(TumorDriver.global().getTrialIndex(), TumorDriver.global().getTimeStep(), genotype);
+    }
 
+    private static GenotypeDetailRecord create(int trialIndex, int timeStep, Genotype genotype) {
         long genoIndex = genotype.getIndex();
 
-        LongList inherited = Mutation.indexList(genotype.scanInheritedMutations());
+        LongList inherited = genotype.listInheritedIndexes();
         LongList original  = Mutation.indexList(genotype.viewOriginalMutations());
 
         return new GenotypeDetailRecord(trialIndex, timeStep, genoIndex, inherited, original);
@@ -99,11 +100,24 @@ public final class GenotypeDetailRecord extends StepRecord {
      * @param tumor the active tumor in the simulation.
      */
     public static <E extends TumorComponent> void write(File reportDir, String baseName, Tumor<E> tumor) {
+        write(reportDir, baseName, SnapshotView.capture(tumor));
+    }
+
+    /**
+     * Generates a genotype detail report from a captured tumor state.
+     *
+     * @param reportDir the directory where the report file will be written.
+     *
+     * @param baseName the base name of the report file that will be written.
+     *
+     * @param view the captured tumor state.
+     */
+    public static void write(File reportDir, String baseName, SnapshotView view) {
         JamLogger.info("Writing genotype detail...");
         PrintWriter writer = IOUtil.openWriter(reportDir, baseName);
 
-        for (Genotype genotype : tumor.sortGenotypes())
-            writer.println(create(genotype).format());
+        for (Genotype genotype : view.sortGenotypes())
+            writer.println(create(view.getTrialIndex(), view.getTimeStep(), genotype).format());
 
         writer.close();
     }
@@ -6,6 +6,8 @@ import java.util.List;
 
 import jam.app.JamProperties;
 
+import tumor.driver.StepMetrics;
+
 import tumor.report.bulk.BulkMutDistReport;
 import tumor.report.bulk.BulkSampleSiteReport;
 import tumor.report.bulk.BulkVAFReport;
@@ -130,8 +132,22 @@ public final class ReportManager {
      * requested reports.
      */
     public void processStep() {
-        for (TumorReport report : reports)
+        StepMetrics stepMetrics = StepMetrics.global();
+
+        if (!stepMetrics.isEnabled()) {
+            for (TumorReport report : reports)
+                report.processStep();
+
+            return;
+        }
+
+        for (TumorReport report : reports) {
+            String phaseName = StepMetrics.REPORT_PHASE_PREFIX + report.getClass().getSimpleName();
+
+            stepMetrics.begin(phaseName);
             report.processStep();
+            stepMetrics.end(phaseName);
+        }
     }
 
     /**
@@ -0,0 +1,265 @@
+
+package tumor.report;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import jam.app.JamProperties;
+import jam.lang.JamException;
+import jam.report.ReportRecord;
+import jam.report.ReportWriter;
+
+/**
+ * Formats, compresses, and writes report output on a bounded pool of
+ * background threads, so that the simulation can start the next time
+ * step while the output for the previous step is being written.
+ *
+ * <p>Tasks submitted to the pipeline must only read data that was
+ * captured at the step boundary and will not be modified by later
+ * time steps (record objects, {@link SnapshotView} instances).  Tasks
+ * submitted for the same channel (typically a {@code ReportWriter})
+ * run in the order of submission; tasks for different channels may
+ * run concurrently.
+ *
+ * <p>The number of submitted tasks that have not completed is
+ * limited by the queue capacity: when the queue is full, submission
+ * blocks until a task completes, so that captured data cannot
+ * accumulate without bound if the writers fall behind.
+ *
+ * <p>With the default thread count of zero, every task runs on the
+ * calling thread at the time of submission.
+ */
+public final class ReportPipeline {
+    private final int queueCapacity;
+
+    // Permits for the tasks that may be pending at any time...
+    private final Semaphore queuePermits;
+
+    // The last task submitted for each ordered channel...
+    private final Map<Object, CompletableFuture<Void>> channelTails =
+        new IdentityHashMap<Object, CompletableFuture<Void>>();
+
+    private final ExecutorService executor;
+
+    // The first failure reported by a background task...
+    private Throwable failure = null;
+
+    // The single global instance...
+    private static ReportPipeline global = null;
+
+    /**
+     * Name of the system property that defines the number of
+     * background threads used to write report output; zero (the
+     * default) writes all output on the simulation thread.
+     */
+    public static final String THREAD_COUNT_PROPERTY = "tumor.report.ReportPipeline.threadCount";
+
+    /**
+     * Default value for the thread count property.
+     */
+    public static final int THREAD_COUNT_DEFAULT = 0;
+
+    /**
+     * Name of the system property that defines the maximum number of
+     * pending (submitted but not completed) tasks.
+     */
+    public static final String QUEUE_CAPACITY_PROPERTY = "tumor.report.ReportPipeline.queueCapacity";
+
+    /**
+     * Default value for the queue capacity property.
+     */
+    public static final int QUEUE_CAPACITY_DEFAULT = 8;
+
+    private ReportPipeline(int threadCount, int queueCapacity) {
+        if (threadCount < 0)
+            throw JamException.runtime("Report thread count must be non-negative.");
+
+        if (queueCapacity < 1)
+            throw JamException.runtime("Report queue capacity must be positive.");
+
+        this.queueCapacity = queueCapacity;
+        this.queuePermits  = new Semaphore(queueCapacity);
+        this.executor      = createExecutor(threadCount);
+    }
+
+    private static ExecutorService createExecutor(int threadCount) {
+        if (threadCount == 0)
+            return null;
+
+        return Executors.newFixedThreadPool(threadCount, runnable -> {
+                Thread thread = new Thread(runnable, "report-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param threadCount the number of background threads (zero to
+     * run every task on the calling thread).
+     *
+     * @param queueCapacity the maximum number of pending tasks.
+     *
+     * @return the new pipeline.
+     *
+     * @throws RuntimeException unless the thread count is
+     * non-negative and the queue capacity is positive.
+     */
+    public static ReportPipeline create(int threadCount, int queueCapacity) {
+        return new ReportPipeline(threadCount, queueCapacity);
+    }
+
+    /**
+     * Returns the single global instance.
+     *
+     * @return the single global instance.
+     */
+    public static synchronized ReportPipeline global() {
+        if (global == null)
+            global = create(resolveThreadCount(), resolveQueueCapacity());
+
+        return global;
+    }
+
+    private static int resolveThreadCount() {
+        return JamProperties.getOptionalInt(THREAD_COUNT_PROPERTY, THREAD_COUNT_DEFAULT);
+    }
+
+    private static int resolveQueueCapacity() {
+        return JamProperties.getOptionalInt(QUEUE_CAPACITY_PROPERTY, QUEUE_CAPACITY_DEFAULT);
+    }
+
+    /**
+     * Identifies pipelines that write output on background threads.
+     *
+     * @return {@code true} iff tasks run on background threads.
+     */
+    public boolean isAsynchronous() {
+        return executor != null;
+    }
+
+    /**
+     * Submits an independent task for execution.
+     *
+     * @param task the task to execute.
+     *
+     * @throws RuntimeException if a previously submitted task failed.
+     */
+    public void submit(Runnable task) {
+        submit(null, task);
+    }
+
+    /**
+     * Submits a task for execution after all tasks previously
+     * submitted for the same channel have completed.
+     *
+     * @param channel the channel that orders the task (or
+     * {@code null} for an independent task).
+     *
+     * @param task the task to execute.
+     *
+     * @throws RuntimeException if a previously submitted task failed.
+     */
+    public void submit(Object channel, Runnable task) {
+        checkFailure();
+
+        if (!isAsynchronous()) {
+            task.run();
+            return;
+        }
+
+        acquirePermit();
+
+        CompletableFuture<Void> future;
+
+        synchronized (channelTails) {
+            CompletableFuture<Void> tail = (channel != null) ? channelTails.get(channel) : null;
+
+            if (tail == null)
+                future = CompletableFuture.runAsync(task, executor);
+            else
+                future = tail.handleAsync((result, ex) -> { task.run(); return null; }, executor);
+
+            if (channel != null)
+                channelTails.put(channel, future);
+        }
+
+        future.whenComplete((result, ex) -> complete(ex));
+    }
+
+    /**
+     * Submits records for output by a report writer; the records are
+     * written and the writer flushed after all previously submitted
+     * output for the same writer.
+     *
+     * @param <R> the report record type.
+     *
+     * @param writer the destination for the records.
+     *
+     * @param records the records to write, which must not be modified
+     * after submission.
+     */
+    public <R extends ReportRecord> void write(ReportWriter<R> writer, Collection<R> records) {
+        submit(writer, () -> {
+                writer.write(records);
+                writer.flush();
+            });
+    }
+
+    /**
+     * Closes a report writer after all output submitted for the
+     * writer has been written.
+     *
+     * @param writer the writer to close.
+     */
+    public void close(ReportWriter<?> writer) {
+        submit(writer, () -> writer.close());
+        await();
+
+        synchronized (channelTails) {
+            channelTails.remove(writer);
+        }
+    }
+
+    /**
+     * Waits until every submitted task has completed.
+     *
+     * @throws RuntimeException if any submitted task failed.
+     */
+    public void await() {
+        if (isAsynchronous()) {
+            queuePermits.acquireUninterruptibly(queueCapacity);
+            queuePermits.release(queueCapacity);
+        }
+
+        checkFailure();
+    }
+
+    private void acquirePermit() {
+        try {
+            queuePermits.acquire();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw JamException.runtime(ex);
+        }
+    }
+
+    private synchronized void complete(Throwable ex) {
+        if (ex != null && failure == null)
+            failure = ex;
+
+        queuePermits.release();
+    }
+
+    private synchronized void checkFailure() {
+        if (failure != null)
+            throw JamException.runtime("Report output failed: [%s].", failure);
+    }
+}
@@ -38,10 +38,12 @@ public final class ScalarMutationRecord extends TrialRecord {
      * mutation (an instance of the {@code ScalarMutation} class)
      */
     public static ScalarMutationRecord create(Mutation mutation) {
-        ScalarMutation scalar = (ScalarMutation) mutation;
+        return create(TumorDriver.global().getTrialIndex(), mutation);
+    }
 
-        return new ScalarMutationRecord(TumorDriver.global().getTrialIndex(),
-                                        scalar.getIndex(), scalar.getSelectionCoeff());
+    private static ScalarMutationRecord create(int trialIndex, Mutation mutation) {
+        ScalarMutation scalar = (ScalarMutation) mutation;
+        return new ScalarMutationRecord(trialIndex, scalar.getIndex(), scalar.getSelectionCoeff());
     }
 
     /**
@@ -87,11 +89,29 @@ public final class ScalarMutationRecord extends TrialRecord {
      * @param mutations the mutations to record.
      */
     public static void write(File reportDir, String baseName, List<Mutation> mutations) {
+        write(reportDir, baseName, TumorDriver.global().getTrialIndex(), mutations);
+    }
+
+    /**
+     * Generates a scalar mutation report for the mutations accumulated
+     * in a captured tumor state.
+     *
+     * @param reportDir the directory where the report file will be written.
+     *
+     * @param baseName the base name of the report file that will be written.
+     *
+     * @param view the captured tumor state.
+     */
+    public static void write(File reportDir, String baseName, SnapshotView view) {
+        write(reportDir, baseName, view.getTrialIndex(), view.getAccumulatedMutations());
+    }
+
+    private static void write(File reportDir, String baseName, int trialIndex, List<Mutation> mutations) {
         PrintWriter writer = IOUtil.openWriter(reportDir, baseName);
         writer.println(header());
 
         for (Mutation mutation : mutations)
-            writer.println(create(mutation).format());
+            writer.println(create(trialIndex, mutation).format());
 
         writer.close();
     }
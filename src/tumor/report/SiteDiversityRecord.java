@@ -9,13 +9,13 @@ import java.util.Map;
 import jam.lattice.Coord;
 import jam.math.HerfindahlIndex;
 import jam.math.StatSummary;
-import jam.math.VectorMoment;
 import jam.report.ReportRecord;
 
 import tumor.carrier.Carrier;
 import tumor.carrier.Lineage;
 import tumor.driver.TumorDriver;
 import tumor.lattice.LineageLatticeTumor;
+import tumor.lattice.RunningMoment;
 import tumor.mutation.MutationFrequencyMap;
 
 /**
@@ -78,7 +78,7 @@ public final class SiteDiversityRecord implements ReportRecord {
      * @return the site diversity records for the given tumor.
      */
     public static Collection<SiteDiversityRecord> compute(LineageLatticeTumor tumor) {
-        VectorMoment moment = tumor.getVectorMoment();
+        RunningMoment moment = tumor.getCellMoment();
         Map<Coord, Collection<Lineage>> lineageMap = tumor.mapComponents();
 
         Collection<SiteDiversityRecord> records =
@@ -90,8 +90,8 @@ public final class SiteDiversityRecord implements ReportRecord {
         return records;
     }
 
-    private static SiteDiversityRecord compute(Coord coord, VectorMoment moment, Collection<Lineage> lineages) {
-        double normR = moment.normR(coord.toVector());
+    private static SiteDiversityRecord compute(Coord coord, RunningMoment moment, Collection<Lineage> lineages) {
+        double normR = moment.normR(coord);
 
         MutationFrequencyMap frequencyMap =
             MutationFrequencyMap.compute(lineages);
@@ -0,0 +1,275 @@
+
+package tumor.report;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import jam.lattice.Coord;
+
+import tumor.carrier.Tumor;
+import tumor.carrier.TumorComponent;
+import tumor.driver.TumorDriver;
+import tumor.mutation.Genotype;
+import tumor.mutation.MutableGenotype;
+import tumor.mutation.Mutation;
+
+/**
+ * Captures the state of a tumor at a time step boundary for output
+ * on another thread.
+ *
+ * <p>The capture records the index, cell count, location, and
+ * genotype of each component, which is proportional to the number of
+ * components and does not sort, format, or expand the mutation lists.
+ * Mutable genotypes (which may acquire new mutations in later time
+ * steps) are replaced by frozen copies; fixed genotypes, the
+ * component ancestry, and the mutations themselves never change and
+ * are shared with the simulation.  The components are sorted by
+ * their ordinal index only when a report first requests them.
+ */
+public final class SnapshotView {
+    private final int trialIndex;
+    private final int timeStep;
+
+    private final TumorComponent[] components;
+    private final long[]     cellCounts;
+    private final Coord[]    coords;
+    private final Genotype[] genotypes;
+
+    private final List<Mutation> accumulated;
+
+    // Component rows in order of increasing component index and the
+    // unique genotypes in order of increasing genotype index, created
+    // on demand...
+    private int[] sortedRows = null;
+    private List<Genotype> sortedGenotypes = null;
+
+    private SnapshotView(int trialIndex,
+                         int timeStep,
+                         TumorComponent[] components,
+                         long[] cellCounts,
+                         Coord[] coords,
+                         Genotype[] genotypes,
+                         List<Mutation> accumulated) {
+        this.trialIndex  = trialIndex;
+        this.timeStep    = timeStep;
+        this.components  = components;
+        this.cellCounts  = cellCounts;
+        this.coords      = coords;
+        this.genotypes   = genotypes;
+        this.accumulated = accumulated;
+    }
+
+    /**
+     * Captures the current state of a tumor.
+     *
+     * @param <E> the tumor component type.
+     *
+     * @param tumor the tumor to capture.
+     *
+     * @return the captured view of the tumor.
+     */
+    public static <E extends TumorComponent> SnapshotView capture(Tumor<E> tumor) {
+        Set<E> componentSet = tumor.viewComponents();
+        int    componentCount = componentSet.size();
+
+        TumorComponent[] components = new TumorComponent[componentCount];
+        long[]     cellCounts = new long[componentCount];
+        Coord[]    coords     = new Coord[componentCount];
+        Genotype[] genotypes  = new Genotype[componentCount];
+
+        Map<Genotype, Genotype> frozen = new IdentityHashMap<Genotype, Genotype>();
+        int row = 0;
+
+        for (E component : componentSet) {
+            components[row] = component;
+            cellCounts[row] = component.countCells();
+            coords[row]     = tumor.locateComponent(component);
+            genotypes[row]  = freeze(component.getGenotype(), frozen);
+            ++row;
+        }
+
+        return new SnapshotView(TumorDriver.global().getTrialIndex(),
+                                TumorDriver.global().getTimeStep(),
+                                components,
+                                cellCounts,
+                                coords,
+                                genotypes,
+                                tumor.getAccumulatedMutations());
+    }
+
+    private static Genotype freeze(Genotype genotype, Map<Genotype, Genotype> frozen) {
+        if (!(genotype instanceof MutableGenotype))
+            return genotype;
+
+        Genotype copy = frozen.get(genotype);
+
+        if (copy != null)
+            return copy;
+
+        //
+        // Collect the ancestors that have not been frozen yet (without
+        // recursion, since lineages may be very deep) and then freeze
+        // them from the oldest to the youngest...
+        //
+        List<MutableGenotype> pending = new ArrayList<MutableGenotype>();
+
+        for (Genotype ancestor = genotype; ancestor != null && !frozen.containsKey(ancestor); ancestor = ancestor.getParent())
+            pending.add((MutableGenotype) ancestor);
+
+        for (int index = pending.size() - 1; index >= 0; --index) {
+            MutableGenotype original = pending.get(index);
+            MutableGenotype parentCopy = original.isFounder() ? null : (MutableGenotype) frozen.get(original.getParent());
+
+            frozen.put(original, original.freeze(parentCopy));
+        }
+
+        return frozen.get(genotype);
+    }
+
+    /**
+     * Returns the index of the trial when this view was captured.
+     *
+     * @return the index of the trial when this view was captured.
+     */
+    public int getTrialIndex() {
+        return trialIndex;
+    }
+
+    /**
+     * Returns the time step when this view was captured.
+     *
+     * @return the time step when this view was captured.
+     */
+    public int getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Returns the number of components in the captured tumor.
+     *
+     * @return the number of components in the captured tumor.
+     */
+    public int countComponents() {
+        return components.length;
+    }
+
+    /**
+     * Returns the component at a given row in index order.
+     *
+     * @param row the row index (in the range
+     * {@code [0, countComponents())}).
+     *
+     * @return the component at the specified row; only its index and
+     * ancestry may be examined, since its other state may have changed
+     * after the capture.
+     */
+    public TumorComponent getComponent(int row) {
+        return components[sortedRow(row)];
+    }
+
+    /**
+     * Returns the index of the component at a given row in index
+     * order.
+     *
+     * @param row the row index.
+     *
+     * @return the index of the component at the specified row.
+     */
+    public long getComponentIndex(int row) {
+        return components[sortedRow(row)].getIndex();
+    }
+
+    /**
+     * Returns the captured cell count of the component at a given row
+     * in index order.
+     *
+     * @param row the row index.
+     *
+     * @return the captured cell count of the component at the
+     * specified row.
+     */
+    public long getCellCount(int row) {
+        return cellCounts[sortedRow(row)];
+    }
+
+    /**
+     * Returns the captured location of the component at a given row
+     * in index order.
+     *
+     * @param row the row index.
+     *
+     * @return the captured location of the component at the
+     * specified row.
+     */
+    public Coord getCoord(int row) {
+        return coords[sortedRow(row)];
+    }
+
+    /**
+     * Returns the captured genotype of the component at a given row
+     * in index order.
+     *
+     * @param row the row index.
+     *
+     * @return the captured genotype of the component at the
+     * specified row.
+     */
+    public Genotype getGenotype(int row) {
+        return genotypes[sortedRow(row)];
+    }
+
+    /**
+     * Returns the mutations accumulated by the tumor at the time of
+     * the capture.
+     *
+     * @return the mutations accumulated by the tumor at the time of
+     * the capture.
+     */
+    public List<Mutation> getAccumulatedMutations() {
+        return accumulated;
+    }
+
+    /**
+     * Returns the unique captured genotypes sorted by their ordinal
+     * index.
+     *
+     * @return the unique captured genotypes sorted by their ordinal
+     * index.
+     */
+    public synchronized List<Genotype> sortGenotypes() {
+        if (sortedGenotypes == null) {
+            Set<Genotype> genotypeSet = new TreeSet<Genotype>();
+
+            for (Genotype genotype : genotypes)
+                genotypeSet.add(genotype);
+
+            sortedGenotypes = List.copyOf(genotypeSet);
+        }
+
+        return sortedGenotypes;
+    }
+
+    private int sortedRow(int row) {
+        return sortRows()[row];
+    }
+
+    private synchronized int[] sortRows() {
+        if (sortedRows == null) {
+            int[] rows = new int[components.length];
+
+            for (int row = 0; row < rows.length; ++row)
+                rows[row] = row;
+
+            IntArrays.quickSort(rows, (r1, r2) -> Long.compare(components[r1].getIndex(), components[r2].getIndex()));
+            sortedRows = rows;
+        }
+
+        return sortedRows;
+    }
+}
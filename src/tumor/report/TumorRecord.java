@@ -24,6 +24,19 @@ public abstract class TumorRecord extends StepRecord {
         super(TumorDriver.global().getTrialIndex(), TumorDriver.global().getTimeStep());
     }
 
+    /**
+     * Creates a new tumor record with an explicit trial index and
+     * time step (when restoring a record from a trial checkpoint).
+     *
+     * @param trialIndex the index of the trial when the record was
+     * collected.
+     *
+     * @param timeStep the time step when the record was collected.
+     */
+    protected TumorRecord(int trialIndex, int timeStep) {
+        super(trialIndex, timeStep);
+    }
+
     /**
      * Appends a radial vector to an output line.
      *
@@ -131,18 +131,15 @@ public abstract class TumorRecordReport<R extends ReportRecord> extends TumorRep
     }
 
     @Override public void processStep() {
-        if (isSampleStep()) {
-            reportWriter.write(generateRecords());
-            reportWriter.flush();
-        }
+        if (isSampleStep())
+            writeRecords(reportWriter, generateRecords());
     }
 
     @Override public void finalizeTrial() {
-        reportWriter.write(generateRecords());
-        reportWriter.flush();
+        writeRecords(reportWriter, generateRecords());
     }
 
     @Override public void finalizeSimulation() {
-        reportWriter.close();
+        closeWriter(reportWriter);
     }
 }
@@ -1,6 +1,11 @@
 
 package tumor.report;
 
+import java.util.Collection;
+
+import jam.report.ReportRecord;
+import jam.report.ReportWriter;
+
 import tumor.carrier.Tumor;
 import tumor.carrier.TumorComponent;
 import tumor.driver.TumorDriver;
@@ -97,4 +102,30 @@ public abstract class TumorReport {
     public boolean isSampleStep(int sampleInterval) {
         return (sampleInterval > 0) && (getTimeStep() > 0) && (getTimeStep() % sampleInterval == 0);
     }
+
+    /**
+     * Writes report records through the report pipeline: the records
+     * are written and the writer flushed after any output submitted
+     * earlier for the same writer, possibly on a background thread.
+     *
+     * @param <R> the report record type.
+     *
+     * @param writer the destination for the records.
+     *
+     * @param records the records to write, which must not be modified
+     * or refer to mutable simulation state after this call.
+     */
+    public <R extends ReportRecord> void writeRecords(ReportWriter<R> writer, Collection<R> records) {
+        ReportPipeline.global().write(writer, records);
+    }
+
+    /**
+     * Closes a report writer after all output submitted through the
+     * report pipeline has been written.
+     *
+     * @param writer the writer to close.
+     */
+    public void closeWriter(ReportWriter<?> writer) {
+        ReportPipeline.global().close(writer);
+    }
 }
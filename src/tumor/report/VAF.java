@@ -5,12 +5,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
-import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
 import jam.app.JamLogger;
 import jam.math.DoubleUtil;
@@ -20,6 +18,7 @@ import jam.vector.JamVector;
 import jam.vector.VectorView;
 
 import tumor.carrier.TumorComponent;
+import tumor.mutation.GenotypeTree;
 import tumor.mutation.Mutation;
 import tumor.mutation.MutationSet;
 
@@ -61,17 +60,11 @@ public final class VAF {
     }
 
     private static Object2LongMap<Mutation> countMutations(Collection<? extends TumorComponent> components) {
-        Object2LongOpenHashMap<Mutation> counts = new Object2LongOpenHashMap<Mutation>();
-
-        for (TumorComponent component : components) {
-            Iterator<Mutation> iterator =
-                component.getGenotype().scanAccumulatedMutations();
-
-            while (iterator.hasNext())
-                counts.addTo(iterator.next(), component.countCells());
-        }
-
-        return counts;
+        //
+        // Aggregate the cell counts over the genotype phylogeny rather
+        // than scanning the accumulated mutations of every component...
+        //
+        return GenotypeTree.countMutations(components);
     }
 
     /**
@@ -1,10 +1,15 @@
 
 package tumor.report.bulk;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import jam.report.LineBuilder;
 import jam.report.ReportRecord;
 
+import tumor.mutation.MutationSet;
 import tumor.mutation.MutationalDistance;
+import tumor.mutation.MutationalDistanceMatrix;
 import tumor.report.TumorSample;
 
 /**
@@ -42,6 +47,36 @@ public final class BulkMutDistRecord implements ReportRecord {
         return new BulkMutDistRecord(sample1, sample2, mrcaDist);
     }
 
+    /**
+     * Computes the mutational distance between every pair of bulk
+     * samples in a group.
+     *
+     * <p>The clonal mutations in all samples are encoded as bit sets
+     * once and the distances for all pairs are computed in a single
+     * pass.
+     *
+     * @param samples the bulk samples to compare.
+     *
+     * @return a list containing one record for each distinct pair of
+     * samples {@code (first, second)} with {@code first < second}, in
+     * the order of {@code first} and then {@code second}.
+     */
+    public static List<BulkMutDistRecord> computeAll(List<TumorSample> samples) {
+        List<MutationSet> clonalSets = new ArrayList<MutationSet>(samples.size());
+
+        for (TumorSample sample : samples)
+            clonalSets.add(sample.getVAF().viewClonalMutations());
+
+        MutationalDistanceMatrix matrix  = MutationalDistanceMatrix.compute(clonalSets);
+        List<BulkMutDistRecord>  records = new ArrayList<BulkMutDistRecord>();
+
+        for (int first = 0; first < samples.size() - 1; ++first)
+            for (int second = first + 1; second < samples.size(); ++second)
+                records.add(new BulkMutDistRecord(samples.get(first), samples.get(second), matrix.get(first, second)));
+
+        return records;
+    }
+
     public int getTrialIndex() {
         return sample1.getTrialIndex();
     }
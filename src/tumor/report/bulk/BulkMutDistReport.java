@@ -103,7 +103,7 @@ public final class BulkMutDistReport extends TumorReport {
     }
 
     @Override public void finalizeSimulation() {
-        reportWriter.close();
+        closeWriter(reportWriter);
     }
 
     private void writeReportRecords() {
@@ -111,11 +111,6 @@ public final class BulkMutDistReport extends TumorReport {
         // Generate a report record for each sample pair...
         //
         List<TumorSample> samples = BulkSampleCollector.collect(sampleSpace, sampleSize);
-
-        for (int first = 0; first < samples.size() - 1; ++first)
-            for (int second = first + 1; second < samples.size(); ++second)
-                reportWriter.write(BulkMutDistRecord.compute(samples.get(first), samples.get(second)));
-
-        reportWriter.flush();
+        writeRecords(reportWriter, BulkMutDistRecord.computeAll(samples));
     }
 }
@@ -16,11 +16,24 @@ import tumor.report.TumorSample;
 /**
  * Collects bulk samples from the active primary tumor and maintains
  * them in a cache for later analysis.
+ *
+ * <p>The reports retrieve the samples at the time step that collects
+ * them, so the cache holds only the samples collected at a single
+ * time step: samples from earlier steps are discarded when samples
+ * are collected at a later step.  The cache therefore holds no state
+ * that a trial resumed from a checkpoint (recorded at the end of a
+ * time step) would need.  The driver also clears the cache at the end
+ * of each trial, so the samples of the final step of a trial are not
+ * retained while the next trial runs.
  */
 public final class BulkSampleCollector {
     private static final Map<SampleListKey, List<TumorSample>> sampleMap =
         new HashMap<SampleListKey, List<TumorSample>>();
 
+    // The trial index and time step of the cached samples...
+    private static int sampleTrialIndex = -1;
+    private static int sampleTimeStep = -1;
+
     private BulkSampleCollector() {
     }
 
@@ -69,6 +82,7 @@ public final class BulkSampleCollector {
         int trialIndex = activeTrialIndex();
         int timeStep   = activeTimeStep();
 
+        discardEarlierSamples(trialIndex, timeStep);
         List<TumorSample> sampleList = getSampleList(trialIndex, timeStep, sampleSpace, targetSize);
 
         if (sampleList.isEmpty())
@@ -77,6 +91,23 @@ public final class BulkSampleCollector {
         return Collections.unmodifiableList(sampleList);
     }
 
+    private static void discardEarlierSamples(int trialIndex, int timeStep) {
+        if (trialIndex != sampleTrialIndex || timeStep != sampleTimeStep) {
+            sampleMap.clear();
+            sampleTrialIndex = trialIndex;
+            sampleTimeStep   = timeStep;
+        }
+    }
+
+    /**
+     * Discards every sample in the cache (at the end of a trial).
+     */
+    public static void clear() {
+        sampleMap.clear();
+        sampleTrialIndex = -1;
+        sampleTimeStep   = -1;
+    }
+
     private static int activeTrialIndex() {
         return TumorDriver.global().getTrialIndex();
     }
@@ -102,7 +133,9 @@ public final class BulkSampleCollector {
      *
      * <p>If the trial index and time step match the state of the
      * active simulation, the samples will be collected if they are
-     * not already present in the collection.
+     * not already present in the collection.  Samples collected at
+     * earlier time steps are available only until samples are
+     * collected at a later step.
      *
      * @param trialIndex the index of the simulation trial at the time
      * of collection.
@@ -118,9 +151,10 @@ public final class BulkSampleCollector {
      * @return an unmodifiable list containing the bulk samples.
      *
      * @throws IllegalStateException if the requested samples were not
-     * previously collected and cannot be collected in the current
-     * simulation state (the trial index and time step do not match
-     * the current state of the active simulation).
+     * previously collected (or have been discarded) and cannot be
+     * collected in the current simulation state (the trial index and
+     * time step do not match the current state of the active
+     * simulation).
      */
     public static List<TumorSample> require(int trialIndex, int timeStep, BulkSampleSpace sampleSpace, long targetSize) {
         List<TumorSample> sampleList = getSampleList(trialIndex, timeStep, sampleSpace, targetSize);
@@ -1,7 +1,9 @@
 
 package tumor.report.bulk;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import jam.app.JamLogger;
 import jam.app.JamProperties;
@@ -120,8 +122,12 @@ public final class BulkSampleSiteReport extends TumorReport {
         Collection<TumorSample> bulkSamples =
             BulkSampleCollector.collect(sampleSpace, sampleSize);
 
+        List<BulkSampleSiteRecord> records = new ArrayList<BulkSampleSiteRecord>();
+
         for (TumorSample bulkSample : bulkSamples)
-            reportWriter.write(BulkSampleSiteRecord.split(bulkSample));
+            records.addAll(BulkSampleSiteRecord.split(bulkSample));
+
+        writeRecords(reportWriter, records);
     }
 
     @Override public void finalizeTrial() {
@@ -133,6 +139,6 @@ public final class BulkSampleSiteReport extends TumorReport {
     }
 
     @Override public void finalizeSimulation() {
-        reportWriter.close();
+        closeWriter(reportWriter);
     }
 }
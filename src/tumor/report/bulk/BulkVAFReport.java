@@ -1,6 +1,7 @@
 
 package tumor.report.bulk;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import jam.app.JamLogger;
@@ -112,18 +113,19 @@ public final class BulkVAFReport extends TumorReport {
     }
 
     @Override public void finalizeSimulation() {
-        reportWriter.close();
+        closeWriter(reportWriter);
     }
 
     private void writeReportRecords() {
         //
         // Generate a report record for each sample pair...
         //
-        List<TumorSample> samples = BulkSampleCollector.collect(sampleSpace, sampleSize);
+        List<TumorSample>   samples = BulkSampleCollector.collect(sampleSpace, sampleSize);
+        List<BulkVAFRecord> records = new ArrayList<BulkVAFRecord>(samples.size());
 
         for (TumorSample sample : samples)
-            reportWriter.write(BulkVAFRecord.create(sample));
+            records.add(BulkVAFRecord.create(sample));
 
-        reportWriter.flush();
+        writeRecords(reportWriter, records);
     }
 }
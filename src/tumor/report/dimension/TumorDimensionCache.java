@@ -1,18 +1,31 @@
 
 package tumor.report.dimension;
 
-import java.util.HashMap;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import tumor.driver.TumorDriver;
 
 /**
  * Generates and stores tumor dimension records during a simulation.
+ *
+ * <p>Reports may require the record for an earlier time step, so the
+ * records for the current trial are written to trial checkpoints and
+ * restored when the trial is resumed.  The driver clears the cache at
+ * the end of each trial, so the records of completed trials are not
+ * retained.  Reports formatted on background threads read the cache
+ * while the driver adds records, so the cache is a concurrent map.
  */
 public final class TumorDimensionCache {
     private static final Map<RecordKey, TumorDimensionRecord> records =
-        new HashMap<RecordKey, TumorDimensionRecord>();
+        new ConcurrentHashMap<RecordKey, TumorDimensionRecord>();
 
     private TumorDimensionCache() {
     }
@@ -111,4 +124,51 @@ public final class TumorDimensionCache {
             throw new IllegalStateException(String.format("Record [%d:%d] was not generated.", trialIndex, timeStep));
         }
     }
+
+    /**
+     * Discards every record in the cache (at the end of a trial).
+     */
+    public static void clear() {
+        records.clear();
+    }
+
+    /**
+     * Writes the records for one trial to a trial checkpoint.
+     *
+     * @param output the checkpoint stream.
+     *
+     * @param trialIndex the index of the trial being recorded.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void write(DataOutputStream output, int trialIndex) throws IOException {
+        List<TumorDimensionRecord> trialRecords = new ArrayList<TumorDimensionRecord>();
+
+        for (TumorDimensionRecord record : records.values())
+            if (record.getTrialIndex() == trialIndex)
+                trialRecords.add(record);
+
+        trialRecords.sort(Comparator.comparingInt(TumorDimensionRecord::getTimeStep));
+        output.writeInt(trialRecords.size());
+
+        for (TumorDimensionRecord record : trialRecords)
+            record.write(output);
+    }
+
+    /**
+     * Restores the records written to a trial checkpoint by
+     * {@code write()}.
+     *
+     * @param input the checkpoint stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void read(DataInputStream input) throws IOException {
+        int count = input.readInt();
+
+        for (int k = 0; k < count; ++k) {
+            TumorDimensionRecord record = TumorDimensionRecord.read(input);
+            records.put(new RecordKey(record.getTrialIndex(), record.getTimeStep()), record);
+        }
+    }
 }
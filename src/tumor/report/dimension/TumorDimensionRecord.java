@@ -1,30 +1,82 @@
 
 package tumor.report.dimension;
 
-import jam.math.PrincipalMoments;
-import jam.math.VectorMoment;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import jam.report.LineBuilder;
 import jam.report.ReportRecord;
 
 import tumor.driver.TumorDriver;
 import tumor.lattice.LatticeTumor;
+import tumor.lattice.RunningMoment;
 import tumor.report.TumorRecord;
 
 /**
  * Encapsulates the tumor dimensions and characteristic values for the
  * gyration tensor.
+ *
+ * <p>The characteristic values are computed from the running cell
+ * moments of the tumor (see {@link RunningMoment}) in constant time
+ * when the record is collected, so that the record may be written to
+ * (and restored from) a trial checkpoint.
  */
 public final class TumorDimensionRecord extends TumorRecord implements ReportRecord {
     private final long cellCount;
     private final long componentCount;
-    private final VectorMoment vectorMoment;
+
+    private final double cmX;
+    private final double cmY;
+    private final double cmZ;
+    private final double rg;
+    private final double pmX;
+    private final double pmY;
+    private final double pmZ;
+    private final double asphericity;
+    private final double acylindricity;
+    private final double anisotropy;
 
     private TumorDimensionRecord(long cellCount,
                                  long componentCount,
-                                 VectorMoment vectorMoment) {
+                                 RunningMoment cellMoment) {
+        double[] principalMoments = cellMoment.getPrincipalMoments();
+
         this.cellCount      = cellCount;
         this.componentCount = componentCount;
-        this.vectorMoment   = vectorMoment;
+
+        this.cmX = cellMoment.getCMX();
+        this.cmY = cellMoment.getCMY();
+        this.cmZ = cellMoment.getCMZ();
+        this.rg  = cellMoment.scalar();
+
+        this.pmX = principalMoments[0];
+        this.pmY = principalMoments[1];
+        this.pmZ = principalMoments[2];
+
+        this.asphericity   = cellMoment.asphericity();
+        this.acylindricity = cellMoment.acylindricity();
+        this.anisotropy    = cellMoment.anisotropy();
+    }
+
+    private TumorDimensionRecord(int trialIndex, int timeStep, DataInputStream input) throws IOException {
+        super(trialIndex, timeStep);
+
+        this.cellCount      = input.readLong();
+        this.componentCount = input.readLong();
+
+        this.cmX = input.readDouble();
+        this.cmY = input.readDouble();
+        this.cmZ = input.readDouble();
+        this.rg  = input.readDouble();
+
+        this.pmX = input.readDouble();
+        this.pmY = input.readDouble();
+        this.pmZ = input.readDouble();
+
+        this.asphericity   = input.readDouble();
+        this.acylindricity = input.readDouble();
+        this.anisotropy    = input.readDouble();
     }
 
     /**
@@ -46,12 +98,9 @@ public final class TumorDimensionRecord extends TumorRecord implements ReportRec
      * @return the dimension record describing the input tumor.
      */
     public static TumorDimensionRecord compute(LatticeTumor<?> tumor) {
-        int trialIndex = TumorDriver.global().getTrialIndex();
-        int timeStep   = TumorDriver.global().getTimeStep();
-
         return new TumorDimensionRecord(tumor.countCells(),
                                         tumor.countComponents(),
-                                        tumor.getVectorMoment());
+                                        tumor.getCellMoment());
     }
 
     /**
@@ -74,52 +123,83 @@ public final class TumorDimensionRecord extends TumorRecord implements ReportRec
     }
 
     /**
-     * Returns the vector moment for the tumor at the time of collection.
+     * Reads a record written by {@code write()}.
+     *
+     * @param input the checkpoint stream.
+     *
+     * @return the record read from the stream.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    static TumorDimensionRecord read(DataInputStream input) throws IOException {
+        int trialIndex = input.readInt();
+        int timeStep   = input.readInt();
+
+        return new TumorDimensionRecord(trialIndex, timeStep, input);
+    }
+
+    /**
+     * Writes this record to a trial checkpoint.
+     *
+     * @param output the checkpoint stream.
      *
-     * @return the vector moment for the tumor at the time of collection.
+     * @throws IOException if an I/O error occurs.
      */
-    public VectorMoment getVectorMoment() {
-        return vectorMoment;
+    void write(DataOutputStream output) throws IOException {
+        output.writeInt(getTrialIndex());
+        output.writeInt(getTimeStep());
+        output.writeLong(cellCount);
+        output.writeLong(componentCount);
+        output.writeDouble(cmX);
+        output.writeDouble(cmY);
+        output.writeDouble(cmZ);
+        output.writeDouble(rg);
+        output.writeDouble(pmX);
+        output.writeDouble(pmY);
+        output.writeDouble(pmZ);
+        output.writeDouble(asphericity);
+        output.writeDouble(acylindricity);
+        output.writeDouble(anisotropy);
     }
 
     public double getCMX() {
-        return vectorMoment.getCM().getDouble(0);
+        return cmX;
     }
 
     public double getCMY() {
-        return vectorMoment.getCM().getDouble(1);
+        return cmY;
     }
 
     public double getCMZ() {
-        return vectorMoment.getCM().getDouble(2);
+        return cmZ;
     }
 
     public double getRG() {
-        return vectorMoment.scalar();
+        return rg;
     }
 
     public double getPMX() {
-        return vectorMoment.getPrincipalMoments().pmX;
+        return pmX;
     }
 
     public double getPMY() {
-        return vectorMoment.getPrincipalMoments().pmY;
+        return pmY;
     }
 
     public double getPMZ() {
-        return vectorMoment.getPrincipalMoments().pmZ;
+        return pmZ;
     }
 
     public double getAsphericity() {
-        return vectorMoment.asphericity();
+        return asphericity;
     }
 
     public double getAcylindricity() {
-        return vectorMoment.acylindricity();
+        return acylindricity;
     }
 
     public double getAnisotropy() {
-        return vectorMoment.anisotropy();
+        return anisotropy;
     }
 
     @Override public String formatLine() {
@@ -1,10 +1,15 @@
 
 package tumor.report.metastasis;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import jam.report.LineBuilder;
 import jam.report.ReportRecord;
 
+import tumor.mutation.MutationSet;
 import tumor.mutation.MutationalDistance;
+import tumor.mutation.MutationalDistanceMatrix;
 import tumor.report.TumorSample;
 import tumor.report.dimension.TumorDimensionCache;
 
@@ -49,6 +54,45 @@ public final class MetMutDistRecord implements ReportRecord {
         return new MetMutDistRecord(metSample, bulkSample, mutDist);
     }
 
+    /**
+     * Computes the mutational distance between every metastasis sample
+     * and every bulk sample.
+     *
+     * <p>The clonal mutations in all samples are encoded as bit sets
+     * once and the distances for all pairs are computed in a single
+     * pass.
+     *
+     * @param metSamples the metastasis samples to compare.
+     *
+     * @param bulkSamples the bulk samples to compare.
+     *
+     * @return a list containing one record for each pair of samples,
+     * in the order of the metastasis samples and then the bulk
+     * samples.
+     */
+    public static List<MetMutDistRecord> computeAll(List<TumorSample> metSamples, List<TumorSample> bulkSamples) {
+        MutationalDistanceMatrix matrix =
+            MutationalDistanceMatrix.compute(clonalSets(metSamples), clonalSets(bulkSamples));
+
+        List<MetMutDistRecord> records =
+            new ArrayList<MetMutDistRecord>(metSamples.size() * bulkSamples.size());
+
+        for (int met = 0; met < metSamples.size(); ++met)
+            for (int bulk = 0; bulk < bulkSamples.size(); ++bulk)
+                records.add(new MetMutDistRecord(metSamples.get(met), bulkSamples.get(bulk), matrix.get(met, bulk)));
+
+        return records;
+    }
+
+    private static List<MutationSet> clonalSets(List<TumorSample> samples) {
+        List<MutationSet> clonalSets = new ArrayList<MutationSet>(samples.size());
+
+        for (TumorSample sample : samples)
+            clonalSets.add(sample.getVAF().viewClonalMutations());
+
+        return clonalSets;
+    }
+
     public int getTrialIndex() {
         return metSample.getTrialIndex();
     }
@@ -191,21 +191,11 @@ public final class MetMutDistReport extends TumorReport {
     }
 
     @Override public void finalizeSimulation() {
-        reportWriter.close();
+        closeWriter(reportWriter);
     }
 
     private void writeReportRecords() {
-        int recordIndex = 1;
-        int recordCount = metSamples.size() * bulkSamples.size();
-
-        for (TumorSample metSample : metSamples) {
-            for (TumorSample bulkSample : bulkSamples) {
-                JamLogger.info("Generating metastasis mutational distance record [%d] of [%d]...", recordIndex, recordCount);
-                reportWriter.write(MetMutDistRecord.compute(metSample, bulkSample));
-                ++recordIndex;
-            }
-        }
-
-        reportWriter.flush();
+        JamLogger.info("Generating [%d] metastasis mutational distance records...", metSamples.size() * bulkSamples.size());
+        writeRecords(reportWriter, MetMutDistRecord.computeAll(metSamples, bulkSamples));
     }
 }
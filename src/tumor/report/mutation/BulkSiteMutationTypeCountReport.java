@@ -6,8 +6,8 @@ import java.util.List;
 import java.util.Set;
 
 import jam.lattice.Coord;
-import jam.math.JamRandom;
-import jam.util.ListUtil;
+
+import tumor.random.RandomStreams;
 
 /**
  * Records the number of mutations by type at sites throughout the
@@ -85,7 +85,7 @@ public final class BulkSiteMutationTypeCountReport extends MutationTypeCountRepo
 
         // Select the desired number of occupied sites randomly...
         List<Coord> sampleCoords = new ArrayList<Coord>(occupiedCoords);
-        ListUtil.shuffle(sampleCoords, JamRandom.global());
+        RandomStreams.current().shuffle(sampleCoords);
 
         return MutationTypeCountRecord.forSites(BASE_NAME, typeNames, sampleCoords.subList(0, siteCount));
     }
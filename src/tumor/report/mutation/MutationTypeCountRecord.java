@@ -166,10 +166,10 @@ public final class MutationTypeCountRecord extends TumorRecord implements Report
         long   siteCellCount  = tumor.countCells(siteCoord);
         long   siteCompCount  = tumor.countComponents(siteCoord);
         long   tumorCellCount = tumor.countCells();
-        double normRadialDist = siteCoord.normRadialDist(tumor.getVectorMoment());
+        double normRadialDist = tumor.getCellMoment().normR(siteCoord);
 
         JamVector cmVector =
-            siteCoord.cmVector(tumor.getVectorMoment().getCM());
+            siteCoord.cmVector(tumor.getCellMoment().getCM());
 
         Multiset<String> typeCountSet =
             forCell ? countCell(siteCoord) : countSite(siteCoord);
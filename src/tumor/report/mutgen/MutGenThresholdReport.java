@@ -168,15 +168,17 @@ public final class MutGenThresholdReport extends TumorReport {
     }
 
     @Override public void finalizeSimulation() {
-        reportWriter.close();
+        closeWriter(reportWriter);
     }
 
     private void writeReportRecords() {
         JamLogger.info("Writing mutation generator threshold records...");
 
+        List<MutGenThresholdRecord> records = new ArrayList<MutGenThresholdRecord>(bulkSamples.size());
+
         for (TumorSample bulkSample : bulkSamples)
-            reportWriter.write(MutGenThresholdRecord.compute(bulkSample));
+            records.add(MutGenThresholdRecord.compute(bulkSample));
 
-        reportWriter.flush();
+        writeRecords(reportWriter, records);
     }
 }
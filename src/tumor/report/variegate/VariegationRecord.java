@@ -9,6 +9,8 @@ import jam.report.LineBuilder;
 import jam.report.ReportRecord;
 
 import tumor.mutation.Mutation;
+import tumor.mutation.MutationBitSet;
+import tumor.mutation.MutationIndexMap;
 import tumor.mutation.MutationSet;
 import tumor.report.TumorSample;
 import tumor.report.VAF;
@@ -59,6 +61,46 @@ public final class VariegationRecord implements ReportRecord {
         return records;
     }
 
+    /**
+     * Generates variegation records for every pair of samples in a
+     * group.
+     *
+     * <p>The distinct mutations in all samples are encoded as bit sets
+     * once, so the shared mutations for each pair are found by a word
+     * scan rather than hash probes.
+     *
+     * @param samples the samples to compare.
+     *
+     * @return a list containing the records for each distinct pair of
+     * samples {@code (first, second)} with {@code first < second}, in
+     * the order of {@code first} and then {@code second} (and the
+     * shared mutations for each pair in chronological order).
+     */
+    public static List<VariegationRecord> generateAll(List<TumorSample> samples) {
+        List<MutationSet> distinctSets = new ArrayList<MutationSet>(samples.size());
+
+        for (TumorSample sample : samples)
+            distinctSets.add(sample.getVAF().viewDistinctMutations());
+
+        MutationIndexMap     indexMap = MutationIndexMap.create(distinctSets);
+        List<MutationBitSet> bitSets  = indexMap.encodeAll(distinctSets);
+
+        List<VariegationRecord> records = new ArrayList<VariegationRecord>();
+
+        for (int first = 0; first < samples.size() - 1; ++first) {
+            for (int second = first + 1; second < samples.size(); ++second) {
+                TumorSample sample1 = samples.get(first);
+                TumorSample sample2 = samples.get(second);
+
+                for (Mutation mutation : bitSets.get(first).intersection(bitSets.get(second)))
+                    if (sample1.getVAF().isPrivate(mutation) && sample2.getVAF().isPrivate(mutation))
+                        records.add(new VariegationRecord(sample1, sample2, mutation));
+            }
+        }
+
+        return records;
+    }
+
     public int getTrialIndex() {
         return sample1.getTrialIndex();
     }
@@ -102,7 +102,7 @@ public final class VariegationReport extends TumorReport {
     }
 
     @Override public void finalizeSimulation() {
-        reportWriter.close();
+        closeWriter(reportWriter);
     }
 
     private void writeReportRecords() {
@@ -111,11 +111,6 @@ public final class VariegationReport extends TumorReport {
         //
         JamLogger.info("Generating variegation records...");
         List<TumorSample> samples = BulkSampleCollector.collect(sampleSpace, sampleSize);
-
-        for (int first = 0; first < samples.size() - 1; ++first)
-            for (int second = first + 1; second < samples.size(); ++second)
-                reportWriter.write(VariegationRecord.generate(samples.get(first), samples.get(second)));
-
-        reportWriter.flush();
+        writeRecords(reportWriter, VariegationRecord.generateAll(samples));
     }
 }
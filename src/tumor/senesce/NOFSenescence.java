@@ -98,12 +98,11 @@ public final class NOFSenescence extends SenescenceModel {
     }
 
     public long getNeighborhoodOccupancy(LatticeTumor<?> tumor, Coord center) {
-        long result = 0;
-
-        for (Coord coord : neighborhood.getNeighbors(center))
-            result += tumor.countCells(coord);
+        return tumor.countCells(center, neighborhood);
+    }
 
-        return result;
+    @Override public Neighborhood getNeighborhood() {
+        return neighborhood;
     }
 
     /**
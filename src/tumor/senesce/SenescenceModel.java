@@ -3,6 +3,7 @@ package tumor.senesce;
 
 import jam.app.JamProperties;
 import jam.lang.JamException;
+import jam.lattice.Neighborhood;
 
 import tumor.carrier.TumorComponent;
 import tumor.lattice.LatticeTumor;
@@ -64,6 +65,21 @@ public abstract class SenescenceModel {
      */
     public abstract <E extends TumorComponent> boolean senesce(LatticeTumor<E> tumor, E component);
 
+    /**
+     * Returns the lattice neighborhood whose total occupancy this
+     * model examines, so that lattice tumors may maintain the totals
+     * as the site occupancies change.
+     *
+     * <p>This default method returns {@code null}: the model does not
+     * examine neighborhood occupancy.
+     *
+     * @return the neighborhood examined by this model, or {@code null}
+     * if the model does not examine neighborhood occupancy.
+     */
+    public Neighborhood getNeighborhood() {
+        return null;
+    }
+
     /**
      * Returns the enumerated model type.
      *
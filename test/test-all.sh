@@ -11,6 +11,24 @@ cd `dirname $0`
     surface-site-mutation-type-count.csv \
     runtime.prop
 
+./test-resume.sh resume/lattice-cell/driver.prop \
+    final-cell-count.csv \
+    component-ancestry.csv.gz \
+    component-coord.csv.gz \
+    original-mutations.csv.gz || exit $?
+
+./test-resume.sh resume/lattice-grid/driver.prop \
+    final-cell-count.csv \
+    component-ancestry.csv.gz \
+    component-coord.csv.gz \
+    original-mutations.csv.gz || exit $?
+
+./test-resume.sh resume/point-lineage/driver.prop \
+    final-cell-count.csv \
+    component-ancestry.csv.gz \
+    original-mutations.csv.gz \
+    accumulated-mutations.csv.gz || exit $?
+
 exit 0
 
 ./test-driver.sh \
@@ -1,6 +1,11 @@
 #!/bin/sh
 ########################################################################
 # Driver script for regression testing of complete simulations.
+#
+# With UPDATE_GOLD=1 in the environment, the simulation is run and its
+# output files replace the gold files instead of being compared with
+# them (run "UPDATE_GOLD=1 ./test-all.sh" after any change that is
+# intended to alter simulated trajectories).
 ########################################################################
 
 if [ $# -lt 2 ]
@@ -20,6 +25,17 @@ ReportDir=`dirname $DriverProp`
 DriverProp=`basename $DriverProp`
 
 cd $ReportDir
-echo "Testing in directory [`pwd`]..."
 
-$JAM_TEST "$TUMOR_DRIVER -ea $DriverProp" $GOLD_DIR "$@"
+if [ "${UPDATE_GOLD}" = "1" ]
+then
+    echo "Updating gold files in directory [`pwd`]..."
+    $TUMOR_DRIVER -ea $DriverProp || exit $?
+
+    for File in "$@"
+    do
+        cp $File $GOLD_DIR/$File || exit $?
+    done
+else
+    echo "Testing in directory [`pwd`]..."
+    $JAM_TEST "$TUMOR_DRIVER -ea $DriverProp" $GOLD_DIR "$@"
+fi
@@ -0,0 +1,86 @@
+#!/bin/sh
+########################################################################
+# Regression test for trial checkpoints.  The simulation defined by
+# the driver property file must record a checkpoint before its final
+# step.  The simulation is run without interruption, then resumed
+# from the last checkpoint that it recorded; the listed final-state
+# files from both runs must be identical.
+########################################################################
+
+if [ $# -lt 2 ]
+then
+    echo "Usage:" `basename $0` "DriverProp File1 [File2 ...]"
+    exit 1
+fi
+
+TUMOR_DRIVER=${TUMOR_HOME}/bin/tumor-driver.sh
+
+CHECKPOINT_FILE=checkpoint.bin.gz
+RESUME_FILE=resume-from.bin.gz
+RESUME_PROP=resume.prop
+FULL_DIR=full
+
+DriverProp=$1
+shift
+
+ReportDir=`dirname $DriverProp`
+DriverProp=`basename $DriverProp`
+
+cd $ReportDir
+echo "Testing resume in directory [`pwd`]..."
+
+# ------------------
+# Uninterrupted run
+# ------------------
+
+$TUMOR_DRIVER -ea $DriverProp || exit $?
+
+if [ ! -f $CHECKPOINT_FILE ]
+then
+    echo "No checkpoint was recorded; exiting."
+    exit 1
+fi
+
+mkdir -p $FULL_DIR
+
+for File in "$@"
+do
+    mv $File $FULL_DIR/$File || exit $?
+done
+
+# ----------------------------------
+# Run resumed from the checkpoint
+# ----------------------------------
+
+mv $CHECKPOINT_FILE $RESUME_FILE || exit $?
+echo "tumor.driver.resumeFrom = $RESUME_FILE" > $RESUME_PROP
+
+$TUMOR_DRIVER -ea $DriverProp $RESUME_PROP || exit $?
+
+Status=0
+
+for File in "$@"
+do
+    case $File in
+        *.gz)
+            gzip -dc $File > $File.resumed
+            gzip -dc $FULL_DIR/$File > $File.full
+            ;;
+        *)
+            cp $File $File.resumed
+            cp $FULL_DIR/$File $File.full
+            ;;
+    esac
+
+    if cmp -s $File.full $File.resumed
+    then
+        echo "  [$File] matches."
+    else
+        echo "  [$File] DIFFERS after resuming from the checkpoint."
+        Status=1
+    fi
+
+    rm -f $File.full $File.resumed
+done
+
+exit $Status